@@ -0,0 +1,33 @@
+package org.davincischools.leo.benchmarks;
+
+import org.davincischools.leo.database.test.TestDatabase;
+import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.server.utils.http_executor.LogFormatter;
+import org.davincischools.leo.server.utils.http_executor.LogWriter;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * A Spring context with the database repositories, backed by the same MySQL container as the
+ * database tests. So, benchmarks that use it need Docker.
+ */
+class BenchmarkContext {
+
+  @Configuration
+  @ComponentScan(basePackageClasses = {TestDatabase.class, Database.class})
+  @Import({LogWriter.class, LogFormatter.class})
+  @EnableAutoConfiguration
+  static class BenchmarkConfiguration {}
+
+  static ConfigurableApplicationContext start(String... properties) {
+    return new SpringApplicationBuilder(BenchmarkConfiguration.class)
+        .web(WebApplicationType.NONE)
+        .properties(properties)
+        .run();
+  }
+}
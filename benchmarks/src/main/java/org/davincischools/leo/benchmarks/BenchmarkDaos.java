@@ -0,0 +1,85 @@
+package org.davincischools.leo.benchmarks;
+
+import java.time.Instant;
+import org.davincischools.leo.database.daos.KnowledgeAndSkill;
+import org.davincischools.leo.database.daos.Project;
+import org.davincischools.leo.database.daos.ProjectInputFulfillment;
+import org.davincischools.leo.database.daos.ProjectPost;
+import org.davincischools.leo.database.daos.ProjectPostComment;
+import org.davincischools.leo.database.daos.ProjectPostRating;
+import org.davincischools.leo.database.daos.ProjectPostRating.RatingType;
+import org.davincischools.leo.database.daos.UserX;
+
+/** Dao graphs shaped like the ones that the server loads, without a database. */
+class BenchmarkDaos {
+
+  private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+  static ProjectPost createProjectPost(int numComments, int numRatings) {
+    int id = 0;
+    var userX =
+        new UserX()
+            .setId(++id)
+            .setCreationTime(NOW)
+            .setFirstName("First")
+            .setLastName("Last")
+            .setEmailAddress("first.last@example.com");
+    var project =
+        new Project()
+            .setId(++id)
+            .setCreationTime(NOW)
+            .setName("Project")
+            .setShortDescr("A short description.")
+            .setLongDescrHtml("<p>" + "A long description. ".repeat(50) + "</p>");
+    var projectPost =
+        new ProjectPost()
+            .setId(++id)
+            .setCreationTime(NOW)
+            .setPostTime(NOW)
+            .setName("Post")
+            .setMessageHtml("<p>" + "A message. ".repeat(50) + "</p>")
+            .setDesiredFeedback("Feedback.")
+            .setBeingEdited(false)
+            .setUserX(userX)
+            .setProject(project);
+
+    for (int i = 0; i < numComments; ++i) {
+      projectPost
+          .getProjectPostComments()
+          .add(
+              new ProjectPostComment()
+                  .setId(++id)
+                  .setCreationTime(NOW)
+                  .setPostTime(NOW)
+                  .setCommentHtml("<p>" + "A comment. ".repeat(20) + "</p>")
+                  .setBeingEdited(false)
+                  .setUserX(userX)
+                  .setProjectPost(projectPost));
+    }
+
+    for (int i = 0; i < numRatings; ++i) {
+      var projectInputFulfillment = new ProjectInputFulfillment().setId(++id);
+      var knowledgeAndSkill =
+          new KnowledgeAndSkill()
+              .setId(++id)
+              .setCreationTime(NOW)
+              .setName("Skill " + i)
+              .setType(KnowledgeAndSkill.Type.EKS)
+              .setUserX(userX);
+      projectPost
+          .getProjectPostRatings()
+          .add(
+              new ProjectPostRating()
+                  .setId(++id)
+                  .setCreationTime(NOW)
+                  .setRating(3)
+                  .setRatingType(RatingType.INITIAL_1_TO_5)
+                  .setUserX(userX)
+                  .setProjectPost(projectPost)
+                  .setKnowledgeAndSkill(knowledgeAndSkill)
+                  .setProjectInputFulfillment(projectInputFulfillment));
+    }
+
+    return projectPost;
+  }
+}
@@ -0,0 +1,47 @@
+package org.davincischools.leo.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.davincischools.leo.database.daos.ProjectPost;
+import org.davincischools.leo.database.daos.ProjectPostComment;
+import org.davincischools.leo.database.utils.DaoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Shallow copies daos before they're saved, as the repositories' upsert methods do. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DaoUtilsBenchmark {
+
+  private ProjectPost projectPost;
+  private List<ProjectPostComment> projectPostComments;
+
+  @Setup
+  public void setup() {
+    projectPost = BenchmarkDaos.createProjectPost(/* numComments= */ 10, /* numRatings= */ 10);
+    projectPostComments = List.copyOf(projectPost.getProjectPostComments());
+  }
+
+  @Benchmark
+  public ProjectPost removeTransientValues() {
+    return DaoUtils.removeTransientValues(projectPost);
+  }
+
+  @Benchmark
+  public void removeTransientValuesOfList(Blackhole blackhole) {
+    DaoUtils.removeTransientValues(projectPostComments, blackhole::consume);
+  }
+}
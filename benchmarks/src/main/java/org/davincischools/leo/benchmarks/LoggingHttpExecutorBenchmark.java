@@ -0,0 +1,86 @@
+package org.davincischools.leo.benchmarks;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.server.utils.ProtoDaoUtils;
+import org.davincischools.leo.server.utils.http_executor.HttpExecutorException;
+import org.davincischools.leo.server.utils.http_executor.HttpExecutors;
+import org.davincischools.leo.server.utils.http_executor.LogFormatter;
+import org.davincischools.leo.server.utils.http_executor.LogWriter;
+import org.davincischools.leo.server.utils.http_executor.LogWriter.Backpressure;
+import org.davincischools.leo.server.utils.http_user_x.HttpUserX;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * The overhead that an {@link HttpExecutors} chain adds to a request, including formatting its log.
+ *
+ * <p>Logs that the {@link LogWriter} can't keep up with are dropped. So, this measures the request
+ * thread rather than the database. Needs Docker, see {@link BenchmarkContext}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggingHttpExecutorBenchmark {
+
+  @Param({"false", "true"})
+  public boolean onlyLogOnFailure;
+
+  private ConfigurableApplicationContext context;
+  private HttpExecutors httpExecutors;
+  private org.davincischools.leo.protos.pl_types.ProjectPost request;
+
+  @Setup
+  public void setup() {
+    context = BenchmarkContext.start(LogWriter.BACKPRESSURE_PROP_NAME + "=" + Backpressure.DROP);
+
+    var httpRequest = new MockHttpServletRequest();
+    var httpResponse = new MockHttpServletResponse();
+    httpExecutors =
+        new HttpExecutors(
+            context.getBean(Database.class),
+            context.getBean(LogWriter.class),
+            context.getBean(LogFormatter.class),
+            new HttpUserX(Optional.empty(), httpRequest, httpResponse, false),
+            httpResponse);
+
+    request =
+        ProtoDaoUtils.toProjectPostProto(
+                BenchmarkDaos.createProjectPost(/* numComments= */ 5, /* numRatings= */ 5),
+                true,
+                org.davincischools.leo.protos.pl_types.ProjectPost::newBuilder)
+            .orElseThrow()
+            .build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Integer startAndFinish() throws HttpExecutorException {
+    return httpExecutors
+        .start(request)
+        .setOnlyLogOnFailure(onlyLogOnFailure)
+        .andThen((request, log) -> request.getCommentsCount())
+        .finish();
+  }
+}
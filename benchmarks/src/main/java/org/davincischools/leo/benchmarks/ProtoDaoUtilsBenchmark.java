@@ -0,0 +1,54 @@
+package org.davincischools.leo.benchmarks;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.davincischools.leo.database.daos.ProjectPost;
+import org.davincischools.leo.server.utils.ProtoDaoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Translates a project post, with its comments and ratings, between a dao and a proto. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProtoDaoUtilsBenchmark {
+
+  @Param({"0", "10"})
+  public int numChildren;
+
+  private ProjectPost projectPost;
+  private org.davincischools.leo.protos.pl_types.ProjectPost projectPostProto;
+
+  @Setup
+  public void setup() {
+    projectPost = BenchmarkDaos.createProjectPost(numChildren, numChildren);
+    projectPostProto =
+        ProtoDaoUtils.toProjectPostProto(
+                projectPost, true, org.davincischools.leo.protos.pl_types.ProjectPost::newBuilder)
+            .orElseThrow()
+            .build();
+  }
+
+  @Benchmark
+  public Optional<org.davincischools.leo.protos.pl_types.ProjectPost.Builder> toProjectPostProto() {
+    return ProtoDaoUtils.toProjectPostProto(
+        projectPost, true, org.davincischools.leo.protos.pl_types.ProjectPost::newBuilder);
+  }
+
+  @Benchmark
+  public Optional<ProjectPost> toProjectPostDao() {
+    return ProtoDaoUtils.toProjectPostDao(projectPostProto);
+  }
+}
@@ -0,0 +1,114 @@
+package org.davincischools.leo.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.davincischools.leo.database.daos.Project;
+import org.davincischools.leo.database.daos.ProjectPost;
+import org.davincischools.leo.database.daos.ProjectPostComment;
+import org.davincischools.leo.database.daos.UserX;
+import org.davincischools.leo.database.test.TestData;
+import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.database.utils.query_helper.QueryHelper;
+import org.davincischools.leo.database.utils.repos.GetProjectPostsParams;
+import org.davincischools.leo.database.utils.repos.ProjectPostRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Gets a page of project posts with their comments and ratings, as the posts page does.
+ *
+ * <p>With a plan cache size of 0 every query builds its entity graph and criteria query again. The
+ * difference from the default size is the cost of that building. Needs Docker, see {@link
+ * BenchmarkContext}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryHelperBenchmark {
+
+  private static final int NUM_POSTS = 50;
+  private static final int NUM_COMMENTS_PER_POST = 5;
+
+  @Param({"0", "500"})
+  public int planCacheSize;
+
+  private ConfigurableApplicationContext context;
+  private QueryHelper queryHelper;
+  private List<Integer> projectIds;
+
+  @Setup
+  public void setup() {
+    context = BenchmarkContext.start();
+    Database db = context.getBean(Database.class);
+    UserX userX = context.getBean(TestData.class).getStudent();
+
+    Instant now = Instant.now();
+    Project project =
+        db.getProjectRepository().save(new Project().setCreationTime(now).setName("Project"));
+    for (int i = 0; i < NUM_POSTS; ++i) {
+      ProjectPost projectPost =
+          db.getProjectPostRepository()
+              .save(
+                  new ProjectPost()
+                      .setCreationTime(now.plusMillis(i))
+                      .setPostTime(now.plusMillis(i))
+                      .setName("Post " + i)
+                      .setUserX(userX)
+                      .setProject(project));
+      for (int j = 0; j < NUM_COMMENTS_PER_POST; ++j) {
+        db.getProjectPostCommentRepository()
+            .save(
+                new ProjectPostComment()
+                    .setCreationTime(now)
+                    .setPostTime(now)
+                    .setCommentHtml("Comment " + j)
+                    .setUserX(userX)
+                    .setProjectPost(projectPost));
+      }
+    }
+    projectIds = List.of(project.getId());
+
+    queryHelper =
+        new QueryHelper(
+            context.getBean(EntityManager.class),
+            /* partitionPluralFetches= */ true,
+            planCacheSize);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Page<ProjectPost> getProjectPosts() {
+    return queryHelper.query(
+        ProjectPost.class,
+        projectPost ->
+            ProjectPostRepository.configureQuery(
+                projectPost,
+                new GetProjectPostsParams()
+                    .setProjectIds(projectIds)
+                    .setIncludeComments(true)
+                    .setIncludeRatings(true)),
+        Pageable.ofSize(QueryHelper.DEFAULT_PAGE_SIZE));
+  }
+}
@@ -0,0 +1,85 @@
+package org.davincischools.leo.benchmarks;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.davincischools.leo.protos.task_service.ReplyToPostTask;
+import org.davincischools.leo.server.utils.task_queue.DefaultTaskMetadata;
+import org.davincischools.leo.server.utils.task_queue.TaskQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Submits a batch of in-memory tasks that do no work and waits for all of them to be dispatched.
+ * So, this measures the queue's own overhead per task: deduplication, locking, and handing tasks to
+ * the worker threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskQueueBenchmark {
+
+  private static final int TASKS_PER_INVOCATION = 1000;
+
+  private static class NoOpTaskQueue extends TaskQueue<ReplyToPostTask, DefaultTaskMetadata> {
+
+    volatile CountDownLatch done = new CountDownLatch(0);
+
+    NoOpTaskQueue(int numThreads) {
+      super(numThreads);
+    }
+
+    @Override
+    protected DefaultTaskMetadata createDefaultMetadata() {
+      return new DefaultTaskMetadata();
+    }
+
+    @Override
+    protected boolean processTask(ReplyToPostTask task, DefaultTaskMetadata metadata) {
+      done.countDown();
+      return true;
+    }
+  }
+
+  @Param({"1", "4"})
+  public int numThreads;
+
+  private NoOpTaskQueue taskQueue;
+  private int nextProjectId = 0;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    // Queues can't be stopped. But, their threads are daemons and a fork only has a few trials.
+    taskQueue = new NoOpTaskQueue(numThreads);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TASKS_PER_INVOCATION)
+  public void submitAndDispatch() throws InterruptedException {
+    taskQueue.done = new CountDownLatch(TASKS_PER_INVOCATION);
+
+    // Distinct tasks, so that none are deduplicated.
+    for (int i = 0; i < TASKS_PER_INVOCATION; ++i) {
+      taskQueue.submitTask(
+          ReplyToPostTask.newBuilder().setProjectId(++nextProjectId).build(), Duration.ZERO);
+    }
+
+    checkState(taskQueue.done.await(1, TimeUnit.MINUTES), "Tasks were not dispatched.");
+  }
+}
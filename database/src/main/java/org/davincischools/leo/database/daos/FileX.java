@@ -2,6 +2,8 @@ package org.davincischools.leo.database.daos;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -38,8 +40,12 @@ public class FileX implements Serializable {
   public static final String COLUMN_DELETED_NAME = "deleted";
   public static final String COLUMN_FILENAME_NAME = "file_name";
   public static final String COLUMN_FILECONTENT_NAME = "file_content";
+  public static final String COLUMN_CONTENTHASH_NAME = "content_hash";
+  public static final String COLUMN_CONTENTLENGTH_NAME = "content_length";
   public static final String COLUMN_FILEKEY_NAME = "file_key";
   public static final String COLUMN_MIMETYPE_NAME = "mime_type";
+  public static final String COLUMN_DERIVATIVESIZE_NAME = "derivative_size";
+  public static final String COLUMN_DERIVATIVESCREATED_NAME = "derivatives_created";
   @Serial private static final long serialVersionUID = -785062908385251915L;
 
   private Integer id;
@@ -52,12 +58,22 @@ public class FileX implements Serializable {
 
   private byte[] fileContent;
 
+  private String contentHash;
+
+  private Integer contentLength;
+
   private String fileKey;
 
   private String mimeType;
 
   private UserX userX;
 
+  private FileX originalFileX;
+
+  private DerivativeSizeType derivativeSize;
+
+  private Instant derivativesCreated;
+
   private Set<ProjectImage> projectImages = new LinkedHashSet<>();
 
   @Id
@@ -82,11 +98,21 @@ public class FileX implements Serializable {
     return fileName;
   }
 
-  @Column(name = COLUMN_FILECONTENT_NAME, nullable = false)
+  @Column(name = COLUMN_FILECONTENT_NAME)
   public byte[] getFileContent() {
     return fileContent;
   }
 
+  @Column(name = COLUMN_CONTENTHASH_NAME, length = 64)
+  public String getContentHash() {
+    return contentHash;
+  }
+
+  @Column(name = COLUMN_CONTENTLENGTH_NAME)
+  public Integer getContentLength() {
+    return contentLength;
+  }
+
   @Column(name = COLUMN_FILEKEY_NAME, nullable = false, length = 20)
   public String getFileKey() {
     return fileKey;
@@ -104,8 +130,31 @@ public class FileX implements Serializable {
     return userX;
   }
 
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "original_file_x_id")
+  public FileX getOriginalFileX() {
+    return originalFileX;
+  }
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = COLUMN_DERIVATIVESIZE_NAME)
+  public DerivativeSizeType getDerivativeSize() {
+    return derivativeSize;
+  }
+
+  @Column(name = COLUMN_DERIVATIVESCREATED_NAME)
+  public Instant getDerivativesCreated() {
+    return derivativesCreated;
+  }
+
   @OneToMany(mappedBy = "fileX")
   public Set<ProjectImage> getProjectImages() {
     return projectImages;
   }
+
+  public enum DerivativeSizeType {
+    THUMBNAIL,
+    MEDIUM,
+    LARGE
+  }
 }
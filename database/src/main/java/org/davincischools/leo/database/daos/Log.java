@@ -41,6 +41,7 @@ public class Log implements Serializable {
   public static final String COLUMN_STATUS_NAME = "status";
   public static final String COLUMN_NOTES_NAME = "notes";
   public static final String COLUMN_ISSUELINK_NAME = "issue_link";
+  public static final String COLUMN_CORRELATIONID_NAME = "correlation_id";
   public static final String COLUMN_CALLER_NAME = "caller";
   public static final String COLUMN_REQUEST_NAME = "request";
   public static final String COLUMN_REQUESTTYPE_NAME = "request_type";
@@ -71,6 +72,8 @@ public class Log implements Serializable {
 
   private String issueLink;
 
+  private String correlationId;
+
   private String caller;
 
   private String request;
@@ -142,6 +145,11 @@ public class Log implements Serializable {
     return issueLink;
   }
 
+  @Column(name = COLUMN_CORRELATIONID_NAME, length = 22)
+  public String getCorrelationId() {
+    return correlationId;
+  }
+
   @Lob
   @Column(name = COLUMN_CALLER_NAME)
   public String getCaller() {
@@ -0,0 +1,82 @@
+package org.davincischools.leo.database.daos;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Accessors(chain = true)
+@Entity(name = OpenAiCache.ENTITY_NAME)
+@Table(name = OpenAiCache.TABLE_NAME, schema = "leo_test")
+public class OpenAiCache implements Serializable {
+
+  public static final String ENTITY_NAME = "OpenAiCache";
+  public static final String TABLE_NAME = "open_ai_cache";
+  public static final String COLUMN_ID_NAME = "id";
+  public static final String COLUMN_CREATIONTIME_NAME = "creation_time";
+  public static final String COLUMN_DELETED_NAME = "deleted";
+  public static final String COLUMN_REQUESTHASH_NAME = "request_hash";
+  public static final String COLUMN_RESPONSE_NAME = "response";
+  public static final String COLUMN_EXPIRESAT_NAME = "expires_at";
+  @Serial private static final long serialVersionUID = -2907736213880459145L;
+
+  private Integer id;
+
+  private Instant creationTime;
+
+  private Instant deleted;
+
+  private String requestHash;
+
+  private String response;
+
+  private Instant expiresAt;
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = COLUMN_ID_NAME, nullable = false)
+  public Integer getId() {
+    return id;
+  }
+
+  @Column(name = COLUMN_CREATIONTIME_NAME, nullable = false)
+  public Instant getCreationTime() {
+    return creationTime;
+  }
+
+  @Column(name = COLUMN_DELETED_NAME)
+  public Instant getDeleted() {
+    return deleted;
+  }
+
+  @Column(name = COLUMN_REQUESTHASH_NAME, nullable = false, length = 64)
+  public String getRequestHash() {
+    return requestHash;
+  }
+
+  @Lob
+  @Column(name = COLUMN_RESPONSE_NAME, nullable = false)
+  public String getResponse() {
+    return response;
+  }
+
+  @Column(name = COLUMN_EXPIRESAT_NAME, nullable = false)
+  public Instant getExpiresAt() {
+    return expiresAt;
+  }
+}
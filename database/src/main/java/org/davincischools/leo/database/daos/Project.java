@@ -12,6 +12,8 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import java.io.Serial;
 import java.io.Serializable;
@@ -24,6 +26,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 import org.davincischools.leo.database.dao_interfaces.PropagateDeleteFrom;
+import org.davincischools.leo.database.utils.query_helper.FullTextSearch;
 
 @AllArgsConstructor
 @NoArgsConstructor
@@ -42,6 +45,7 @@ public class Project implements Serializable {
   public static final String COLUMN_NAME_NAME = "name";
   public static final String COLUMN_SHORTDESCR_NAME = "short_descr";
   public static final String COLUMN_LONGDESCRHTML_NAME = "long_descr_html";
+  public static final String COLUMN_LONGDESCRTEXT_NAME = "long_descr_text";
   public static final String COLUMN_GENERATOR_NAME = "generator";
   public static final String COLUMN_FAVORITE_NAME = "favorite";
   public static final String COLUMN_THUMBSSTATE_NAME = "thumbs_state";
@@ -64,6 +68,8 @@ public class Project implements Serializable {
 
   private String longDescrHtml;
 
+  private String longDescrText;
+
   private String generator;
 
   private Boolean favorite;
@@ -138,6 +144,19 @@ public class Project implements Serializable {
     return longDescrHtml;
   }
 
+  @Lob
+  @Column(name = COLUMN_LONGDESCRTEXT_NAME)
+  public String getLongDescrText() {
+    return longDescrText;
+  }
+
+  // Keeps the plain text copy of long_descr_html, which is indexed, in sync. See FullTextSearch.
+  @PrePersist
+  @PreUpdate
+  public void updateLongDescrText() {
+    longDescrText = FullTextSearch.toPlainText(longDescrHtml);
+  }
+
   @Lob
   @Column(name = COLUMN_GENERATOR_NAME)
   public String getGenerator() {
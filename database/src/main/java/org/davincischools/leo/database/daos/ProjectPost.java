@@ -11,6 +11,8 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import java.io.Serial;
 import java.io.Serializable;
@@ -23,6 +25,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 import org.davincischools.leo.database.dao_interfaces.PropagateDeleteFrom;
+import org.davincischools.leo.database.utils.query_helper.FullTextSearch;
 
 @AllArgsConstructor
 @NoArgsConstructor
@@ -49,6 +52,7 @@ public class ProjectPost implements Serializable {
   public static final String COLUMN_MESSAGEHTML_NAME = "message_html";
   public static final String COLUMN_POSTTIME_NAME = "post_time";
   public static final String COLUMN_LONGDESCRHTML_NAME = "long_descr_html";
+  public static final String COLUMN_LONGDESCRTEXT_NAME = "long_descr_text";
   public static final String COLUMN_DESIREDFEEDBACK_NAME = "desired_feedback";
   public static final String COLUMN_BEINGEDITED_NAME = "being_edited";
   @Serial private static final long serialVersionUID = -189521540772048229L;
@@ -67,6 +71,8 @@ public class ProjectPost implements Serializable {
 
   private String longDescrHtml;
 
+  private String longDescrText;
+
   private String desiredFeedback;
 
   private Boolean beingEdited;
@@ -122,6 +128,19 @@ public class ProjectPost implements Serializable {
     return longDescrHtml;
   }
 
+  @Lob
+  @Column(name = COLUMN_LONGDESCRTEXT_NAME)
+  public String getLongDescrText() {
+    return longDescrText;
+  }
+
+  // Keeps the plain text copy of long_descr_html, which is indexed, in sync. See FullTextSearch.
+  @PrePersist
+  @PreUpdate
+  public void updateLongDescrText() {
+    longDescrText = FullTextSearch.toPlainText(longDescrHtml);
+  }
+
   @Lob
   @Column(name = COLUMN_DESIREDFEEDBACK_NAME)
   public String getDesiredFeedback() {
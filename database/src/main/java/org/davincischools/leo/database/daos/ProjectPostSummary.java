@@ -0,0 +1,123 @@
+package org.davincischools.leo.database.daos;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Lob;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.davincischools.leo.database.dao_interfaces.PropagateDeleteFrom;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Accessors(chain = true)
+@Entity(name = ProjectPostSummary.ENTITY_NAME)
+@Table(name = ProjectPostSummary.TABLE_NAME, schema = "leo_test")
+public class ProjectPostSummary implements Serializable {
+
+  public static final String ENTITY_NAME = "ProjectPostSummary";
+  public static final String TABLE_NAME = "project_post_summary";
+  public static final String COLUMN_ID_NAME = "id";
+  public static final String COLUMN_CREATIONTIME_NAME = "creation_time";
+  public static final String COLUMN_DELETED_NAME = "deleted";
+  public static final String COLUMN_THROUGHPROJECTPOSTID_NAME = "through_project_post_id";
+  public static final String COLUMN_POSTSSUMMARY_NAME = "posts_summary";
+  public static final String COLUMN_POSITIVEFEEDBACK_NAME = "positive_feedback";
+  public static final String COLUMN_TOIMPROVEFEEDBACK_NAME = "to_improve_feedback";
+  public static final String COLUMN_HOWIMPROVEDFEEDBACK_NAME = "how_improved_feedback";
+  public static final String COLUMN_FEEDBACKRESPONSES_NAME = "feedback_responses";
+  @Serial private static final long serialVersionUID = 4462391866523041877L;
+
+  private Integer id;
+
+  private Instant creationTime;
+
+  private Instant deleted;
+
+  private Integer throughProjectPostId;
+
+  private String postsSummary;
+
+  private String positiveFeedback;
+
+  private String toImproveFeedback;
+
+  private String howImprovedFeedback;
+
+  private String feedbackResponses;
+
+  private Project project;
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = COLUMN_ID_NAME, nullable = false)
+  public Integer getId() {
+    return id;
+  }
+
+  @Column(name = COLUMN_CREATIONTIME_NAME, nullable = false)
+  public Instant getCreationTime() {
+    return creationTime;
+  }
+
+  @Column(name = COLUMN_DELETED_NAME)
+  public Instant getDeleted() {
+    return deleted;
+  }
+
+  @Column(name = COLUMN_THROUGHPROJECTPOSTID_NAME, nullable = false)
+  public Integer getThroughProjectPostId() {
+    return throughProjectPostId;
+  }
+
+  @Lob
+  @Column(name = COLUMN_POSTSSUMMARY_NAME)
+  public String getPostsSummary() {
+    return postsSummary;
+  }
+
+  @Lob
+  @Column(name = COLUMN_POSITIVEFEEDBACK_NAME)
+  public String getPositiveFeedback() {
+    return positiveFeedback;
+  }
+
+  @Lob
+  @Column(name = COLUMN_TOIMPROVEFEEDBACK_NAME)
+  public String getToImproveFeedback() {
+    return toImproveFeedback;
+  }
+
+  @Lob
+  @Column(name = COLUMN_HOWIMPROVEDFEEDBACK_NAME)
+  public String getHowImprovedFeedback() {
+    return howImprovedFeedback;
+  }
+
+  @Lob
+  @Column(name = COLUMN_FEEDBACKRESPONSES_NAME)
+  public String getFeedbackResponses() {
+    return feedbackResponses;
+  }
+
+  @ManyToOne(fetch = FetchType.LAZY, optional = false)
+  @JoinColumn(name = "project_id", nullable = false)
+  @PropagateDeleteFrom
+  public Project getProject() {
+    return project;
+  }
+}
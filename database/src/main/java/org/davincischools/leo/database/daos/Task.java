@@ -0,0 +1,165 @@
+package org.davincischools.leo.database.daos;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Accessors(chain = true)
+@Entity(name = Task.ENTITY_NAME)
+@Table(name = Task.TABLE_NAME, schema = "leo_test")
+public class Task implements Serializable {
+
+  public static final String ENTITY_NAME = "Task";
+  public static final String TABLE_NAME = "task";
+  public static final String COLUMN_ID_NAME = "id";
+  public static final String COLUMN_CREATIONTIME_NAME = "creation_time";
+  public static final String COLUMN_DELETED_NAME = "deleted";
+  public static final String COLUMN_QUEUENAME_NAME = "queue_name";
+  public static final String COLUMN_PAYLOAD_NAME = "payload";
+  public static final String COLUMN_PAYLOADHASH_NAME = "payload_hash";
+  public static final String COLUMN_STATE_NAME = "state";
+  public static final String COLUMN_ATTEMPTS_NAME = "attempts";
+  public static final String COLUMN_RETRIES_NAME = "retries";
+  public static final String COLUMN_NEXTRUNAT_NAME = "next_run_at";
+  public static final String COLUMN_PENDING_NAME = "pending";
+  public static final String COLUMN_SUBMISSIONS_NAME = "submissions";
+  public static final String COLUMN_LEASEOWNER_NAME = "lease_owner";
+  public static final String COLUMN_LEASEEXPIRESAT_NAME = "lease_expires_at";
+  public static final String COLUMN_LASTFAILURE_NAME = "last_failure";
+  @Serial private static final long serialVersionUID = 4471028315874963109L;
+
+  private Integer id;
+
+  private Instant creationTime;
+
+  private Instant deleted;
+
+  private String queueName;
+
+  private byte[] payload;
+
+  private String payloadHash;
+
+  private StateType state;
+
+  private Integer attempts;
+
+  private Integer retries;
+
+  private Instant nextRunAt;
+
+  private Boolean pending;
+
+  private Integer submissions;
+
+  private String leaseOwner;
+
+  private Instant leaseExpiresAt;
+
+  private String lastFailure;
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = COLUMN_ID_NAME, nullable = false)
+  public Integer getId() {
+    return id;
+  }
+
+  @Column(name = COLUMN_CREATIONTIME_NAME, nullable = false)
+  public Instant getCreationTime() {
+    return creationTime;
+  }
+
+  @Column(name = COLUMN_DELETED_NAME)
+  public Instant getDeleted() {
+    return deleted;
+  }
+
+  @Column(name = COLUMN_QUEUENAME_NAME, nullable = false)
+  public String getQueueName() {
+    return queueName;
+  }
+
+  @Column(name = COLUMN_PAYLOAD_NAME, nullable = false)
+  public byte[] getPayload() {
+    return payload;
+  }
+
+  @Column(name = COLUMN_PAYLOADHASH_NAME, nullable = false, length = 64)
+  public String getPayloadHash() {
+    return payloadHash;
+  }
+
+  @Lob
+  @Enumerated(EnumType.STRING)
+  @Column(name = COLUMN_STATE_NAME, nullable = false)
+  public StateType getState() {
+    return state;
+  }
+
+  @Column(name = COLUMN_ATTEMPTS_NAME, nullable = false)
+  public Integer getAttempts() {
+    return attempts;
+  }
+
+  @Column(name = COLUMN_RETRIES_NAME, nullable = false)
+  public Integer getRetries() {
+    return retries;
+  }
+
+  @Column(name = COLUMN_NEXTRUNAT_NAME, nullable = false)
+  public Instant getNextRunAt() {
+    return nextRunAt;
+  }
+
+  // Generated by MySQL from the state.
+  @Column(name = COLUMN_PENDING_NAME, insertable = false, updatable = false)
+  public Boolean getPending() {
+    return pending;
+  }
+
+  @Column(name = COLUMN_SUBMISSIONS_NAME, nullable = false)
+  public Integer getSubmissions() {
+    return submissions;
+  }
+
+  @Column(name = COLUMN_LEASEOWNER_NAME)
+  public String getLeaseOwner() {
+    return leaseOwner;
+  }
+
+  @Column(name = COLUMN_LEASEEXPIRESAT_NAME)
+  public Instant getLeaseExpiresAt() {
+    return leaseExpiresAt;
+  }
+
+  @Lob
+  @Column(name = COLUMN_LASTFAILURE_NAME)
+  public String getLastFailure() {
+    return lastFailure;
+  }
+
+  public enum StateType {
+    PENDING,
+    PROCESSING,
+    FAILED
+  }
+}
@@ -0,0 +1,345 @@
+package org.davincischools.leo.database.test;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import ch.vorburger.exec.ManagedProcess;
+import ch.vorburger.exec.ManagedProcessBuilder;
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfiguration;
+import ch.vorburger.mariadb4j.DBConfiguration.Executable;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import com.google.common.base.Strings;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.mysql.cj.jdbc.MysqlDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import javax.sql.DataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.davincischools.leo.database.admin_x.DatabaseManagement;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.test.annotation.DirtiesContext.HierarchyMode;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+import org.springframework.test.util.TestSocketUtils;
+
+/**
+ * An in-process alternative to {@link TestDatabase} that doesn't need Docker. Enable it with the
+ * "embeddedDatabase" profile.
+ *
+ * <p>It runs MariaDB, which accepts the MySQL schema, from the mariaDB4j binaries. Right after the
+ * schema is first loaded, the data directory is saved as a snapshot, keyed by a hash of the schema
+ * files. Later runs copy the snapshot rather than load the schema again. {@link #restoreSnapshot}
+ * also returns a running database to it, which {@link RestoreSnapshotBeforeTestClass} does before
+ * each test class.
+ */
+@Component
+public class EmbeddedDatabase {
+
+  public static final String EMBEDDED_DATABASE_PROFILE = "embeddedDatabase";
+  public static final String CACHE_DIR_PROP_NAME = "project_leo.embedded_database.cache_dir";
+  public static final String BASE_DIR_PROP_NAME = "project_leo.embedded_database.base_dir";
+
+  private static final Logger logger = LogManager.getLogger();
+
+  // Embedded database constants.
+  private static final String MARIADB_VERSION = "10.11.5";
+  private static final String DATABASE_NAME = "leo_embedded_test";
+  private static final String ROOT_USERNAME = "root";
+  private static final String USERNAME = "test";
+  private static final String PASSWORD = "password";
+  private static final String UNPACKED_MARKER = ".unpacked";
+
+  // Running database.
+  private static SnapshotDB db = null;
+  private static Path snapshotDir = null;
+
+  /**
+   * Restores the embedded database, if it's running, before each test class. So, test classes don't
+   * see each other's data. It's registered in META-INF/spring.factories.
+   */
+  public static class RestoreSnapshotBeforeTestClass extends AbstractTestExecutionListener {
+
+    @Override
+    public int getOrder() {
+      return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public void beforeTestClass(TestContext testContext) throws Exception {
+      if (!isRunning()) {
+        // It starts from the snapshot.
+        return;
+      }
+      restoreSnapshot();
+      if (testContext.hasApplicationContext()) {
+        // The context of an earlier test class, which still has its data, e.g., in TestData.
+        testContext.markApplicationContextDirty(HierarchyMode.EXHAUSTIVE);
+      }
+    }
+  }
+
+  @Bean("dataSource")
+  @Profile(EMBEDDED_DATABASE_PROFILE)
+  @Primary
+  public static synchronized DataSource createEmbeddedDataSource(@Autowired Environment environment)
+      throws ManagedProcessException, SQLException, IOException {
+    // The database is shared by all application contexts, e.g., of different test classes. But,
+    // each gets its own pool, which is closed with the context.
+    long start = System.currentTimeMillis();
+    if (db == null) {
+      startDatabase(environment);
+    }
+
+    var dataSource = new HikariDataSource();
+    // The MariaDB driver, unlike the MySQL one, reports the MariaDB version to Hibernate.
+    dataSource.setJdbcUrl(
+        "jdbc:mariadb://localhost:" + db.getConfiguration().getPort() + "/" + DATABASE_NAME);
+    dataSource.setUsername(USERNAME);
+    dataSource.setPassword(PASSWORD);
+    dataSource.setPoolName(EmbeddedDatabase.class.getSimpleName());
+
+    logger
+        .atWarn()
+        .log(
+            "Started an embedded database at {} in {} ms. Data will not be persisted.",
+            dataSource.getJdbcUrl(),
+            System.currentTimeMillis() - start);
+    return dataSource;
+  }
+
+  /** Returns whether the embedded database has been started. */
+  public static synchronized boolean isRunning() {
+    return db != null;
+  }
+
+  /**
+   * Returns the embedded database to its snapshot, with only the schema loaded. Connections in use
+   * are broken, and pools replace idle ones. So, call it between tests, e.g., in a
+   * {@code @BeforeClass} method.
+   */
+  public static synchronized void restoreSnapshot() throws ManagedProcessException, IOException {
+    checkState(db != null, "The embedded database isn't running.");
+
+    long start = System.currentTimeMillis();
+    db.stop();
+    Path dataDir = Path.of(db.getConfiguration().getDataDir());
+    deleteDirectory(dataDir);
+    copyDirectory(snapshotDir, dataDir);
+    db.start();
+    logger.atInfo().log(
+        "Restored the embedded database snapshot in {} ms.", System.currentTimeMillis() - start);
+  }
+
+  private static void startDatabase(Environment environment)
+      throws ManagedProcessException, SQLException, IOException {
+    Path cacheDir =
+        Path.of(
+            environment.getProperty(
+                CACHE_DIR_PROP_NAME,
+                Path.of(
+                        System.getProperty("user.home"),
+                        ".cache",
+                        "project_leo",
+                        "embedded_database")
+                    .toString()));
+    snapshotDir = cacheDir.resolve("snapshot-" + MARIADB_VERSION + "-" + hashSchemaFiles());
+
+    // Start the database, from the snapshot if there is one.
+    int port = TestSocketUtils.findAvailableTcpPort();
+    var config =
+        DBConfigurationBuilder.newBuilder()
+            .setPort(port)
+            .setDataDir(Files.createTempDirectory("project_leo_embedded_database").toString())
+            .setDeletingTemporaryBaseAndDataDirsOnShutdown(true)
+            .setSecurityDisabled(false);
+    if ("root".equals(System.getProperty("user.name"))) {
+      // E.g., in a container. MariaDB refuses to run as root unless told to.
+      config.addArg("--user=root");
+    }
+    TestDatabase.FULL_TEXT_SEARCH_OPTIONS.forEach(config::addArg);
+    String baseDir = environment.getProperty(BASE_DIR_PROP_NAME);
+    if (!Strings.isNullOrEmpty(baseDir)) {
+      config.setUnpackingFromClasspath(false).setBaseDir(baseDir);
+    } else {
+      config.setBaseDir(cacheDir.resolve("mariadb-" + MARIADB_VERSION).toString());
+    }
+    boolean hasSnapshot = Files.isDirectory(snapshotDir);
+    db = new SnapshotDB(config.build());
+    db.prepare(hasSnapshot ? snapshotDir : null);
+    db.start();
+
+    if (!hasSnapshot) {
+      DataSource rootDataSource = createMysqlDataSource(port, "", ROOT_USERNAME);
+      try (Connection connection = rootDataSource.getConnection()) {
+        connection.prepareStatement("CREATE DATABASE " + DATABASE_NAME).executeUpdate();
+
+        // Anonymous users would take precedence over 'test'@'%' for local connections.
+        List<String> anonymousHosts = new ArrayList<>();
+        try (var hosts =
+            connection
+                .prepareStatement("SELECT Host FROM mysql.user WHERE User = ''")
+                .executeQuery()) {
+          while (hosts.next()) {
+            anonymousHosts.add(hosts.getString(1));
+          }
+        }
+        for (String host : anonymousHosts) {
+          var statement = connection.prepareStatement("DROP USER ''@?");
+          statement.setString(1, host);
+          statement.executeUpdate();
+        }
+      }
+      TestDatabase.createUserX(rootDataSource, USERNAME, PASSWORD);
+      TestDatabase.grantAllAccess(rootDataSource, DATABASE_NAME, USERNAME);
+      DatabaseManagement.loadSchema(createMysqlDataSource(port, DATABASE_NAME, ROOT_USERNAME));
+
+      // Snapshot the data directory while the database is stopped.
+      db.stop();
+      saveSnapshot(Path.of(db.getConfiguration().getDataDir()), snapshotDir);
+      db.start();
+    }
+  }
+
+  // The root user has no password.
+  private static DataSource createMysqlDataSource(int port, String database, String username) {
+    var mysqlDataSource = new MysqlDataSource();
+    mysqlDataSource.setUrl("jdbc:mysql://localhost:" + port + "/" + database);
+    mysqlDataSource.setUser(username);
+    return mysqlDataSource;
+  }
+
+  // Hashes the schema files, including the generated triggers, so that a changed schema gets a new
+  // snapshot.
+  private static String hashSchemaFiles() throws IOException {
+    var resolver = new PathMatchingResourcePatternResolver();
+    List<Resource> resources = new ArrayList<>();
+    resources.addAll(List.of(resolver.getResources("my-sql/*.sql")));
+    resources.addAll(List.of(resolver.getResources("my-sql-generated/*.sql")));
+    resources.sort(Comparator.comparing(Resource::getFilename));
+
+    Hasher hasher = Hashing.sha256().newHasher();
+    for (Resource resource : resources) {
+      hasher.putString(resource.getFilename(), StandardCharsets.UTF_8);
+      try (var in = resource.getInputStream()) {
+        hasher.putBytes(in.readAllBytes());
+      }
+    }
+    return hasher.hash().toString().substring(0, 16);
+  }
+
+  // Copies to a temporary directory first so that other processes never see a partial snapshot.
+  private static void saveSnapshot(Path dataDir, Path snapshotDir) throws IOException {
+    Files.createDirectories(snapshotDir.getParent());
+    Path tmpDir =
+        Files.createTempDirectory(snapshotDir.getParent(), snapshotDir.getFileName() + "-");
+    copyDirectory(dataDir, tmpDir);
+    try {
+      Files.move(tmpDir, snapshotDir, StandardCopyOption.ATOMIC_MOVE);
+      logger.atInfo().log("Saved embedded database snapshot: {}", snapshotDir);
+    } catch (IOException e) {
+      // Another process saved it first.
+      deleteDirectory(tmpDir);
+    }
+  }
+
+  private static void copyDirectory(Path from, Path to) throws IOException {
+    try (Stream<Path> paths = Files.walk(from)) {
+      for (Path path : paths.toList()) {
+        Path target = to.resolve(from.relativize(path).toString());
+        if (Files.isDirectory(path)) {
+          Files.createDirectories(target);
+        } else {
+          Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+    }
+  }
+
+  private static void deleteDirectory(Path dir) throws IOException {
+    try (Stream<Path> paths = Files.walk(dir)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  // Adds to MariaDB4j's DB: a data directory copied from a snapshot rather than installed, binaries
+  // that are only unpacked once, and a root user that can log in without a socket.
+  private static class SnapshotDB extends DB {
+
+    private SnapshotDB(DBConfiguration config) {
+      super(config);
+    }
+
+    private void prepare(@Nullable Path snapshotDir) throws ManagedProcessException, IOException {
+      prepareDirectories();
+      unpackEmbeddedDb();
+      if (snapshotDir != null) {
+        copyDirectory(snapshotDir, Path.of(configuration.getDataDir()));
+      } else {
+        install();
+      }
+    }
+
+    @Override
+    protected void unpackEmbeddedDb() {
+      if (configuration.getBinariesClassPathLocation() == null) {
+        return;
+      }
+      Path marker = Path.of(configuration.getBaseDir(), UNPACKED_MARKER);
+      if (!Files.exists(marker)) {
+        super.unpackEmbeddedDb();
+        try {
+          Files.createFile(marker);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+
+    @Override
+    protected ManagedProcess createDBInstallProcess() throws ManagedProcessException, IOException {
+      File baseDir = new File(configuration.getBaseDir());
+      var builder = new ManagedProcessBuilder(configuration.getExecutable(Executable.InstallDB));
+      if (configuration.getLibDir() != null) {
+        builder
+            .getEnvironment()
+            .put(
+                configuration.getOSLibraryEnvironmentVarName(),
+                new File(configuration.getLibDir()).getAbsolutePath());
+      }
+      builder.setWorkingDirectory(baseDir);
+      builder.addFileArgument("--datadir", new File(configuration.getDataDir()).getCanonicalFile());
+      builder.addFileArgument("--basedir", baseDir);
+      builder.addArgument("--no-defaults");
+      builder.addArgument("--force");
+      builder.addArgument("--skip-name-resolve");
+      builder.addArgument("--auth-root-authentication-method=normal");
+      return builder.build();
+    }
+  }
+}
@@ -104,15 +104,16 @@ public class TestData {
    * the only exception because it's not tied to a district or school yet.
    */
   public void addTestData() {
-    try {
-      if (!Strings.nullToEmpty(dataSource.getConnection().getMetaData().getUserName())
-          .startsWith("test@")) {
+    try (var connection = dataSource.getConnection()) {
+      // The MySQL driver includes the host, e.g., "test@localhost". The MariaDB one doesn't.
+      String userName = Strings.nullToEmpty(connection.getMetaData().getUserName());
+      if (!userName.equals("test") && !userName.startsWith("test@")) {
         logger
             .atError()
             .log(
                 "Not loading test data. It may only be loaded to a database using"
                     + " 'test' as the username. But, the username was '{}'.",
-                dataSource.getConnection().getMetaData().getUserName());
+                userName);
         return;
       }
     } catch (SQLException e) {
@@ -444,5 +445,8 @@ public class TestData {
 
     // Add the admin to all schools and classes
     AdminXUtils.addAdminXToSchoolsAndClassXs(db, adminX);
+
+    // The districts, schools, and other reference data were replaced.
+    db.getReferenceDataCache().invalidateAllLocally();
   }
 }
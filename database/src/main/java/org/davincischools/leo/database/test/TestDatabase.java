@@ -39,11 +39,17 @@ public class TestDatabase {
   private static final String USERNAME = "test";
   private static final String PASSWORD = "password";
 
+  // So that short words and stopwords can be found. See FullTextSearch.
+  static final ImmutableList<String> FULL_TEXT_SEARCH_OPTIONS =
+      ImmutableList.of("--innodb-ft-min-token-size=1", "--innodb-ft-enable-stopword=OFF");
+
   // Created connection.
   private static DataSource dataSource = null;
 
   @Bean("dataSource")
-  @Profile("!" + USE_EXTERNAL_DATABASE_PROFILE)
+  @Profile({
+    "!" + USE_EXTERNAL_DATABASE_PROFILE + " & !" + EmbeddedDatabase.EMBEDDED_DATABASE_PROFILE
+  })
   @Primary
   public static DataSource createTestDataSource(@Autowired Environment environment)
       throws SQLException, IOException {
@@ -129,7 +135,8 @@ public class TestDatabase {
             .withDatabaseName(DATABASE_NAME)
             .withUsername(USERNAME)
             .withPassword(PASSWORD)
-            .withEnv("MYSQL_ROOT_PASSWORD", ROOT_PASSWORD);
+            .withEnv("MYSQL_ROOT_PASSWORD", ROOT_PASSWORD)
+            .withCommand(FULL_TEXT_SEARCH_OPTIONS.toArray(String[]::new));
     container.setStartupAttempts(1);
     container.withStartupTimeout(Duration.ofMinutes(5));
     container.withConnectTimeoutSeconds((int) Duration.ofMinutes(5).getSeconds());
@@ -146,8 +153,7 @@ public class TestDatabase {
     return container;
   }
 
-  private static void createUserX(DataSource source, String username, String password)
-      throws SQLException {
+  static void createUserX(DataSource source, String username, String password) throws SQLException {
     try (Connection connection = source.getConnection()) {
       // Drop an existing user.
       PreparedStatement statement = connection.prepareStatement("DROP USER ?@'%';");
@@ -166,7 +172,7 @@ public class TestDatabase {
     }
   }
 
-  private static void grantAllAccess(DataSource source, String database, String username)
+  static void grantAllAccess(DataSource source, String database, String username)
       throws SQLException {
     try (Connection connection = source.getConnection()) {
       // Grant the user permissions.
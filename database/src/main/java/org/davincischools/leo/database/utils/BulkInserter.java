@@ -0,0 +1,307 @@
+package org.davincischools.leo.database.utils;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static org.davincischools.leo.database.utils.DaoUtils.getDaoClass;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Embedded;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.JoinColumns;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.davincischools.leo.database.utils.DaoAccessors.DaoClassAccessors;
+import org.davincischools.leo.database.utils.DaoAccessors.Getter;
+import org.davincischools.leo.database.utils.DaoAccessors.Setter;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Inserts new daos with multi-row INSERT statements over JDBC, then sets their generated ids, as
+ * {@link DaoUtils#copyId} does for saved copies. Hibernate can't batch inserts of IDENTITY ids. So,
+ * {@link JpaRepository#saveAll} costs a round trip for every row.
+ *
+ * <p>Columns come from the {@link Column} and {@link JoinColumn} annotations of the dao's getters,
+ * which are read with compiled {@link DaoAccessors} rather than reflection. Daos that already have
+ * an id, or classes that can't be inserted this way, e.g., those with an {@link EmbeddedId}, are
+ * saved with the repository instead. Inserted daos aren't attached to the persistence context, so
+ * they don't need {@link DaoUtils#removeTransientValues}. Their {@link PrePersist} methods are
+ * still called, since they may fill in columns, e.g., plain text copies of HTML for full-text
+ * search.
+ */
+@Component
+public class BulkInserter {
+
+  private static final Logger logger = LogManager.getLogger();
+
+  // Keeps statements well under MySQL's placeholder and packet size limits.
+  public static final int MAX_ROWS_PER_INSERT = 100;
+
+  private record InsertColumn(String name, Function</* dao= */ Object, Object> getValue) {}
+
+  private record InsertMethods(
+      String tableName,
+      ImmutableList<InsertColumn> columns,
+      ImmutableList<Method> prePersistMethods,
+      Function</* dao= */ Object, Object> getId,
+      BiConsumer</* dao= */ Object, /* id= */ Object> setId) {
+
+    String insertSql(int rows) {
+      String row = "(" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+      return "INSERT INTO "
+          + tableName
+          + " ("
+          + String.join(", ", Lists.transform(columns, InsertColumn::name))
+          + ") VALUES "
+          + String.join(", ", Collections.nCopies(rows, row));
+    }
+  }
+
+  private static final Map<Class<?>, Optional<InsertMethods>> insertMethods =
+      new ConcurrentHashMap<>();
+
+  private final EntityManager entityManager;
+
+  public BulkInserter(@Autowired EntityManager entityManager) {
+    this.entityManager = checkNotNull(entityManager);
+  }
+
+  /**
+   * Inserts the daos without ids, setting their new ids, and saves the rest with the repository.
+   */
+  @Transactional
+  public <T> void saveAll(JpaRepository<T, ?> repository, Iterable<T> daos) {
+    checkNotNull(repository);
+    checkNotNull(daos);
+
+    Map<Class<?>, List<Object>> newDaos = new LinkedHashMap<>();
+    List<T> otherDaos = new ArrayList<>();
+    for (T dao : daos) {
+      Optional<InsertMethods> methods = getInsertMethods(getDaoClass(dao));
+      if (methods.isPresent() && methods.get().getId().apply(dao) == null) {
+        newDaos.computeIfAbsent(getDaoClass(dao), k -> new ArrayList<>()).add(dao);
+      } else {
+        otherDaos.add(dao);
+      }
+    }
+
+    if (!newDaos.isEmpty()) {
+      // Any pending changes, e.g., to rows that the new rows reference, need to be written first.
+      entityManager.flush();
+      entityManager
+          .unwrap(Session.class)
+          .doWork(
+              connection -> {
+                int idIncrement = getIdIncrement(connection);
+                for (var entry : newDaos.entrySet()) {
+                  insert(
+                      connection,
+                      getInsertMethods(entry.getKey()).orElseThrow(),
+                      entry.getValue(),
+                      idIncrement);
+                }
+              });
+    }
+    if (!otherDaos.isEmpty()) {
+      repository.saveAll(otherDaos);
+    }
+  }
+
+  // Generated ids are spaced by the connection's auto_increment_increment, e.g., on multi-primary
+  // replicas.
+  private static int getIdIncrement(Connection connection) throws SQLException {
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT @@auto_increment_increment")) {
+      checkState(resultSet.next(), "Missing auto_increment_increment.");
+      int idIncrement = resultSet.getInt(1);
+      checkState(idIncrement > 0, "Invalid auto_increment_increment: %s", idIncrement);
+      return idIncrement;
+    }
+  }
+
+  private static void insert(
+      Connection connection, InsertMethods methods, List<Object> daos, int idIncrement)
+      throws SQLException {
+    // Hibernate writes Instants with hibernate.jdbc.time_zone=UTC. So, these match.
+    Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+    for (Object dao : daos) {
+      for (Method prePersist : methods.prePersistMethods()) {
+        try {
+          prePersist.invoke(dao);
+        } catch (ReflectiveOperationException e) {
+          throw new IllegalStateException("Failed to call " + prePersist, e);
+        }
+      }
+    }
+
+    for (List<Object> partition : Lists.partition(daos, MAX_ROWS_PER_INSERT)) {
+      try (PreparedStatement statement =
+          connection.prepareStatement(
+              methods.insertSql(partition.size()), Statement.RETURN_GENERATED_KEYS)) {
+        int index = 1;
+        for (Object dao : partition) {
+          for (InsertColumn column : methods.columns()) {
+            Object value = column.getValue().apply(dao);
+            if (value == null) {
+              statement.setNull(index++, Types.NULL);
+            } else if (value instanceof Instant instant) {
+              statement.setTimestamp(index++, Timestamp.from(instant), utc);
+            } else if (value instanceof Enum<?> enumValue) {
+              // All enums are @Enumerated(EnumType.STRING).
+              statement.setString(index++, enumValue.name());
+            } else {
+              statement.setObject(index++, value);
+            }
+          }
+        }
+        statement.executeUpdate();
+
+        // The ids of a multi-row insert are consecutive steps of auto_increment_increment, in the
+        // order of the rows. The MySQL driver returns all of them. The MariaDB driver only returns
+        // the first.
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+          checkState(keys.next(), "Missing generated id: %s", methods.tableName());
+          int id = keys.getInt(1);
+          for (Object dao : partition) {
+            methods.setId().accept(dao, id);
+            id = keys.next() ? keys.getInt(1) : id + idIncrement;
+          }
+        }
+      }
+    }
+    logger.atTrace().log("Inserted {} rows into {}.", daos.size(), methods.tableName());
+  }
+
+  private static Optional<InsertMethods> getInsertMethods(Class<?> daoClass) {
+    return insertMethods.computeIfAbsent(daoClass, BulkInserter::createInsertMethods);
+  }
+
+  private static Optional<InsertMethods> createInsertMethods(Class<?> daoClass) {
+    Table table = daoClass.getAnnotation(Table.class);
+    if (daoClass.getAnnotation(Entity.class) == null || table == null) {
+      return Optional.empty();
+    }
+
+    DaoClassAccessors accessors = DaoAccessors.forDaoClass(daoClass);
+    ImmutableList.Builder<InsertColumn> columns = ImmutableList.builder();
+    ImmutableList.Builder<Method> prePersistMethods = ImmutableList.builder();
+    Function<Object, Object> getId = null;
+    BiConsumer<Object, Object> setId = null;
+    for (Method get : daoClass.getMethods()) {
+      if (get.getAnnotation(PrePersist.class) != null) {
+        prePersistMethods.add(get);
+        continue;
+      }
+      if (!get.getName().startsWith("get")
+          || get.getParameterCount() != 0
+          || get.getAnnotation(Transient.class) != null) {
+        continue;
+      }
+      Getter getter = accessors.getters().get(get.getName());
+      if (getter == null) {
+        // Overloaded getters aren't compiled.
+        return Optional.empty();
+      }
+      if (get.getAnnotation(EmbeddedId.class) != null
+          || get.getAnnotation(Embedded.class) != null
+          || get.getAnnotation(ElementCollection.class) != null
+          || get.getAnnotation(JoinColumns.class) != null) {
+        return Optional.empty();
+      }
+
+      if (get.getAnnotation(Id.class) != null) {
+        GeneratedValue generatedValue = get.getAnnotation(GeneratedValue.class);
+        if (generatedValue == null
+            || generatedValue.strategy() != GenerationType.IDENTITY
+            || get.getReturnType() != Integer.class) {
+          return Optional.empty();
+        }
+        Setter setter = accessors.setters().get("s" + get.getName().substring(1));
+        if (setter == null || setter.type() != Integer.class) {
+          return Optional.empty();
+        }
+        getId = getter.function();
+        setId = setter.function();
+        continue;
+      }
+
+      Column column = get.getAnnotation(Column.class);
+      if (column != null) {
+        if (column.insertable()) {
+          columns.add(new InsertColumn(column.name(), getter.function()));
+        }
+        continue;
+      }
+
+      JoinColumn joinColumn = get.getAnnotation(JoinColumn.class);
+      if (joinColumn != null
+          && (get.getAnnotation(ManyToOne.class) != null
+              || get.getAnnotation(OneToOne.class) != null)) {
+        if (joinColumn.insertable()) {
+          Getter getInnerId = DaoAccessors.forDaoClass(get.getReturnType()).getters().get("getId");
+          if (getInnerId == null) {
+            return Optional.empty();
+          }
+          columns.add(
+              new InsertColumn(
+                  joinColumn.name(),
+                  dao -> {
+                    Object innerDao = getter.function().apply(dao);
+                    if (innerDao == null) {
+                      return null;
+                    }
+                    // It's okay if this is not initialized since we just want the id.
+                    Object innerId = getInnerId.function().apply(innerDao);
+                    checkState(innerId != null, "Referenced dao must be saved first: %s", get);
+                    return innerId;
+                  }));
+        }
+      }
+    }
+    if (getId == null) {
+      return Optional.empty();
+    }
+
+    // Like Hibernate with MySQL, this ignores the schema and uses the connection's database.
+    return Optional.of(
+        new InsertMethods(table.name(), columns.build(), prePersistMethods.build(), getId, setId));
+  }
+}
@@ -0,0 +1,211 @@
+package org.davincischools.leo.database.utils;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Multimaps;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Getters, setters, and constructors of dao classes, compiled with {@link LambdaMetafactory}. So,
+ * calling one costs about as much as calling the method directly, rather than a {@link
+ * Method#invoke}. BulkInserter uses these to read column values, and the server's ProtoDaoUtils to
+ * copy fields between protos and daos.
+ *
+ * <p>Only uniquely named public methods are included. Accessors for a class are built the first
+ * time that it's used and are then shared without locking. The JPA entities are built at startup so
+ * that requests don't have to.
+ */
+@Component
+public class DaoAccessors {
+
+  private static final Logger logger = LogManager.getLogger();
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private static final ConcurrentMap<Class<?>, DaoClassAccessors> accessors =
+      new ConcurrentHashMap<>();
+
+  public record Getter(Method method, Function</* dao= */ Object, /* value= */ Object> function) {
+    public Class<?> type() {
+      return method.getReturnType();
+    }
+  }
+
+  public record Setter(Method method, BiConsumer</* dao= */ Object, /* value= */ Object> function) {
+    public Class<?> type() {
+      return method.getParameterTypes()[0];
+    }
+  }
+
+  public record DaoClassAccessors(
+      ImmutableMap<String, Getter> getters,
+      ImmutableMap<String, Setter> setters,
+      Optional<Supplier<Object>> constructor) {}
+
+  private final EntityManagerFactory entityManagerFactory;
+
+  public DaoAccessors(@Autowired EntityManagerFactory entityManagerFactory) {
+    this.entityManagerFactory = checkNotNull(entityManagerFactory);
+  }
+
+  @PostConstruct
+  public void precomputeEntityAccessors() {
+    var entities = entityManagerFactory.getMetamodel().getEntities();
+    entities.forEach(entity -> forDaoClass(entity.getJavaType()));
+    logger.atInfo().log("Compiled accessors for {} dao classes.", entities.size());
+  }
+
+  public static DaoClassAccessors forDaoClass(Class<?> daoClass) {
+    checkNotNull(daoClass);
+
+    // get() doesn't lock, unlike computeIfAbsent(), which briefly locks even for present keys.
+    DaoClassAccessors daoClassAccessors = accessors.get(daoClass);
+    if (daoClassAccessors == null) {
+      daoClassAccessors = accessors.computeIfAbsent(daoClass, DaoAccessors::compile);
+    }
+    return daoClassAccessors;
+  }
+
+  private static DaoClassAccessors compile(Class<?> daoClass) {
+    ImmutableMap.Builder<String, Getter> getters = ImmutableMap.builder();
+    ImmutableMap.Builder<String, Setter> setters = ImmutableMap.builder();
+
+    Multimaps.index(Arrays.asList(daoClass.getMethods()), Method::getName)
+        .asMap()
+        .forEach(
+            (name, methods) -> {
+              if (methods.size() != 1) {
+                return;
+              }
+              Method method = Iterables.getOnlyElement(methods);
+              if (Modifier.isStatic(method.getModifiers())) {
+                return;
+              }
+              if (name.startsWith("get") && method.getParameterCount() == 0) {
+                getters.put(name, new Getter(method, compileGetter(method)));
+              } else if (name.startsWith("set") && method.getParameterCount() == 1) {
+                setters.put(name, new Setter(method, compileSetter(method)));
+              }
+            });
+
+    Optional<Supplier<Object>> constructor =
+        Arrays.stream(daoClass.getConstructors())
+            .filter(candidate -> candidate.getParameterCount() == 0)
+            .findFirst()
+            .map(DaoAccessors::compileConstructor);
+
+    return new DaoClassAccessors(getters.build(), setters.build(), constructor);
+  }
+
+  @SuppressWarnings("unchecked")
+  static Function<Object, Object> compileGetter(Method method) {
+    checkNotNull(method);
+
+    try {
+      MethodHandle handle = LOOKUP.unreflect(method);
+      CallSite callSite =
+          LambdaMetafactory.metafactory(
+              LOOKUP,
+              "apply",
+              MethodType.methodType(Function.class),
+              MethodType.methodType(Object.class, Object.class),
+              handle,
+              // Primitive return values are boxed.
+              handle.type().wrap());
+      return (Function<Object, Object>) callSite.getTarget().invokeExact();
+    } catch (Throwable e) {
+      logger.atDebug().withThrowable(e).log("Falling back to a method handle for {}.", method);
+      MethodHandle handle = unreflect(method);
+      return dao -> {
+        try {
+          return handle.invoke(dao);
+        } catch (RuntimeException | Error e2) {
+          throw e2;
+        } catch (Throwable e2) {
+          throw new RuntimeException(e2);
+        }
+      };
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  static BiConsumer<Object, Object> compileSetter(Method method) {
+    checkNotNull(method);
+
+    try {
+      MethodHandle handle = LOOKUP.unreflect(method);
+      CallSite callSite =
+          LambdaMetafactory.metafactory(
+              LOOKUP,
+              "accept",
+              MethodType.methodType(BiConsumer.class),
+              MethodType.methodType(void.class, Object.class, Object.class),
+              handle,
+              // Chained setters return the dao, which is dropped.
+              handle.type().wrap().changeReturnType(void.class));
+      return (BiConsumer<Object, Object>) callSite.getTarget().invokeExact();
+    } catch (Throwable e) {
+      logger.atDebug().withThrowable(e).log("Falling back to a method handle for {}.", method);
+      MethodHandle handle = unreflect(method);
+      return (dao, value) -> {
+        try {
+          handle.invoke(dao, value);
+        } catch (RuntimeException | Error e2) {
+          throw e2;
+        } catch (Throwable e2) {
+          throw new RuntimeException(e2);
+        }
+      };
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  static Supplier<Object> compileConstructor(Constructor<?> constructor) {
+    checkNotNull(constructor);
+
+    try {
+      MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+      CallSite callSite =
+          LambdaMetafactory.metafactory(
+              LOOKUP,
+              "get",
+              MethodType.methodType(Supplier.class),
+              MethodType.methodType(Object.class),
+              handle,
+              handle.type());
+      return (Supplier<Object>) callSite.getTarget().invokeExact();
+    } catch (Throwable e) {
+      throw new IllegalStateException("Unable to compile constructor: " + constructor, e);
+    }
+  }
+
+  private static MethodHandle unreflect(Method method) {
+    try {
+      return LOOKUP.unreflect(method);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Unable to access method: " + method, e);
+    }
+  }
+}
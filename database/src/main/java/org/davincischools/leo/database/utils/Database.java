@@ -21,6 +21,7 @@ import org.davincischools.leo.database.utils.repos.LogReferenceRepository;
 import org.davincischools.leo.database.utils.repos.LogRepository;
 import org.davincischools.leo.database.utils.repos.MotivationRepository;
 import org.davincischools.leo.database.utils.repos.NotificationRepository;
+import org.davincischools.leo.database.utils.repos.OpenAiCacheRepository;
 import org.davincischools.leo.database.utils.repos.PortfolioRepository;
 import org.davincischools.leo.database.utils.repos.PostRepository;
 import org.davincischools.leo.database.utils.repos.ProjectAssignmentRepository;
@@ -37,12 +38,14 @@ import org.davincischools.leo.database.utils.repos.ProjectMilestoneStepRepositor
 import org.davincischools.leo.database.utils.repos.ProjectPostCommentRepository;
 import org.davincischools.leo.database.utils.repos.ProjectPostRatingRepository;
 import org.davincischools.leo.database.utils.repos.ProjectPostRepository;
+import org.davincischools.leo.database.utils.repos.ProjectPostSummaryRepository;
 import org.davincischools.leo.database.utils.repos.ProjectRepository;
 import org.davincischools.leo.database.utils.repos.SchoolRepository;
 import org.davincischools.leo.database.utils.repos.StudentClassXRepository;
 import org.davincischools.leo.database.utils.repos.StudentRepository;
 import org.davincischools.leo.database.utils.repos.StudentSchoolRepository;
 import org.davincischools.leo.database.utils.repos.TagRepository;
+import org.davincischools.leo.database.utils.repos.TaskRepository;
 import org.davincischools.leo.database.utils.repos.TeacherClassXRepository;
 import org.davincischools.leo.database.utils.repos.TeacherRepository;
 import org.davincischools.leo.database.utils.repos.TeacherSchoolRepository;
@@ -62,6 +65,7 @@ public class Database {
   private final AssignmentKnowledgeAndSkillRepository assignmentKnowledgeAndSkillRepository;
   private final AssignmentProjectDefinitionRepository assignmentProjectDefinitionRepository;
   private final AssignmentRepository assignmentRepository;
+  private final BulkInserter bulkInserter;
   private final ClassXKnowledgeAndSkillRepository classXKnowledgeAndSkillRepository;
   private final ClassXRepository classXRepository;
   private final CommentXRepository commentXRepository;
@@ -76,6 +80,7 @@ public class Database {
   private final LogRepository logRepository;
   private final MotivationRepository motivationRepository;
   private final NotificationRepository notificationRepository;
+  private final OpenAiCacheRepository openAiCacheRepository;
   private final PortfolioRepository portfolioRepository;
   private final PostRepository postRepository;
   private final ProjectAssignmentRepository projectAssignmentRepository;
@@ -92,12 +97,15 @@ public class Database {
   private final ProjectPostCommentRepository projectPostCommentRepository;
   private final ProjectPostRatingRepository projectPostRatingRepository;
   private final ProjectPostRepository projectPostRepository;
+  private final ProjectPostSummaryRepository projectPostSummaryRepository;
   private final ProjectRepository projectRepository;
+  private final ReferenceDataCache referenceDataCache;
   private final SchoolRepository schoolRepository;
   private final StudentClassXRepository studentClassXRepository;
   private final StudentRepository studentRepository;
   private final StudentSchoolRepository studentSchoolRepository;
   private final TagRepository tagRepository;
+  private final TaskRepository taskRepository;
   private final TeacherClassXRepository teacherClassXRepository;
   private final TeacherRepository teacherRepository;
   private final TeacherSchoolRepository teacherSchoolRepository;
@@ -0,0 +1,38 @@
+package org.davincischools.leo.database.utils;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+
+/**
+ * Latency timers, registered in the global registry. Spring Boot adds its registries, e.g., the
+ * Prometheus one behind /actuator/prometheus, to the global registry. So, classes that aren't
+ * Spring beans, or that are created before the registries, can still record metrics.
+ *
+ * <p>Every timer publishes a histogram and its p50, p95, and p99 latencies.
+ */
+public class MetricUtils {
+
+  private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+  /** Returns the timer with the name and tags. Timers are created the first time they're used. */
+  public static Timer timer(String name, String description, String... tags) {
+    checkNotNull(name);
+    checkNotNull(description);
+    checkNotNull(tags);
+
+    return Timer.builder(name)
+        .description(description)
+        .tags(tags)
+        .publishPercentiles(PERCENTILES)
+        .publishPercentileHistogram()
+        .register(Metrics.globalRegistry);
+  }
+
+  /** Records the time since {@code startNanos}, a {@link System#nanoTime()}, in the timer. */
+  public static void recordSince(long startNanos, String name, String description, String... tags) {
+    timer(name, description, tags).record(Duration.ofNanos(System.nanoTime() - startNanos));
+  }
+}
@@ -0,0 +1,225 @@
+package org.davincischools.leo.database.utils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.davincischools.leo.database.daos.District;
+import org.davincischools.leo.database.daos.KnowledgeAndSkill;
+import org.davincischools.leo.database.daos.KnowledgeAndSkill.Type;
+import org.davincischools.leo.database.daos.Motivation;
+import org.davincischools.leo.database.daos.ProjectDefinitionCategoryType;
+import org.davincischools.leo.database.daos.School;
+import org.davincischools.leo.database.utils.repos.DistrictRepository;
+import org.davincischools.leo.database.utils.repos.KnowledgeAndSkillRepository;
+import org.davincischools.leo.database.utils.repos.MotivationRepository;
+import org.davincischools.leo.database.utils.repos.ProjectDefinitionCategoryTypeRepository;
+import org.davincischools.leo.database.utils.repos.SchoolRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Caches small, read-mostly tables that are otherwise queried for nearly every project and admin
+ * page: category types, knowledge and skills, motivations, districts, and schools.
+ *
+ * <p>Values are detached daos that are shared between callers. So, don't modify them. Call {@link
+ * #invalidate} after changing one of the tables. Changes made elsewhere, e.g., by another server or
+ * directly in the database, are seen once the entries expire. Or, register an invalidation listener
+ * to forward invalidations to other servers, which then call {@link #invalidateLocally}.
+ */
+@Component
+public class ReferenceDataCache {
+
+  private static final Logger logger = LogManager.getLogger();
+
+  public static final String TTL_MS_PROP_NAME = "project_leo.reference_data.cache_ttl_ms";
+  public static final String MAX_ENTRIES_PROP_NAME = "project_leo.reference_data.cache_max_entries";
+
+  public enum ReferenceData {
+    DISTRICTS,
+    KNOWLEDGE_AND_SKILLS,
+    MOTIVATIONS,
+    PROJECT_DEFINITION_CATEGORY_TYPES,
+    SCHOOLS,
+  }
+
+  private record Key(ReferenceData referenceData, Object arg) {}
+
+  private final DistrictRepository districtRepository;
+  private final KnowledgeAndSkillRepository knowledgeAndSkillRepository;
+  private final MotivationRepository motivationRepository;
+  private final ProjectDefinitionCategoryTypeRepository projectDefinitionCategoryTypeRepository;
+  private final SchoolRepository schoolRepository;
+
+  private final Cache<Key, ImmutableList<?>> cache;
+  // Incremented, by ReferenceData ordinal, before entries are invalidated. So, loads that started
+  // earlier can tell that their values may be stale.
+  private final AtomicLongArray generations = new AtomicLongArray(ReferenceData.values().length);
+  private final List<Consumer<ReferenceData>> invalidationListeners = new CopyOnWriteArrayList<>();
+
+  public ReferenceDataCache(
+      DistrictRepository districtRepository,
+      KnowledgeAndSkillRepository knowledgeAndSkillRepository,
+      MotivationRepository motivationRepository,
+      ProjectDefinitionCategoryTypeRepository projectDefinitionCategoryTypeRepository,
+      SchoolRepository schoolRepository,
+      @Value("${" + TTL_MS_PROP_NAME + ":300000}") long ttlMs,
+      @Value("${" + MAX_ENTRIES_PROP_NAME + ":1000}") int maxEntries) {
+    checkArgument(ttlMs >= 0, "%s must not be negative.", TTL_MS_PROP_NAME);
+    checkArgument(maxEntries >= 0, "%s must not be negative.", MAX_ENTRIES_PROP_NAME);
+
+    this.districtRepository = checkNotNull(districtRepository);
+    this.knowledgeAndSkillRepository = checkNotNull(knowledgeAndSkillRepository);
+    this.motivationRepository = checkNotNull(motivationRepository);
+    this.projectDefinitionCategoryTypeRepository =
+        checkNotNull(projectDefinitionCategoryTypeRepository);
+    this.schoolRepository = checkNotNull(schoolRepository);
+
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumSize(ttlMs > 0 ? maxEntries : 0)
+            .expireAfterWrite(Duration.ofMillis(ttlMs))
+            .build();
+  }
+
+  /** Returns all districts. */
+  public ImmutableList<District> getDistricts() {
+    return get(ReferenceData.DISTRICTS, null, districtRepository::findAll);
+  }
+
+  /** Returns the knowledge and skills of a type, including deleted ones. */
+  public ImmutableList<KnowledgeAndSkill> getKnowledgeAndSkills(Type type) {
+    checkNotNull(type);
+
+    return get(
+        ReferenceData.KNOWLEDGE_AND_SKILLS, type, () -> knowledgeAndSkillRepository.findAll(type));
+  }
+
+  /**
+   * Returns the knowledge and skills of the types, including deleted ones, that are global or owned
+   * by the user. All of them are returned if the user is null. This matches {@link
+   * KnowledgeAndSkillRepository#findAllByTypes}, but filters the per-type entries rather than
+   * caching an entry per user.
+   */
+  public ImmutableList<KnowledgeAndSkill> getKnowledgeAndSkills(
+      Iterable<Type> types, @Nullable Integer userXId) {
+    checkNotNull(types);
+
+    return ImmutableSet.copyOf(types).stream()
+        .flatMap(type -> getKnowledgeAndSkills(type).stream())
+        .filter(
+            ks ->
+                Boolean.TRUE.equals(ks.getGlobal())
+                    || userXId == null
+                    || (ks.getUserX() != null && userXId.equals(ks.getUserX().getId())))
+        .collect(ImmutableList.toImmutableList());
+  }
+
+  /** Returns all motivations, including deleted ones. */
+  public ImmutableList<Motivation> getMotivations() {
+    return get(ReferenceData.MOTIVATIONS, null, motivationRepository::findAll);
+  }
+
+  /** Returns the category types that aren't deleted, with or without the demo ones. */
+  public ImmutableList<ProjectDefinitionCategoryType> getProjectDefinitionCategoryTypes(
+      boolean includeDemos) {
+    return get(
+        ReferenceData.PROJECT_DEFINITION_CATEGORY_TYPES,
+        includeDemos,
+        () -> projectDefinitionCategoryTypeRepository.findAllByCategories(includeDemos));
+  }
+
+  /** Returns the schools of a district, with their districts. */
+  public ImmutableList<School> getSchools(int districtId) {
+    return get(
+        ReferenceData.SCHOOLS, districtId, () -> schoolRepository.findAllByDistrictId(districtId));
+  }
+
+  /**
+   * Adds a listener that is called whenever {@link #invalidate} is, e.g., to tell other servers to
+   * call {@link #invalidateLocally}.
+   */
+  public void addInvalidationListener(Consumer<ReferenceData> listener) {
+    invalidationListeners.add(checkNotNull(listener));
+  }
+
+  /**
+   * Removes the entries for the data and notifies the invalidation listeners. If there is a
+   * transaction, the entries are removed again after it commits, so that the old data isn't cached
+   * again in the meantime.
+   */
+  public void invalidate(ReferenceData referenceData) {
+    checkNotNull(referenceData);
+
+    invalidateLocally(referenceData);
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              invalidateLocally(referenceData);
+            }
+          });
+    }
+
+    for (var listener : invalidationListeners) {
+      try {
+        listener.accept(referenceData);
+      } catch (RuntimeException e) {
+        logger.atError().withThrowable(e).log("Failed to forward invalidation: {}", referenceData);
+      }
+    }
+  }
+
+  /** Removes the entries for the data, without notifying the invalidation listeners. */
+  public void invalidateLocally(ReferenceData referenceData) {
+    checkNotNull(referenceData);
+
+    generations.incrementAndGet(referenceData.ordinal());
+    cache.asMap().keySet().removeIf(key -> key.referenceData() == referenceData);
+  }
+
+  /** Removes all entries, without notifying the invalidation listeners. */
+  public void invalidateAllLocally() {
+    for (int i = 0; i < generations.length(); i++) {
+      generations.incrementAndGet(i);
+    }
+    cache.invalidateAll();
+  }
+
+  @VisibleForTesting
+  @SuppressWarnings("unchecked")
+  <T> ImmutableList<T> get(
+      ReferenceData referenceData, @Nullable Object arg, Supplier<? extends Iterable<T>> loader) {
+    var key = new Key(referenceData, arg);
+    var values = (ImmutableList<T>) cache.getIfPresent(key);
+    if (values == null) {
+      long generation = generations.get(referenceData.ordinal());
+      var loadedValues = ImmutableList.<T>copyOf(loader.get());
+      cache.put(key, loadedValues);
+      // If the data was invalidated while loading, the values may be stale. Either this removes
+      // them, or the invalidation, which removes entries after changing the generation, does.
+      if (generations.get(referenceData.ordinal()) != generation) {
+        cache.asMap().remove(key, loadedValues);
+      }
+      values = loadedValues;
+    }
+    return values;
+  }
+}
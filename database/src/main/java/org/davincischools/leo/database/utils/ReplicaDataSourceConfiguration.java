@@ -0,0 +1,85 @@
+package org.davincischools.leo.database.utils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Strings;
+import com.zaxxer.hikari.HikariDataSource;
+import java.time.Duration;
+import java.util.Arrays;
+import javax.sql.DataSource;
+import org.davincischools.leo.database.test.TestDatabase;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Replaces the spring.datasource.* data source with a {@link ReplicaRoutingDataSource} when
+ * replicas are configured. Replicas use the same username, password, and pool size as the primary.
+ */
+@Configuration
+@Profile(TestDatabase.USE_EXTERNAL_DATABASE_PROFILE)
+@ConditionalOnProperty(ReplicaDataSourceConfiguration.REPLICA_URLS_PROP_NAME)
+public class ReplicaDataSourceConfiguration {
+
+  public static final String REPLICA_URLS_PROP_NAME = "project_leo.datasource.replica_urls";
+  public static final String MAX_LAG_MS_PROP_NAME = "project_leo.datasource.replica_max_lag_ms";
+  public static final String LAG_CHECK_INTERVAL_MS_PROP_NAME =
+      "project_leo.datasource.replica_lag_check_interval_ms";
+  public static final String READ_YOUR_WRITES_MS_PROP_NAME =
+      "project_leo.datasource.read_your_writes_ms";
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  @Bean
+  public ReplicaRoutingDataSource replicaRoutingDataSource(
+      HikariDataSource primaryDataSource,
+      DataSourceProperties properties,
+      @Value("${" + REPLICA_URLS_PROP_NAME + "}") String[] replicaUrls,
+      @Value("${" + MAX_LAG_MS_PROP_NAME + ":5000}") long maxLagMs,
+      @Value("${" + LAG_CHECK_INTERVAL_MS_PROP_NAME + ":1000}") long lagCheckIntervalMs,
+      @Value("${" + READ_YOUR_WRITES_MS_PROP_NAME + ":10000}") long readYourWritesMs) {
+    var replicas =
+        Arrays.stream(replicaUrls)
+            .map(String::trim)
+            .filter(url -> !Strings.isNullOrEmpty(url))
+            .map(
+                url -> {
+                  HikariDataSource replica =
+                      properties
+                          .initializeDataSourceBuilder()
+                          .type(HikariDataSource.class)
+                          .url(url)
+                          .build();
+                  replica.setMaximumPoolSize(primaryDataSource.getMaximumPoolSize());
+                  replica.setReadOnly(true);
+                  return replica;
+                })
+            .toList();
+    checkArgument(!replicas.isEmpty(), "%s has no urls.", REPLICA_URLS_PROP_NAME);
+
+    var routingDataSource =
+        new ReplicaRoutingDataSource(
+            primaryDataSource,
+            replicas,
+            Duration.ofMillis(maxLagMs),
+            Duration.ofMillis(readYourWritesMs));
+    routingDataSource.start(Duration.ofMillis(lagCheckIntervalMs));
+    return routingDataSource;
+  }
+
+  @Bean("dataSource")
+  @Primary
+  public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+    return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+  }
+}
@@ -0,0 +1,269 @@
+package org.davincischools.leo.database.utils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import javax.sql.DataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions, e.g., {@link
+ * org.davincischools.leo.database.utils.query_helper.QueryHelper} queries, to replicas and
+ * everything else to the primary.
+ *
+ * <p>A replica is only used while it's in sync, i.e., its replication lag is known and no more than
+ * the max lag. Otherwise, reads fall back to the primary. So that a user sees their own changes, a
+ * session's reads also go to the primary for a while after it commits a read-write transaction. Set
+ * the session of the current thread with {@link #setSessionKey}. Threads that work on rows that
+ * were just written by someone else, e.g., task queue workers, can instead send all of their reads
+ * to the primary with {@link #setReadFromPrimary}.
+ *
+ * <p>The read-only flag of a transaction is only set after its connection would be taken. So, this
+ * must be wrapped in a {@link LazyConnectionDataSourceProxy}, which delays taking it until the
+ * first statement. See {@link ReplicaDataSourceConfiguration}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+  private static final Logger logger = LogManager.getLogger();
+
+  static final String PRIMARY_KEY = "primary";
+
+  private static final ThreadLocal<String> sessionKey = new ThreadLocal<>();
+  private static final ThreadLocal<Boolean> readFromPrimary = new ThreadLocal<>();
+
+  private static class Replica {
+    private final String key;
+    private final DataSource dataSource;
+    private volatile boolean inSync = false;
+
+    private Replica(String key, DataSource dataSource) {
+      this.key = key;
+      this.dataSource = dataSource;
+    }
+  }
+
+  private final ImmutableList<Replica> replicas;
+  private final Duration maxLag;
+  private final Cache<String, Boolean> recentWriters;
+  private final AtomicInteger nextReplica = new AtomicInteger();
+  private final Counter primaryReads;
+  private final Counter replicaReads;
+  private ScheduledExecutorService lagChecker;
+
+  public ReplicaRoutingDataSource(
+      DataSource primary,
+      List<? extends DataSource> replicas,
+      Duration maxLag,
+      Duration readYourWritesWindow) {
+    checkNotNull(primary);
+    checkNotNull(replicas);
+    checkArgument(!replicas.isEmpty(), "There must be at least one replica.");
+    checkArgument(!maxLag.isNegative(), "The max lag must not be negative.");
+    checkArgument(!readYourWritesWindow.isNegative(), "The window must not be negative.");
+
+    var replicasBuilder = ImmutableList.<Replica>builder();
+    Map<Object, Object> targets = new HashMap<>();
+    targets.put(PRIMARY_KEY, primary);
+    for (int i = 0; i < replicas.size(); ++i) {
+      var replica = new Replica("replica-" + i, checkNotNull(replicas.get(i)));
+      replicasBuilder.add(replica);
+      targets.put(replica.key, replica.dataSource);
+    }
+    this.replicas = replicasBuilder.build();
+    this.maxLag = maxLag;
+    this.recentWriters =
+        CacheBuilder.newBuilder()
+            .maximumSize(100000)
+            .expireAfterWrite(readYourWritesWindow)
+            .build();
+
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+    setLenientFallback(false);
+
+    Gauge.builder(
+            "leo.datasource.replicas_in_sync",
+            this.replicas,
+            r -> r.stream().filter(replica -> replica.inSync).count())
+        .description("Replicas whose lag is within the max lag.")
+        .register(Metrics.globalRegistry);
+    primaryReads =
+        Counter.builder("leo.datasource.read_only_connections")
+            .description("Connections taken for read-only transactions.")
+            .tag("target", "primary")
+            .register(Metrics.globalRegistry);
+    replicaReads =
+        Counter.builder("leo.datasource.read_only_connections")
+            .description("Connections taken for read-only transactions.")
+            .tag("target", "replica")
+            .register(Metrics.globalRegistry);
+  }
+
+  /**
+   * Sets the session, e.g., the authenticated user, that the current thread works for. Null clears
+   * it. Without a session, reads don't fall back to the primary after writes.
+   */
+  public static void setSessionKey(@Nullable String key) {
+    if (key == null) {
+      sessionKey.remove();
+    } else {
+      sessionKey.set(key);
+    }
+  }
+
+  /** Returns the session that the current thread works for, or null if there isn't one. */
+  @Nullable
+  public static String getSessionKey() {
+    return sessionKey.get();
+  }
+
+  /** Sets whether all reads of the current thread go to the primary, regardless of its session. */
+  public static void setReadFromPrimary(boolean fromPrimary) {
+    if (fromPrimary) {
+      readFromPrimary.set(Boolean.TRUE);
+    } else {
+      readFromPrimary.remove();
+    }
+  }
+
+  /** Checks replica lag now and then regularly until closed. */
+  public synchronized void start(Duration lagCheckInterval) {
+    checkArgument(
+        !lagCheckInterval.isNegative() && !lagCheckInterval.isZero(),
+        "The lag check interval must be positive.");
+    checkState(lagChecker == null, "Already started.");
+
+    checkReplicaLag();
+    lagChecker =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat(getClass().getSimpleName() + "LagChecker-%d")
+                .setDaemon(true)
+                .build());
+    lagChecker.scheduleWithFixedDelay(
+        this::checkReplicaLag,
+        lagCheckInterval.toMillis(),
+        lagCheckInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (lagChecker != null) {
+      lagChecker.shutdownNow();
+    }
+    for (var replica : replicas) {
+      if (replica.dataSource instanceof AutoCloseable closeable) {
+        try {
+          closeable.close();
+        } catch (Exception e) {
+          logger.atWarn().withThrowable(e).log("Failed to close replica {}.", replica.key);
+        }
+      }
+    }
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    String session = sessionKey.get();
+    if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      // Any read-write transaction counts as a write, once it commits.
+      if (session != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+          TransactionSynchronizationManager.registerSynchronization(
+              new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                  recentWriters.put(session, Boolean.TRUE);
+                }
+              });
+        } else {
+          // Without a way to know when it commits, the window starts now.
+          recentWriters.put(session, Boolean.TRUE);
+        }
+      }
+      return PRIMARY_KEY;
+    }
+
+    if (readFromPrimary.get() == null
+        && (session == null || recentWriters.getIfPresent(session) == null)) {
+      int start = nextReplica.getAndIncrement();
+      for (int i = 0; i < replicas.size(); ++i) {
+        var replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+        if (replica.inSync) {
+          replicaReads.increment();
+          return replica.key;
+        }
+      }
+    }
+    primaryReads.increment();
+    return PRIMARY_KEY;
+  }
+
+  /** Marks a replica in sync if its lag is known and no more than the max lag. */
+  void setReplicaLag(int index, @Nullable Duration lag) {
+    checkElementIndex(index, replicas.size());
+
+    var replica = replicas.get(index);
+    boolean inSync = lag != null && lag.compareTo(maxLag) <= 0;
+    if (inSync != replica.inSync) {
+      if (inSync) {
+        logger.atInfo().log("Replica {} is in sync, lag: {}.", replica.key, lag);
+      } else {
+        logger.atWarn().log("Replica {} is out of sync, lag: {}.", replica.key, lag);
+      }
+    }
+    replica.inSync = inSync;
+  }
+
+  private void checkReplicaLag() {
+    for (int i = 0; i < replicas.size(); ++i) {
+      setReplicaLag(i, getReplicaLag(replicas.get(i)));
+    }
+  }
+
+  // Returns null if the lag is unknown, e.g., replication is stopped.
+  @Nullable
+  private static Duration getReplicaLag(Replica replica) {
+    try (Connection connection = replica.dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SHOW REPLICA STATUS")) {
+      if (resultSet.next()) {
+        long seconds = resultSet.getLong("Seconds_Behind_Source");
+        return resultSet.wasNull() ? null : Duration.ofSeconds(seconds);
+      }
+      logger.atWarn().log("Replica {} isn't replicating.", replica.key);
+    } catch (SQLException | RuntimeException e) {
+      // Pools throw runtime exceptions, e.g., if the replica is down when they're first used.
+      logger.atWarn().log("Failed to get the lag of replica {}: {}", replica.key, e.getMessage());
+    }
+    return null;
+  }
+}
@@ -0,0 +1,54 @@
+package org.davincischools.leo.database.utils.query_helper;
+
+import java.io.Serial;
+import java.util.List;
+import java.util.Optional;
+import javax.annotation.Nullable;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * A page returned for a {@link CursorPageRequest}. If the total wasn't counted, {@link
+ * #getTotalElements()} only includes the rows of this page.
+ *
+ * <p>Cursor pages aren't numbered. So, {@link #getPageable()} and {@link #nextPageable()} are
+ * unpaged. Use {@link #getNextCursor()} to get the next page.
+ */
+public class CursorPage<T> extends PageImpl<T> {
+
+  @Serial private static final long serialVersionUID = 9216315487252600681L;
+
+  @Nullable private final String nextCursor;
+  @Nullable private final Long total;
+
+  CursorPage(List<T> content, @Nullable String nextCursor, @Nullable Long total) {
+    super(content, Pageable.unpaged(), total != null ? total : content.size());
+    this.nextCursor = nextCursor;
+    this.total = total;
+  }
+
+  /** The cursor of the following page, or empty if this is the last page. */
+  public Optional<String> getNextCursor() {
+    return Optional.ofNullable(nextCursor);
+  }
+
+  /** The total number of rows, if it was counted. */
+  public Optional<Long> getTotal() {
+    return Optional.ofNullable(total);
+  }
+
+  @Override
+  public boolean hasNext() {
+    return nextCursor != null;
+  }
+
+  @Override
+  public boolean isLast() {
+    return !hasNext();
+  }
+
+  @Override
+  public Pageable nextPageable() {
+    return Pageable.unpaged();
+  }
+}
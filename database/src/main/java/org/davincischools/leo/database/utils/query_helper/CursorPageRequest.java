@@ -0,0 +1,57 @@
+package org.davincischools.leo.database.utils.query_helper;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Optional;
+import javax.annotation.Nullable;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Requests the page that continues after the last row of a previous page, rather than skipping an
+ * offset. Pass the result of {@link CursorPage#getNextCursor()} to {@link #after} to get the next
+ * page.
+ *
+ * <p>The database only has to read the rows of the page, no matter how deep it is. Counting the
+ * total is optional, since that still has to read all matching rows.
+ *
+ * <p>This isn't a {@link org.springframework.data.domain.Pageable}, since cursor pages have no page
+ * numbers or offsets.
+ */
+@Getter
+@EqualsAndHashCode
+public final class CursorPageRequest {
+
+  private final int pageSize;
+  @Nullable private final String cursor;
+  private final boolean countTotal;
+
+  private CursorPageRequest(int pageSize, @Nullable String cursor, boolean countTotal) {
+    checkArgument(pageSize > 0, "Page size must be positive.");
+    this.pageSize = pageSize;
+    this.cursor = cursor;
+    this.countTotal = countTotal;
+  }
+
+  public static CursorPageRequest first(int pageSize) {
+    return new CursorPageRequest(pageSize, null, /* countTotal= */ true);
+  }
+
+  public static CursorPageRequest after(@Nullable String cursor, int pageSize) {
+    return new CursorPageRequest(pageSize, cursor, /* countTotal= */ true);
+  }
+
+  public CursorPageRequest withCountTotal(boolean countTotal) {
+    return new CursorPageRequest(pageSize, cursor, countTotal);
+  }
+
+  Optional<String> getOptionalCursor() {
+    return Optional.ofNullable(cursor);
+  }
+
+  @Override
+  public String toString() {
+    return "CursorPageRequest(pageSize=%d, cursor=%s, countTotal=%s)"
+        .formatted(pageSize, cursor, countTotal);
+  }
+}
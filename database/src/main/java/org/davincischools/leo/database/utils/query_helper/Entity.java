@@ -279,18 +279,18 @@ public class Entity<P, S, F> implements Expression<F> {
     return entityType == EntityType.ROOT || entityType == EntityType.SUBQUERY;
   }
 
-  public Entity<P, S, F> orderByAsc(Entity<?, ?, ?> entity) {
-    checkNotNull(entity);
+  public Entity<P, S, F> orderByAsc(Expression<?> expression) {
+    checkNotNull(expression);
 
-    getRoot().orderByList.add(new OrderBy(entity, OrderDirection.ASC));
+    getRoot().orderByList.add(OrderBy.of(expression, OrderDirection.ASC));
 
     return this;
   }
 
-  public Entity<P, S, F> orderByDesc(Entity<?, ?, ?> entity) {
-    checkNotNull(entity);
+  public Entity<P, S, F> orderByDesc(Expression<?> expression) {
+    checkNotNull(expression);
 
-    getRoot().orderByList.add(new OrderBy(entity, OrderDirection.DESC));
+    getRoot().orderByList.add(OrderBy.of(expression, OrderDirection.DESC));
 
     return this;
   }
@@ -358,7 +358,8 @@ public class Entity<P, S, F> implements Expression<F> {
 
   @SuppressWarnings("unchecked")
   @Override
-  public jakarta.persistence.criteria.Expression<F> toExpression(CriteriaBuilder builder) {
+  public jakarta.persistence.criteria.Expression<F> toExpression(
+      CriteriaBuilder builder, QueryParameters parameters) {
     if (entityType == EntityType.SUBQUERY) {
       return (jakarta.persistence.criteria.Expression<F>) subqueryJpaEntity;
     }
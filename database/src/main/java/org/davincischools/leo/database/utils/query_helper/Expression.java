@@ -4,7 +4,9 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import jakarta.persistence.criteria.CriteriaBuilder;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 public interface Expression<T> {
 
@@ -18,6 +20,7 @@ public interface Expression<T> {
 
     return new ExpressionImpl<String>()
         .setType(ExpressionType.CONCAT)
+        .setJavaType(String.class)
         .setValues(Arrays.asList(values));
   }
 
@@ -25,8 +28,30 @@ public interface Expression<T> {
     checkNotNull(value);
     checkArgument(!(value instanceof Predicate) && !(value instanceof Expression));
 
-    return new ExpressionImpl<V>().setType(ExpressionType.LITERAL).setValue(value);
+    return new ExpressionImpl<V>()
+        .setType(ExpressionType.LITERAL)
+        .setJavaType(QueryParameters.getType(value))
+        .setValue(value);
   }
 
-  jakarta.persistence.criteria.Expression<T> toExpression(CriteriaBuilder builder);
+  /**
+   * The relevance of FULLTEXT indexed columns to a boolean mode query, which is 0 if they don't
+   * match. The columns must be those of a FULLTEXT index, in order. See {@link FullTextSearch}.
+   */
+  static Expression<Double> relevance(
+      List<? extends Expression<String>> columns, String booleanModeQuery) {
+    checkNotNull(columns);
+    checkArgument(!columns.isEmpty());
+    checkNotNull(booleanModeQuery);
+
+    List<Expression<?>> values = new ArrayList<>(columns);
+    values.add(literal(booleanModeQuery));
+    return new ExpressionImpl<Double>()
+        .setType(ExpressionType.MATCH)
+        .setJavaType(Double.class)
+        .setValues(values);
+  }
+
+  jakarta.persistence.criteria.Expression<T> toExpression(
+      CriteriaBuilder builder, QueryParameters parameters);
 }
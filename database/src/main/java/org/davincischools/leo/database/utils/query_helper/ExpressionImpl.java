@@ -2,6 +2,7 @@ package org.davincischools.leo.database.utils.query_helper;
 
 import jakarta.persistence.criteria.CriteriaBuilder;
 import java.util.List;
+import java.util.stream.Collectors;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
@@ -13,29 +14,42 @@ import lombok.experimental.Accessors;
 class ExpressionImpl<T> implements Expression<T> {
 
   private ExpressionType type;
+  private Class<?> javaType;
   private T value;
-  private List<Expression<T>> values;
+  private List<? extends Expression<?>> values;
 
   @SuppressWarnings("unchecked")
-  public jakarta.persistence.criteria.Expression<T> toExpression(CriteriaBuilder builder) {
+  public jakarta.persistence.criteria.Expression<T> toExpression(
+      CriteriaBuilder builder, QueryParameters parameters) {
     return switch (type) {
       case CONCAT -> {
         jakarta.persistence.criteria.Expression<String> next =
             builder.concat(
                 (jakarta.persistence.criteria.Expression<String>)
-                    values.get(0).toExpression(builder),
+                    values.get(0).toExpression(builder, parameters),
                 (jakarta.persistence.criteria.Expression<String>)
-                    values.get(1).toExpression(builder));
+                    values.get(1).toExpression(builder, parameters));
         for (int i = 2; i < values.size(); ++i) {
           next =
               builder.concat(
                   next,
                   (jakarta.persistence.criteria.Expression<String>)
-                      values.get(i).toExpression(builder));
+                      values.get(i).toExpression(builder, parameters));
         }
         yield (jakarta.persistence.criteria.Expression<T>) next;
       }
-      case LITERAL -> builder.literal(value);
+      case LITERAL -> {
+        String name = parameters.getName(this);
+        yield name != null ? parameters.toParameter(builder, name) : builder.literal(value);
+      }
+      case MATCH ->
+          (jakarta.persistence.criteria.Expression<T>)
+              builder.function(
+                  FullTextSearch.MATCH_AGAINST_FUNCTION,
+                  Double.class,
+                  values.stream()
+                      .map(expression -> expression.toExpression(builder, parameters))
+                      .toArray(jakarta.persistence.criteria.Expression<?>[]::new));
     };
   }
 
@@ -52,6 +66,14 @@ class ExpressionImpl<T> implements Expression<T> {
         yield builder.toString();
       }
       case LITERAL -> value.toString();
+      case MATCH ->
+          "MATCH("
+              + values.subList(0, values.size() - 1).stream()
+                  .map(Object::toString)
+                  .collect(Collectors.joining(", "))
+              + ") AGAINST("
+              + values.get(values.size() - 1)
+              + ")";
     };
   }
 }
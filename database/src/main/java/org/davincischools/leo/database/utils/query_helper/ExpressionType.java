@@ -3,4 +3,5 @@ package org.davincischools.leo.database.utils.query_helper;
 public enum ExpressionType {
   CONCAT,
   LITERAL,
+  MATCH,
 }
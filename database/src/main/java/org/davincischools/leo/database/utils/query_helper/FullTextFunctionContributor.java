@@ -0,0 +1,72 @@
+package org.davincischools.leo.database.utils.query_helper;
+
+import java.util.List;
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.query.ReturnableType;
+import org.hibernate.query.sqm.function.AbstractSqmSelfRenderingFunctionDescriptor;
+import org.hibernate.query.sqm.produce.function.StandardArgumentsValidators;
+import org.hibernate.query.sqm.produce.function.StandardFunctionArgumentTypeResolvers;
+import org.hibernate.query.sqm.produce.function.StandardFunctionReturnTypeResolvers;
+import org.hibernate.sql.ast.SqlAstNodeRenderingMode;
+import org.hibernate.sql.ast.SqlAstTranslator;
+import org.hibernate.sql.ast.spi.SqlAppender;
+import org.hibernate.sql.ast.tree.SqlAstNode;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Adds MySQL's full-text MATCH() AGAINST() to Hibernate, which has no function for it. Loaded by
+ * Hibernate from META-INF/services. See {@link FullTextSearch}.
+ *
+ * <p>The arguments are the columns to match followed by the boolean mode query, e.g.,
+ * match_against(name, description, '+word*') is MATCH(name, description) AGAINST('+word*' IN
+ * BOOLEAN MODE).
+ */
+public class FullTextFunctionContributor implements FunctionContributor {
+
+  @Override
+  public void contributeFunctions(FunctionContributions functionContributions) {
+    functionContributions
+        .getFunctionRegistry()
+        .register(
+            FullTextSearch.MATCH_AGAINST_FUNCTION,
+            new MatchAgainstFunction(
+                functionContributions
+                    .getTypeConfiguration()
+                    .getBasicTypeRegistry()
+                    .resolve(StandardBasicTypes.DOUBLE)));
+  }
+
+  // Hibernate's pattern functions have a fixed number of arguments. But, MATCH() takes one or more
+  // columns.
+  private static class MatchAgainstFunction extends AbstractSqmSelfRenderingFunctionDescriptor {
+
+    private MatchAgainstFunction(BasicType<Double> doubleType) {
+      super(
+          FullTextSearch.MATCH_AGAINST_FUNCTION,
+          StandardArgumentsValidators.min(2),
+          StandardFunctionReturnTypeResolvers.invariant(doubleType),
+          StandardFunctionArgumentTypeResolvers.NULL);
+    }
+
+    @Override
+    public void render(
+        SqlAppender sqlAppender,
+        List<? extends SqlAstNode> sqlAstArguments,
+        ReturnableType<?> returnType,
+        SqlAstTranslator<?> walker) {
+      sqlAppender.appendSql("match(");
+      for (int i = 0; i < sqlAstArguments.size() - 1; ++i) {
+        if (i > 0) {
+          sqlAppender.appendSql(", ");
+        }
+        walker.render(sqlAstArguments.get(i), SqlAstNodeRenderingMode.DEFAULT);
+      }
+      sqlAppender.appendSql(") against(");
+      walker.render(
+          sqlAstArguments.get(sqlAstArguments.size() - 1), SqlAstNodeRenderingMode.DEFAULT);
+      sqlAppender.appendSql(" in boolean mode)");
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package org.davincischools.leo.database.utils.query_helper;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.ImmutableList;
+import jakarta.annotation.PostConstruct;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.davincischools.leo.database.daos.Project;
+import org.davincischools.leo.database.daos.ProjectPost;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks at startup that the database indexes every word, and fills in the plain text copies of
+ * HTML columns that are missing, e.g., for rows written before the copies were added. See {@link
+ * FullTextSearch}.
+ */
+@Component
+public class FullTextIndexes {
+
+  private static final Logger logger = LogManager.getLogger();
+
+  // Keeps each update statement small.
+  static final int FILL_IN_BATCH_SIZE = 100;
+
+  private record PlainTextColumn(String tableName, String htmlColumn, String textColumn) {}
+
+  private static final ImmutableList<PlainTextColumn> PLAIN_TEXT_COLUMNS =
+      ImmutableList.of(
+          new PlainTextColumn(
+              Project.TABLE_NAME,
+              Project.COLUMN_LONGDESCRHTML_NAME,
+              Project.COLUMN_LONGDESCRTEXT_NAME),
+          new PlainTextColumn(
+              ProjectPost.TABLE_NAME,
+              ProjectPost.COLUMN_LONGDESCRHTML_NAME,
+              ProjectPost.COLUMN_LONGDESCRTEXT_NAME));
+
+  private final DataSource dataSource;
+
+  public FullTextIndexes(@Autowired DataSource dataSource) {
+    this.dataSource = checkNotNull(dataSource);
+  }
+
+  @PostConstruct
+  public void checkSettingsAndFillInPlainText() {
+    try (Connection connection = dataSource.getConnection()) {
+      checkSettings(connection);
+      for (var column : PLAIN_TEXT_COLUMNS) {
+        fillInPlainText(connection, column);
+      }
+    } catch (SQLException e) {
+      logger.atError().withThrowable(e).log("Failed to check the full-text indexes.");
+    }
+  }
+
+  private static void checkSettings(Connection connection) throws SQLException {
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet =
+            statement.executeQuery(
+                "SELECT @@innodb_ft_min_token_size, @@innodb_ft_enable_stopword")) {
+      checkState(resultSet.next(), "Missing full-text settings.");
+      int minTokenSize = resultSet.getInt(1);
+      boolean enableStopword = resultSet.getBoolean(2);
+      if (minTokenSize > 1 || enableStopword) {
+        logger
+            .atError()
+            .log(
+                "Searches won't find short words or stopwords, e.g., \"Li\" or \"the\", with"
+                    + " innodb_ft_min_token_size={} and innodb_ft_enable_stopword={}. Start the"
+                    + " database with --innodb-ft-min-token-size=1 and"
+                    + " --innodb-ft-enable-stopword=OFF, then rebuild the FULLTEXT indexes.",
+                minTokenSize,
+                enableStopword ? "ON" : "OFF");
+      }
+    }
+  }
+
+  private static void fillInPlainText(Connection connection, PlainTextColumn column)
+      throws SQLException {
+    String selectSql =
+        String.format(
+            "SELECT id, %s FROM %s WHERE %s IS NOT NULL AND %s IS NULL LIMIT %d",
+            column.htmlColumn(),
+            column.tableName(),
+            column.htmlColumn(),
+            column.textColumn(),
+            FILL_IN_BATCH_SIZE);
+    String updateSql =
+        String.format("UPDATE %s SET %s = ? WHERE id = ?", column.tableName(), column.textColumn());
+
+    // Plain text is never null for non-null HTML. So, each batch removes its rows from the next.
+    int rows = 0;
+    int batchRows;
+    do {
+      batchRows = 0;
+      try (Statement select = connection.createStatement();
+          ResultSet resultSet = select.executeQuery(selectSql);
+          PreparedStatement update = connection.prepareStatement(updateSql)) {
+        while (resultSet.next()) {
+          update.setString(1, FullTextSearch.toPlainText(resultSet.getString(2)));
+          update.setInt(2, resultSet.getInt(1));
+          update.addBatch();
+          ++batchRows;
+        }
+        if (batchRows > 0) {
+          update.executeBatch();
+        }
+      }
+      rows += batchRows;
+    } while (batchRows == FILL_IN_BATCH_SIZE);
+
+    if (rows > 0) {
+      logger.atInfo().log(
+          "Filled in {} for {} rows of {}.", column.textColumn(), rows, column.tableName());
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package org.davincischools.leo.database.utils.query_helper;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import org.jsoup.Jsoup;
+
+/**
+ * Searches the columns of a FULLTEXT index, e.g., project__search on the name and descriptions of a
+ * project. So, rows are found with the index rather than a table scan, and are ranked by MySQL's
+ * relevance. HTML columns aren't indexed. Instead, daos keep a plain text copy of them, from {@link
+ * #toPlainText}, which is. So, the names of tags, attributes, and entities, e.g., "p" or "nbsp",
+ * don't match.
+ *
+ * <p>Each word of a search must be the start of a word in the text, e.g., "jo smi" finds "John
+ * Smith". Words shorter than innodb_ft_min_token_size, or in the stopword list, aren't indexed. So,
+ * the database should be started with --innodb-ft-min-token-size=1 and
+ * --innodb-ft-enable-stopword=OFF, as the test databases are. {@link FullTextIndexes} logs an error
+ * at startup if it isn't.
+ *
+ * <p>Cursors over ranked results are best effort. Relevance depends on statistics of the whole
+ * index, which change as rows are written. So, if the table changes between pages, a row may be
+ * repeated or skipped, as it may with page numbers.
+ */
+public final class FullTextSearch {
+
+  // Registered with Hibernate by FullTextFunctionContributor.
+  static final String MATCH_AGAINST_FUNCTION = "match_against";
+
+  // More words than this are ignored, to limit the cost of a search.
+  static final int MAX_WORDS = 10;
+
+  // Letters, digits, and underscores, with apostrophes within words, like MySQL's parser.
+  private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}_]+(?:'[\\p{L}\\p{N}_]+)*");
+
+  private FullTextSearch() {}
+
+  /**
+   * Restricts the query to rows whose columns match the search, and sorts them by relevance. The
+   * columns must be those of a FULLTEXT index, in order. Call it before adding other sorts, so that
+   * the best matches come first. If the search has no words, the query is left unchanged.
+   */
+  public static void matchAndRank(
+      Entity<?, ?, ?> entity, List<? extends Expression<String>> columns, String search) {
+    checkNotNull(entity);
+    checkNotNull(columns);
+    checkNotNull(search);
+
+    toBooleanModeQuery(search)
+        .ifPresent(
+            query -> {
+              var relevance = Expression.relevance(columns, query);
+              entity.where(Predicate.gt(relevance, 0.0));
+              entity.orderByDesc(relevance);
+            });
+  }
+
+  /** Returns the text of HTML, without tags or attributes, and with entities decoded. */
+  @Nullable
+  public static String toPlainText(@Nullable String html) {
+    return html == null ? null : Jsoup.parse(html).text();
+  }
+
+  /**
+   * Returns a boolean mode query that requires each word of the search as a prefix, e.g., "+jo*
+   * +smi*". Operators in the search are ignored. Empty if the search has no words.
+   */
+  static Optional<String> toBooleanModeQuery(String search) {
+    checkNotNull(search);
+
+    List<String> terms = new ArrayList<>();
+    var matcher = WORD.matcher(search.toLowerCase(Locale.ROOT));
+    while (matcher.find() && terms.size() < MAX_WORDS) {
+      terms.add("+" + matcher.group() + "*");
+    }
+    return terms.isEmpty() ? Optional.empty() : Optional.of(String.join(" ", terms));
+  }
+}
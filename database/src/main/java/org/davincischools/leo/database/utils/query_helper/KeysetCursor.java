@@ -0,0 +1,119 @@
+package org.davincischools.leo.database.utils.query_helper;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Encodes the sort values of the last row of a page into an opaque, URL safe string. Each value is
+ * base64 encoded and separated by '.'. Nulls are encoded as '~'. Neither character is in the base64
+ * url alphabet.
+ */
+final class KeysetCursor {
+
+  private static final String NULL_VALUE = "~";
+  private static final Joiner JOINER = Joiner.on('.');
+  private static final Splitter SPLITTER = Splitter.on('.');
+
+  private KeysetCursor() {}
+
+  /** Checks that values of the types can be encoded. */
+  static void checkSupportedTypes(List<Class<?>> types) {
+    checkNotNull(types);
+
+    for (var type : types) {
+      checkArgument(isSupportedType(type), "Unsupported cursor value type: %s", type.getName());
+    }
+  }
+
+  static String encode(List<?> values) {
+    checkNotNull(values);
+
+    return JOINER.join(
+        values.stream()
+            .map(
+                value ->
+                    value == null
+                        ? NULL_VALUE
+                        : Base64.getUrlEncoder()
+                            .withoutPadding()
+                            .encodeToString(toString(value).getBytes(StandardCharsets.UTF_8)))
+            .toList());
+  }
+
+  static List<Object> decode(String cursor, List<Class<?>> types) {
+    checkNotNull(cursor);
+    checkNotNull(types);
+
+    var encodedValues = SPLITTER.splitToList(cursor);
+    checkArgument(encodedValues.size() == types.size(), "Invalid cursor: %s", cursor);
+
+    var values = new ArrayList<>(types.size());
+    for (int i = 0; i < types.size(); ++i) {
+      String encodedValue = encodedValues.get(i);
+      if (encodedValue.equals(NULL_VALUE)) {
+        values.add(null);
+      } else {
+        try {
+          values.add(
+              fromString(
+                  new String(Base64.getUrlDecoder().decode(encodedValue), StandardCharsets.UTF_8),
+                  types.get(i)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+          throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+      }
+    }
+    return values;
+  }
+
+  private static boolean isSupportedType(Class<?> type) {
+    return type == String.class
+        || type == Integer.class
+        || type == Long.class
+        || type == Double.class
+        || type == Boolean.class
+        || type == Instant.class
+        || type.isEnum();
+  }
+
+  private static String toString(Object value) {
+    if (value instanceof Enum<?> e) {
+      return e.name();
+    }
+    checkArgument(
+        isSupportedType(value.getClass()),
+        "Unsupported cursor value type: %s",
+        value.getClass().getName());
+    return value.toString();
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Object fromString(String value, Class<?> type) {
+    if (type == String.class) {
+      return value;
+    } else if (type == Integer.class) {
+      return Integer.valueOf(value);
+    } else if (type == Long.class) {
+      return Long.valueOf(value);
+    } else if (type == Double.class) {
+      // Double.toString() keeps every bit. So, equal sort values stay equal.
+      return Double.valueOf(value);
+    } else if (type == Boolean.class) {
+      return Boolean.valueOf(value);
+    } else if (type == Instant.class) {
+      return Instant.parse(value);
+    } else if (type.isEnum()) {
+      return Enum.valueOf((Class<? extends Enum>) type, value);
+    }
+    throw new IllegalArgumentException("Unsupported cursor value type: " + type.getName());
+  }
+}
@@ -4,14 +4,29 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import jakarta.persistence.criteria.CriteriaBuilder;
 
-record OrderBy(Entity<?, ?, ?> entity, OrderDirection orderDirection) {
+/** An expression to sort by. The type is of its values, which are encoded in cursors. */
+record OrderBy(Expression<?> expression, Class<?> type, OrderDirection orderDirection) {
 
-  public jakarta.persistence.criteria.Order toOrder(CriteriaBuilder builder) {
+  static OrderBy of(Expression<?> expression, OrderDirection orderDirection) {
+    checkNotNull(expression);
+    checkNotNull(orderDirection);
+
+    if (expression instanceof Entity<?, ?, ?> entity) {
+      return new OrderBy(expression, entity.getFromClass(), orderDirection);
+    } else if (expression instanceof ExpressionImpl<?> e) {
+      return new OrderBy(expression, e.getJavaType(), orderDirection);
+    }
+    throw new IllegalArgumentException("Unsupported sort expression: " + expression);
+  }
+
+  public jakarta.persistence.criteria.Order toOrder(
+      CriteriaBuilder builder, QueryParameters parameters) {
     checkNotNull(builder);
+    checkNotNull(parameters);
 
     return switch (orderDirection) {
-      case ASC -> builder.asc(entity.getJpaEntity());
-      case DESC -> builder.desc(entity.getJpaEntity());
+      case ASC -> builder.asc(expression.toExpression(builder, parameters));
+      case DESC -> builder.desc(expression.toExpression(builder, parameters));
     };
   }
 }
@@ -39,6 +39,16 @@ public class Predicate implements Expression<Boolean> {
     return eq(left, Expression.literal(right));
   }
 
+  public static <V extends Comparable<? super V>> Predicate gt(Expression<V> left, V right) {
+    checkNotNull(left);
+    checkNotNull(right);
+
+    return new Predicate()
+        .setType(PredicateType.GT)
+        .setLeft(left)
+        .setRight(Expression.literal(right));
+  }
+
   public static <V> Predicate in(Expression<V> left, Iterable<? extends V> values) {
     checkNotNull(left);
     checkNotNull(values);
@@ -120,42 +130,61 @@ public class Predicate implements Expression<Boolean> {
     return new Predicate().setType(PredicateType.OR).setValues(Arrays.asList(expressions));
   }
 
-  @SuppressWarnings("unchecked")
-  jakarta.persistence.criteria.Predicate toPredicate(CriteriaBuilder builder) {
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  jakarta.persistence.criteria.Predicate toPredicate(
+      CriteriaBuilder builder, QueryParameters parameters) {
     checkNotNull(builder);
+    checkNotNull(parameters);
 
     return switch (type) {
-      case EQ -> builder.equal(left.toExpression(builder), right.toExpression(builder));
+      case EQ ->
+          builder.equal(
+              left.toExpression(builder, parameters), right.toExpression(builder, parameters));
       case FALSE -> builder.isTrue(builder.literal(false));
+      case GT ->
+          builder.greaterThan(
+              (jakarta.persistence.criteria.Expression<Comparable>)
+                  left.toExpression(builder, parameters),
+              (jakarta.persistence.criteria.Expression<Comparable>)
+                  right.toExpression(builder, parameters));
       case IN ->
           right != null
-              ? left.toExpression(builder).in(right.toExpression(builder))
+              ? left.toExpression(builder, parameters).in(right.toExpression(builder, parameters))
               : values != null && !values.isEmpty()
-                  ? left.toExpression(builder)
-                      .in(values.stream().map(v -> v.toExpression(builder)).toList())
-                  : FALSE.toPredicate(builder);
-      case IS_NOT_NULL -> builder.isNotNull(value.toExpression(builder));
-      case IS_NULL -> builder.isNull(value.toExpression(builder));
+                  ? left.toExpression(builder, parameters)
+                      .in(values.stream().map(v -> v.toExpression(builder, parameters)).toList())
+                  : FALSE.toPredicate(builder, parameters);
+      case IS_NOT_NULL -> builder.isNotNull(value.toExpression(builder, parameters));
+      case IS_NULL -> builder.isNull(value.toExpression(builder, parameters));
       case LIKE ->
           builder.like(
-              (jakarta.persistence.criteria.Expression<String>) left.toExpression(builder),
-              (jakarta.persistence.criteria.Expression<String>) right.toExpression(builder));
-      case NEQ -> builder.notEqual(left.toExpression(builder), right.toExpression(builder));
+              (jakarta.persistence.criteria.Expression<String>)
+                  left.toExpression(builder, parameters),
+              (jakarta.persistence.criteria.Expression<String>)
+                  right.toExpression(builder, parameters));
+      case NEQ ->
+          builder.notEqual(
+              left.toExpression(builder, parameters), right.toExpression(builder, parameters));
       case NOT ->
           builder.isFalse(
-              (jakarta.persistence.criteria.Expression<Boolean>) value.toExpression(builder));
+              (jakarta.persistence.criteria.Expression<Boolean>)
+                  value.toExpression(builder, parameters));
       case OR ->
           builder.or(
               values.stream()
-                  .map(v -> Predicate.isTrue((Expression<Boolean>) v).toPredicate(builder))
+                  .map(
+                      v ->
+                          Predicate.isTrue((Expression<Boolean>) v)
+                              .toPredicate(builder, parameters))
                   .toArray(jakarta.persistence.criteria.Predicate[]::new));
       case TRUE -> builder.isTrue(builder.literal(true));
     };
   }
 
   @Override
-  public jakarta.persistence.criteria.Expression<Boolean> toExpression(CriteriaBuilder builder) {
-    return toPredicate(builder);
+  public jakarta.persistence.criteria.Expression<Boolean> toExpression(
+      CriteriaBuilder builder, QueryParameters parameters) {
+    return toPredicate(builder, parameters);
   }
 
   @Override
@@ -163,6 +192,7 @@ public class Predicate implements Expression<Boolean> {
     return switch (type) {
       case EQ -> left.toString() + " = " + right.toString();
       case FALSE -> "FALSE";
+      case GT -> left.toString() + " > " + right.toString();
       case IN ->
           left.toString() + " IN (" + (right != null ? right.toString() : values.toString()) + ")";
       case IS_NOT_NULL -> value.toString() + " IS NOT NULL";
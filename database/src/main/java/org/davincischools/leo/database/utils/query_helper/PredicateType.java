@@ -3,6 +3,7 @@ package org.davincischools.leo.database.utils.query_helper;
 enum PredicateType {
   EQ,
   FALSE,
+  GT,
   IN,
   IS_NOT_NULL,
   IS_NULL,
@@ -4,33 +4,59 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.base.Stopwatch;
-import com.google.common.collect.HashBiMap;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Streams;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.From;
 import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Order;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.Attribute;
 import jakarta.persistence.metamodel.PluralAttribute;
 import jakarta.persistence.metamodel.SetAttribute;
 import jakarta.persistence.metamodel.SingularAttribute;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.davincischools.leo.database.utils.DaoUtils;
+import org.davincischools.leo.database.utils.MetricUtils;
+import org.hibernate.Hibernate;
+import org.hibernate.query.SelectionQuery;
 import org.hibernate.query.criteria.JpaPath;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.support.PageableUtils;
@@ -45,12 +71,73 @@ public class QueryHelper {
 
   public static final int DEFAULT_PAGE_SIZE = 25;
 
+  public static final String PARTITION_PLURAL_FETCHES_PROP_NAME =
+      "project_leo.query_helper.partition_plural_fetches";
+  public static final String PLAN_CACHE_SIZE_PROP_NAME = "project_leo.query_helper.plan_cache_size";
+
+  // Maximum number of ids in the IN (...) clause of a partition query. A power of two, so that full
+  // batches don't need padding.
+  private static final int MAX_PARTITION_IDS = 1024;
+
   private static final IdentityHashMap<Class<?>, Method> getIdMethods = new IdentityHashMap<>();
 
   private final EntityManager entityManager;
+  private final boolean partitionPluralFetches;
+  // Criteria queries by their QueryShape key. They only have named parameters. So, they can be run
+  // again with new values, and Hibernate reuses their translation to SQL. Criteria queries aren't
+  // thread-safe. So, each is only used by one query at a time, and a key has more than one if its
+  // queries run concurrently.
+  private final Cache<String, Queue<CriteriaQuery<?>>> queryPlans;
+  // Whether a cached criteria query was actually reused. A key can be cached while all of its
+  // queries are in use, which is a miss.
+  private final LongAdder planHits = new LongAdder();
+  private final LongAdder planMisses = new LongAdder();
 
-  public QueryHelper(@Autowired EntityManager entityManager) {
+  public QueryHelper(
+      @Autowired EntityManager entityManager,
+      @Value("${" + PARTITION_PLURAL_FETCHES_PROP_NAME + ":true}") boolean partitionPluralFetches,
+      @Value("${" + PLAN_CACHE_SIZE_PROP_NAME + ":500}") int planCacheSize) {
     this.entityManager = entityManager;
+    this.partitionPluralFetches = partitionPluralFetches;
+    this.queryPlans = CacheBuilder.newBuilder().maximumSize(planCacheSize).build();
+  }
+
+  /** The hits and misses of the query plan cache. Only the hit and miss counts are set. */
+  public CacheStats getPlanCacheStats() {
+    return new CacheStats(planHits.sum(), planMisses.sum(), 0, 0, 0, 0);
+  }
+
+  /**
+   * Queries a page after a cursor if there is a cursor (an empty cursor is the first page), a page
+   * by number if there is a page, and otherwise all rows. Pages after a cursor are {@link
+   * CursorPage}s.
+   */
+  @Transactional(readOnly = true)
+  public <SF> Page<SF> query(
+      Class<SF> selectFromClass,
+      QueryBuilder<SF, SF> queryBuilder,
+      Optional<Integer> page,
+      Optional<Integer> pageSize,
+      Optional<String> cursor,
+      Optional<Boolean> skipTotal) {
+    checkNotNull(page);
+    checkNotNull(pageSize);
+    checkNotNull(cursor);
+    checkNotNull(skipTotal);
+
+    if (cursor.isPresent()) {
+      return query(
+          selectFromClass,
+          queryBuilder,
+          CursorPageRequest.after(
+                  cursor.filter(c -> !c.isEmpty()).orElse(null), pageSize.orElse(DEFAULT_PAGE_SIZE))
+              .withCountTotal(!skipTotal.orElse(false)));
+    }
+    return query(
+        selectFromClass,
+        queryBuilder,
+        page.map(p -> Pageable.ofSize(pageSize.orElse(DEFAULT_PAGE_SIZE)).withPage(p))
+            .orElse(Pageable.unpaged()));
   }
 
   @Transactional(readOnly = true)
@@ -81,6 +168,22 @@ public class QueryHelper {
         /* distinct= */ true);
   }
 
+  @Transactional(readOnly = true)
+  public <SF> CursorPage<SF> query(
+      Class<SF> selectFromClass,
+      QueryBuilder<SF, SF> queryBuilder,
+      CursorPageRequest cursorPageRequest) {
+    checkNotNull(selectFromClass);
+    checkNotNull(queryBuilder);
+
+    return query(
+        selectFromClass,
+        selectFromClass,
+        entity -> queryBuilder.configureQuery(entity.select()),
+        cursorPageRequest,
+        /* distinct= */ true);
+  }
+
   @Transactional(readOnly = true)
   public <S, F> List<S> query(
       Class<S> selectClass, Class<F> fromClass, QueryBuilder<S, F> queryBuilder) {
@@ -114,19 +217,64 @@ public class QueryHelper {
           && rootEntity.getNonIdManagedEntities().contains(rootEntity.getSelectEntity())
           && rootEntity.getSelectEntity().isFetchingPluralAttributes()) {
         return getEntities(
-            em, rootEntity, getQueryIds(em, rootEntity, pageable, distinct), pageable, distinct);
+            em,
+            rootEntity,
+            Optional.of(getQueryIds(em, rootEntity, pageable, Optional.empty(), distinct)),
+            pageable,
+            distinct);
       } else {
         return getEntities(em, rootEntity, Optional.empty(), pageable, distinct);
       }
     }
   }
 
-  // TODO: Optimization: Select only the main element id and trim the joins, when possible.
-  static Optional<QueryIds> getQueryIds(
-      EntityManager em, Entity<?, ?, ?> rootEntity, Pageable pageable, boolean distinct) {
+  @Transactional(readOnly = true)
+  public <S, F> CursorPage<S> query(
+      Class<S> selectClass,
+      Class<F> fromClass,
+      QueryBuilder<S, F> queryBuilder,
+      CursorPageRequest cursorPageRequest,
+      boolean distinct) {
+    checkNotNull(selectClass);
+    checkNotNull(fromClass);
+    checkNotNull(queryBuilder);
+    checkNotNull(cursorPageRequest);
+
+    var rootEntity =
+        new Entity<Void, S, F>(null, this, entityManager, selectClass, fromClass)
+            .setEntityType(EntityType.ROOT);
+    queryBuilder.configureQuery(rootEntity);
+
+    try (var em = entityManager.getEntityManagerFactory().createEntityManager()) {
+      var queryIds =
+          getQueryIds(em, rootEntity, Pageable.unpaged(), Optional.of(cursorPageRequest), distinct);
+      var entities =
+          getEntities(em, rootEntity, Optional.of(queryIds), Pageable.unpaged(), distinct);
+      return new CursorPage<>(
+          entities.getContent(),
+          queryIds.getNextCursor(),
+          cursorPageRequest.isCountTotal() ? getCount(em, rootEntity, distinct) : null);
+    }
+  }
+
+  /**
+   * Gets the ids of the selected entities for a single page.
+   *
+   * <p>The joins can return several rows per selected entity. So, the rows are grouped by the
+   * selected entity's id and each group is sorted by its first value in the sort order. The page is
+   * then selected in the database, with LIMIT/OFFSET or, for a {@link CursorPageRequest}, by only
+   * returning groups that sort after the cursor. Either way, only the ids of the page are read.
+   */
+  private QueryIds getQueryIds(
+      EntityManager em,
+      Entity<?, ?, ?> rootEntity,
+      Pageable pageable,
+      Optional<CursorPageRequest> cursorPageRequest,
+      boolean distinct) {
     checkNotNull(em);
     checkNotNull(rootEntity);
     checkNotNull(pageable);
+    checkNotNull(cursorPageRequest);
 
     checkState(
         rootEntity.getNonIdManagedEntities().contains(rootEntity.getSelectEntity()),
@@ -136,107 +284,221 @@ public class QueryHelper {
 
     var stopwatch = Stopwatch.createStarted();
 
-    var builder = em.getCriteriaBuilder();
-    var query = builder.createTupleQuery();
-    var where = new ArrayList<Predicate>();
-    var managedEntities = rootEntity.getNonIdManagedEntities();
-    var entityIndexes = HashBiMap.<Entity<?, ?, ?>, Integer>create(managedEntities.size());
+    var selectEntity = rootEntity.getSelectEntity();
 
-    for (int i = 0; i < managedEntities.size(); ++i) {
-      entityIndexes.put(managedEntities.get(i), i);
+    // The id needs to be assigned a JPAEntity.
+    selectEntity.getId();
+
+    // Get only the ids. No fetching of entire entities wanted here.
+    var config =
+        new QueryHelperConfig()
+            .setJoinOnly(true)
+            .setExcludedEntities(getPartitionedBranches(rootEntity, distinct));
+
+    // The sort values of each group, followed by the id to make the order stable.
+    var sortDirections = new ArrayList<OrderDirection>();
+    var sortTypes = new ArrayList<Class<?>>();
+    for (var orderBy : rootEntity.getOrderByList()) {
+      sortDirections.add(orderBy.orderDirection());
+      sortTypes.add(orderBy.type());
+    }
+    sortDirections.add(OrderDirection.ASC);
+    sortTypes.add(selectEntity.getId().getFromClass());
+    if (cursorPageRequest.isPresent()) {
+      // Fail before running the query, rather than when encoding the next cursor.
+      KeysetCursor.checkSupportedTypes(sortTypes);
     }
 
-    // All entities need an id so that they are assigned a JPAEntity.
-    managedEntities.forEach(Entity::getId);
+    var parameters = new QueryParameters();
+    var shape =
+        new QueryShape("ids", config, parameters)
+            .addEntities(rootEntity, /* isRoot= */ true)
+            .addPredicates(rootEntity)
+            .addExpression(selectEntity)
+            .addOrderBy(rootEntity);
 
-    // Get only the ids. No fetching of entire entities wanted here.
-    var config = new QueryHelperConfig().setJoinOnly(true);
-
-    populateJpaEntities(rootEntity, /* isRoot= */ true, query, config);
-    // Only after all entities have a JPA entity can we create preconditions.
-    populateJpaPredicates(rootEntity, builder, where, config);
-
-    // Do not return null results.
-    where.add(builder.isNotNull(rootEntity.getSelectEntity().getJpaEntity()));
-
-    var emQuery =
-        em.createQuery(
-            query
-                .select(
-                    builder.tuple(
-                        managedEntities.stream()
-                            .map(Entity::getId)
-                            .map(Entity::getJpaEntity)
-                            .toArray(Selection<?>[]::new)))
-                .where(where.toArray(Predicate[]::new))
-                .orderBy(
-                    rootEntity.getOrderByList().stream()
-                        .map(o -> o.toOrder(builder))
-                        .toArray(Order[]::new)));
-
-    int pageStart = !pageable.isPaged() ? 0 : PageableUtils.getOffsetAsInteger(pageable);
-    int pageEnd = !pageable.isPaged() ? Integer.MAX_VALUE : pageStart + pageable.getPageSize();
-
-    int selectEntityIndex = checkNotNull(entityIndexes.get(rootEntity.getSelectEntity()));
-    var selectIds = new HashSet<>();
-    var pageSelectedIds = new HashSet<>();
-
-    var pageResults = new ArrayList<Tuple>();
-
-    var allResults = emQuery.getResultList();
-    for (var results : allResults) {
-      Object selectedId = results.get(selectEntityIndex);
-      if (!pageSelectedIds.contains(selectedId)) {
-        if (!selectIds.add(selectedId)) {
-          continue;
-        }
-        if (selectIds.size() <= pageStart) {
-          continue;
-        }
-        if (selectIds.size() > pageEnd) {
-          continue;
-        }
-        pageSelectedIds.add(selectedId);
-      }
-      pageResults.add(results);
+    // The parameter names of the cursor values. Null values are compared with IS NULL.
+    var cursorNames =
+        cursorPageRequest
+            .flatMap(CursorPageRequest::getOptionalCursor)
+            .map(
+                c ->
+                    KeysetCursor.decode(c, sortTypes).stream()
+                        .map(value -> value == null ? null : parameters.add(value))
+                        .toList());
+    shape.add("cursor:" + cursorNames.orElse(null));
+
+    List<Tuple> results =
+        getResultList(
+            em,
+            shape,
+            parameters,
+            () -> {
+              var builder = em.getCriteriaBuilder();
+              var query = builder.createTupleQuery();
+              var where = new ArrayList<Predicate>();
+
+              populateJpaEntities(rootEntity, /* isRoot= */ true, query, config);
+              // Only after all entities have a JPA entity can we create preconditions.
+              populateJpaPredicates(rootEntity, builder, where, config, parameters);
+
+              // Do not return null results.
+              where.add(builder.isNotNull(selectEntity.getJpaEntity()));
+
+              var selectId = selectEntity.getId().getJpaEntity();
+              var sortValues = new ArrayList<Expression<?>>();
+              for (var orderBy : rootEntity.getOrderByList()) {
+                sortValues.add(
+                    firstInGroup(
+                        builder,
+                        orderBy.expression().toExpression(builder, parameters),
+                        orderBy.orderDirection()));
+              }
+              sortValues.add(selectId);
+
+              cursorNames.ifPresent(
+                  names ->
+                      query.having(
+                          isAfter(builder, sortValues, sortDirections, names, parameters)));
+
+              return query
+                  .select(builder.tuple(sortValues.toArray(Selection<?>[]::new)))
+                  .where(where.toArray(Predicate[]::new))
+                  .groupBy(selectId)
+                  .orderBy(
+                      Streams.zip(
+                              sortValues.stream(),
+                              sortDirections.stream(),
+                              (value, direction) ->
+                                  switch (direction) {
+                                    case ASC -> builder.asc(value);
+                                    case DESC -> builder.desc(value);
+                                  })
+                          .toArray(Order[]::new));
+            },
+            emQuery -> {
+              if (cursorPageRequest.isPresent()) {
+                // Get an extra row to know whether there is a next page.
+                emQuery.setMaxResults(cursorPageRequest.get().getPageSize() + 1);
+              } else if (pageable.isPaged()) {
+                emQuery
+                    .setFirstResult(PageableUtils.getOffsetAsInteger(pageable))
+                    .setMaxResults(pageable.getPageSize());
+              }
+            });
+
+    String nextCursor = null;
+    if (cursorPageRequest.isPresent() && results.size() > cursorPageRequest.get().getPageSize()) {
+      results = results.subList(0, cursorPageRequest.get().getPageSize());
+      nextCursor = KeysetCursor.encode(Arrays.asList(results.get(results.size() - 1).toArray()));
     }
 
-    return Optional.of(
-        new QueryIds(
-            entityIndexes, pageSelectedIds, pageResults, selectIds.size(), stopwatch.elapsed()));
+    Duration queryDuration = stopwatch.elapsed();
+    recordPhase(rootEntity, "ids", queryDuration);
+    return new QueryIds(
+        results.stream().map(tuple -> tuple.get(sortDirections.size() - 1)).toList(),
+        nextCursor,
+        queryDuration);
+  }
+
+  // Builds (v1, v2, ...) > (c1, c2, ...), using MySQL's ordering of nulls: first when ascending.
+  // The cursor values are parameters, with a null name for a null value.
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Predicate isAfter(
+      CriteriaBuilder builder,
+      List<Expression<?>> values,
+      List<OrderDirection> directions,
+      List<String> cursorNames,
+      QueryParameters parameters) {
+    var anyAfter = new ArrayList<Predicate>();
+    var equalPrefix = new ArrayList<Predicate>();
+    for (int i = 0; i < values.size(); ++i) {
+      var value = (Expression<Comparable>) values.get(i);
+      Expression<Comparable> cursorValue =
+          cursorNames.get(i) == null ? null : parameters.toParameter(builder, cursorNames.get(i));
+
+      Predicate after =
+          switch (directions.get(i)) {
+            case ASC ->
+                cursorValue == null
+                    ? builder.isNotNull(value)
+                    : builder.greaterThan(value, cursorValue);
+            case DESC ->
+                cursorValue == null
+                    ? builder.disjunction()
+                    : builder.or(builder.lessThan(value, cursorValue), builder.isNull(value));
+          };
+      anyAfter.add(
+          builder.and(
+              Stream.concat(equalPrefix.stream(), Stream.of(after)).toArray(Predicate[]::new)));
+
+      equalPrefix.add(
+          cursorValue == null ? builder.isNull(value) : builder.equal(value, cursorValue));
+    }
+    return builder.or(anyAfter.toArray(Predicate[]::new));
+  }
+
+  // The value that sorts first in a group of rows.
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Expression<?> firstInGroup(
+      CriteriaBuilder builder, Expression<?> value, OrderDirection direction) {
+    return switch (direction) {
+      case ASC -> builder.least((Expression<Comparable>) value);
+      case DESC -> builder.greatest((Expression<Comparable>) value);
+    };
   }
 
   private <S, F> long getCount(EntityManager em, Entity<?, S, F> rootEntity, boolean distinct) {
     checkNotNull(em);
     checkNotNull(rootEntity);
 
-    var builder = em.getCriteriaBuilder();
-    var query = builder.createQuery(Long.class);
-    var where = new ArrayList<Predicate>();
+    var stopwatch = Stopwatch.createStarted();
 
     // Get only the ids. No fetching of entire entities wanted here.
-    var config = new QueryHelperConfig().setJoinOnly(true);
+    var config =
+        new QueryHelperConfig()
+            .setJoinOnly(true)
+            .setExcludedEntities(getPartitionedBranches(rootEntity, distinct));
 
-    populateJpaEntities(rootEntity, /* isRoot= */ true, query, config);
-    // Only after all entities have a JPA entity can we create preconditions.
-    populateJpaPredicates(rootEntity, builder, where, config);
+    var parameters = new QueryParameters();
+    var shape =
+        new QueryShape("count", config, parameters)
+            .addEntities(rootEntity, /* isRoot= */ true)
+            .addPredicates(rootEntity)
+            .addExpression(rootEntity.getSelectEntity())
+            .add("distinct:" + distinct);
 
-    // Do not count null results.
-    where.add(builder.isNotNull(rootEntity.getSelectEntity().getJpaEntity()));
+    var results =
+        getResultList(
+            em,
+            shape,
+            parameters,
+            () -> {
+              var builder = em.getCriteriaBuilder();
+              var query = builder.createQuery(Long.class);
+              var where = new ArrayList<Predicate>();
 
-    var emQuery =
-        em.createQuery(
-            query
-                .select(
-                    distinct
-                        ? builder.countDistinct(rootEntity.getSelectEntity().getJpaEntity())
-                        : builder.count(rootEntity.getSelectEntity().getJpaEntity()))
-                .where(where.toArray(Predicate[]::new)));
+              populateJpaEntities(rootEntity, /* isRoot= */ true, query, config);
+              // Only after all entities have a JPA entity can we create preconditions.
+              populateJpaPredicates(rootEntity, builder, where, config, parameters);
 
-    return Optional.ofNullable(emQuery.getSingleResult()).orElse(0L);
+              // Do not count null results.
+              where.add(builder.isNotNull(rootEntity.getSelectEntity().getJpaEntity()));
+
+              return query
+                  .select(
+                      distinct
+                          ? builder.countDistinct(rootEntity.getSelectEntity().getJpaEntity())
+                          : builder.count(rootEntity.getSelectEntity().getJpaEntity()))
+                  .where(where.toArray(Predicate[]::new));
+            },
+            emQuery -> {});
+
+    long count = results.stream().findFirst().map(Long::longValue).orElse(0L);
+    recordPhase(rootEntity, "count", stopwatch.elapsed());
+    return count;
   }
 
-  // TODO: Optimization: Partition the query into smaller queries by plural attribute boundaries.
   private <S, F> Page<S> getEntities(
       EntityManager em,
       Entity<?, S, F> rootEntity,
@@ -246,55 +508,108 @@ public class QueryHelper {
     var stopwatch = Stopwatch.createStarted();
 
     try {
-      var builder = em.getCriteriaBuilder();
-      var query = builder.createQuery(rootEntity.getSelectEntity().getFromClass());
-      var where = new ArrayList<Predicate>();
-
       // The select entity need an id so that it is assigned a JPAEntity.
       if (rootEntity.getSelectEntity().getManagedType() != null) {
         rootEntity.getSelectEntity().getId();
       }
 
-      var config = new QueryHelperConfig();
+      var config = new QueryHelperConfig().setPartitionPluralFetches(partitionPluralFetches);
+      var partitions =
+          config.isPartitionPluralFetches()
+              ? getPartitions(rootEntity.getSelectEntity(), rootEntity)
+              : List.<Partition>of();
+      config.setExcludedEntities(
+          partitions.stream().map(Partition::branch).collect(Collectors.toSet()));
 
-      populateJpaEntities(rootEntity, /* isRoot= */ true, query, config);
-      // Only after all entities have a JPA entity can we create preconditions.
-      populateJpaPredicates(rootEntity, builder, where, config);
+      var parameters = new QueryParameters();
+      var shape =
+          new QueryShape("entities", config, parameters)
+              .addEntities(rootEntity, /* isRoot= */ true)
+              .addPredicates(rootEntity)
+              .addExpression(rootEntity.getSelectEntity())
+              .addOrderBy(rootEntity)
+              .add("distinct:" + distinct);
 
-      // Do not return null results.
-      where.add(builder.isNotNull(rootEntity.getSelectEntity().getJpaEntity()));
+      // The parameter names of the ids wanted.
+      var idNames =
+          queryIds.map(
+              ids -> padToPowerOfTwo(ids.getSelectedIds()).stream().map(parameters::add).toList());
+      shape.add("ids:" + idNames.map(List::size).orElse(-1));
 
-      // Only select the entities with the ids wanted.
-      queryIds.ifPresent(
-          ids ->
-              where.add(
-                  rootEntity.getSelectEntity().getId().getJpaEntity().in(ids.getSelectedIds())));
+      boolean pagedInQuery = pageable.isPaged() && queryIds.isEmpty();
+      var results =
+          getResultList(
+              em,
+              shape,
+              parameters,
+              () -> {
+                var builder = em.getCriteriaBuilder();
+                var query = builder.createQuery(rootEntity.getSelectEntity().getFromClass());
+                var where = new ArrayList<Predicate>();
 
-      @SuppressWarnings("unchecked")
-      var selectJpaEntity = (Selection<S>) rootEntity.getSelectEntity().getJpaEntity();
-      var emQuery =
-          em.createQuery(
-              query
-                  .select(selectJpaEntity)
-                  .distinct(distinct)
-                  .where(where.toArray(Predicate[]::new))
-                  .orderBy(
-                      rootEntity.getOrderByList().stream()
-                          .map(o -> o.toOrder(builder))
-                          .toArray(Order[]::new)));
+                populateJpaEntities(rootEntity, /* isRoot= */ true, query, config);
+                // Only after all entities have a JPA entity can we create preconditions.
+                populateJpaPredicates(rootEntity, builder, where, config, parameters);
 
-      if (pageable.isPaged() && queryIds.isEmpty()) {
-        var firstResult = PageableUtils.getOffsetAsInteger(pageable);
-        emQuery.setFirstResult(firstResult).setMaxResults(pageable.getPageSize());
+                // Do not return null results.
+                where.add(builder.isNotNull(rootEntity.getSelectEntity().getJpaEntity()));
+
+                // Only select the entities with the ids wanted.
+                idNames.ifPresent(
+                    names ->
+                        where.add(
+                            names.isEmpty()
+                                ? builder.disjunction()
+                                : rootEntity
+                                    .getSelectEntity()
+                                    .getId()
+                                    .getJpaEntity()
+                                    .in(toParameters(builder, names, parameters))));
+
+                @SuppressWarnings("unchecked")
+                var selectJpaEntity = (Selection<S>) rootEntity.getSelectEntity().getJpaEntity();
+                return query
+                    .select(selectJpaEntity)
+                    .distinct(distinct)
+                    .where(where.toArray(Predicate[]::new))
+                    .orderBy(
+                        rootEntity.getOrderByList().stream()
+                            .map(o -> o.toOrder(builder, parameters))
+                            .toArray(Order[]::new));
+              },
+              emQuery -> {
+                if (pagedInQuery) {
+                  emQuery
+                      .setFirstResult(PageableUtils.getOffsetAsInteger(pageable))
+                      .setMaxResults(pageable.getPageSize());
+                }
+              });
+
+      loadRootPartitions(em, rootEntity, results, partitions);
+      if (pagedInQuery) {
         return PageableExecutionUtils.getPage(
-            emQuery.getResultList(), pageable, () -> getCount(em, rootEntity, distinct));
+            results, pageable, () -> getCount(em, rootEntity, distinct));
       }
 
-      var results = emQuery.getResultList();
+      if (queryIds.isPresent()) {
+        // Return them in the same order as the ids.
+        var idOrder = new HashMap<Object, Integer>();
+        queryIds.get().getSelectedIds().forEach(id -> idOrder.putIfAbsent(id, idOrder.size()));
+        results = new ArrayList<>(results);
+        results.sort(
+            Comparator.comparingInt(
+                result -> DaoUtils.getId(result).map(idOrder::get).orElse(Integer.MAX_VALUE)));
+        if (pageable.isPaged()) {
+          return PageableExecutionUtils.getPage(
+              results, pageable, () -> getCount(em, rootEntity, distinct));
+        }
+      }
+      var unpagedResults = results;
       return PageableExecutionUtils.getPage(
-          results, pageable, () -> queryIds.map(QueryIds::getTotal).orElse((long) results.size()));
+          unpagedResults, pageable, () -> (long) unpagedResults.size());
     } finally {
       Duration queryDuration = stopwatch.elapsed();
+      recordPhase(rootEntity, "entities", queryDuration);
       logger.atDebug().log(
           "Select of {} from {}: total duration: {}, ids duration: {}, entities duration: {}",
           rootEntity,
@@ -309,6 +624,304 @@ public class QueryHelper {
     }
   }
 
+  /**
+   * A fetched plural attribute that is loaded with its own query. Its parent entities are already
+   * loaded. So, loading the partition by the parent ids initializes the collections of the parents
+   * in the persistence context. Partitions beneath it are loaded after it.
+   */
+  private record Partition(
+      Entity<?, ?, ?> parent, Entity<?, ?, ?> branch, List<Partition> partitions) {}
+
+  /**
+   * Fetching several plural attributes in one query returns the cross product of the collections.
+   * So, if more than one plural attribute is fetched, each is loaded with its own query. This only
+   * applies to left joins whose predicates don't refer to entities outside of the fetched branch.
+   * Otherwise, leaving them out of the main query would change its results.
+   */
+  private static List<Partition> getPartitions(
+      Entity<?, ?, ?> selectEntity, Entity<?, ?, ?> rootEntity) {
+    if (selectEntity.getManagedType() == null || countPluralFetches(selectEntity) < 2) {
+      return List.of();
+    }
+    return findPartitions(selectEntity, rootEntity);
+  }
+
+  // Partitioned branches are left joins that don't filter the results. So, they can also be left
+  // out of the id and count queries, as long as duplicates are removed.
+  private Set<Entity<?, ?, ?>> getPartitionedBranches(
+      Entity<?, ?, ?> rootEntity, boolean distinct) {
+    if (!partitionPluralFetches || !distinct) {
+      return Set.of();
+    }
+    return getPartitions(rootEntity.getSelectEntity(), rootEntity).stream()
+        .map(Partition::branch)
+        .collect(Collectors.toSet());
+  }
+
+  private static int countPluralFetches(Entity<?, ?, ?> entity) {
+    int count = 0;
+    for (var child : entity.getChildren().values()) {
+      if (child.getAttribute() instanceof PluralAttribute<?, ?, ?>
+          && child.getEntityType() == EntityType.FETCH) {
+        ++count;
+      }
+      count += countPluralFetches(child);
+    }
+    return count;
+  }
+
+  private static List<Partition> findPartitions(
+      Entity<?, ?, ?> entity, Entity<?, ?, ?> rootEntity) {
+    var partitions = new ArrayList<Partition>();
+    for (var child : entity.getChildren().values()) {
+      if (child.getAttribute() instanceof PluralAttribute<?, ?, ?>
+          && child.getEntityType() == EntityType.FETCH
+          && child.getJoinType() == JoinType.LEFT
+          && isSelfContained(child, child)
+          && rootEntity.getOrderByList().stream()
+              .noneMatch(
+                  orderBy ->
+                      getReferencedEntities(orderBy.expression()).stream()
+                          .anyMatch(e -> isDescendant(e, child)))) {
+        partitions.add(new Partition(entity, child, findPartitions(child, rootEntity)));
+      } else {
+        partitions.addAll(findPartitions(child, rootEntity));
+      }
+    }
+    return partitions;
+  }
+
+  private static boolean isSelfContained(Entity<?, ?, ?> entity, Entity<?, ?, ?> branch) {
+    if (!entity.getWhere().isEmpty() || !entity.getSubqueries().isEmpty()) {
+      return false;
+    }
+    for (var on : entity.getOn()) {
+      if (!getReferencedEntities(on).stream().allMatch(e -> isDescendant(e, branch))) {
+        return false;
+      }
+    }
+    return entity.getChildren().values().stream().allMatch(e -> isSelfContained(e, branch));
+  }
+
+  private static boolean isDescendant(Entity<?, ?, ?> entity, Entity<?, ?, ?> ancestor) {
+    for (Entity<?, ?, ?> e = entity; e != null; e = e.getParent()) {
+      if (e.equals(ancestor)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static List<Entity<?, ?, ?>> getReferencedEntities(
+      @Nullable org.davincischools.leo.database.utils.query_helper.Expression<?> expression) {
+    var entities = new ArrayList<Entity<?, ?, ?>>();
+    if (expression instanceof Entity<?, ?, ?> entity) {
+      entities.add(entity);
+    } else if (expression
+        instanceof org.davincischools.leo.database.utils.query_helper.Predicate p) {
+      entities.addAll(getReferencedEntities(p.getValue()));
+      entities.addAll(getReferencedEntities(p.getLeft()));
+      entities.addAll(getReferencedEntities(p.getRight()));
+      if (p.getValues() != null) {
+        p.getValues().forEach(v -> entities.addAll(getReferencedEntities(v)));
+      }
+    } else if (expression instanceof ExpressionImpl<?> e && e.getValues() != null) {
+      e.getValues().forEach(v -> entities.addAll(getReferencedEntities(v)));
+    }
+    return entities;
+  }
+
+  /**
+   * Runs a criteria query with the same shape, if one was already built and isn't in use.
+   * Otherwise, it builds and caches a new one. Either way, the values are bound as parameters.
+   */
+  private <T> List<T> getResultList(
+      EntityManager em,
+      QueryShape shape,
+      QueryParameters parameters,
+      Supplier<CriteriaQuery<T>> buildQuery,
+      Consumer<TypedQuery<T>> configureQuery) {
+    var key = shape.getKey();
+
+    // Take a cached query, so that no other thread uses it until it's returned.
+    var cachedQueries =
+        key.map(k -> queryPlans.asMap().computeIfAbsent(k, unused -> new ConcurrentLinkedQueue<>()))
+            .orElse(null);
+    @SuppressWarnings("unchecked")
+    var query = cachedQueries == null ? null : (CriteriaQuery<T>) cachedQueries.poll();
+    if (query == null) {
+      query = buildQuery.get();
+      if (cachedQueries != null) {
+        planMisses.increment();
+      }
+    } else {
+      planHits.increment();
+    }
+
+    var emQuery = em.createQuery(query);
+    // Hibernate only reuses the SQL of a criteria query if asked to.
+    emQuery.unwrap(SelectionQuery.class).setQueryPlanCacheable(key.isPresent());
+    parameters.bind(emQuery);
+    configureQuery.accept(emQuery);
+    var results = emQuery.getResultList();
+
+    if (cachedQueries != null) {
+      cachedQueries.add(query);
+    }
+    return results;
+  }
+
+  private static Expression<?>[] toParameters(
+      CriteriaBuilder builder, List<String> names, QueryParameters parameters) {
+    return names.stream()
+        .map(name -> parameters.toParameter(builder, name))
+        .toArray(Expression<?>[]::new);
+  }
+
+  // Repeats the last value to get a power of two values. It doesn't change the result of an
+  // IN (...), but it limits the number of query shapes to one per power of two.
+  private static List<Object> padToPowerOfTwo(List<?> values) {
+    var padded = new ArrayList<Object>(values);
+    while (!padded.isEmpty() && Integer.bitCount(padded.size()) != 1) {
+      padded.add(padded.get(padded.size() - 1));
+    }
+    return padded;
+  }
+
+  private void loadPartitions(
+      EntityManager em,
+      Entity<?, ?, ?> entity,
+      Collection<?> instances,
+      List<Partition> partitions) {
+    for (var partition : partitions) {
+      loadPartition(em, partition, getDescendants(instances, entity, partition.parent()));
+    }
+  }
+
+  private void loadRootPartitions(
+      EntityManager em,
+      Entity<?, ?, ?> rootEntity,
+      Collection<?> results,
+      List<Partition> partitions) {
+    if (partitions.isEmpty()) {
+      return;
+    }
+
+    var stopwatch = Stopwatch.createStarted();
+    loadPartitions(em, rootEntity.getSelectEntity(), results, partitions);
+    recordPhase(rootEntity, "partitions", stopwatch.elapsed());
+  }
+
+  // The entities phase includes its partitions and, for pages by number, its count.
+  private static void recordPhase(Entity<?, ?, ?> rootEntity, String phase, Duration duration) {
+    MetricUtils.timer(
+            "leo.query_helper.phase",
+            "The duration of each phase of a QueryHelper query.",
+            "entity",
+            rootEntity.getFromClass().getSimpleName(),
+            "phase",
+            phase)
+        .record(duration);
+  }
+
+  private void loadPartition(EntityManager em, Partition partition, Collection<Object> parents) {
+    var parentIds =
+        parents.stream().map(DaoUtils::getId).flatMap(Optional::stream).distinct().toList();
+    if (parentIds.isEmpty()) {
+      return;
+    }
+
+    var parent = partition.parent();
+    var parentId = parent.getId();
+
+    // Leave out everything but the branch. The rest of the parent is already loaded.
+    var excludedEntities = new HashSet<Entity<?, ?, ?>>(parent.getSubqueries());
+    parent.getChildren().values().stream()
+        .filter(e -> !e.equals(partition.branch()) && !e.equals(parentId))
+        .forEach(excludedEntities::add);
+    partition.partitions().stream().map(Partition::branch).forEach(excludedEntities::add);
+    var config = new QueryHelperConfig().setExcludedEntities(excludedEntities);
+
+    for (var ids : Lists.partition(parentIds, MAX_PARTITION_IDS)) {
+      var parameters = new QueryParameters();
+      var shape =
+          new QueryShape("partition", config, parameters)
+              .addEntities(parent, /* isRoot= */ true)
+              // The parent's own predicates were already applied when it was loaded.
+              .addPredicates(partition.branch());
+      var idNames = padToPowerOfTwo(ids).stream().map(parameters::add).toList();
+      shape.add("ids:" + idNames.size());
+
+      getResultList(
+          em,
+          shape,
+          parameters,
+          () -> {
+            var builder = em.getCriteriaBuilder();
+            var query = builder.createQuery();
+            var where = new ArrayList<Predicate>();
+
+            populateJpaEntities(parent, /* isRoot= */ true, query, config);
+            populateJpaPredicates(partition.branch(), builder, where, config, parameters);
+
+            where.add(parentId.getJpaEntity().in(toParameters(builder, idNames, parameters)));
+
+            return query
+                .select(parent.getJpaEntity())
+                .distinct(true)
+                .where(where.toArray(Predicate[]::new));
+          },
+          emQuery -> {});
+    }
+
+    loadPartitions(em, parent, parents, partition.partitions());
+  }
+
+  // Gets the loaded instances of a descendant entity by following attributes from its ancestor.
+  private static Collection<Object> getDescendants(
+      Collection<?> instances, Entity<?, ?, ?> ancestor, Entity<?, ?, ?> descendant) {
+    var path = new ArrayList<Entity<?, ?, ?>>();
+    for (Entity<?, ?, ?> e = descendant; !e.equals(ancestor); e = e.getParent()) {
+      checkState(e.getParent() != null, "%s is not a descendant of %s.", descendant, ancestor);
+      path.add(e);
+    }
+
+    Collection<Object> current = new ArrayList<>(instances);
+    for (var entity : Lists.reverse(path)) {
+      Collection<Object> next = Collections.newSetFromMap(new IdentityHashMap<>());
+      for (var instance : current) {
+        if (instance == null) {
+          continue;
+        }
+        var value = getAttributeValue(instance, entity.getAttribute());
+        if (value instanceof Collection<?> values) {
+          next.addAll(values);
+        } else if (value != null) {
+          next.add(value);
+        }
+      }
+      current = next;
+    }
+    return current;
+  }
+
+  @Nullable
+  private static Object getAttributeValue(Object instance, Attribute<?, ?> attribute) {
+    Object unproxied = Hibernate.unproxy(instance);
+    try {
+      if (attribute.getJavaMember() instanceof Method method) {
+        return method.invoke(unproxied);
+      } else if (attribute.getJavaMember() instanceof Field field) {
+        field.setAccessible(true);
+        return field.get(unproxied);
+      }
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Unable to get " + attribute.getName(), e);
+    }
+    throw new IllegalStateException(
+        "Unsupported member type for " + attribute.getName() + ": " + attribute.getJavaMember());
+  }
+
   private static <P, S, F> void populateJpaEntities(
       Entity<P, S, F> entity, boolean isRoot, CriteriaQuery<?> query, QueryHelperConfig config) {
     checkNotNull(entity);
@@ -380,14 +993,13 @@ public class QueryHelper {
     }
 
     // Create JPA entities for the children.
-    entity
-        .getChildren()
-        .values()
+    entity.getChildren().values().stream()
+        .filter(e -> !config.getExcludedEntities().contains(e))
         .forEach(e -> populateJpaEntities(e, /* isRoot= */ false, query, config));
 
     // Create JPA entities for the subqueries.
-    entity
-        .getSubqueries()
+    entity.getSubqueries().stream()
+        .filter(e -> !config.getExcludedEntities().contains(e))
         .forEach(
             e -> {
               populateJpaEntities((Entity<?, ?, ?>) e, /* isRoot= */ true, query, config);
@@ -398,10 +1010,12 @@ public class QueryHelper {
       Entity<?, ?, ?> entity,
       CriteriaBuilder builder,
       List<Predicate> where,
-      QueryHelperConfig config) {
+      QueryHelperConfig config,
+      QueryParameters parameters) {
     checkNotNull(entity);
     checkNotNull(builder);
     checkNotNull(where);
+    checkNotNull(parameters);
 
     entity
         .getOn()
@@ -409,10 +1023,10 @@ public class QueryHelper {
             p -> {
               if (entity.getEntityType() == EntityType.ROOT
                   || entity.getJpaEntity() instanceof Root<?>) {
-                where.add(p.toPredicate(builder));
+                where.add(p.toPredicate(builder, parameters));
               } else {
                 checkState(entity.getJoinType() != null);
-                addJoinOn(entity.getJpaEntity(), p.toPredicate(builder));
+                addJoinOn(entity.getJpaEntity(), p.toPredicate(builder, parameters));
               }
             });
 
@@ -420,22 +1034,21 @@ public class QueryHelper {
         .getWhere()
         .forEach(
             p -> {
-              where.add(p.toPredicate(builder));
+              where.add(p.toPredicate(builder, parameters));
             });
 
-    entity
-        .getChildren()
-        .values()
+    entity.getChildren().values().stream()
+        .filter(e -> !config.getExcludedEntities().contains(e))
         .forEach(
             e -> {
-              populateJpaPredicates(e, builder, where, config);
+              populateJpaPredicates(e, builder, where, config, parameters);
             });
 
-    entity
-        .getSubqueries()
+    entity.getSubqueries().stream()
+        .filter(e -> !config.getExcludedEntities().contains(e))
         .forEach(
             e -> {
-              populateJpaPredicates(e, builder, where, config);
+              populateJpaPredicates(e, builder, where, config, parameters);
             });
   }
 
@@ -1,5 +1,6 @@
 package org.davincischools.leo.database.utils.query_helper;
 
+import java.util.Set;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
@@ -10,4 +11,8 @@ import lombok.experimental.Accessors;
 @Setter(AccessLevel.PACKAGE)
 class QueryHelperConfig {
   private boolean joinOnly = false;
+  // Load fetched plural attributes with their own queries, rather than a single cross product.
+  private boolean partitionPluralFetches = true;
+  // Entities, and their descendants, that are left out of the query.
+  private Set<Entity<?, ?, ?>> excludedEntities = Set.of();
 }
@@ -1,19 +1,17 @@
 package org.davincischools.leo.database.utils.query_helper;
 
-import com.google.common.collect.BiMap;
-import jakarta.persistence.Tuple;
 import java.time.Duration;
 import java.util.List;
-import java.util.Set;
+import javax.annotation.Nullable;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
 @Getter
 @AllArgsConstructor
 class QueryIds {
-  private BiMap<Entity<?, ?, ?>, Integer> entityIndexes;
-  private Set<Object> selectedIds;
-  private List<Tuple> selectedResults;
-  private long total;
+  // The ids of the selected entities, in page order.
+  private List<Object> selectedIds;
+  // Only set for a CursorPageRequest with more results.
+  @Nullable private String nextCursor;
   private Duration queryDuration;
 }
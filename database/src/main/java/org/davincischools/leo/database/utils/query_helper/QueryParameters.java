@@ -0,0 +1,68 @@
+package org.davincischools.leo.database.utils.query_helper;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.ParameterExpression;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * The values of a query, bound as named parameters rather than written into the query. So, queries
+ * that only differ by their values are the same query, and can share a plan.
+ *
+ * <p>Names are assigned in the order values are added. So, queries with the same {@link QueryShape}
+ * use the same name for the value in the same place.
+ */
+public final class QueryParameters {
+
+  private final Map<Expression<?>, String> literalNames = new IdentityHashMap<>();
+  private final Map<String, Object> values = new LinkedHashMap<>();
+
+  QueryParameters() {}
+
+  String add(Object value) {
+    checkNotNull(value);
+
+    String name = "p" + values.size();
+    values.put(name, value);
+    return name;
+  }
+
+  String add(Expression<?> literal, Object value) {
+    checkNotNull(literal);
+    checkNotNull(value);
+
+    return literalNames.computeIfAbsent(literal, k -> add(value));
+  }
+
+  @Nullable
+  String getName(Expression<?> literal) {
+    return literalNames.get(literal);
+  }
+
+  @SuppressWarnings("unchecked")
+  <T> ParameterExpression<T> toParameter(CriteriaBuilder builder, String name) {
+    checkNotNull(builder);
+    checkNotNull(name);
+
+    Object value = values.get(name);
+    checkArgument(value != null, "Unknown parameter: %s", name);
+    return builder.parameter((Class<T>) getType(value), name);
+  }
+
+  void bind(Query query) {
+    checkNotNull(query);
+
+    values.forEach(query::setParameter);
+  }
+
+  // Enum constants with bodies are subclasses of their enum.
+  static Class<?> getType(Object value) {
+    return value instanceof Enum<?> e ? e.getDeclaringClass() : value.getClass();
+  }
+}
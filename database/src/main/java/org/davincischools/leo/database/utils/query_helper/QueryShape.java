@@ -0,0 +1,164 @@
+package org.davincischools.leo.database.utils.query_helper;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A key for the structure of a query: its entities, joins, predicates, and the types of its values.
+ * Two queries with the same key only differ by their values. So, one can be run with the values of
+ * the other.
+ *
+ * <p>The walk mirrors how {@link QueryHelper} populates a query. Literal values found along the way
+ * are added to the {@link QueryParameters}, so that they are bound rather than written into the
+ * query. Children are visited in attribute name order, since they are kept in a hash map.
+ */
+final class QueryShape {
+
+  private static final Comparator<Entity<?, ?, ?>> CHILD_ORDER =
+      Comparator.comparing(e -> e.getAttribute().getName());
+
+  private final StringBuilder key = new StringBuilder();
+  private final Map<Entity<?, ?, ?>, Integer> entityIds = new HashMap<>();
+  private final QueryHelperConfig config;
+  private final QueryParameters parameters;
+  private boolean cacheable = true;
+
+  QueryShape(String queryType, QueryHelperConfig config, QueryParameters parameters) {
+    this.config = checkNotNull(config);
+    this.parameters = checkNotNull(parameters);
+
+    key.append(checkNotNull(queryType)).append(config.isJoinOnly() ? ":join" : "");
+  }
+
+  /** Adds the entities beneath, and including, the entity. Each entity is numbered. */
+  QueryShape addEntities(Entity<?, ?, ?> entity, boolean isRoot) {
+    checkNotNull(entity);
+
+    var entityType = isRoot ? EntityType.ROOT : entity.getEntityType();
+    if (entityType == EntityType.FETCH && config.isJoinOnly()) {
+      entityType = EntityType.JOIN;
+    }
+    entityIds.put(entity, entityIds.size());
+    key.append("\n").append(entityIds.size() - 1).append(':').append(entityType);
+    if (!isRoot) {
+      key.append(':').append(entity.getAttribute().getName());
+    }
+    key.append(':')
+        .append(entity.getFromClass().getName())
+        .append(':')
+        .append(entity.getSelectClass().getName())
+        .append(':')
+        .append(entity.getJoinType());
+
+    entity.getChildren().values().stream()
+        .filter(e -> !config.getExcludedEntities().contains(e))
+        .sorted(CHILD_ORDER)
+        .forEach(e -> addEntities(e, /* isRoot= */ false));
+    entity.getSubqueries().stream()
+        .filter(e -> !config.getExcludedEntities().contains(e))
+        .forEach(e -> addEntities(e, /* isRoot= */ true));
+    return this;
+  }
+
+  /** Adds the predicates beneath, and including, the entity. Its entities must already be added. */
+  QueryShape addPredicates(Entity<?, ?, ?> entity) {
+    checkNotNull(entity);
+
+    key.append("\n").append(entityIds.get(entity)).append(":on:");
+    entity.getOn().forEach(this::addExpression);
+    key.append(":where:");
+    entity.getWhere().forEach(this::addExpression);
+
+    entity.getChildren().values().stream()
+        .filter(e -> !config.getExcludedEntities().contains(e))
+        .sorted(CHILD_ORDER)
+        .forEach(this::addPredicates);
+    entity.getSubqueries().stream()
+        .filter(e -> !config.getExcludedEntities().contains(e))
+        .forEach(this::addPredicates);
+    return this;
+  }
+
+  QueryShape addOrderBy(Entity<?, ?, ?> rootEntity) {
+    checkNotNull(rootEntity);
+
+    key.append("\norder:");
+    for (var orderBy : rootEntity.getOrderByList()) {
+      addExpression(orderBy.expression());
+      key.append(orderBy.orderDirection()).append(',');
+    }
+    return this;
+  }
+
+  QueryShape addExpression(Expression<?> expression) {
+    checkNotNull(expression);
+
+    if (expression instanceof Entity<?, ?, ?> entity) {
+      Integer id = entityIds.get(entity);
+      if (id == null) {
+        // The entity isn't part of the query. Leave it to JPA to sort out.
+        cacheable = false;
+      }
+      key.append('#').append(id);
+    } else if (expression instanceof Predicate predicate) {
+      addPredicate(predicate);
+    } else if (expression instanceof ExpressionImpl<?> e) {
+      switch (e.getType()) {
+        case CONCAT, MATCH -> {
+          key.append(e.getType()).append('(');
+          e.getValues().forEach(this::addExpression);
+          key.append(')');
+        }
+        case LITERAL ->
+            key.append(':')
+                .append(parameters.add(e, e.getValue()))
+                .append(':')
+                .append(QueryParameters.getType(e.getValue()).getName());
+      }
+    } else {
+      cacheable = false;
+      key.append(expression.getClass().getName());
+    }
+    key.append(',');
+    return this;
+  }
+
+  private void addPredicate(Predicate predicate) {
+    key.append(predicate.getType()).append('(');
+    switch (predicate.getType()) {
+      case EQ, GT, LIKE, NEQ -> {
+        addExpression(predicate.getLeft());
+        addExpression(predicate.getRight());
+      }
+      case IN -> {
+        addExpression(predicate.getLeft());
+        if (predicate.getRight() != null) {
+          addExpression(predicate.getRight());
+        } else {
+          key.append('[');
+          predicate.getValues().forEach(this::addExpression);
+          key.append(']');
+        }
+      }
+      case IS_NOT_NULL, IS_NULL, NOT -> addExpression(predicate.getValue());
+      case OR -> predicate.getValues().forEach(this::addExpression);
+      case FALSE, TRUE -> {}
+    }
+    key.append(')');
+  }
+
+  /** Adds a value that changes the structure of the query. */
+  QueryShape add(Object value) {
+    key.append('\n').append(value);
+    return this;
+  }
+
+  /** The key, or empty if the query can't be safely reused. */
+  Optional<String> getKey() {
+    return cacheable ? Optional.of(key.toString()) : Optional.empty();
+  }
+}
@@ -1,6 +1,7 @@
 package org.davincischools.leo.database.utils.repos;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static org.davincischools.leo.database.utils.DaoUtils.ifInitialized;
 import static org.davincischools.leo.database.utils.DaoUtils.removeTransientValues;
 import static org.davincischools.leo.database.utils.DaoUtils.saveJoinTableAndTargets;
 
@@ -15,6 +16,7 @@ import org.davincischools.leo.database.daos.ClassX_;
 import org.davincischools.leo.database.daos.StudentClassX_;
 import org.davincischools.leo.database.daos.TeacherClassX_;
 import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.database.utils.ReferenceDataCache.ReferenceData;
 import org.davincischools.leo.database.utils.query_helper.Entity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
@@ -34,6 +36,11 @@ public interface AssignmentRepository
         db.getKnowledgeAndSkillRepository()::save,
         db.getAssignmentKnowledgeAndSkillRepository()::setAssignmentKnowledgeAndSkills);
 
+    // Its knowledge and skills may have been created or changed.
+    if (ifInitialized(assignment.getAssignmentKnowledgeAndSkills()).isPresent()) {
+      db.getReferenceDataCache().invalidate(ReferenceData.KNOWLEDGE_AND_SKILLS);
+    }
+
     return assignment;
   }
 
@@ -1,6 +1,7 @@
 package org.davincischools.leo.database.utils.repos;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static org.davincischools.leo.database.utils.DaoUtils.ifInitialized;
 import static org.davincischools.leo.database.utils.DaoUtils.removeTransientValues;
 import static org.davincischools.leo.database.utils.DaoUtils.saveJoinTableAndTargets;
 
@@ -17,6 +18,7 @@ import org.davincischools.leo.database.daos.Teacher;
 import org.davincischools.leo.database.daos.TeacherClassX_;
 import org.davincischools.leo.database.exceptions.UnauthorizedUserX;
 import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.database.utils.ReferenceDataCache.ReferenceData;
 import org.davincischools.leo.database.utils.query_helper.Entity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -56,6 +58,11 @@ public interface ClassXRepository
         ClassXKnowledgeAndSkill::getKnowledgeAndSkill,
         db.getKnowledgeAndSkillRepository()::save,
         db.getClassXKnowledgeAndSkillRepository()::setClassXKnowledgeAndSkills);
+
+    // Its knowledge and skills may have been created or changed.
+    if (ifInitialized(classX.getClassXKnowledgeAndSkills()).isPresent()) {
+      db.getReferenceDataCache().invalidate(ReferenceData.KNOWLEDGE_AND_SKILLS);
+    }
   }
 
   default List<ClassX> getClassXs(GetClassXsParams params) {
@@ -1,15 +1,86 @@
 package org.davincischools.leo.database.utils.repos;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import javax.annotation.Nullable;
 import org.davincischools.leo.database.daos.FileX;
+import org.davincischools.leo.database.daos.FileX.DerivativeSizeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface FileXRepository extends JpaRepository<FileX, Integer> {
 
+  // Everything needed to answer a conditional request, without loading the content.
+  record FileXMetadata(
+      int id,
+      String fileKey,
+      String mimeType,
+      @Nullable String contentHash,
+      @Nullable Integer contentLength,
+      Instant creationTime) {}
+
+  @Query(
+      """
+      SELECT new org.davincischools.leo.database.utils.repos.FileXRepository$FileXMetadata(
+          f.id, f.fileKey, f.mimeType, f.contentHash, f.contentLength, f.creationTime)
+      FROM FileX f
+      WHERE f.id = :id
+      AND f.deleted IS NULL
+      """)
+  Optional<FileXMetadata> findMetadataById(@Param("id") int id);
+
+  @Query(
+      """
+      SELECT new org.davincischools.leo.database.utils.repos.FileXRepository$FileXMetadata(
+          f.id, f.fileKey, f.mimeType, f.contentHash, f.contentLength, f.creationTime)
+      FROM FileX f
+      WHERE f.originalFileX.id = :originalId
+      AND f.derivativeSize = :derivativeSize
+      AND f.deleted IS NULL
+      """)
+  Optional<FileXMetadata> findDerivativeMetadata(
+      @Param("originalId") int originalId,
+      @Param("derivativeSize") DerivativeSizeType derivativeSize);
+
+  @Query(
+      """
+      SELECT f.derivativeSize
+      FROM FileX f
+      WHERE f.originalFileX.id = :originalId
+      """)
+  List<DerivativeSizeType> findDerivativeSizes(@Param("originalId") int originalId);
+
+  // Uploaded files of the given types that haven't been resized yet, after an id. Images that don't
+  // need resized copies are marked too. So, they aren't returned again.
+  @Query(
+      """
+      SELECT f.id
+      FROM FileX f
+      WHERE f.derivativesCreated IS NULL
+      AND f.id > :afterId
+      AND f.originalFileX IS NULL
+      AND f.mimeType IN (:mimeTypes)
+      AND f.deleted IS NULL
+      ORDER BY f.id
+      """)
+  List<Integer> findIdsWithoutDerivatives(
+      @Param("mimeTypes") Collection<String> mimeTypes,
+      @Param("afterId") int afterId,
+      Pageable pageable);
+
+  @Modifying
+  @Transactional
+  @Query("UPDATE FileX f SET f.derivativesCreated = (:created) WHERE f.id = (:id)")
+  void setDerivativesCreated(@Param("id") int id, @Param("created") Instant created);
+
   @Query(
       """
       SELECT f
@@ -23,4 +94,33 @@ public interface FileXRepository extends JpaRepository<FileX, Integer> {
       AND f.deleted IS NULL
       """)
   Optional<FileX> findByIdWithUserX(@Param("id") Integer id);
+
+  // Files whose content is still kept in the database, rather than in a file store.
+  @Query(
+      """
+      SELECT f.id
+      FROM FileX f
+      WHERE f.fileContent IS NOT NULL
+      ORDER BY f.id
+      """)
+  List<Integer> findIdsWithDatabaseContent(Pageable pageable);
+
+  @Modifying
+  @Transactional
+  @Query(
+      """
+      UPDATE FileX f
+      SET f.fileContent = NULL, f.contentHash = (:contentHash), f.contentLength = (:contentLength)
+      WHERE f.id = (:id)
+      """)
+  void moveContentToStore(
+      @Param("id") int id,
+      @Param("contentHash") String contentHash,
+      @Param("contentLength") int contentLength);
+
+  // For rows stored before content hashes were recorded.
+  @Modifying
+  @Transactional
+  @Query("UPDATE FileX f SET f.contentHash = (:contentHash) WHERE f.id = (:id)")
+  void setContentHash(@Param("id") int id, @Param("contentHash") String contentHash);
 }
@@ -28,8 +28,15 @@ public class GetProjectPostsParams {
 
   @Nullable private Boolean beingEdited;
 
+  // Words that must start words of the name or long description. Matches are ranked first.
+  @Nullable private String searchText;
+
   @Nullable private Integer page;
   @Nullable private Integer pageSize;
+  // If set, page after this cursor instead of by page number. An empty cursor is the first page.
+  @Nullable private String cursor;
+  // Only used with a cursor.
+  @Nullable private Boolean skipTotal;
 
   Optional<Boolean> getIncludeTags() {
     return Optional.ofNullable(includeTags);
@@ -79,6 +86,10 @@ public class GetProjectPostsParams {
     return Optional.ofNullable(beingEdited);
   }
 
+  Optional<String> getSearchText() {
+    return Optional.ofNullable(searchText);
+  }
+
   Optional<Integer> getPage() {
     return Optional.ofNullable(page);
   }
@@ -86,4 +97,12 @@ public class GetProjectPostsParams {
   Optional<Integer> getPageSize() {
     return Optional.ofNullable(pageSize);
   }
+
+  Optional<String> getCursor() {
+    return Optional.ofNullable(cursor);
+  }
+
+  Optional<Boolean> getSkipTotal() {
+    return Optional.ofNullable(skipTotal);
+  }
 }
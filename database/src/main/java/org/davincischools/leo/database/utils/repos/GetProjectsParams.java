@@ -24,6 +24,16 @@ public class GetProjectsParams {
   @Nullable private Iterable<Integer> userXIds;
   @Nullable private Iterable<Integer> projectIds;
 
+  // Words that must start words of the name or descriptions. Matches are ranked first.
+  @Nullable private String searchText;
+
+  @Nullable private Integer page;
+  @Nullable private Integer pageSize;
+  // If set, page after this cursor instead of by page number. An empty cursor is the first page.
+  @Nullable private String cursor;
+  // Only used with a cursor.
+  @Nullable private Boolean skipTotal;
+
   public Optional<Iterable<Integer>> getUserXIds() {
     return Optional.ofNullable(userXIds);
   }
@@ -59,4 +69,24 @@ public class GetProjectsParams {
   public Optional<GetProjectPostsParams> getIncludeProjectPosts() {
     return Optional.ofNullable(includeProjectPosts);
   }
+
+  public Optional<String> getSearchText() {
+    return Optional.ofNullable(searchText);
+  }
+
+  public Optional<Integer> getPage() {
+    return Optional.ofNullable(page);
+  }
+
+  public Optional<Integer> getPageSize() {
+    return Optional.ofNullable(pageSize);
+  }
+
+  public Optional<String> getCursor() {
+    return Optional.ofNullable(cursor);
+  }
+
+  public Optional<Boolean> getSkipTotal() {
+    return Optional.ofNullable(skipTotal);
+  }
 }
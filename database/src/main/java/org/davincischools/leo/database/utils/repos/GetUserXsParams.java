@@ -27,10 +27,15 @@ public class GetUserXsParams {
   @Nullable private Boolean teachersOnly;
   @Nullable private Boolean studentsOnly;
 
+  // Words that must start words of the name or email address. Matches are ranked first.
   @Nullable private String firstLastEmailSearchText;
 
   @Nullable private Integer page;
   @Nullable private Integer pageSize;
+  // If set, page after this cursor instead of by page number. An empty cursor is the first page.
+  @Nullable private String cursor;
+  // Only used with a cursor.
+  @Nullable private Boolean skipTotal;
 
   Optional<Boolean> getIncludeSchools() {
     return Optional.ofNullable(includeSchools);
@@ -83,4 +88,12 @@ public class GetUserXsParams {
   Optional<Integer> getPageSize() {
     return Optional.ofNullable(pageSize);
   }
+
+  Optional<String> getCursor() {
+    return Optional.ofNullable(cursor);
+  }
+
+  Optional<Boolean> getSkipTotal() {
+    return Optional.ofNullable(skipTotal);
+  }
 }
@@ -0,0 +1,54 @@
+package org.davincischools.leo.database.utils.repos;
+
+import java.util.Optional;
+import org.davincischools.leo.database.daos.OpenAiCache;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** OpenAI responses, by a hash of their request, so that identical requests aren't repeated. */
+@Repository
+public interface OpenAiCacheRepository extends JpaRepository<OpenAiCache, Integer> {
+
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          SELECT * FROM open_ai_cache
+          WHERE request_hash = (:requestHash)
+          AND expires_at > NOW()
+          AND deleted IS NULL
+          """)
+  Optional<OpenAiCache> findUnexpired(@Param("requestHash") String requestHash);
+
+  // A concurrent identical request may have saved a response first. Either one is fine.
+  @Modifying
+  @Transactional
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          INSERT INTO open_ai_cache (request_hash, response, expires_at)
+          VALUES (
+              (:requestHash),
+              (:response),
+              TIMESTAMPADD(SECOND, (:ttlSeconds), NOW()))
+          ON DUPLICATE KEY UPDATE
+              creation_time = NOW(),
+              deleted = NULL,
+              response = (:response),
+              expires_at = TIMESTAMPADD(SECOND, (:ttlSeconds), NOW())
+          """)
+  void putResponse(
+      @Param("requestHash") String requestHash,
+      @Param("response") String response,
+      @Param("ttlSeconds") long ttlSeconds);
+
+  @Modifying
+  @Transactional
+  @Query(nativeQuery = true, value = "DELETE FROM open_ai_cache WHERE expires_at <= NOW()")
+  int deleteExpired();
+}
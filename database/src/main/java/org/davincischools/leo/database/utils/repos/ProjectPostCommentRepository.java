@@ -1,5 +1,7 @@
 package org.davincischools.leo.database.utils.repos;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -41,6 +43,18 @@ public interface ProjectPostCommentRepository extends JpaRepository<ProjectPostC
     """)
   Optional<ProjectPostComment> getProjectPostCommentById(@Param("commentId") int commentId);
 
+  @Query(
+      """
+    SELECT ppc
+    FROM ProjectPostComment ppc
+    WHERE ppc.projectPost.id IN (:projectPostIds)
+    AND ppc.userX.id = (:userXId)
+    AND ppc.deleted IS NULL
+    ORDER BY ppc.id
+    """)
+  List<ProjectPostComment> findByProjectPostIdsAndUserXId(
+      @Param("projectPostIds") Collection<Integer> projectPostIds, @Param("userXId") int userXId);
+
   default Optional<FullProjectPostComment> getFullProjectPostCommentById(int id) {
     return getProjectPostCommentById(id)
         .map(e -> new FullProjectPostComment().setProjectPostComment(e));
@@ -1,7 +1,6 @@
 package org.davincischools.leo.database.utils.repos;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static org.davincischools.leo.database.utils.query_helper.QueryHelper.DEFAULT_PAGE_SIZE;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Streams;
@@ -21,11 +20,12 @@ import org.davincischools.leo.database.daos.UserX;
 import org.davincischools.leo.database.utils.DaoUtils;
 import org.davincischools.leo.database.utils.Database;
 import org.davincischools.leo.database.utils.query_helper.Entity;
+import org.davincischools.leo.database.utils.query_helper.FullTextSearch;
 import org.davincischools.leo.database.utils.query_helper.Predicate;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -35,6 +35,29 @@ public interface ProjectPostRepository
   @Query("SELECT id FROM #{#entityName}")
   List<Integer> getAllIds();
 
+  // Posts after the given one, and earlier posts that the user hasn't received a comment on,
+  // e.g., because they were being edited at the time.
+  @Query(
+      """
+      SELECT pp
+      FROM ProjectPost pp
+      WHERE pp.project.id = (:projectId)
+      AND pp.deleted IS NULL
+      AND pp.beingEdited = FALSE
+      AND (pp.id > (:afterProjectPostId)
+          OR NOT EXISTS (
+              SELECT ppc.id
+              FROM ProjectPostComment ppc
+              WHERE ppc.projectPost = pp
+              AND ppc.userX.id = (:commenterUserXId)
+              AND ppc.deleted IS NULL))
+      ORDER BY pp.id
+      """)
+  List<ProjectPost> findPostsAfterOrWithoutComment(
+      @Param("projectId") int projectId,
+      @Param("afterProjectPostId") int afterProjectPostId,
+      @Param("commenterUserXId") int commenterUserXId);
+
   default Page<ProjectPost> getProjectPosts(GetProjectPostsParams params) {
     checkNotNull(params);
 
@@ -42,13 +65,10 @@ public interface ProjectPostRepository
         .query(
             ProjectPost.class,
             projectPost -> configureQuery(projectPost, params),
-            params
-                .getPage()
-                .map(
-                    page ->
-                        Pageable.ofSize(params.getPageSize().orElse(DEFAULT_PAGE_SIZE))
-                            .withPage(page))
-                .orElse(Pageable.unpaged()));
+            params.getPage(),
+            params.getPageSize(),
+            params.getCursor(),
+            params.getSkipTotal());
   }
 
   static Entity<?, ?, ProjectPost> configureQuery(
@@ -103,6 +123,14 @@ public interface ProjectPostRepository
           Predicate.eq(projectPost.get(ProjectPost_.beingEdited), params.getBeingEdited().get()));
     }
 
+    if (params.getSearchText().isPresent()) {
+      // The columns of the project_post__search index.
+      FullTextSearch.matchAndRank(
+          projectPost,
+          List.of(projectPost.get(ProjectPost_.name), projectPost.get(ProjectPost_.longDescrText)),
+          params.getSearchText().get());
+    }
+
     projectPost.orderByDesc(projectPost.get(ProjectPost_.creationTime));
 
     return projectPost;
@@ -0,0 +1,21 @@
+package org.davincischools.leo.database.utils.repos;
+
+import java.util.Optional;
+import org.davincischools.leo.database.daos.ProjectPostSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProjectPostSummaryRepository extends JpaRepository<ProjectPostSummary, Integer> {
+
+  @Query(
+      """
+      SELECT pps
+      FROM ProjectPostSummary pps
+      WHERE pps.project.id = (:projectId)
+      AND pps.deleted IS NULL
+      """)
+  Optional<ProjectPostSummary> findByProjectId(@Param("projectId") int projectId);
+}
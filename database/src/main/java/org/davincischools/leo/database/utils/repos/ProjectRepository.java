@@ -13,7 +13,9 @@ import org.davincischools.leo.database.daos.ProjectMilestone_;
 import org.davincischools.leo.database.daos.Project_;
 import org.davincischools.leo.database.utils.Database;
 import org.davincischools.leo.database.utils.query_helper.Entity;
+import org.davincischools.leo.database.utils.query_helper.FullTextSearch;
 import org.davincischools.leo.database.utils.query_helper.Predicate;
+import org.springframework.data.domain.Page;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,10 +24,17 @@ import org.springframework.transaction.annotation.Transactional;
 public interface ProjectRepository
     extends JpaRepository<Project, Integer>, AutowiredRepositoryValues {
 
-  default List<Project> getProjects(GetProjectsParams params) {
+  default Page<Project> getProjects(GetProjectsParams params) {
     checkNotNull(params);
 
-    return getQueryHelper().query(Project.class, project -> configureQuery(project, params));
+    return getQueryHelper()
+        .query(
+            Project.class,
+            project -> configureQuery(project, params),
+            params.getPage(),
+            params.getPageSize(),
+            params.getCursor(),
+            params.getSkipTotal());
   }
 
   static Entity<?, ?, Project> configureQuery(
@@ -85,6 +94,17 @@ public interface ProjectRepository
           .fetch();
     }
 
+    if (params.getSearchText().isPresent()) {
+      // The columns of the project__search index.
+      FullTextSearch.matchAndRank(
+          project,
+          List.of(
+              project.get(Project_.name),
+              project.get(Project_.shortDescr),
+              project.get(Project_.longDescrText)),
+          params.getSearchText().get());
+    }
+
     if (params.getIncludeProjectPosts().isPresent()) {
       ProjectPostRepository.configureQuery(
               project.join(Project_.projectPosts, JoinType.LEFT),
@@ -99,16 +119,20 @@ public interface ProjectRepository
   default void deeplySaveProjects(Database db, List<Project> projects) {
     checkNotNull(projects);
 
-    db.getProjectRepository().saveAll(projects);
-    db.getProjectInputFulfillmentRepository()
-        .saveAll(projects.stream().flatMap(p -> p.getProjectInputFulfillments().stream()).toList());
-    db.getProjectMilestoneRepository()
-        .saveAll(projects.stream().flatMap(p -> p.getProjectMilestones().stream()).toList());
-    db.getProjectMilestoneStepRepository()
-        .saveAll(
-            projects.stream()
-                .flatMap(p -> p.getProjectMilestones().stream())
-                .flatMap(m -> m.getProjectMilestoneSteps().stream())
-                .toList());
+    // Each type of dao is written with as few multi-row inserts as possible.
+    var bulkInserter = db.getBulkInserter();
+    bulkInserter.saveAll(db.getProjectRepository(), projects);
+    bulkInserter.saveAll(
+        db.getProjectInputFulfillmentRepository(),
+        projects.stream().flatMap(p -> p.getProjectInputFulfillments().stream()).toList());
+    bulkInserter.saveAll(
+        db.getProjectMilestoneRepository(),
+        projects.stream().flatMap(p -> p.getProjectMilestones().stream()).toList());
+    bulkInserter.saveAll(
+        db.getProjectMilestoneStepRepository(),
+        projects.stream()
+            .flatMap(p -> p.getProjectMilestones().stream())
+            .flatMap(m -> m.getProjectMilestoneSteps().stream())
+            .toList());
   }
 }
@@ -0,0 +1,266 @@
+package org.davincischools.leo.database.utils.repos;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.hash.Hashing;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.davincischools.leo.database.daos.Task;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Persistent tasks, shared by all servers. A server claims a task by taking a lease on it. If the
+ * server dies, the lease expires and another server can claim the task.
+ *
+ * <p>Times are all taken from the database clock, so that servers don't need to agree on the time.
+ */
+@Repository
+public interface TaskRepository extends JpaRepository<Task, Integer> {
+
+  // Returns 1 if the task was added, or 2 if it was merged into an identical pending task. The
+  // merge always changes the row, by counting the submission. So, it's never reported as 1.
+  @Modifying
+  @Transactional
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          INSERT INTO task (queue_name, payload, payload_hash, state, retries, next_run_at)
+          VALUES (
+              (:queueName),
+              (:payload),
+              (:payloadHash),
+              'PENDING',
+              (:retries),
+              TIMESTAMPADD(MICROSECOND, 1000 * (:delayMs), NOW(3)))
+          ON DUPLICATE KEY UPDATE
+              next_run_at = LEAST(
+                  next_run_at, TIMESTAMPADD(MICROSECOND, 1000 * (:delayMs), NOW(3))),
+              retries = GREATEST(retries, (:retries)),
+              submissions = submissions + 1
+          """)
+  int insertOrMergePendingTask(
+      @Param("queueName") String queueName,
+      @Param("payload") byte[] payload,
+      @Param("payloadHash") String payloadHash,
+      @Param("retries") int retries,
+      @Param("delayMs") long delayMs);
+
+  /**
+   * Adds a pending task, to run after the delay. Returns false if an identical task is already
+   * pending, in which case it runs at the earlier of the two times, with the greater retries,
+   * instead.
+   */
+  @Transactional
+  default boolean submitTask(String queueName, byte[] payload, int retries, Duration delay) {
+    checkNotNull(queueName);
+    checkNotNull(payload);
+    checkArgument(retries >= 0);
+    checkNotNull(delay);
+
+    String payloadHash = Hashing.sha256().hashBytes(payload).toString();
+    long delayMs = Math.max(0, delay.toMillis());
+    return insertOrMergePendingTask(queueName, payload, payloadHash, retries, delayMs) == 1;
+  }
+
+  // An identical task that is already being processed by a live server is skipped. So, a task
+  // submitted again while it's being processed waits for the first to finish, as it would in a
+  // single server.
+  //
+  // Pending and expired tasks are found separately, so that each is read in index order. With an
+  // OR of the two, the rows are sorted after they are read, which locks all of them, rather than
+  // only the ones claimed. Then other servers would skip them all.
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          SELECT t.id FROM task t
+          WHERE t.queue_name = (:queueName)
+          AND t.state = 'PENDING'
+          AND t.next_run_at <= NOW(3)
+          AND NOT EXISTS (
+              SELECT 1 FROM task p
+              WHERE p.queue_name = t.queue_name
+              AND p.payload_hash = t.payload_hash
+              AND p.id <> t.id
+              AND p.state = 'PROCESSING'
+              AND p.lease_expires_at >= NOW(3))
+          ORDER BY t.next_run_at
+          LIMIT :limit
+          FOR UPDATE SKIP LOCKED
+          """)
+  List<Integer> findReadyTaskIds(@Param("queueName") String queueName, @Param("limit") int limit);
+
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          SELECT t.id FROM task t
+          WHERE t.queue_name = (:queueName)
+          AND t.state = 'PROCESSING'
+          AND t.lease_expires_at < NOW(3)
+          AND NOT EXISTS (
+              SELECT 1 FROM task p
+              WHERE p.queue_name = t.queue_name
+              AND p.payload_hash = t.payload_hash
+              AND p.id <> t.id
+              AND p.state = 'PROCESSING'
+              AND p.lease_expires_at >= NOW(3))
+          ORDER BY t.lease_expires_at
+          LIMIT :limit
+          FOR UPDATE SKIP LOCKED
+          """)
+  List<Integer> findExpiredTaskIds(@Param("queueName") String queueName, @Param("limit") int limit);
+
+  @Modifying(clearAutomatically = true)
+  @Transactional
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          UPDATE task
+          SET state = 'PROCESSING',
+              attempts = attempts + 1,
+              lease_owner = (:leaseOwner),
+              lease_expires_at = TIMESTAMPADD(MICROSECOND, 1000 * (:leaseMs), NOW(3))
+          WHERE id IN (:ids)
+          """)
+  void leaseTasks(
+      @Param("ids") List<Integer> ids,
+      @Param("leaseOwner") String leaseOwner,
+      @Param("leaseMs") long leaseMs);
+
+  /**
+   * Claims up to limit tasks that are ready to run. Rows locked by another server's claim are
+   * skipped rather than waited on, so servers can claim concurrently.
+   */
+  @Transactional
+  default List<Task> claimTasks(String queueName, String leaseOwner, Duration lease, int limit) {
+    checkNotNull(queueName);
+    checkNotNull(leaseOwner);
+    checkNotNull(lease);
+    checkArgument(limit > 0);
+
+    // Tasks of dead servers are claimed first, since they have already waited for their lease.
+    List<Integer> ids = new ArrayList<>(findExpiredTaskIds(queueName, limit));
+    if (ids.size() < limit) {
+      ids.addAll(findReadyTaskIds(queueName, limit - ids.size()));
+    }
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    leaseTasks(ids, leaseOwner, lease.toMillis());
+    return findAllById(ids);
+  }
+
+  @Modifying
+  @Transactional
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          UPDATE task
+          SET lease_expires_at = TIMESTAMPADD(MICROSECOND, 1000 * (:leaseMs), NOW(3))
+          WHERE id IN (:ids)
+          AND lease_owner = (:leaseOwner)
+          AND state = 'PROCESSING'
+          """)
+  int renewLeases(
+      @Param("ids") Collection<Integer> ids,
+      @Param("leaseOwner") String leaseOwner,
+      @Param("leaseMs") long leaseMs);
+
+  // Only the lease owner can finish a task. If the lease was lost, another server has it now.
+  @Modifying
+  @Transactional
+  @Query(
+      nativeQuery = true,
+      value = "DELETE FROM task WHERE id = (:id) AND lease_owner = (:leaseOwner)")
+  int completeTask(@Param("id") int id, @Param("leaseOwner") String leaseOwner);
+
+  @Modifying
+  @Transactional
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          UPDATE task p
+          JOIN task t ON p.queue_name = t.queue_name AND p.payload_hash = t.payload_hash
+          SET p.next_run_at = LEAST(
+                  p.next_run_at, TIMESTAMPADD(MICROSECOND, 1000 * (:delayMs), NOW(3))),
+              p.submissions = p.submissions + 1,
+              p.last_failure = (:lastFailure)
+          WHERE t.id = (:id)
+          AND t.lease_owner = (:leaseOwner)
+          AND p.state = 'PENDING'
+          """)
+  int mergeIntoPendingTask(
+      @Param("id") int id,
+      @Param("leaseOwner") String leaseOwner,
+      @Param("delayMs") long delayMs,
+      @Nullable @Param("lastFailure") String lastFailure);
+
+  @Modifying
+  @Transactional
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          UPDATE task
+          SET state = 'PENDING',
+              next_run_at = TIMESTAMPADD(MICROSECOND, 1000 * (:delayMs), NOW(3)),
+              lease_owner = NULL,
+              lease_expires_at = NULL,
+              last_failure = (:lastFailure)
+          WHERE id = (:id)
+          AND lease_owner = (:leaseOwner)
+          """)
+  int rescheduleTask(
+      @Param("id") int id,
+      @Param("leaseOwner") String leaseOwner,
+      @Param("delayMs") long delayMs,
+      @Nullable @Param("lastFailure") String lastFailure);
+
+  /**
+   * Makes a task pending again, to run after the delay. If an identical task was submitted while it
+   * was being processed, it's merged into that task instead, and deleted. Returns 0 if the lease
+   * was lost.
+   */
+  @Transactional
+  default int retryTask(int id, String leaseOwner, long delayMs, @Nullable String lastFailure) {
+    checkNotNull(leaseOwner);
+
+    if (mergeIntoPendingTask(id, leaseOwner, delayMs, lastFailure) > 0) {
+      return completeTask(id, leaseOwner);
+    }
+    return rescheduleTask(id, leaseOwner, delayMs, lastFailure);
+  }
+
+  @Modifying
+  @Transactional
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          UPDATE task
+          SET state = 'FAILED',
+              lease_owner = NULL,
+              lease_expires_at = NULL,
+              last_failure = (:lastFailure)
+          WHERE id = (:id)
+          AND lease_owner = (:leaseOwner)
+          """)
+  int failTask(
+      @Param("id") int id,
+      @Param("leaseOwner") String leaseOwner,
+      @Nullable @Param("lastFailure") String lastFailure);
+}
@@ -2,7 +2,6 @@ package org.davincischools.leo.database.utils.repos;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.davincischools.leo.database.utils.DaoUtils.isInitialized;
-import static org.davincischools.leo.database.utils.query_helper.QueryHelper.DEFAULT_PAGE_SIZE;
 
 import com.google.common.collect.Iterables;
 import jakarta.persistence.criteria.JoinType;
@@ -19,10 +18,9 @@ import org.davincischools.leo.database.daos.UserX;
 import org.davincischools.leo.database.daos.UserX_;
 import org.davincischools.leo.database.utils.EntityUtils;
 import org.davincischools.leo.database.utils.query_helper.Entity;
-import org.davincischools.leo.database.utils.query_helper.Expression;
+import org.davincischools.leo.database.utils.query_helper.FullTextSearch;
 import org.davincischools.leo.database.utils.query_helper.Predicate;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -110,13 +108,10 @@ public interface UserXRepository extends JpaRepository<UserX, Integer>, Autowire
               userX.notDeleted();
               return configureQuery(userX, params);
             },
-            params
-                .getPage()
-                .map(
-                    page ->
-                        Pageable.ofSize(params.getPageSize().orElse(DEFAULT_PAGE_SIZE))
-                            .withPage(page))
-                .orElse(Pageable.unpaged()));
+            params.getPage(),
+            params.getPageSize(),
+            params.getCursor(),
+            params.getSkipTotal());
   }
 
   static Entity<?, ?, UserX> configureQuery(Entity<?, ?, UserX> userX, GetUserXsParams params) {
@@ -205,17 +200,14 @@ public interface UserXRepository extends JpaRepository<UserX, Integer>, Autowire
     }
 
     if (params.getFirstLastEmailSearchText().isPresent()) {
-      userX.where(
-          Predicate.like(
-              Expression.concat(
-                  userX.get(UserX_.firstName),
-                  Expression.literal(" "),
-                  userX.get(UserX_.lastName),
-                  Expression.literal(", "),
-                  userX.get(UserX_.firstName),
-                  Expression.literal(" "),
-                  userX.get(UserX_.emailAddress)),
-              "%" + params.getFirstLastEmailSearchText().get() + "%"));
+      // The columns of the user_x__search index.
+      FullTextSearch.matchAndRank(
+          userX,
+          List.of(
+              userX.get(UserX_.firstName),
+              userX.get(UserX_.lastName),
+              userX.get(UserX_.emailAddress)),
+          params.getFirstLastEmailSearchText().get());
     }
 
     userX.orderByAsc(userX.get(UserX_.lastName));
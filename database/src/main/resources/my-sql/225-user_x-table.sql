@@ -23,6 +23,9 @@ CREATE TABLE IF NOT EXISTS user_x
     view_ai_prompts               BOOLEAN,
     view_ids                      BOOLEAN,
 
+    -- For full-text search. See FullTextSearch.
+    FULLTEXT INDEX user_x__search (first_name, last_name, email_address),
+
     district_id                   INT, -- Nullable for demo users.
     CONSTRAINT user_x__district_id
         FOREIGN KEY (district_id)
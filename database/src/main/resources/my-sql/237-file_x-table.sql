@@ -1,21 +1,44 @@
 CREATE TABLE IF NOT EXISTS file_x
 (
-    id            INT PRIMARY KEY AUTO_INCREMENT,
-    creation_time DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    deleted       DATETIME,
+    id             INT PRIMARY KEY AUTO_INCREMENT,
+    creation_time  DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    deleted        DATETIME,
 
-    file_name     VARCHAR(256),
-    file_content  MEDIUMBLOB   NOT NULL,
+    file_name      VARCHAR(256),
+    -- The content, if it's kept in the database. Otherwise, it's kept in the
+    -- file store under content_hash, the SHA-256 hash of the content encoded
+    -- as hex. Identical content is only stored once. The hash is recorded
+    -- for content in the database too, where it serves as the ETag.
+    file_content   MEDIUMBLOB,
+    content_hash   CHAR(64),
+    content_length INT,
     -- A random 15 byte key, encoded as base64.
     -- This is used to prevent users from guessing the file references.
-    file_key      CHAR(20)     NOT NULL,
-    mime_type     VARCHAR(255) NOT NULL,
+    file_key       CHAR(20)     NOT NULL,
+    mime_type      VARCHAR(255) NOT NULL,
 
-    user_x_id     INT          NOT NULL,
+    user_x_id      INT          NOT NULL,
     CONSTRAINT file_x__user_x_id
         FOREIGN KEY (user_x_id)
             REFERENCES user_x (id)
             ON DELETE RESTRICT
-            ON UPDATE RESTRICT
+            ON UPDATE RESTRICT,
+
+    -- Set for a resized copy of an uploaded image, which is served in place
+    -- of the original when a smaller size is requested.
+    original_file_x_id INT,
+    CONSTRAINT file_x__original_file_x_id
+        FOREIGN KEY (original_file_x_id)
+            REFERENCES file_x (id)
+            ON DELETE RESTRICT
+            ON UPDATE RESTRICT,
+    derivative_size ENUM('THUMBNAIL', 'MEDIUM', 'LARGE'),
+    UNIQUE file_x__original_file_x_id__derivative_size
+        (original_file_x_id, derivative_size),
+    -- When an uploaded image's resized copies were created, or it was found
+    -- that none are needed, e.g., because it's already small. Images without
+    -- it are scanned for at startup.
+    derivatives_created DATETIME,
+    INDEX file_x__derivatives_created (derivatives_created)
 ) ENGINE InnoDB
   CHAR SET UTF8MB4;
@@ -8,6 +8,11 @@ CREATE TABLE IF NOT EXISTS project
 
     short_descr         TEXT,
     long_descr_html     TEXT,
+    -- A plain text copy of long_descr_html for indexing.
+    long_descr_text     TEXT,
+
+    -- For full-text search. See FullTextSearch.
+    FULLTEXT INDEX project__search (name, short_descr, long_descr_text),
 
     generator           MEDIUMTEXT,
 
@@ -11,6 +11,10 @@ CREATE TABLE IF NOT EXISTS project_post
     post_time        DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP,
     INDEX (post_time DESC),
     long_descr_html  MEDIUMTEXT,
+    -- A plain text copy of long_descr_html for indexing.
+    long_descr_text  MEDIUMTEXT,
+    -- For full-text search. See FullTextSearch.
+    FULLTEXT INDEX project_post__search (name, long_descr_text),
     desired_feedback TEXT,
     being_edited     BOOLEAN,
     INDEX (being_edited),
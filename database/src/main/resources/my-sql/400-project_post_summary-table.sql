@@ -0,0 +1,26 @@
+CREATE TABLE IF NOT EXISTS project_post_summary
+(
+    id                      INT PRIMARY KEY AUTO_INCREMENT,
+    creation_time           DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    deleted                 DATETIME,
+
+    -- Coach Leo's comments on each of the project's posts, in id order, up to
+    -- and including this post, accumulated. ReplyToPostsWorker uses them as
+    -- context for the next post, without reloading every earlier post.
+    through_project_post_id INT      NOT NULL,
+
+    posts_summary           MEDIUMTEXT,
+    positive_feedback       MEDIUMTEXT,
+    to_improve_feedback     MEDIUMTEXT,
+    how_improved_feedback   MEDIUMTEXT,
+    feedback_responses      MEDIUMTEXT,
+
+    project_id              INT      NOT NULL,
+    UNIQUE project_post_summary__project_id (project_id),
+    CONSTRAINT project_post_summary__project_id
+        FOREIGN KEY (project_id)
+            REFERENCES project (id)
+            ON DELETE RESTRICT
+            ON UPDATE RESTRICT
+) ENGINE InnoDB
+  CHAR SET UTF8MB4;
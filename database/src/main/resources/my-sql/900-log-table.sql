@@ -8,6 +8,11 @@ CREATE TABLE IF NOT EXISTS log
     status                ENUM ('ERROR', 'SUCCESS') NOT NULL,
     notes                 LONGTEXT,
     issue_link            VARCHAR(255),
+    -- A random id assigned before the log is written. It is returned to the
+    -- client in the x-pl-log-id header, since the row id is not known until
+    -- the log is asynchronously inserted.
+    correlation_id        CHAR(22),
+    INDEX log__correlation_id (correlation_id),
 
     caller                MEDIUMTEXT,
     request               LONGTEXT                  NOT NULL,
@@ -0,0 +1,37 @@
+CREATE TABLE IF NOT EXISTS task
+(
+    id               INT PRIMARY KEY AUTO_INCREMENT,
+    creation_time    DATETIME                                 NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    deleted          DATETIME,
+
+    -- The name of the task queue that processes the task.
+    queue_name       VARCHAR(255)                             NOT NULL,
+    -- The serialized task proto, and its SHA-256 hash, encoded as hex. The
+    -- hash is used to find an identical task that is already pending.
+    payload          MEDIUMBLOB                               NOT NULL,
+    payload_hash     CHAR(64)                                 NOT NULL,
+
+    -- Completed tasks are deleted. Failed tasks are kept for inspection.
+    state            ENUM ('PENDING', 'PROCESSING', 'FAILED') NOT NULL,
+    attempts         INT                                      NOT NULL DEFAULT 0,
+    -- The number of failed attempts that are retried.
+    retries          INT                                      NOT NULL DEFAULT 0,
+    next_run_at      DATETIME(3)                              NOT NULL,
+    INDEX task__queue_name__state__next_run_at (queue_name, state, next_run_at),
+
+    -- TRUE while the task is pending, and otherwise NULL. Its unique key
+    -- merges identical pending tasks, even when different servers submit them
+    -- at once. The number of submissions merged into the task is counted.
+    pending          BOOLEAN AS (IF(state = 'PENDING', TRUE, NULL)) STORED,
+    UNIQUE INDEX task__queue_name__payload_hash__pending (queue_name, payload_hash, pending),
+    submissions      INT                                      NOT NULL DEFAULT 1,
+
+    -- The server processing the task, and when it is considered to have
+    -- died. After that, another server can claim the task.
+    lease_owner      VARCHAR(255),
+    lease_expires_at DATETIME(3),
+    INDEX task__queue_name__state__lease_expires_at (queue_name, state, lease_expires_at),
+
+    last_failure     LONGTEXT
+) ENGINE InnoDB
+  CHAR SET UTF8MB4;
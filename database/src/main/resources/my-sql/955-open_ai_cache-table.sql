@@ -0,0 +1,17 @@
+CREATE TABLE IF NOT EXISTS open_ai_cache
+(
+    id            INT PRIMARY KEY AUTO_INCREMENT,
+    creation_time DATETIME   NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    deleted       DATETIME,
+
+    -- The SHA-256 hash, encoded as hex, of the request in a canonical JSON
+    -- form. It covers the model, messages, and function schemas.
+    request_hash  CHAR(64)   NOT NULL,
+    UNIQUE open_ai_cache__request_hash (request_hash),
+
+    -- The response, as JSON. It's not used after it expires.
+    response      MEDIUMTEXT NOT NULL,
+    expires_at    DATETIME   NOT NULL,
+    INDEX open_ai_cache__expires_at (expires_at)
+) ENGINE InnoDB
+  CHAR SET UTF8MB4;
@@ -0,0 +1,6 @@
+-- FAILABLE because there's no "IF NOT EXISTS" for ADD COLUMN.
+
+ALTER TABLE file_x
+    MODIFY file_content MEDIUMBLOB,
+    ADD COLUMN content_hash CHAR(64) AFTER file_content,
+    ADD COLUMN content_length INT AFTER content_hash;
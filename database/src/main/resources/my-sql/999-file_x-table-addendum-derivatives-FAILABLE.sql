@@ -0,0 +1,12 @@
+-- FAILABLE because there's no "IF NOT EXISTS" for ADD COLUMN.
+
+ALTER TABLE file_x
+    ADD COLUMN original_file_x_id INT,
+    ADD CONSTRAINT file_x__original_file_x_id
+        FOREIGN KEY (original_file_x_id)
+            REFERENCES file_x (id)
+            ON DELETE RESTRICT
+            ON UPDATE RESTRICT,
+    ADD COLUMN derivative_size ENUM('THUMBNAIL', 'MEDIUM', 'LARGE'),
+    ADD UNIQUE file_x__original_file_x_id__derivative_size
+        (original_file_x_id, derivative_size);
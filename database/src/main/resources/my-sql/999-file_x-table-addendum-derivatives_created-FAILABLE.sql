@@ -0,0 +1,5 @@
+-- FAILABLE because there's no "IF NOT EXISTS" for ADD COLUMN.
+
+ALTER TABLE file_x
+    ADD COLUMN derivatives_created DATETIME,
+    ADD INDEX file_x__derivatives_created (derivatives_created);
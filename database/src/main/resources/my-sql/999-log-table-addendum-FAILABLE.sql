@@ -0,0 +1,5 @@
+-- FAILABLE because there's no "IF NOT EXISTS" for ADD COLUMN.
+
+ALTER TABLE log
+    ADD COLUMN correlation_id CHAR(22) AFTER issue_link,
+    ADD INDEX log__correlation_id (correlation_id);
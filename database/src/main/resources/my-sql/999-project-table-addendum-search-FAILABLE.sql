@@ -0,0 +1,6 @@
+-- FAILABLE because there's no "IF NOT EXISTS" for ADD INDEX.
+
+-- long_descr_text is filled in by FullTextIndexes at startup.
+ALTER TABLE project
+    ADD COLUMN long_descr_text TEXT AFTER long_descr_html,
+    ADD FULLTEXT INDEX project__search (name, short_descr, long_descr_text);
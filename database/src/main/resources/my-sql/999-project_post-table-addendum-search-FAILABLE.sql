@@ -0,0 +1,6 @@
+-- FAILABLE because there's no "IF NOT EXISTS" for ADD INDEX.
+
+-- long_descr_text is filled in by FullTextIndexes at startup.
+ALTER TABLE project_post
+    ADD COLUMN long_descr_text MEDIUMTEXT AFTER long_descr_html,
+    ADD FULLTEXT INDEX project_post__search (name, long_descr_text);
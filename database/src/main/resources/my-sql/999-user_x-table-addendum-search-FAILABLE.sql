@@ -0,0 +1,4 @@
+-- FAILABLE because there's no "IF NOT EXISTS" for ADD INDEX.
+
+ALTER TABLE user_x
+    ADD FULLTEXT INDEX user_x__search (first_name, last_name, email_address);
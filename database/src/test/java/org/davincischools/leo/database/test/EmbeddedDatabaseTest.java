@@ -0,0 +1,70 @@
+package org.davincischools.leo.database.test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.davincischools.leo.database.utils.Database;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+// Runs with the embedded database, even if other tests use Docker.
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = EmbeddedDatabaseTest.TestApplicationConfiguration.class)
+@ActiveProfiles(EmbeddedDatabase.EMBEDDED_DATABASE_PROFILE)
+public class EmbeddedDatabaseTest {
+
+  @Configuration
+  @ComponentScan(basePackageClasses = {TestDatabase.class, Database.class})
+  @EnableAutoConfiguration
+  public static class TestApplicationConfiguration {}
+
+  @Autowired private DataSource dataSource;
+  @Autowired private Database db;
+  @Autowired private TestData testData;
+
+  @Before
+  public void setup() {
+    testData.addTestData();
+  }
+
+  @Test
+  public void usesEmbeddedMariaDb() throws SQLException {
+    assertThat(EmbeddedDatabase.isRunning()).isTrue();
+    try (Connection connection = dataSource.getConnection()) {
+      assertThat(connection.getMetaData().getDatabaseProductName()).isEqualTo("MariaDB");
+    }
+    assertThat(db.getUserXRepository().findByEmailAddress("student@projectleo.net")).isPresent();
+  }
+
+  @Test
+  public void restoreSnapshotRemovesData() throws Exception {
+    assertThat(countUserXs()).isGreaterThan(0);
+
+    EmbeddedDatabase.restoreSnapshot();
+    // Otherwise, recently used connections aren't checked before they're reused.
+    dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean().softEvictConnections();
+
+    assertThat(countUserXs()).isEqualTo(0);
+  }
+
+  private int countUserXs() throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        ResultSet resultSet =
+            connection.createStatement().executeQuery("SELECT COUNT(*) FROM user_x")) {
+      resultSet.next();
+      return resultSet.getInt(1);
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package org.davincischools.leo.database.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import jakarta.persistence.EntityManager;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.davincischools.leo.database.daos.KnowledgeAndSkill;
+import org.davincischools.leo.database.daos.KnowledgeAndSkill.Type;
+import org.davincischools.leo.database.daos.Project;
+import org.davincischools.leo.database.test.TestData;
+import org.davincischools.leo.database.test.TestDatabase;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = BulkInserterTest.TestApplicationConfiguration.class)
+public class BulkInserterTest {
+
+  @Configuration
+  @ComponentScan(basePackageClasses = {TestDatabase.class, Database.class})
+  @EnableAutoConfiguration
+  public static class TestApplicationConfiguration {}
+
+  @Autowired private Database db;
+  @Autowired private TestData testData;
+  @Autowired private EntityManager entityManager;
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Before
+  public void setup() {
+    testData.addTestData();
+  }
+
+  @Test
+  public void insertsNewDaosAndSetsIds() {
+    Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    var first = newKnowledgeAndSkill("first", now);
+    var second = newKnowledgeAndSkill("second", now).setShortDescr("short");
+    var existing = testData.getProgrammingSortEks().setName("renamed");
+
+    db.getBulkInserter()
+        .saveAll(db.getKnowledgeAndSkillRepository(), List.of(first, existing, second));
+
+    assertThat(first.getId()).isNotNull();
+    assertThat(second.getId()).isEqualTo(first.getId() + 1);
+
+    var saved = db.getKnowledgeAndSkillRepository().findById(second.getId()).orElseThrow();
+    assertThat(saved.getName()).isEqualTo("second");
+    assertThat(saved.getShortDescr()).isEqualTo("short");
+    assertThat(saved.getType()).isEqualTo(Type.EKS);
+    assertThat(saved.getCreationTime()).isEqualTo(now);
+    assertThat(saved.getGlobal()).isNull();
+
+    assertThat(
+            db.getKnowledgeAndSkillRepository().findById(existing.getId()).orElseThrow().getName())
+        .isEqualTo("renamed");
+  }
+
+  @Test
+  public void callsPrePersistMethods() {
+    var project =
+        new Project()
+            .setCreationTime(Instant.now())
+            .setName("Project")
+            .setLongDescrHtml("<p>Plain&nbsp;<em>text</em>.</p>");
+
+    db.getBulkInserter().saveAll(db.getProjectRepository(), List.of(project));
+
+    assertThat(db.getProjectRepository().findById(project.getId()).orElseThrow().getLongDescrText())
+        .isEqualTo("Plain text.");
+  }
+
+  @Test
+  public void stepsIdsByAutoIncrementIncrement() {
+    Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    var daos =
+        List.of(
+            newKnowledgeAndSkill("first", now),
+            newKnowledgeAndSkill("second", now),
+            newKnowledgeAndSkill("third", now));
+
+    // The session variable only applies to the transaction's connection.
+    new TransactionTemplate(transactionManager)
+        .executeWithoutResult(
+            status -> {
+              setAutoIncrementIncrement(2);
+              try {
+                db.getBulkInserter().saveAll(db.getKnowledgeAndSkillRepository(), daos);
+              } finally {
+                setAutoIncrementIncrement(1);
+              }
+            });
+
+    for (var dao : daos) {
+      assertThat(db.getKnowledgeAndSkillRepository().findById(dao.getId()).orElseThrow().getName())
+          .isEqualTo(dao.getName());
+    }
+    assertThat(daos.get(1).getId()).isEqualTo(daos.get(0).getId() + 2);
+    assertThat(daos.get(2).getId()).isEqualTo(daos.get(1).getId() + 2);
+  }
+
+  private void setAutoIncrementIncrement(int increment) {
+    entityManager
+        .createNativeQuery("SET SESSION auto_increment_increment = " + increment)
+        .executeUpdate();
+  }
+
+  private KnowledgeAndSkill newKnowledgeAndSkill(String name, Instant now) {
+    return new KnowledgeAndSkill()
+        .setCreationTime(now)
+        .setName(name)
+        .setType(Type.EKS)
+        .setUserX(testData.getTeacher());
+  }
+}
@@ -0,0 +1,41 @@
+package org.davincischools.leo.database.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.davincischools.leo.database.daos.KnowledgeAndSkill;
+import org.davincischools.leo.database.daos.KnowledgeAndSkill.Type;
+import org.davincischools.leo.database.daos.Project;
+import org.davincischools.leo.database.daos.ProjectPost;
+import org.davincischools.leo.database.utils.DaoAccessors.DaoClassAccessors;
+import org.junit.Test;
+
+public class DaoAccessorsTest {
+
+  @Test
+  public void compiledAccessorsReadAndWriteFields() {
+    DaoClassAccessors accessors = DaoAccessors.forDaoClass(KnowledgeAndSkill.class);
+    var dao = (KnowledgeAndSkill) accessors.constructor().orElseThrow().get();
+
+    accessors.setters().get("setName").function().accept(dao, "name");
+    accessors.setters().get("setType").function().accept(dao, Type.EKS);
+    accessors.setters().get("setGlobal").function().accept(dao, null);
+
+    assertThat(dao.getName()).isEqualTo("name");
+    assertThat(accessors.getters().get("getName").function().apply(dao)).isEqualTo("name");
+    assertThat(accessors.getters().get("getType").function().apply(dao)).isEqualTo(Type.EKS);
+    assertThat(accessors.getters().get("getType").type()).isEqualTo(Type.class);
+    assertThat(accessors.getters().get("getGlobal").function().apply(dao)).isNull();
+  }
+
+  @Test
+  public void innerDaoAccessors() {
+    DaoClassAccessors accessors = DaoAccessors.forDaoClass(ProjectPost.class);
+    var post = new ProjectPost();
+
+    accessors.setters().get("setProject").function().accept(post, new Project().setId(5));
+
+    assertThat(accessors.setters().get("setProject").type()).isEqualTo(Project.class);
+    assertThat(post.getProject().getId()).isEqualTo(5);
+    assertThat(DaoAccessors.forDaoClass(ProjectPost.class)).isSameInstanceAs(accessors);
+  }
+}
@@ -0,0 +1,120 @@
+package org.davincischools.leo.database.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.davincischools.leo.database.daos.ClassX;
+import org.davincischools.leo.database.daos.District;
+import org.davincischools.leo.database.daos.KnowledgeAndSkill;
+import org.davincischools.leo.database.daos.KnowledgeAndSkill.Type;
+import org.davincischools.leo.database.exceptions.UnauthorizedUserX;
+import org.davincischools.leo.database.test.TestData;
+import org.davincischools.leo.database.test.TestDatabase;
+import org.davincischools.leo.database.utils.ReferenceDataCache.ReferenceData;
+import org.davincischools.leo.database.utils.repos.ClassXKnowledgeAndSkillRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ReferenceDataCacheTest.TestApplicationConfiguration.class)
+public class ReferenceDataCacheTest {
+
+  @Configuration
+  @ComponentScan(basePackageClasses = {TestDatabase.class, Database.class})
+  @EnableAutoConfiguration
+  public static class TestApplicationConfiguration {}
+
+  @Autowired private Database db;
+  @Autowired private TestData testData;
+
+  @Before
+  public void setup() {
+    testData.addTestData();
+  }
+
+  @Test
+  public void keepsValuesUntilInvalidated() {
+    var cache = db.getReferenceDataCache();
+    List<ReferenceData> forwarded = new ArrayList<>();
+    cache.addInvalidationListener(forwarded::add);
+
+    var districts = cache.getDistricts();
+    assertThat(cache.getDistricts()).isSameInstanceAs(districts);
+
+    db.getDistrictRepository().upsert("New District");
+    assertThat(cache.getDistricts().stream().map(District::getName)).doesNotContain("New District");
+
+    cache.invalidate(ReferenceData.DISTRICTS);
+    assertThat(cache.getDistricts().stream().map(District::getName)).contains("New District");
+    assertThat(forwarded).containsExactly(ReferenceData.DISTRICTS);
+  }
+
+  @Test
+  public void doesNotKeepValuesLoadedBeforeAnInvalidation() {
+    var cache = db.getReferenceDataCache();
+    List<String> names = new ArrayList<>(List.of("Old District"));
+
+    var stale =
+        cache.get(
+            ReferenceData.DISTRICTS,
+            "arg",
+            () -> {
+              // Another request changes the districts while this one is loading them.
+              List<String> loaded = List.copyOf(names);
+              names.set(0, "New District");
+              cache.invalidate(ReferenceData.DISTRICTS);
+              return loaded;
+            });
+    assertThat(stale).containsExactly("Old District");
+
+    assertThat(cache.get(ReferenceData.DISTRICTS, "arg", () -> List.copyOf(names)))
+        .containsExactly("New District");
+  }
+
+  @Test
+  public void filtersKnowledgeAndSkillsLikeTheRepository() {
+    var types = List.of(Type.EKS, Type.XQ_COMPETENCY);
+    for (Integer userXId : new Integer[] {null, testData.getTeacher().getId()}) {
+      assertThat(
+              db.getReferenceDataCache().getKnowledgeAndSkills(types, userXId).stream()
+                  .map(KnowledgeAndSkill::getId))
+          .containsExactlyElementsIn(
+              db.getKnowledgeAndSkillRepository().findAllByTypes(types, userXId).stream()
+                  .map(KnowledgeAndSkill::getId)
+                  .toList());
+    }
+  }
+
+  @Test
+  public void classXUpsertInvalidatesKnowledgeAndSkills() throws UnauthorizedUserX {
+    var types = List.of(Type.EKS);
+    var cache = db.getReferenceDataCache();
+    assertThat(cache.getKnowledgeAndSkills(types, null).stream().map(KnowledgeAndSkill::getName))
+        .doesNotContain("New Skill");
+
+    ClassX classX = testData.getProgrammingClassX();
+    var knowledgeAndSkill =
+        new KnowledgeAndSkill()
+            .setCreationTime(Instant.now())
+            .setName("New Skill")
+            .setType(Type.EKS)
+            .setGlobal(true)
+            .setUserX(testData.getAdminX());
+    classX.setClassXKnowledgeAndSkills(
+        Set.of(ClassXKnowledgeAndSkillRepository.create(classX, knowledgeAndSkill)));
+    db.getClassXRepository().guardedUpsert(db, classX, /* requiredTeacherId= */ null);
+
+    assertThat(cache.getKnowledgeAndSkills(types, null).stream().map(KnowledgeAndSkill::getName))
+        .contains("New Skill");
+  }
+}
@@ -0,0 +1,87 @@
+package org.davincischools.leo.database.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.davincischools.leo.database.utils.ReplicaRoutingDataSource.PRIMARY_KEY;
+
+import com.zaxxer.hikari.HikariDataSource;
+import javax.sql.DataSource;
+import org.davincischools.leo.database.test.TestDatabase;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+public class ReplicaDataSourceConfigurationTest {
+
+  @Configuration
+  @EnableConfigurationProperties(DataSourceProperties.class)
+  public static class TestConfiguration {}
+
+  // Nothing listens on port 1. So, connections fail right away.
+  private static final String PRIMARY_URL = "jdbc:mysql://127.0.0.1:1/leo_test";
+  private static final String REPLICA_0_URL = "jdbc:mysql://127.0.0.1:1/replica0";
+  private static final String REPLICA_1_URL = "jdbc:mysql://127.0.0.1:1/replica1";
+
+  @Test
+  public void routesToReplicasWhenConfigured() {
+    try (var context =
+        createContext(
+            /* useExternalDatabase= */ true,
+            ReplicaDataSourceConfiguration.REPLICA_URLS_PROP_NAME
+                + "="
+                + REPLICA_0_URL
+                + ", ,"
+                + REPLICA_1_URL)) {
+      assertThat(context.getBean(DataSource.class))
+          .isInstanceOf(LazyConnectionDataSourceProxy.class);
+
+      var routing = context.getBean(ReplicaRoutingDataSource.class);
+      var targets = routing.getResolvedDataSources();
+      assertThat(targets.keySet()).containsExactly(PRIMARY_KEY, "replica-0", "replica-1");
+
+      var primary = (HikariDataSource) targets.get(PRIMARY_KEY);
+      assertThat(primary.getJdbcUrl()).isEqualTo(PRIMARY_URL);
+      assertThat(primary.isReadOnly()).isFalse();
+
+      var replica = (HikariDataSource) targets.get("replica-1");
+      assertThat(replica.getJdbcUrl()).isEqualTo(REPLICA_1_URL);
+      assertThat(replica.isReadOnly()).isTrue();
+      assertThat(replica.getMaximumPoolSize()).isEqualTo(3);
+    }
+  }
+
+  @Test
+  public void notUsedWithoutReplicaUrls() {
+    try (var context = createContext(/* useExternalDatabase= */ true)) {
+      assertThat(context.getBeansOfType(DataSource.class)).isEmpty();
+    }
+  }
+
+  @Test
+  public void notUsedWithTestDatabases() {
+    try (var context =
+        createContext(
+            /* useExternalDatabase= */ false,
+            ReplicaDataSourceConfiguration.REPLICA_URLS_PROP_NAME + "=" + REPLICA_0_URL)) {
+      assertThat(context.getBeansOfType(DataSource.class)).isEmpty();
+    }
+  }
+
+  private static AnnotationConfigApplicationContext createContext(
+      boolean useExternalDatabase, String... properties) {
+    var context = new AnnotationConfigApplicationContext();
+    if (useExternalDatabase) {
+      context.getEnvironment().setActiveProfiles(TestDatabase.USE_EXTERNAL_DATABASE_PROFILE);
+    }
+    TestPropertyValues.of(
+            "spring.datasource.url=" + PRIMARY_URL, "spring.datasource.hikari.maximum-pool-size=3")
+        .and(properties)
+        .applyTo(context);
+    context.register(TestConfiguration.class, ReplicaDataSourceConfiguration.class);
+    context.refresh();
+    return context;
+  }
+}
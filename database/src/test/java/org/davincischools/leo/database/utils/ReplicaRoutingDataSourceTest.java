@@ -0,0 +1,127 @@
+package org.davincischools.leo.database.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.davincischools.leo.database.utils.ReplicaRoutingDataSource.PRIMARY_KEY;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+public class ReplicaRoutingDataSourceTest {
+
+  private ReplicaRoutingDataSource dataSource;
+
+  @Before
+  public void setup() {
+    dataSource =
+        new ReplicaRoutingDataSource(
+            new DriverManagerDataSource(),
+            List.of(new DriverManagerDataSource(), new DriverManagerDataSource()),
+            /* maxLag= */ Duration.ofSeconds(5),
+            /* readYourWritesWindow= */ Duration.ofMinutes(1));
+    dataSource.setReplicaLag(0, Duration.ZERO);
+    dataSource.setReplicaLag(1, Duration.ZERO);
+  }
+
+  @After
+  public void tearDown() {
+    ReplicaRoutingDataSource.setSessionKey(null);
+    ReplicaRoutingDataSource.setReadFromPrimary(false);
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    TransactionSynchronizationManager.setActualTransactionActive(false);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  public void readOnlyTransactionsAlternateReplicas() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    assertThat(List.of(route(), route(), route()))
+        .containsExactly("replica-0", "replica-1", "replica-0")
+        .inOrder();
+  }
+
+  @Test
+  public void readWriteTransactionsUsePrimary() {
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+
+    assertThat(route()).isEqualTo(PRIMARY_KEY);
+  }
+
+  @Test
+  public void laggingReplicasAreSkipped() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    dataSource.setReplicaLag(0, Duration.ofSeconds(6));
+    assertThat(List.of(route(), route())).containsExactly("replica-1", "replica-1");
+
+    dataSource.setReplicaLag(1, null);
+    assertThat(route()).isEqualTo(PRIMARY_KEY);
+  }
+
+  @Test
+  public void readsAfterCommittedWritesUsePrimary() {
+    ReplicaRoutingDataSource.setSessionKey("writer");
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    assertThat(route()).isEqualTo(PRIMARY_KEY);
+
+    // Until the write commits, the session still reads from replicas.
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    assertThat(route()).isNotEqualTo(PRIMARY_KEY);
+
+    TransactionSynchronizationUtils.invokeAfterCommit(
+        TransactionSynchronizationManager.getSynchronizations());
+    assertThat(route()).isEqualTo(PRIMARY_KEY);
+
+    ReplicaRoutingDataSource.setSessionKey("reader");
+    assertThat(route()).isNotEqualTo(PRIMARY_KEY);
+  }
+
+  @Test
+  public void readsAfterRolledBackWritesUseReplicas() {
+    ReplicaRoutingDataSource.setSessionKey("writer");
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    assertThat(route()).isEqualTo(PRIMARY_KEY);
+
+    TransactionSynchronizationUtils.invokeAfterCompletion(
+        TransactionSynchronizationManager.getSynchronizations(),
+        TransactionSynchronization.STATUS_ROLLED_BACK);
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    assertThat(route()).isNotEqualTo(PRIMARY_KEY);
+  }
+
+  @Test
+  public void readsAfterUnsynchronizedWritesUsePrimary() {
+    ReplicaRoutingDataSource.setSessionKey("writer");
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    assertThat(route()).isEqualTo(PRIMARY_KEY);
+
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    assertThat(route()).isEqualTo(PRIMARY_KEY);
+  }
+
+  @Test
+  public void readsFromPrimaryThreadsUsePrimary() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    ReplicaRoutingDataSource.setReadFromPrimary(true);
+    assertThat(route()).isEqualTo(PRIMARY_KEY);
+
+    ReplicaRoutingDataSource.setReadFromPrimary(false);
+    assertThat(route()).isNotEqualTo(PRIMARY_KEY);
+  }
+
+  private Object route() {
+    return dataSource.determineCurrentLookupKey();
+  }
+}
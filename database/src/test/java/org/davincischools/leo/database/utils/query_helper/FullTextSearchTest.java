@@ -0,0 +1,39 @@
+package org.davincischools.leo.database.utils.query_helper;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+public class FullTextSearchTest {
+
+  @Test
+  public void wordsArePrefixesThatMustAllMatch() {
+    assertThat(FullTextSearch.toBooleanModeQuery("John  Smith")).hasValue("+john* +smith*");
+  }
+
+  @Test
+  public void operatorsAreIgnored() {
+    assertThat(FullTextSearch.toBooleanModeQuery("-a* \"b\" (c) d's @e"))
+        .hasValue("+a* +b* +c* +d's* +e*");
+  }
+
+  @Test
+  public void noWordsIsEmpty() {
+    assertThat(FullTextSearch.toBooleanModeQuery(" +-*~ ")).isEmpty();
+  }
+
+  @Test
+  public void extraWordsAreIgnored() {
+    assertThat(FullTextSearch.toBooleanModeQuery("a b c d e f g h i j k l").orElseThrow())
+        .isEqualTo("+a* +b* +c* +d* +e* +f* +g* +h* +i* +j*");
+  }
+
+  @Test
+  public void plainTextHasNoMarkup() {
+    assertThat(
+            FullTextSearch.toPlainText(
+                "<p>Fish &amp;&nbsp;<a href=\"https://example.org\">chips</a></p><div>Li</div>"))
+        .isEqualTo("Fish & chips Li");
+    assertThat(FullTextSearch.toPlainText(null)).isNull();
+  }
+}
@@ -0,0 +1,53 @@
+package org.davincischools.leo.database.utils.query_helper;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class KeysetCursorTest {
+
+  @Test
+  public void encodeAndDecode() {
+    List<Object> values = Arrays.asList("a.b~c", null, 42, Instant.ofEpochSecond(1234567890));
+
+    String cursor = KeysetCursor.encode(values);
+
+    assertThat(cursor).matches("[A-Za-z0-9_\\-.~]+");
+    assertThat(
+            KeysetCursor.decode(
+                cursor, List.of(String.class, Integer.class, Integer.class, Instant.class)))
+        .containsExactlyElementsIn(values)
+        .inOrder();
+  }
+
+  @Test
+  public void decodeWrongNumberOfValues() {
+    String cursor = KeysetCursor.encode(List.of(1, 2));
+
+    assertThrows(
+        IllegalArgumentException.class, () -> KeysetCursor.decode(cursor, List.of(Integer.class)));
+  }
+
+  @Test
+  public void decodeWrongType() {
+    String cursor = KeysetCursor.encode(List.of("abc"));
+
+    assertThrows(
+        IllegalArgumentException.class, () -> KeysetCursor.decode(cursor, List.of(Instant.class)));
+  }
+
+  @Test
+  public void checkSupportedTypes() {
+    KeysetCursor.checkSupportedTypes(
+        List.of(String.class, Integer.class, Long.class, Double.class, Instant.class));
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> KeysetCursor.checkSupportedTypes(List.of(Integer.class, LocalDate.class)));
+  }
+}
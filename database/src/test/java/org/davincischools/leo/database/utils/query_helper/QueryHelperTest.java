@@ -4,6 +4,10 @@ import static com.google.common.truth.Truth.assertThat;
 
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.criteria.JoinType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.davincischools.leo.database.daos.AdminX;
 import org.davincischools.leo.database.daos.ClassX;
 import org.davincischools.leo.database.daos.ClassX_;
@@ -500,7 +504,7 @@ public class QueryHelperTest {
     assertThat(results.stream().map(ClassX::getName).toList())
         .containsExactly(testData.getDanceClassX().getName());
 
-    assertThat(sessionFactory.getStatistics().getQueries()).hasLength(2);
+    assertThat(sessionFactory.getStatistics().getQueries()).hasLength(3);
   }
 
   @Test
@@ -520,7 +524,7 @@ public class QueryHelperTest {
     assertThat(results.stream().map(ClassX::getName).toList())
         .containsExactly(testData.getChemistryClassX().getName());
 
-    assertThat(sessionFactory.getStatistics().getQueries()).hasLength(2);
+    assertThat(sessionFactory.getStatistics().getQueries()).hasLength(3);
   }
 
   @Test
@@ -540,7 +544,7 @@ public class QueryHelperTest {
     assertThat(results.stream().map(ClassX::getName).toList())
         .containsExactly(testData.getProgrammingClassX().getName());
 
-    assertThat(sessionFactory.getStatistics().getQueries()).hasLength(2);
+    assertThat(sessionFactory.getStatistics().getQueries()).hasLength(3);
   }
 
   @Test
@@ -559,7 +563,7 @@ public class QueryHelperTest {
 
     assertThat(results).isEmpty();
 
-    assertThat(sessionFactory.getStatistics().getQueries()).hasLength(2);
+    assertThat(sessionFactory.getStatistics().getQueries()).hasLength(3);
   }
 
   @Test
@@ -581,7 +585,68 @@ public class QueryHelperTest {
             testData.getDanceClassX().getName(), testData.getChemistryClassX().getName())
         .inOrder();
 
-    assertThat(sessionFactory.getStatistics().getQueries()).hasLength(2);
+    assertThat(sessionFactory.getStatistics().getQueries()).hasLength(3);
+  }
+
+  @Test
+  public void verifyManagedEntitiesAcrossFetchedPluralAttributeWithCursor() {
+    var firstPage =
+        queryHelper.query(
+            ClassX.class,
+            UserX.class,
+            this::buildManagedEntitiesAcrossFetchedPluralAttributeQuery,
+            CursorPageRequest.first(2),
+            /* distinct= */ true);
+
+    assertThat(firstPage.stream().map(ClassX::getName).toList())
+        .containsExactly(
+            testData.getDanceClassX().getName(), testData.getChemistryClassX().getName())
+        .inOrder();
+    assertThat(firstPage.getTotalElements()).isEqualTo(3);
+    var nextCursor = firstPage.getNextCursor();
+    assertThat(nextCursor).isPresent();
+    assertThat(firstPage.hasNext()).isTrue();
+    assertThat(firstPage.nextPageable().isPaged()).isFalse();
+
+    var secondPage =
+        queryHelper.query(
+            ClassX.class,
+            UserX.class,
+            this::buildManagedEntitiesAcrossFetchedPluralAttributeQuery,
+            CursorPageRequest.after(nextCursor.get(), 2).withCountTotal(false),
+            /* distinct= */ true);
+
+    assertThat(secondPage.stream().map(ClassX::getName).toList())
+        .containsExactly(testData.getProgrammingClassX().getName());
+    assertThat(secondPage.getNextCursor()).isEmpty();
+    assertThat(secondPage.getTotal()).isEmpty();
+  }
+
+  @Test
+  public void partitionFetchedPluralAttributesTest() {
+    var results =
+        queryHelper.query(
+            ClassX.class,
+            classX -> {
+              classX.notDeleted().orderByAsc(classX.get(ClassX_.name));
+              classX
+                  .join(ClassX_.studentClassXES, JoinType.LEFT)
+                  .notDeleted()
+                  .fetch()
+                  .join(StudentClassX_.student, JoinType.LEFT)
+                  .fetch();
+              classX.join(ClassX_.teacherClassXES, JoinType.LEFT).notDeleted().fetch();
+              return classX;
+            });
+
+    assertThat(results).isNotEmpty();
+    for (var classX : results) {
+      assertThat(Hibernate.isInitialized(classX.getStudentClassXES())).isTrue();
+      assertThat(Hibernate.isInitialized(classX.getTeacherClassXES())).isTrue();
+    }
+
+    // The main query and one for each fetched plural attribute.
+    assertThat(sessionFactory.getStatistics().getQueries()).hasLength(3);
   }
 
   @Test
@@ -607,4 +672,60 @@ public class QueryHelperTest {
 
     assertThat(sessionFactory.getStatistics().getQueries()).hasLength(1);
   }
+
+  @Test
+  public void reuseQueryPlanForDifferentValuesTest() {
+    var before = queryHelper.getPlanCacheStats();
+
+    for (var userX : ImmutableList.of(testData.getAdminX(), testData.getTeacher())) {
+      var results =
+          queryHelper.query(
+              UserX.class,
+              u ->
+                  u.notDeleted()
+                      .where(Predicate.eq(u.get(UserX_.emailAddress), userX.getEmailAddress())));
+
+      assertThat(results.stream().map(UserX::getId).toList()).containsExactly(userX.getId());
+    }
+
+    // The second query has the same shape as the first, with a different value.
+    assertThat(queryHelper.getPlanCacheStats().minus(before).hitCount()).isAtLeast(1);
+  }
+
+  @Test
+  public void concurrentQueriesWithTheSameShapeTest() throws Exception {
+    var userXs =
+        ImmutableList.of(
+            testData.getAdminX(), testData.getTeacher(), testData.getStudent(), testData.getDemo());
+    var before = queryHelper.getPlanCacheStats();
+    var executor = Executors.newFixedThreadPool(userXs.size());
+    try {
+      var futures = new ArrayList<Future<List<UserX>>>();
+      for (int i = 0; i < 20; ++i) {
+        var userX = userXs.get(i % userXs.size());
+        futures.add(
+            executor.submit(
+                () ->
+                    queryHelper.query(
+                        UserX.class,
+                        u ->
+                            u.notDeleted()
+                                .where(
+                                    Predicate.eq(
+                                        u.get(UserX_.emailAddress), userX.getEmailAddress())))));
+      }
+
+      for (int i = 0; i < futures.size(); ++i) {
+        assertThat(futures.get(i).get().stream().map(UserX::getId).toList())
+            .containsExactly(userXs.get(i % userXs.size()).getId());
+      }
+
+      // A cached query is only a hit if it wasn't in use. So, at most one is built per thread.
+      var stats = queryHelper.getPlanCacheStats().minus(before);
+      assertThat(stats.requestCount()).isEqualTo(futures.size());
+      assertThat(stats.missCount()).isAtMost(userXs.size());
+    } finally {
+      executor.shutdown();
+    }
+  }
 }
@@ -0,0 +1,125 @@
+package org.davincischools.leo.database.utils.repos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.davincischools.leo.database.daos.Project;
+import org.davincischools.leo.database.daos.ProjectPost;
+import org.davincischools.leo.database.test.TestData;
+import org.davincischools.leo.database.test.TestDatabase;
+import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.database.utils.query_helper.CursorPage;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ProjectPostRepositoryTest.TestApplicationConfiguration.class)
+public class ProjectPostRepositoryTest {
+
+  @Configuration
+  @ComponentScan(basePackageClasses = {TestDatabase.class, Database.class})
+  @EnableAutoConfiguration
+  public static class TestApplicationConfiguration {}
+
+  @Autowired private Database db;
+  @Autowired private TestData testData;
+
+  private Project project;
+  private ProjectPost firstDraft;
+  private ProjectPost testing;
+  private ProjectPost results;
+
+  @Before
+  public void setup() {
+    testData.addTestData();
+    project =
+        db.getProjectRepository()
+            .save(new Project().setCreationTime(Instant.now()).setName("Project"));
+    firstDraft = addPost("First Draft", "<p>I sketched the <em>oven</em> design.</p>");
+    testing = addPost("Testing", "<p>The oven reached 90&deg;C in the sun.</p>");
+    results = addPost("Results", "<ul><li>Cooked an egg</li><li>Oven oven oven</li></ul>");
+  }
+
+  @Test
+  public void searchNameAndDescriptionTest() {
+    assertThat(search("draft")).containsExactly(firstDraft.getId());
+    assertThat(search("sketch")).containsExactly(firstDraft.getId());
+    assertThat(search("egg")).containsExactly(results.getId());
+  }
+
+  @Test
+  public void searchIgnoresHtmlMarkupTest() {
+    for (String markup : List.of("em", "ul", "li", "deg")) {
+      assertThat(search(markup)).isEmpty();
+    }
+  }
+
+  @Test
+  public void searchWordsAreRequiredPrefixesTest() {
+    assertThat(search("oven sun")).containsExactly(testing.getId());
+    assertThat(search("oven pizza")).isEmpty();
+  }
+
+  @Test
+  public void searchRanksBestMatchesFirstTest() {
+    assertThat(search("oven").get(0)).isEqualTo(results.getId());
+    assertThat(search("oven"))
+        .containsExactly(firstDraft.getId(), testing.getId(), results.getId());
+  }
+
+  @Test
+  public void searchWithCursorTest() {
+    List<Integer> ids = new ArrayList<>();
+    Optional<String> cursor = Optional.of("");
+    while (cursor.isPresent()) {
+      var page =
+          (CursorPage<ProjectPost>)
+              db.getProjectPostRepository()
+                  .getProjectPosts(
+                      new GetProjectPostsParams()
+                          .setProjectIds(List.of(project.getId()))
+                          .setSearchText("oven")
+                          .setCursor(cursor.get())
+                          .setPageSize(1));
+      page.stream().map(ProjectPost::getId).forEach(ids::add);
+      cursor = page.getNextCursor();
+    }
+
+    assertThat(ids).containsExactlyElementsIn(search("oven")).inOrder();
+  }
+
+  private List<Integer> search(String searchText) {
+    return db
+        .getProjectPostRepository()
+        .getProjectPosts(
+            new GetProjectPostsParams()
+                .setProjectIds(List.of(project.getId()))
+                .setSearchText(searchText))
+        .stream()
+        .map(ProjectPost::getId)
+        .toList();
+  }
+
+  private ProjectPost addPost(String name, String longDescrHtml) {
+    return db.getProjectPostRepository()
+        .save(
+            new ProjectPost()
+                .setCreationTime(Instant.now())
+                .setPostTime(Instant.now())
+                .setName(name)
+                .setLongDescrHtml(longDescrHtml)
+                .setBeingEdited(false)
+                .setUserX(testData.getStudent())
+                .setProject(project));
+  }
+}
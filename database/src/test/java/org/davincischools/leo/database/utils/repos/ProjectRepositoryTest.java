@@ -0,0 +1,162 @@
+package org.davincischools.leo.database.utils.repos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import javax.sql.DataSource;
+import org.davincischools.leo.database.daos.Project;
+import org.davincischools.leo.database.test.TestData;
+import org.davincischools.leo.database.test.TestDatabase;
+import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.database.utils.query_helper.CursorPage;
+import org.davincischools.leo.database.utils.query_helper.FullTextIndexes;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ProjectRepositoryTest.TestApplicationConfiguration.class)
+public class ProjectRepositoryTest {
+
+  @Configuration
+  @ComponentScan(basePackageClasses = {TestDatabase.class, Database.class})
+  @EnableAutoConfiguration
+  public static class TestApplicationConfiguration {}
+
+  @Autowired private Database db;
+  @Autowired private TestData testData;
+  @Autowired private DataSource dataSource;
+  @Autowired private FullTextIndexes fullTextIndexes;
+
+  private Project solarOven;
+  private Project waterFilter;
+  private Project sunDial;
+
+  @Before
+  public void setup() {
+    testData.addTestData();
+    solarOven =
+        addProject(
+            "Solar Oven",
+            "Cook food with the sun.",
+            "<p>Build a <strong>reflector</strong> &amp; measure the heat.</p>");
+    waterFilter =
+        addProject(
+            "Water Filter",
+            "Clean dirty water.",
+            "<div><p>Layer sand and&nbsp;<a href=\"https://example.org/filters\">charcoal</a>."
+                + "</p></div>");
+    sunDial = addProject("Sun Dial", "Tell the time with the sun.", "<p>Mark the shadows.</p>");
+  }
+
+  @Test
+  public void searchNameAndDescriptionsTest() {
+    assertThat(search("water")).containsExactly(waterFilter.getId());
+    assertThat(search("cook")).containsExactly(solarOven.getId());
+    assertThat(search("charcoal")).containsExactly(waterFilter.getId());
+  }
+
+  @Test
+  public void searchIgnoresHtmlMarkupTest() {
+    for (String markup : List.of("p", "div", "strong", "nbsp", "amp", "href", "https", "example")) {
+      assertThat(search(markup)).isEmpty();
+    }
+  }
+
+  @Test
+  public void searchFindsUpdatedDescriptionsTest() {
+    db.getProjectRepository().save(sunDial.setLongDescrHtml("<p>Place the gnomon.</p>"));
+
+    assertThat(search("gnomon")).containsExactly(sunDial.getId());
+    assertThat(search("shadows")).isEmpty();
+  }
+
+  @Test
+  public void searchFindsFilledInDescriptionsTest() throws SQLException {
+    try (var connection = dataSource.getConnection();
+        var statement =
+            connection.prepareStatement("UPDATE project SET long_descr_text = NULL WHERE id = ?")) {
+      statement.setInt(1, waterFilter.getId());
+      statement.executeUpdate();
+    }
+    assertThat(search("charcoal")).isEmpty();
+
+    fullTextIndexes.checkSettingsAndFillInPlainText();
+
+    assertThat(search("charcoal")).containsExactly(waterFilter.getId());
+  }
+
+  @Test
+  public void searchWordsAreRequiredPrefixesTest() {
+    assertThat(search("refl")).containsExactly(solarOven.getId());
+    assertThat(search("sun shad")).containsExactly(sunDial.getId());
+    assertThat(search("sun charcoal")).isEmpty();
+  }
+
+  @Test
+  public void searchRanksBestMatchesFirstTest() {
+    // "Sun" is in both the name and short description of the sun dial.
+    assertThat(search("sun")).containsExactly(sunDial.getId(), solarOven.getId()).inOrder();
+  }
+
+  @Test
+  public void searchWithoutWordsFindsAllTest() {
+    assertThat(search(" * "))
+        .containsExactly(solarOven.getId(), waterFilter.getId(), sunDial.getId());
+  }
+
+  @Test
+  public void searchWithCursorTest() {
+    List<Integer> ids = new ArrayList<>();
+    Optional<String> cursor = Optional.of("");
+    while (cursor.isPresent()) {
+      var page =
+          (CursorPage<Project>)
+              db.getProjectRepository()
+                  .getProjects(
+                      new GetProjectsParams()
+                          .setProjectIds(
+                              List.of(solarOven.getId(), waterFilter.getId(), sunDial.getId()))
+                          .setSearchText("sun")
+                          .setCursor(cursor.get())
+                          .setPageSize(1));
+      page.stream().map(Project::getId).forEach(ids::add);
+      cursor = page.getNextCursor();
+    }
+
+    assertThat(ids).containsExactly(sunDial.getId(), solarOven.getId()).inOrder();
+  }
+
+  private List<Integer> search(String searchText) {
+    return db
+        .getProjectRepository()
+        .getProjects(
+            new GetProjectsParams()
+                .setProjectIds(List.of(solarOven.getId(), waterFilter.getId(), sunDial.getId()))
+                .setSearchText(searchText))
+        .stream()
+        .map(Project::getId)
+        .toList();
+  }
+
+  private Project addProject(String name, String shortDescr, String longDescrHtml) {
+    return db.getProjectRepository()
+        .save(
+            new Project()
+                .setCreationTime(Instant.now())
+                .setName(name)
+                .setShortDescr(shortDescr)
+                .setLongDescrHtml(longDescrHtml)
+                .setActive(true));
+  }
+}
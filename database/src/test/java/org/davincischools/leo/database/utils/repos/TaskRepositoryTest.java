@@ -0,0 +1,324 @@
+package org.davincischools.leo.database.utils.repos;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.davincischools.leo.database.daos.Task;
+import org.davincischools.leo.database.daos.Task.StateType;
+import org.davincischools.leo.database.test.TestDatabase;
+import org.davincischools.leo.database.utils.Database;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TaskRepositoryTest.TestApplicationConfiguration.class)
+public class TaskRepositoryTest {
+
+  @Configuration
+  @ComponentScan(basePackageClasses = {TestDatabase.class, Database.class})
+  @EnableAutoConfiguration
+  public static class TestApplicationConfiguration {}
+
+  private static final Duration LEASE = Duration.ofMinutes(1);
+
+  @Autowired private Database db;
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  private TaskRepository tasks;
+  // Each test uses its own queue, so that tests don't see each other's tasks.
+  private String queueName;
+
+  @Before
+  public void setup() {
+    tasks = db.getTaskRepository();
+    queueName = "TaskRepositoryTest-" + UUID.randomUUID();
+  }
+
+  @After
+  public void tearDown() {
+    tasks.deleteAll(
+        tasks.findAll().stream().filter(t -> t.getQueueName().startsWith(queueName)).toList());
+  }
+
+  @Test
+  public void submitTaskAddsPendingTaskTest() {
+    assertThat(tasks.submitTask(queueName, payload("a"), 2, Duration.ZERO)).isTrue();
+
+    Task task = getOnlyTask();
+    assertThat(task.getState()).isEqualTo(StateType.PENDING);
+    assertThat(task.getPayload()).isEqualTo(payload("a"));
+    assertThat(task.getPending()).isTrue();
+    assertThat(task.getAttempts()).isEqualTo(0);
+    assertThat(task.getRetries()).isEqualTo(2);
+    assertThat(task.getSubmissions()).isEqualTo(1);
+  }
+
+  @Test
+  public void submitTaskMergesIdenticalPendingTaskTest() {
+    assertThat(tasks.submitTask(queueName, payload("a"), 1, Duration.ofHours(1))).isTrue();
+    Instant later = getOnlyTask().getNextRunAt();
+    assertThat(tasks.submitTask(queueName, payload("a"), 3, Duration.ZERO)).isFalse();
+    assertThat(tasks.submitTask(queueName, payload("a"), 0, Duration.ofHours(2))).isFalse();
+
+    Task task = getOnlyTask();
+    assertThat(task.getNextRunAt()).isLessThan(later);
+    assertThat(task.getRetries()).isEqualTo(3);
+    assertThat(task.getSubmissions()).isEqualTo(3);
+  }
+
+  @Test
+  public void submitTaskKeepsDifferentTasksTest() {
+    assertThat(tasks.submitTask(queueName, payload("a"), 0, Duration.ZERO)).isTrue();
+    assertThat(tasks.submitTask(queueName, payload("b"), 0, Duration.ZERO)).isTrue();
+    assertThat(tasks.submitTask(queueName + "-other", payload("a"), 0, Duration.ZERO)).isTrue();
+
+    assertThat(getTasks()).hasSize(2);
+  }
+
+  @Test
+  public void concurrentSubmitsMergeIntoOneTaskTest() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Boolean>> added = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        added.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return tasks.submitTask(queueName, payload("a"), 0, Duration.ZERO);
+                }));
+      }
+      start.countDown();
+
+      int numAdded = 0;
+      for (Future<Boolean> future : added) {
+        numAdded += future.get(1, TimeUnit.MINUTES) ? 1 : 0;
+      }
+      assertThat(numAdded).isEqualTo(1);
+      assertThat(getOnlyTask().getSubmissions()).isEqualTo(20);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void claimTasksLeasesReadyTasksTest() {
+    tasks.submitTask(queueName, payload("now"), 0, Duration.ZERO);
+    tasks.submitTask(queueName, payload("later"), 0, Duration.ofHours(1));
+
+    List<Task> claimed = tasks.claimTasks(queueName, "owner", LEASE, 10);
+
+    assertThat(claimed).hasSize(1);
+    Task task = claimed.get(0);
+    assertThat(task.getPayload()).isEqualTo(payload("now"));
+    assertThat(task.getState()).isEqualTo(StateType.PROCESSING);
+    assertThat(task.getPending()).isNull();
+    assertThat(task.getAttempts()).isEqualTo(1);
+    assertThat(task.getLeaseOwner()).isEqualTo("owner");
+    assertThat(task.getLeaseExpiresAt()).isNotNull();
+
+    assertThat(tasks.claimTasks(queueName, "other", LEASE, 10)).isEmpty();
+  }
+
+  @Test
+  public void claimTasksHonorsLimitTest() {
+    tasks.submitTask(queueName, payload("a"), 0, Duration.ZERO);
+    tasks.submitTask(queueName, payload("b"), 0, Duration.ZERO);
+    tasks.submitTask(queueName, payload("c"), 0, Duration.ZERO);
+
+    assertThat(tasks.claimTasks(queueName, "owner", LEASE, 2)).hasSize(2);
+    assertThat(tasks.claimTasks(queueName, "owner", LEASE, 2)).hasSize(1);
+  }
+
+  @Test
+  public void claimTasksSkipsLockedTasksTest() throws Exception {
+    tasks.submitTask(queueName, payload("a"), 0, Duration.ZERO);
+    tasks.submitTask(queueName, payload("b"), 0, Duration.ZERO);
+
+    // Another server's claim holds the lock on one task until it commits.
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<List<Integer>> lockedIds =
+          executor.submit(
+              () ->
+                  new TransactionTemplate(transactionManager)
+                      .execute(
+                          status -> {
+                            List<Integer> ids = tasks.findReadyTaskIds(queueName, 1);
+                            locked.countDown();
+                            try {
+                              release.await(1, TimeUnit.MINUTES);
+                            } catch (InterruptedException e) {
+                              Thread.currentThread().interrupt();
+                            }
+                            return ids;
+                          }));
+      assertThat(locked.await(1, TimeUnit.MINUTES)).isTrue();
+
+      List<Task> claimed = tasks.claimTasks(queueName, "owner", LEASE, 10);
+      release.countDown();
+
+      assertThat(lockedIds.get(1, TimeUnit.MINUTES)).hasSize(1);
+      assertThat(claimed.stream().map(Task::getId).toList()).containsNoneIn(lockedIds.get());
+      assertThat(claimed).hasSize(1);
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void expiredLeaseIsClaimedByAnotherOwnerTest() throws Exception {
+    tasks.submitTask(queueName, payload("a"), 0, Duration.ZERO);
+    Task task = tasks.claimTasks(queueName, "dead", Duration.ZERO, 10).get(0);
+    Thread.sleep(10);
+
+    List<Task> claimed = tasks.claimTasks(queueName, "alive", LEASE, 10);
+
+    assertThat(claimed.stream().map(Task::getId).toList()).containsExactly(task.getId());
+    assertThat(claimed.get(0).getLeaseOwner()).isEqualTo("alive");
+    assertThat(claimed.get(0).getAttempts()).isEqualTo(2);
+    // The server that lost the lease can't finish the task.
+    assertThat(tasks.completeTask(task.getId(), "dead")).isEqualTo(0);
+    assertThat(tasks.retryTask(task.getId(), "dead", 0, "lost")).isEqualTo(0);
+    assertThat(tasks.failTask(task.getId(), "dead", "lost")).isEqualTo(0);
+    assertThat(getOnlyTask().getLeaseOwner()).isEqualTo("alive");
+  }
+
+  @Test
+  public void renewLeasesKeepsTasksTest() throws Exception {
+    tasks.submitTask(queueName, payload("a"), 0, Duration.ZERO);
+    Task task = tasks.claimTasks(queueName, "owner", Duration.ZERO, 10).get(0);
+
+    assertThat(tasks.renewLeases(List.of(task.getId()), "other", LEASE.toMillis())).isEqualTo(0);
+    assertThat(tasks.renewLeases(List.of(task.getId()), "owner", LEASE.toMillis())).isEqualTo(1);
+    Thread.sleep(10);
+
+    assertThat(tasks.claimTasks(queueName, "other", LEASE, 10)).isEmpty();
+  }
+
+  @Test
+  public void identicalTaskWaitsWhileProcessingTest() {
+    tasks.submitTask(queueName, payload("a"), 0, Duration.ZERO);
+    tasks.claimTasks(queueName, "owner", LEASE, 10);
+
+    // A task submitted while an identical one is processing isn't merged into it.
+    assertThat(tasks.submitTask(queueName, payload("a"), 0, Duration.ZERO)).isTrue();
+    assertThat(getTasks()).hasSize(2);
+    // But, it waits for the first to finish.
+    assertThat(tasks.claimTasks(queueName, "other", LEASE, 10)).isEmpty();
+  }
+
+  @Test
+  public void completeTaskDeletesTaskTest() {
+    tasks.submitTask(queueName, payload("a"), 0, Duration.ZERO);
+    Task task = tasks.claimTasks(queueName, "owner", LEASE, 10).get(0);
+
+    assertThat(tasks.completeTask(task.getId(), "owner")).isEqualTo(1);
+
+    assertThat(getTasks()).isEmpty();
+  }
+
+  @Test
+  public void retryTaskReschedulesTaskTest() {
+    tasks.submitTask(queueName, payload("a"), 1, Duration.ZERO);
+    Task task = tasks.claimTasks(queueName, "owner", LEASE, 10).get(0);
+
+    assertThat(tasks.retryTask(task.getId(), "owner", 0, "failure")).isEqualTo(1);
+
+    Task retried = getOnlyTask();
+    assertThat(retried.getState()).isEqualTo(StateType.PENDING);
+    assertThat(retried.getLeaseOwner()).isNull();
+    assertThat(retried.getLeaseExpiresAt()).isNull();
+    assertThat(retried.getLastFailure()).isEqualTo("failure");
+    assertThat(retried.getRetries()).isEqualTo(1);
+
+    List<Task> claimed = tasks.claimTasks(queueName, "other", LEASE, 10);
+    assertThat(claimed.stream().map(Task::getId).toList()).containsExactly(task.getId());
+    assertThat(claimed.get(0).getAttempts()).isEqualTo(2);
+  }
+
+  @Test
+  public void retryTaskWaitsForDelayTest() {
+    tasks.submitTask(queueName, payload("a"), 1, Duration.ZERO);
+    Task task = tasks.claimTasks(queueName, "owner", LEASE, 10).get(0);
+
+    tasks.retryTask(task.getId(), "owner", Duration.ofHours(1).toMillis(), "failure");
+
+    assertThat(tasks.claimTasks(queueName, "owner", LEASE, 10)).isEmpty();
+  }
+
+  @Test
+  public void retryTaskMergesIntoIdenticalPendingTaskTest() {
+    tasks.submitTask(queueName, payload("a"), 1, Duration.ZERO);
+    Task task = tasks.claimTasks(queueName, "owner", LEASE, 10).get(0);
+    tasks.submitTask(queueName, payload("a"), 1, Duration.ofHours(1));
+
+    assertThat(tasks.retryTask(task.getId(), "owner", 0, "failure")).isEqualTo(1);
+
+    Task merged = getOnlyTask();
+    assertThat(merged.getId()).isNotEqualTo(task.getId());
+    assertThat(merged.getState()).isEqualTo(StateType.PENDING);
+    assertThat(merged.getSubmissions()).isEqualTo(2);
+    assertThat(merged.getLastFailure()).isEqualTo("failure");
+    // It runs at the earlier of the two times.
+    assertThat(tasks.claimTasks(queueName, "owner", LEASE, 10)).hasSize(1);
+  }
+
+  @Test
+  public void failTaskKeepsFailedTaskTest() {
+    tasks.submitTask(queueName, payload("a"), 0, Duration.ZERO);
+    Task task = tasks.claimTasks(queueName, "owner", LEASE, 10).get(0);
+
+    assertThat(tasks.failTask(task.getId(), "owner", "failure")).isEqualTo(1);
+
+    Task failed = getOnlyTask();
+    assertThat(failed.getState()).isEqualTo(StateType.FAILED);
+    assertThat(failed.getPending()).isNull();
+    assertThat(failed.getLeaseOwner()).isNull();
+    assertThat(failed.getLastFailure()).isEqualTo("failure");
+    assertThat(tasks.claimTasks(queueName, "owner", LEASE, 10)).isEmpty();
+
+    // A failed task isn't merged with, so the task can be submitted again.
+    assertThat(tasks.submitTask(queueName, payload("a"), 0, Duration.ZERO)).isTrue();
+    assertThat(getTasks().stream().map(Task::getState).toList())
+        .containsExactly(StateType.FAILED, StateType.PENDING);
+  }
+
+  private List<Task> getTasks() {
+    return tasks.findAll().stream().filter(t -> t.getQueueName().equals(queueName)).toList();
+  }
+
+  private Task getOnlyTask() {
+    List<Task> found = getTasks();
+    assertThat(found).hasSize(1);
+    return found.get(0);
+  }
+
+  private static byte[] payload(String value) {
+    return value.getBytes(UTF_8);
+  }
+}
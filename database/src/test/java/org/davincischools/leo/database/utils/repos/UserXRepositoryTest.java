@@ -3,6 +3,7 @@ package org.davincischools.leo.database.utils.repos;
 import static com.google.common.truth.Truth.assertThat;
 
 import java.util.List;
+import java.util.stream.Stream;
 import org.davincischools.leo.database.daos.ClassX;
 import org.davincischools.leo.database.daos.School;
 import org.davincischools.leo.database.daos.StudentClassX;
@@ -11,6 +12,7 @@ import org.davincischools.leo.database.daos.UserX;
 import org.davincischools.leo.database.test.TestData;
 import org.davincischools.leo.database.test.TestDatabase;
 import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.database.utils.query_helper.CursorPage;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -103,6 +105,43 @@ public class UserXRepositoryTest {
         .containsExactly(testData.getTeacher().getId());
   }
 
+  @Test
+  public void searchTest() {
+    var userXs =
+        db.getUserXRepository()
+            .getUserXs(new GetUserXsParams().setFirstLastEmailSearchText("stud proj"));
+    assertThat(userXs.stream().map(UserX::getId).toList())
+        .containsExactly(testData.getStudent().getId());
+  }
+
+  @Test
+  public void searchWithCursorTest() {
+    var firstPage =
+        db.getUserXRepository()
+            .getUserXs(
+                new GetUserXsParams()
+                    .setFirstLastEmailSearchText("leo")
+                    .setCursor("")
+                    .setPageSize(3));
+    var nextCursor = ((CursorPage<UserX>) firstPage).getNextCursor();
+    assertThat(nextCursor).isPresent();
+
+    var secondPage =
+        db.getUserXRepository()
+            .getUserXs(
+                new GetUserXsParams()
+                    .setFirstLastEmailSearchText("leo")
+                    .setCursor(nextCursor.get())
+                    .setPageSize(3));
+    assertThat(((CursorPage<UserX>) secondPage).getNextCursor()).isEmpty();
+    assertThat(Stream.concat(firstPage.stream(), secondPage.stream()).map(UserX::getId).toList())
+        .containsExactly(
+            testData.getAdminX().getId(),
+            testData.getDemo().getId(),
+            testData.getStudent().getId(),
+            testData.getTeacher().getId());
+  }
+
   @Test
   public void includeSchoolsTest() {
     var userX =
@@ -0,0 +1,49 @@
+// Writes a Brotli-compressed copy, e.g., main.js.br, next to each compressible
+// file in the build. The server serves these as-is, to clients that accept
+// them. It gzips files itself when it starts.
+const fs = require('fs');
+const path = require('path');
+const zlib = require('zlib');
+
+const BUILD_DIRECTORY = path.join(__dirname, 'build');
+const COMPRESSIBLE_EXTENSIONS = new Set([
+  '.css',
+  '.html',
+  '.ico',
+  '.js',
+  '.json',
+  '.map',
+  '.svg',
+  '.txt',
+]);
+// Compressing small files doesn't save enough to be worth it.
+const MIN_COMPRESSED_SIZE = 1024;
+
+function compressDirectory(directory) {
+  for (const entry of fs.readdirSync(directory, {withFileTypes: true})) {
+    const file = path.join(directory, entry.name);
+    if (entry.isDirectory()) {
+      compressDirectory(file);
+    } else if (COMPRESSIBLE_EXTENSIONS.has(path.extname(file).toLowerCase())) {
+      compressFile(file);
+    }
+  }
+}
+
+function compressFile(file) {
+  const content = fs.readFileSync(file);
+  if (content.length < MIN_COMPRESSED_SIZE) {
+    return;
+  }
+  const compressed = zlib.brotliCompressSync(content, {
+    params: {
+      [zlib.constants.BROTLI_PARAM_QUALITY]: zlib.constants.BROTLI_MAX_QUALITY,
+      [zlib.constants.BROTLI_PARAM_SIZE_HINT]: content.length,
+    },
+  });
+  if (compressed.length < content.length) {
+    fs.writeFileSync(file + '.br', compressed);
+  }
+}
+
+compressDirectory(BUILD_DIRECTORY);
@@ -77,6 +77,46 @@ export function AllProjectsTab() {
       .catch(global.setError);
   }, [userX]);
 
+  // Show projects as they're generated, rather than after a refresh.
+  const processingInputIds = unsuccessfulProjects
+    .filter(e => e.state === State.PROCESSING)
+    .map(e => e.inputId ?? 0)
+    .join(',');
+  useEffect(() => {
+    if (processingInputIds === '') {
+      return;
+    }
+
+    const eventSources = processingInputIds.split(',').map(inputId => {
+      const eventSource = new EventSource(
+        `/api/sse/ProjectManagementService/ProjectGenerationProgress?projectInputId=${inputId}`
+      );
+      eventSource.addEventListener('project', event => {
+        const project = pl_types.Project.fromObject(
+          JSON.parse((event as MessageEvent<string>).data)
+        );
+        setProjects(projects =>
+          [...projects.filter(p => p.id !== project.id), project].sort(
+            REVERSE_DATE_THEN_PROJECT_SORTER
+          )
+        );
+      });
+      eventSource.addEventListener('state', event => {
+        // Otherwise, the browser reconnects when the server ends the stream.
+        eventSource.close();
+        const state =
+          State[(event as MessageEvent<string>).data as keyof typeof State];
+        setUnsuccessfulProjects(definitions =>
+          definitions.map(d =>
+            String(d.inputId ?? 0) === inputId ? {...d, state} : d
+          )
+        );
+      });
+      return eventSource;
+    });
+    return () => eventSources.forEach(e => e.close());
+  }, [processingInputIds]);
+
   function updateProject(project: IProject, modifications: IProject) {
     Object.assign(project, modifications);
 
@@ -124,7 +164,7 @@ export function AllProjectsTab() {
           .map(definition => (
             <Alert key={definition.id} severity="info">
               Projects are still being generated for this Ikigai configuration.
-              Please refresh the page to check for updates.
+              They will appear below as they are completed.
             </Alert>
           ))}
         {projects.map(project => (
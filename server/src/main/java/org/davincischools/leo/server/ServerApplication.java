@@ -25,8 +25,12 @@ import org.davincischools.leo.server.utils.ApplicationExceptionConsoleLogger;
 import org.davincischools.leo.server.utils.QueryWithNullsToRecordConverter;
 import org.davincischools.leo.server.utils.http_executor.HttpExecutor;
 import org.davincischools.leo.server.utils.http_executor.HttpExecutorArgumentResolver;
+import org.davincischools.leo.server.utils.http_executor.LogFormatter;
+import org.davincischools.leo.server.utils.http_executor.LogWriter;
+import org.davincischools.leo.server.utils.http_user_x.AuthenticatedUserXCache;
 import org.davincischools.leo.server.utils.http_user_x.HttpUserXArgumentResolver;
 import org.davincischools.leo.server.utils.http_user_x.HttpUserXService;
+import org.davincischools.leo.server.utils.http_user_x.ReadYourWritesInterceptor;
 import org.davincischools.leo.server.utils.http_user_x.UserXDetails;
 import org.davincischools.leo.server.utils.task_queue.workers.ReplyToPostsWorker;
 import org.davincischools.leo.server.utils.task_queue.workers.project_generators.ProjectGenerator;
@@ -62,6 +66,7 @@ import org.springframework.security.web.header.writers.ClearSiteDataHeaderWriter
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurationSupport;
 
 @SpringBootApplication(
@@ -86,11 +91,22 @@ public class ServerApplication {
   static class ServerApplicationConfigurer extends WebMvcConfigurationSupport {
 
     private final Database db;
+    private final LogWriter logWriter;
+    private final LogFormatter logFormatter;
     private final EntityManager entityManager;
-
-    public ServerApplicationConfigurer(Database db, EntityManager entityManager) {
+    private final AuthenticatedUserXCache userXCache;
+
+    public ServerApplicationConfigurer(
+        Database db,
+        LogWriter logWriter,
+        LogFormatter logFormatter,
+        EntityManager entityManager,
+        AuthenticatedUserXCache userXCache) {
       this.db = db;
+      this.logWriter = logWriter;
+      this.logFormatter = logFormatter;
       this.entityManager = entityManager;
+      this.userXCache = userXCache;
     }
 
     @Override
@@ -106,8 +122,15 @@ public class ServerApplication {
 
     @Override
     protected void addArgumentResolvers(List<HandlerMethodArgumentResolver> argumentResolvers) {
-      argumentResolvers.add(0, new HttpUserXArgumentResolver(db, entityManager));
-      argumentResolvers.add(1, new HttpExecutorArgumentResolver(db, entityManager));
+      argumentResolvers.add(0, new HttpUserXArgumentResolver(db, entityManager, userXCache));
+      argumentResolvers.add(
+          1,
+          new HttpExecutorArgumentResolver(db, logWriter, logFormatter, entityManager, userXCache));
+    }
+
+    @Override
+    protected void addInterceptors(InterceptorRegistry registry) {
+      registry.addInterceptor(new ReadYourWritesInterceptor());
     }
   }
 
@@ -125,6 +148,9 @@ public class ServerApplication {
           new RequestMatcher[] {
             // This needs to be kept in sync with ReactResourceController.
             new AntPathRequestMatcher("/", HttpMethod.GET.name()),
+            // Only served on the management port. See management.server.port.
+            new AntPathRequestMatcher("/actuator/health", HttpMethod.GET.name()),
+            new AntPathRequestMatcher("/actuator/prometheus", HttpMethod.GET.name()),
             new AntPathRequestMatcher("/api/login.html", HttpMethod.POST.name()),
             new AntPathRequestMatcher("/api/logout.html", HttpMethod.POST.name()),
             new AntPathRequestMatcher("/api/FileService/GetFile**", HttpMethod.GET.name()),
@@ -136,6 +162,9 @@ public class ServerApplication {
                 HttpMethod.POST.name()),
             new AntPathRequestMatcher(
                 "/api/protos/ProjectManagementService/GenerateProjects", HttpMethod.POST.name()),
+            new AntPathRequestMatcher(
+                "/api/sse/ProjectManagementService/ProjectGenerationProgress",
+                HttpMethod.GET.name()),
             new AntPathRequestMatcher(
                 "/api/protos/UserXManagementService/RegisterUserX", HttpMethod.POST.name()),
             new AntPathRequestMatcher("/demos/**", HttpMethod.GET.name()),
@@ -6,6 +6,7 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 import org.davincischools.leo.database.daos.District;
 import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.database.utils.ReferenceDataCache.ReferenceData;
 import org.davincischools.leo.protos.district_management.AddDistrictRequest;
 import org.davincischools.leo.protos.district_management.DistrictInformationResponse;
 import org.davincischools.leo.protos.district_management.GetDistrictsRequest;
@@ -62,6 +63,7 @@ public class DistrictManagementService {
               if (request.hasDistrict()) {
                 District district =
                     db.getDistrictRepository().upsert(request.getDistrict().getName());
+                db.getReferenceDataCache().invalidate(ReferenceData.DISTRICTS);
                 return getAllDistricts(district.getId());
               }
 
@@ -86,6 +88,7 @@ public class DistrictManagementService {
         .andThen(
             (request, log) -> {
               db.getDistrictRepository().upsert(request.getDistrict().getName());
+              db.getReferenceDataCache().invalidate(ReferenceData.DISTRICTS);
               return getAllDistricts(-1);
             })
         .finish();
@@ -109,6 +112,8 @@ public class DistrictManagementService {
               checkArgument(request.hasDistrictId());
 
               db.getDistrictRepository().deleteById(request.getDistrictId());
+              db.getReferenceDataCache().invalidate(ReferenceData.DISTRICTS);
+              db.getReferenceDataCache().invalidate(ReferenceData.SCHOOLS);
 
               return getAllDistricts(-1);
             })
@@ -120,7 +125,7 @@ public class DistrictManagementService {
 
     response.setModifiedDistrictId(modifiedDistrictId);
     response.addAllDistricts(
-        db.getDistrictRepository().findAll().stream()
+        db.getReferenceDataCache().getDistricts().stream()
             .map(
                 district ->
                     org.davincischools.leo.protos.pl_types.District.newBuilder()
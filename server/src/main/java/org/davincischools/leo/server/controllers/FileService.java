@@ -1,8 +1,10 @@
 package org.davincischools.leo.server.controllers;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 import com.google.common.net.MediaType;
 import jakarta.servlet.ServletException;
@@ -13,22 +15,34 @@ import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Base64;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.davincischools.leo.database.daos.FileX;
+import org.davincischools.leo.database.daos.FileX.DerivativeSizeType;
 import org.davincischools.leo.database.utils.Database;
 import org.davincischools.leo.database.utils.repos.FileXRepository;
+import org.davincischools.leo.database.utils.repos.FileXRepository.FileXMetadata;
+import org.davincischools.leo.protos.task_service.CreateImageDerivativesTask;
+import org.davincischools.leo.server.utils.file_x.FileXContentStore;
+import org.davincischools.leo.server.utils.file_x.ImageDerivatives;
 import org.davincischools.leo.server.utils.http_user_x.Authenticated;
 import org.davincischools.leo.server.utils.http_user_x.HttpUserX;
+import org.davincischools.leo.server.utils.task_queue.workers.ImageDerivativesWorker;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.context.request.ServletWebRequest;
 
 @Controller
 public class FileService {
@@ -36,12 +50,25 @@ public class FileService {
   private static final String FILE_PART = "file";
   private static final String ID_FIELD = "id";
   private static final String KEY_FIELD = "key";
+  // Optional. One of thumbnail, medium, or large, for images.
+  private static final String SIZE_FIELD = "size";
   public static final int MAX_FILE_SIZE = 1024 * 1024 * 16 - 1; // 16 MB
 
   private static final SecureRandom random = new SecureRandom();
 
+  private static final CacheControl FILE_CACHE_CONTROL =
+      CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable();
+
+  // Media players request video in parts, e.g., to seek.
+  private static final ImmutableSet<MediaType> RANGE_MIME_TYPES =
+      ReactResourceController.EXTENSIONS_TO_MIME_TYPES.values().stream()
+          .filter(mediaType -> mediaType.type().equals("video"))
+          .collect(ImmutableSet.toImmutableSet());
+
   @Autowired Database db;
   @Autowired FileXRepository fileXRepository;
+  @Autowired FileXContentStore fileXContentStore;
+  @Autowired ImageDerivativesWorker imageDerivativesWorker;
 
   @GetMapping(value = "/api/FileService/GetFile")
   public void getFile(
@@ -55,20 +82,97 @@ public class FileService {
     int fileId = Integer.parseInt(request.getParameter(ID_FIELD));
     String fileKey = request.getParameter(KEY_FIELD);
 
-    FileX fileX = fileXRepository.findByIdWithUserX(fileId).orElse(null);
-    if (fileX == null) {
+    FileXMetadata metadata = fileXRepository.findMetadataById(fileId).orElse(null);
+    if (metadata == null) {
       response.setStatus(HttpServletResponse.SC_NOT_FOUND);
       return;
     }
-    if (!Objects.equals(fileX.getFileKey(), fileKey)) {
+    if (!Objects.equals(metadata.fileKey(), fileKey)) {
       response.setStatus(HttpServletResponse.SC_NOT_FOUND);
       return;
     }
 
-    response.setContentType(fileX.getMimeType());
-    response.setContentLength(fileX.getFileContent().length);
-    response.getOutputStream().write(fileX.getFileContent());
+    // The content behind a file URL never changes. So, it can be cached indefinitely.
+    CacheControl cacheControl = FILE_CACHE_CONTROL;
+
+    // Serve a resized copy of an image, if one was requested and has been created.
+    String size = request.getParameter(SIZE_FIELD);
+    if (size != null) {
+      DerivativeSizeType derivativeSize;
+      try {
+        derivativeSize = DerivativeSizeType.valueOf(size.toUpperCase());
+      } catch (IllegalArgumentException e) {
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        return;
+      }
+      var derivative = fileXRepository.findDerivativeMetadata(fileId, derivativeSize);
+      if (derivative.isPresent()) {
+        metadata = derivative.get();
+      } else {
+        // The copy may not have been created yet. So, check back for it.
+        cacheControl = CacheControl.noCache().cachePrivate();
+      }
+    }
+
+    // Content is only loaded if it has to be sent. Or, if it was stored before its hash was.
+    FileX fileX = null;
+    String contentHash = metadata.contentHash();
+    if (contentHash == null) {
+      fileX = fileXRepository.findById(metadata.id()).orElseThrow();
+      contentHash = FileXContentStore.getContentHash(checkNotNull(fileX.getFileContent()));
+      fileXRepository.setContentHash(metadata.id(), contentHash);
+    }
+    String eTag = "\"" + contentHash + "\"";
+
+    response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+    if (new ServletWebRequest(request, response)
+        .checkNotModified(eTag, metadata.creationTime().toEpochMilli())) {
+      return;
+    }
+
+    if (fileX == null) {
+      fileX = fileXRepository.findById(metadata.id()).orElseThrow();
+    }
+    long contentLength = fileXContentStore.getContentLength(fileX);
+    long start = 0;
+    long end = contentLength;
+
     response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(metadata.mimeType());
+    if (RANGE_MIME_TYPES.contains(MediaType.parse(metadata.mimeType()).withoutParameters())) {
+      response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+      // If the client's copy is stale, If-Range asks for the whole file instead.
+      String range = request.getHeader(HttpHeaders.RANGE);
+      String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+      if (range != null && (ifRange == null || ifRange.equals(eTag))) {
+        List<HttpRange> ranges;
+        try {
+          ranges = HttpRange.parseRanges(range);
+          if (ranges.size() == 1) {
+            start = ranges.get(0).getRangeStart(contentLength);
+            end = ranges.get(0).getRangeEnd(contentLength) + 1;
+            // E.g., a suffix range of an empty file, which has no bytes to send.
+            if (end <= start) {
+              throw new IllegalArgumentException("Empty range: " + range);
+            }
+          }
+        } catch (IllegalArgumentException e) {
+          response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+          response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + contentLength);
+          return;
+        }
+
+        // Multiple ranges are rare for media. So, they get the whole file, which is allowed.
+        if (ranges.size() == 1) {
+          response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+          response.setHeader(
+              HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + contentLength);
+        }
+      }
+    }
+
+    fileXContentStore.writeContent(fileX, start, end, request, response);
   }
 
   @PostMapping(value = "/api/FileService/PostFile")
@@ -116,14 +220,21 @@ public class FileService {
     fileKey = fileKey.replaceAll("[+/=]", "_");
 
     FileX fileX =
-        fileXRepository.save(
-            new FileX()
-                .setCreationTime(Instant.now())
-                .setUserX(userX.getUserXOrNull())
-                .setFileName(fileName)
-                .setMimeType(mediaType.toString())
-                .setFileContent(ByteStreams.toByteArray(filePart.getInputStream()))
-                .setFileKey(fileKey));
+        new FileX()
+            .setCreationTime(Instant.now())
+            .setUserX(userX.getUserXOrNull())
+            .setFileName(fileName)
+            .setMimeType(mediaType.toString())
+            .setFileKey(fileKey);
+    try (var content = filePart.getInputStream()) {
+      fileXContentStore.setContent(fileX, content);
+    }
+    fileX = fileXRepository.save(fileX);
+
+    if (ImageDerivatives.SOURCE_MIME_TYPES.contains(mediaType.withoutParameters())) {
+      imageDerivativesWorker.submitTask(
+          CreateImageDerivativesTask.newBuilder().setFileXId(fileX.getId()).build());
+    }
 
     String fileUrl =
         ImmutableMap.<String, String>builder()
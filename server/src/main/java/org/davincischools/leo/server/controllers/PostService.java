@@ -18,6 +18,7 @@ import org.davincischools.leo.database.daos.ProjectPostRating;
 import org.davincischools.leo.database.daos.UserX;
 import org.davincischools.leo.database.utils.DaoUtils;
 import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.database.utils.query_helper.CursorPage;
 import org.davincischools.leo.database.utils.repos.GetProjectPostsParams;
 import org.davincischools.leo.database.utils.repos.GetProjectsParams;
 import org.davincischools.leo.database.utils.repos.ProjectPostCommentRepository.FullProjectPostComment;
@@ -113,16 +114,28 @@ public class PostService {
                               .setBeingEdited(
                                   valueOrNull(
                                       request, GetProjectPostsRequest.BEING_EDITED_FIELD_NUMBER))
+                              .setSearchText(
+                                  valueOrNull(
+                                      request, GetProjectPostsRequest.SEARCH_TEXT_FIELD_NUMBER))
                               .setPage(
                                   valueOrNull(request, GetProjectPostsRequest.PAGE_FIELD_NUMBER))
                               .setPageSize(
                                   valueOrNull(
-                                      request, GetProjectPostsRequest.PAGE_SIZE_FIELD_NUMBER)));
+                                      request, GetProjectPostsRequest.PAGE_SIZE_FIELD_NUMBER))
+                              .setCursor(
+                                  valueOrNull(request, GetProjectPostsRequest.CURSOR_FIELD_NUMBER))
+                              .setSkipTotal(
+                                  valueOrNull(
+                                      request, GetProjectPostsRequest.SKIP_TOTAL_FIELD_NUMBER)));
               projectPosts.forEach(
                   fullProjectPost ->
                       toProjectPostProto(fullProjectPost, true, response::addProjectPostsBuilder));
 
-              if (request.hasPage()) {
+              if (projectPosts instanceof CursorPage<?> cursorPage) {
+                response.setPageSize(projectPosts.getSize());
+                cursorPage.getNextCursor().ifPresent(response::setNextCursor);
+                cursorPage.getTotal().ifPresent(response::setTotalProjectPosts);
+              } else if (request.hasPage()) {
                 response
                     .setPage(request.getPage())
                     .setPageSize(request.getPageSize())
@@ -28,6 +28,8 @@ import org.davincischools.leo.database.daos.ProjectInput.StateType;
 import org.davincischools.leo.database.daos.UserX;
 import org.davincischools.leo.database.utils.DaoUtils;
 import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.database.utils.ReferenceDataCache.ReferenceData;
+import org.davincischools.leo.database.utils.query_helper.CursorPage;
 import org.davincischools.leo.database.utils.repos.GetAssignmentsParams;
 import org.davincischools.leo.database.utils.repos.GetProjectDefinitionsParams;
 import org.davincischools.leo.database.utils.repos.GetProjectInputsParams;
@@ -59,13 +61,19 @@ import org.davincischools.leo.server.utils.http_user_x.Authenticated;
 import org.davincischools.leo.server.utils.http_user_x.HttpUserX;
 import org.davincischools.leo.server.utils.task_queue.workers.GenerateDerivedProjectsWorker;
 import org.davincischools.leo.server.utils.task_queue.workers.ProjectGeneratorWorker;
+import org.davincischools.leo.server.utils.task_queue.workers.project_generators.ProjectGenerationProgress;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Controller
 public class ProjectManagementService {
@@ -75,6 +83,7 @@ public class ProjectManagementService {
   @Autowired Database db;
   @Autowired ProjectGeneratorWorker projectGeneratorWorker;
   @Autowired GenerateDerivedProjectsWorker derivedProjectsGeneratorWorker;
+  @Autowired ProjectGenerationProgress projectGenerationProgress;
 
   @PostMapping(value = "/api/protos/ProjectManagementService/GetKnowledgeAndSkills")
   @ResponseBody
@@ -94,8 +103,8 @@ public class ProjectManagementService {
         .andThen(
             (request, log) -> {
               db
-                  .getKnowledgeAndSkillRepository()
-                  .findAllByTypes(
+                  .getReferenceDataCache()
+                  .getKnowledgeAndSkills(
                       request.getTypesList().stream().map(Enum::name).map(Type::valueOf).toList(),
                       userX.isAdminX() ? null : userX.getUserXIdOrNull())
                   .stream()
@@ -144,6 +153,7 @@ public class ProjectManagementService {
                       userX.isAdminX() ? null : userX.getUserXIdOrNull())
                   .ifPresent(
                       ks -> {
+                        db.getReferenceDataCache().invalidate(ReferenceData.KNOWLEDGE_AND_SKILLS);
                         toKnowledgeAndSkillProto(ks, response::getKnowledgeAndSkillBuilder);
                       });
 
@@ -271,8 +281,8 @@ public class ProjectManagementService {
 
     // Save the daos.
     removeTransientValues(projectInputDao, db.getProjectInputRepository()::save);
-    removeTransientValues(
-        projectInputDao.getProjectInputValues(), db.getProjectInputValueRepository()::saveAll);
+    db.getBulkInserter()
+        .saveAll(db.getProjectInputValueRepository(), projectInputDao.getProjectInputValues());
 
     // Copy the ids back into the proto.
     definition.setInputId(projectInputDao.getId());
@@ -303,37 +313,59 @@ public class ProjectManagementService {
 
               var response = GetProjectsResponse.newBuilder();
 
-              db.getProjectRepository()
-                  .getProjects(
-                      new GetProjectsParams()
-                          .setUserXIds(
-                              listOrNull(request, GetProjectsRequest.USER_X_IDS_FIELD_NUMBER))
-                          .setProjectIds(
-                              listOrNull(request, GetProjectsRequest.PROJECT_IDS_FIELD_NUMBER))
-                          .setIncludeInactive(
-                              valueOrNull(
-                                  request, GetProjectsRequest.INCLUDE_INACTIVE_FIELD_NUMBER))
-                          .setIncludeTags(
-                              valueOrNull(request, GetProjectsRequest.INCLUDE_TAGS_FIELD_NUMBER))
-                          .setIncludeInputs(
-                              request.getIncludeInputs()
-                                  ? new GetProjectInputsParams()
-                                      .setIncludeProcessing(true)
-                                      .setIncludeComplete(true)
-                                      .setIncludeAssignment(
-                                          request.getIncludeAssignment()
-                                              ? new GetAssignmentsParams()
-                                              : null)
-                                  : null)
-                          .setIncludeFulfillments(
-                              valueOrNull(
-                                  request, GetProjectsRequest.INCLUDE_FULFILLMENTS_FIELD_NUMBER))
-                          .setIncludeAssignment(
-                              request.getIncludeAssignment() ? new GetAssignmentsParams() : null)
-                          .setIncludeMilestones(
-                              valueOrNull(
-                                  request, GetProjectsRequest.INCLUDE_MILESTONES_FIELD_NUMBER)))
-                  .forEach(project -> toProjectProto(project, true, response::addProjectsBuilder));
+              Page<Project> projects =
+                  db.getProjectRepository()
+                      .getProjects(
+                          new GetProjectsParams()
+                              .setUserXIds(
+                                  listOrNull(request, GetProjectsRequest.USER_X_IDS_FIELD_NUMBER))
+                              .setProjectIds(
+                                  listOrNull(request, GetProjectsRequest.PROJECT_IDS_FIELD_NUMBER))
+                              .setIncludeInactive(
+                                  valueOrNull(
+                                      request, GetProjectsRequest.INCLUDE_INACTIVE_FIELD_NUMBER))
+                              .setIncludeTags(
+                                  valueOrNull(
+                                      request, GetProjectsRequest.INCLUDE_TAGS_FIELD_NUMBER))
+                              .setIncludeInputs(
+                                  request.getIncludeInputs()
+                                      ? new GetProjectInputsParams()
+                                          .setIncludeProcessing(true)
+                                          .setIncludeComplete(true)
+                                          .setIncludeAssignment(
+                                              request.getIncludeAssignment()
+                                                  ? new GetAssignmentsParams()
+                                                  : null)
+                                      : null)
+                              .setIncludeFulfillments(
+                                  valueOrNull(
+                                      request,
+                                      GetProjectsRequest.INCLUDE_FULFILLMENTS_FIELD_NUMBER))
+                              .setIncludeAssignment(
+                                  request.getIncludeAssignment()
+                                      ? new GetAssignmentsParams()
+                                      : null)
+                              .setIncludeMilestones(
+                                  valueOrNull(
+                                      request, GetProjectsRequest.INCLUDE_MILESTONES_FIELD_NUMBER))
+                              .setSearchText(
+                                  valueOrNull(request, GetProjectsRequest.SEARCH_TEXT_FIELD_NUMBER))
+                              .setPage(valueOrNull(request, GetProjectsRequest.PAGE_FIELD_NUMBER))
+                              .setPageSize(
+                                  valueOrNull(request, GetProjectsRequest.PAGE_SIZE_FIELD_NUMBER))
+                              .setCursor(
+                                  valueOrNull(request, GetProjectsRequest.CURSOR_FIELD_NUMBER))
+                              .setSkipTotal(
+                                  valueOrNull(
+                                      request, GetProjectsRequest.SKIP_TOTAL_FIELD_NUMBER)));
+              projects.forEach(
+                  project -> toProjectProto(project, true, response::addProjectsBuilder));
+              if (projects instanceof CursorPage<?> cursorPage) {
+                cursorPage.getNextCursor().ifPresent(response::setNextCursor);
+                cursorPage.getTotal().ifPresent(response::setTotalProjects);
+              } else if (request.hasPage()) {
+                response.setTotalProjects(projects.getTotalElements());
+              }
               if (request.getIncludeInputOptions()) {
                 addProjectInputCategoryOptions(
                     db,
@@ -404,6 +436,50 @@ public class ProjectManagementService {
         .finish();
   }
 
+  @GetMapping(
+      value = "/api/sse/ProjectManagementService/ProjectGenerationProgress",
+      produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  @ResponseBody
+  public SseEmitter getProjectGenerationProgress(
+      @Anonymous HttpUserX userX,
+      @RequestParam("projectInputId") int projectInputId,
+      HttpExecutors httpExecutors)
+      throws HttpExecutorException {
+    //
+    // NOTE: This needs to work for anonymous users who use the Try It Out! pathway.
+    //
+
+    return httpExecutors
+        .start(projectInputId)
+        .andThen(
+            (id, log) -> {
+              ProjectInput projectInput = db.getProjectInputRepository().findById(id).orElse(null);
+              if (projectInput == null) {
+                return userX.<SseEmitter>returnNotFound(null);
+              }
+              Optional<Object> ownerId = DaoUtils.getId(projectInput.getUserX());
+              if (ownerId.isPresent()
+                  && !ownerId.get().equals(userX.getUserXIdOrNull())
+                  && !userX.isAdminX()
+                  && !userX.isTeacher()) {
+                return userX.<SseEmitter>returnForbidden(null);
+              }
+
+              // Check the state after subscribing, so that the end of generation can't be missed.
+              SseEmitter emitter = projectGenerationProgress.subscribe(id);
+              StateType state =
+                  db.getProjectInputRepository()
+                      .findById(id)
+                      .map(ProjectInput::getState)
+                      .orElse(StateType.FAILED);
+              if (state != StateType.PROCESSING) {
+                ProjectGenerationProgress.sendState(emitter, state);
+              }
+              return emitter;
+            })
+        .finish();
+  }
+
   @PostMapping(value = "/api/protos/ProjectManagementService/UpdateProject")
   @ResponseBody
   public UpdateProjectResponse updateProject(
@@ -479,8 +555,8 @@ public class ProjectManagementService {
                   GetProjectDefinitionCategoryTypesResponse.newBuilder();
 
               db
-                  .getProjectDefinitionCategoryTypeRepository()
-                  .findAllByCategories(request.getIncludeDemos())
+                  .getReferenceDataCache()
+                  .getProjectDefinitionCategoryTypes(request.getIncludeDemos())
                   .stream()
                   .map(
                       categoryType ->
@@ -5,22 +5,20 @@ import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.Multimaps;
-import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 import com.google.common.net.MediaType;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URI;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.stream.Stream;
-import org.davincischools.leo.database.utils.Database;
 import org.davincischools.leo.server.utils.HttpServletProxy;
+import org.davincischools.leo.server.utils.StaticResourceIndex;
+import org.davincischools.leo.server.utils.StaticResourceIndex.StaticResource;
 import org.davincischools.leo.server.utils.URIBuilder;
-import org.davincischools.leo.server.utils.http_executor.HttpExecutors;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -31,7 +29,8 @@ import org.springframework.web.bind.annotation.RestController;
  *
  * <p>In addition to building the React server as part of the Maven configuration, the built files
  * are copied into <code>/target/classes/.../www</code>. This places the built content in the <code>
- * *.jar</code> and makes it available via <code>ClassLoader.getSystemResourceAsStream</code>.
+ * *.jar</code> and makes it available on the classpath. It's all loaded into a {@link
+ * StaticResourceIndex} at startup and served from memory.
  */
 @RestController
 public class ReactResourceController {
@@ -92,7 +91,20 @@ public class ReactResourceController {
                       MultimapBuilder.hashKeys().linkedHashSetValues()::build))
               .entries());
 
-  @Autowired private Database db;
+  // Built at startup, unless requests are forwarded to a React server.
+  private StaticResourceIndex staticResourceIndex;
+
+  @PostConstruct
+  public void loadStaticResources() throws IOException {
+    if (reactPort <= 0) {
+      staticResourceIndex =
+          StaticResourceIndex.load(
+              ClassLoader.getSystemClassLoader(),
+              "org/davincischools/leo/server/www",
+              "/index.html",
+              EXTENSIONS_TO_MIME_TYPES);
+    }
+  }
 
   @RequestMapping({
     // This needs to be kept in sync with ServerApplication.SecurityConfigurer.
@@ -122,45 +134,23 @@ public class ReactResourceController {
     "/main.*.hot-update.js.map",
     "/main.*.hot-update.json"
   })
-  public void getResource(
-      HttpServletRequest originalRequest, HttpServletResponse response, HttpExecutors httpExecutors)
+  public void getResource(HttpServletRequest request, HttpServletResponse response)
       throws IOException {
-    httpExecutors
-        .start(originalRequest)
-        .setOnlyLogOnFailure(true)
-        .andThen(
-            (request, log) -> {
-              URI uri = getUri(request);
-              Optional<MediaType> mediaType = getResponseMimeType(uri);
-              if (reactPort > 0) {
-                // Forward the request to the React server running locally.
-                HttpServletProxy.sendExternalRequest(uri, reactPort, mediaType, request, response);
-              } else {
-                // Get and copy a resource from the classpath.
-                mediaType.map(Object::toString).ifPresent(response::setContentType);
-                try (InputStream in = getSystemResourceAsStreamOrIndex(uri)) {
-                  if (in == null) {
-                    response.sendError(HttpServletResponse.SC_NOT_FOUND, uri.getPath());
-                    throw new IOException("Resource not found: " + uri.getPath());
-                  }
-                  ByteStreams.copy(in, response.getOutputStream());
-                  response.getOutputStream().flush();
-                  response.getOutputStream().close();
-                }
-              }
-
-              return response;
-            })
-        .finish();
-  }
+    URI uri = getUri(request);
+    if (reactPort > 0) {
+      // Forward the request to the React server running locally.
+      HttpServletProxy.sendExternalRequest(
+          uri, reactPort, getResponseMimeType(uri), request, response);
+      return;
+    }
 
-  private InputStream getSystemResourceAsStreamOrIndex(URI uri) {
-    InputStream in =
-        ClassLoader.getSystemResourceAsStream("org/davincischools/leo/server/www" + uri.getPath());
-    if (in != null) {
-      return in;
+    // This is on the hot path. So, it's served from memory, without a user, log, or database.
+    StaticResource resource = staticResourceIndex.getResourceOrIndex(uri.getPath()).orElse(null);
+    if (resource == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND, uri.getPath());
+      return;
     }
-    return ClassLoader.getSystemResourceAsStream("org/davincischools/leo/server/www/index.html");
+    StaticResourceIndex.writeResource(resource, request, response);
   }
 
   private static URI getUri(HttpServletRequest request) throws IOException {
@@ -6,6 +6,7 @@ import java.time.Instant;
 import java.util.Optional;
 import org.davincischools.leo.database.daos.School;
 import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.database.utils.ReferenceDataCache.ReferenceData;
 import org.davincischools.leo.protos.school_management.GetSchoolsRequest;
 import org.davincischools.leo.protos.school_management.RemoveSchoolRequest;
 import org.davincischools.leo.protos.school_management.SchoolInformationResponse;
@@ -72,6 +73,7 @@ public class SchoolManagementService {
                       .setName(request.getSchool().getName())
                       .setAddress(request.getSchool().getAddress());
               db.getSchoolRepository().save(school);
+              db.getReferenceDataCache().invalidate(ReferenceData.SCHOOLS);
 
               return getAllSchools(school.getDistrict().getId(), school.getId());
             })
@@ -94,6 +96,7 @@ public class SchoolManagementService {
         .andThen(
             (request, log) -> {
               db.getSchoolRepository().deleteById(request.getSchoolId());
+              db.getReferenceDataCache().invalidate(ReferenceData.SCHOOLS);
               return getAllSchools(request.getDistrictId(), -1);
             })
         .finish();
@@ -103,7 +106,7 @@ public class SchoolManagementService {
     SchoolInformationResponse.Builder response = SchoolInformationResponse.newBuilder();
     response.setDistrictId(districtId);
     response.setNextSchoolId(nextSchoolId);
-    db.getSchoolRepository().findAllByDistrictId(districtId).stream()
+    db.getReferenceDataCache().getSchools(districtId).stream()
         .forEach(s -> toSchoolProto(s, response::addSchoolsBuilder));
     return response.build();
   }
@@ -23,6 +23,7 @@ import org.davincischools.leo.database.daos.UserX;
 import org.davincischools.leo.database.utils.DaoUtils;
 import org.davincischools.leo.database.utils.Database;
 import org.davincischools.leo.database.utils.UserXUtils;
+import org.davincischools.leo.database.utils.query_helper.CursorPage;
 import org.davincischools.leo.database.utils.repos.GetClassXsParams;
 import org.davincischools.leo.database.utils.repos.GetUserXsParams;
 import org.davincischools.leo.protos.user_x_management.GetUserXsRequest;
@@ -38,6 +39,7 @@ import org.davincischools.leo.server.utils.http_executor.HttpExecutorException;
 import org.davincischools.leo.server.utils.http_executor.HttpExecutors;
 import org.davincischools.leo.server.utils.http_user_x.AdminX;
 import org.davincischools.leo.server.utils.http_user_x.Authenticated;
+import org.davincischools.leo.server.utils.http_user_x.AuthenticatedUserXCache;
 import org.davincischools.leo.server.utils.http_user_x.HttpUserX;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -56,6 +58,7 @@ public class UserXManagementService {
 
   @Autowired Database db;
   @Autowired EntityManager entityManager;
+  @Autowired AuthenticatedUserXCache userXCache;
 
   @PostMapping(value = "/api/protos/UserXManagementService/UpsertUserX")
   @ResponseBody
@@ -239,6 +242,7 @@ public class UserXManagementService {
 
               // Save the updated user.
               DaoUtils.removeTransientValues(newUserX, db.getUserXRepository()::save);
+              userXCache.invalidate(newUserX.getId());
 
               // Remove dropped permissions.
               if (oldUserX != null) {
@@ -322,6 +326,7 @@ public class UserXManagementService {
                 }
 
                 db.getUserXRepository().delete(existingUserX);
+                userXCache.invalidate(existingUserX.getId());
               }
 
               return RemoveUserXResponse.getDefaultInstance();
@@ -501,9 +506,17 @@ public class UserXManagementService {
                                       GetUserXsRequest.FIRST_LAST_EMAIL_SEARCH_TEXT_FIELD_NUMBER))
                               .setPage(valueOrNull(request, GetUserXsRequest.PAGE_FIELD_NUMBER))
                               .setPageSize(
-                                  valueOrNull(request, GetUserXsRequest.PAGE_SIZE_FIELD_NUMBER)));
+                                  valueOrNull(request, GetUserXsRequest.PAGE_SIZE_FIELD_NUMBER))
+                              .setCursor(valueOrNull(request, GetUserXsRequest.CURSOR_FIELD_NUMBER))
+                              .setSkipTotal(
+                                  valueOrNull(request, GetUserXsRequest.SKIP_TOTAL_FIELD_NUMBER)));
               userXs.forEach(e -> toFullUserXDetailsProto(e, response::addUserXsBuilder));
-              response.setTotalUserXs(userXs.getTotalElements());
+              if (userXs instanceof CursorPage<?> cursorPage) {
+                cursorPage.getNextCursor().ifPresent(response::setNextCursor);
+                cursorPage.getTotal().ifPresent(response::setTotalUserXs);
+              } else {
+                response.setTotalUserXs(userXs.getTotalElements());
+              }
 
               return response.build();
             })
@@ -0,0 +1,134 @@
+package org.davincischools.leo.server.utils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.davincischools.leo.database.utils.MetricUtils;
+
+/**
+ * Limits the number of concurrent calls to an external service, e.g., to stay within its quota.
+ * This is separate from the number of threads making the calls. Callers beyond the limit wait, and
+ * can be interrupted while they do.
+ *
+ * <p>Work that mostly waits on the service, e.g., task queues, should run on {@link
+ * #getExecutor()}. Then, the number of calls in flight is set by the limit rather than by the
+ * callers' own pools.
+ */
+public final class ConcurrencyLimiter {
+
+  @FunctionalInterface
+  public interface Call<T, E extends Throwable> {
+    T call() throws E;
+  }
+
+  private final String name;
+  private final int maxConcurrentCalls;
+  @Nullable private final Semaphore semaphore;
+  private final ExecutorService executor;
+  private final AtomicInteger waitingCalls = new AtomicInteger();
+  private final AtomicInteger activeCalls = new AtomicInteger();
+
+  /** A limit of 0 allows any number of concurrent calls. */
+  public ConcurrencyLimiter(String name, int maxConcurrentCalls) {
+    checkNotNull(name);
+    checkArgument(maxConcurrentCalls >= 0, "%s limit must not be negative.", name);
+
+    this.name = name;
+    this.maxConcurrentCalls = maxConcurrentCalls;
+    this.semaphore = maxConcurrentCalls > 0 ? new Semaphore(maxConcurrentCalls, true) : null;
+
+    // Threads are created as needed, up to the limit, and exit after being idle for a minute. Work
+    // beyond the limit is queued without a thread.
+    ThreadFactory threadFactory =
+        new ThreadFactoryBuilder().setNameFormat(name + "Thread-%d").setDaemon(true).build();
+    if (maxConcurrentCalls > 0) {
+      var threadPool =
+          new ThreadPoolExecutor(
+              maxConcurrentCalls,
+              maxConcurrentCalls,
+              1,
+              TimeUnit.MINUTES,
+              new LinkedBlockingQueue<>(),
+              threadFactory);
+      threadPool.allowCoreThreadTimeOut(true);
+      this.executor = threadPool;
+    } else {
+      this.executor = Executors.newCachedThreadPool(threadFactory);
+    }
+
+    Gauge.builder("leo.concurrency_limiter.waiting_calls", waitingCalls, AtomicInteger::get)
+        .description("Calls waiting for the limiter.")
+        .tag("name", name)
+        .register(Metrics.globalRegistry);
+    Gauge.builder("leo.concurrency_limiter.active_calls", activeCalls, AtomicInteger::get)
+        .description("Calls in progress through the limiter.")
+        .tag("name", name)
+        .register(Metrics.globalRegistry);
+  }
+
+  public <T, E extends Throwable> T call(Call<T, E> call) throws E, InterruptedException {
+    checkNotNull(call);
+
+    if (semaphore != null) {
+      long startNanos = System.nanoTime();
+      waitingCalls.incrementAndGet();
+      try {
+        semaphore.acquire();
+      } finally {
+        waitingCalls.decrementAndGet();
+        MetricUtils.recordSince(
+            startNanos,
+            "leo.concurrency_limiter.wait",
+            "The time that calls wait for the limiter.",
+            "name",
+            name);
+      }
+    }
+    activeCalls.incrementAndGet();
+    try {
+      return call.call();
+    } finally {
+      activeCalls.decrementAndGet();
+      if (semaphore != null) {
+        semaphore.release();
+      }
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** 0 if there is no limit. */
+  public int getMaxConcurrentCalls() {
+    return maxConcurrentCalls;
+  }
+
+  /**
+   * Runs work that makes calls through this limiter. It has a thread for each call allowed at once.
+   * Don't shut it down.
+   */
+  public ExecutorService getExecutor() {
+    return executor;
+  }
+
+  public int getWaitingCalls() {
+    return waitingCalls.get();
+  }
+
+  public int getActiveCalls() {
+    return activeCalls.get();
+  }
+}
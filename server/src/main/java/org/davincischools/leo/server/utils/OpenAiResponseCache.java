@@ -0,0 +1,158 @@
+package org.davincischools.leo.server.utils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.theokanning.openai.completion.chat.ChatCompletionRequest;
+import com.theokanning.openai.completion.chat.ChatCompletionResult;
+import com.theokanning.openai.completion.chat.ChatFunction;
+import com.theokanning.openai.completion.chat.ChatFunctionCall;
+import com.theokanning.openai.service.ChatCompletionRequestMixIn;
+import com.theokanning.openai.service.ChatFunctionCallMixIn;
+import com.theokanning.openai.service.ChatFunctionMixIn;
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.davincischools.leo.database.utils.repos.OpenAiCacheRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches OpenAI chat completions by a hash of their request, so that an identical request, e.g.,
+ * for the same "Try It Out" categories, returns in milliseconds rather than minutes.
+ *
+ * <p>Recently used responses are kept in memory, in front of the open_ai_cache table, which is
+ * shared by all servers. Callers should only {@link #put} a response once they've successfully used
+ * it. Otherwise, a bad response would be returned until it expires.
+ */
+@Component
+public class OpenAiResponseCache {
+
+  public static final String ENABLED_PROP_NAME = "openai.cache.enabled";
+  public static final String TTL_MS_PROP_NAME = "openai.cache.ttl_ms";
+  public static final String MAX_MEMORY_ENTRIES_PROP_NAME = "openai.cache.max_memory_entries";
+
+  private static final Logger logger = LogManager.getLogger();
+
+  // Configured like OpenAiService.defaultObjectMapper(), which can't be changed once it's built.
+  // Properties and map entries are also sorted, so that equal requests always have equal JSON.
+  @VisibleForTesting
+  static final ObjectMapper CANONICAL_MAPPER =
+      JsonMapper.builder()
+          .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+          .serializationInclusion(JsonInclude.Include.NON_NULL)
+          .propertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+          .addMixIn(ChatFunction.class, ChatFunctionMixIn.class)
+          .addMixIn(ChatCompletionRequest.class, ChatCompletionRequestMixIn.class)
+          .addMixIn(ChatFunctionCall.class, ChatFunctionCallMixIn.class)
+          .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+          .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+          .build();
+
+  private final OpenAiCacheRepository openAiCacheRepository;
+  private final boolean enabled;
+  private final Duration ttl;
+  private final Cache<String, CachedResponse> memoryCache;
+
+  // The memory cache expires entries a TTL after they're loaded. So, each one also keeps when its
+  // row expires.
+  private record CachedResponse(String response, Instant expiresAt) {}
+
+  public OpenAiResponseCache(
+      @Autowired OpenAiCacheRepository openAiCacheRepository,
+      @Value("${" + ENABLED_PROP_NAME + ":true}") boolean enabled,
+      @Value("${" + TTL_MS_PROP_NAME + ":2592000000}") long ttlMs,
+      @Value("${" + MAX_MEMORY_ENTRIES_PROP_NAME + ":1000}") int maxMemoryEntries) {
+    checkArgument(ttlMs > 0, "%s must be positive.", TTL_MS_PROP_NAME);
+    checkArgument(maxMemoryEntries >= 0, "%s must not be negative.", MAX_MEMORY_ENTRIES_PROP_NAME);
+
+    this.openAiCacheRepository = checkNotNull(openAiCacheRepository);
+    this.enabled = enabled;
+    this.ttl = Duration.ofMillis(ttlMs);
+    this.memoryCache =
+        CacheBuilder.newBuilder().maximumSize(maxMemoryEntries).expireAfterWrite(ttl).build();
+  }
+
+  @PostConstruct
+  public void deleteExpiredResponses() {
+    if (!enabled) {
+      return;
+    }
+    try {
+      logger.atInfo().log(
+          "Deleted {} expired OpenAI responses.", openAiCacheRepository.deleteExpired());
+    } catch (RuntimeException e) {
+      logger.atWarn().withThrowable(e).log("Unable to delete expired OpenAI responses.");
+    }
+  }
+
+  /** Returns the cached response, unless the cache is disabled or bypassed. */
+  public Optional<ChatCompletionResult> get(ChatCompletionRequest request, boolean bypassCache)
+      throws JsonProcessingException {
+    checkNotNull(request);
+
+    if (!enabled || bypassCache) {
+      return Optional.empty();
+    }
+
+    String requestHash = getRequestHash(request);
+    CachedResponse cached = memoryCache.getIfPresent(requestHash);
+    if (cached != null && !Instant.now().isBefore(cached.expiresAt())) {
+      memoryCache.invalidate(requestHash);
+      cached = null;
+    }
+    if (cached == null) {
+      var row = openAiCacheRepository.findUnexpired(requestHash).orElse(null);
+      if (row == null) {
+        return Optional.empty();
+      }
+      cached = new CachedResponse(row.getResponse(), row.getExpiresAt());
+      memoryCache.put(requestHash, cached);
+    }
+    logger.atDebug().log("Using cached OpenAI response for request {}.", requestHash);
+    return Optional.of(CANONICAL_MAPPER.readValue(cached.response(), ChatCompletionResult.class));
+  }
+
+  /** Caches a response that was used successfully. Replaces any response that was bypassed. */
+  public void put(ChatCompletionRequest request, ChatCompletionResult response)
+      throws JsonProcessingException {
+    checkNotNull(request);
+    checkNotNull(response);
+
+    if (!enabled) {
+      return;
+    }
+
+    String requestHash = getRequestHash(request);
+    String responseJson = CANONICAL_MAPPER.writeValueAsString(response);
+    openAiCacheRepository.putResponse(requestHash, responseJson, ttl.toSeconds());
+    memoryCache.put(requestHash, new CachedResponse(responseJson, Instant.now().plus(ttl)));
+  }
+
+  /** The hash of everything that affects the response: the model, messages, functions, etc. */
+  public static String getRequestHash(ChatCompletionRequest request)
+      throws JsonProcessingException {
+    checkNotNull(request);
+
+    return Hashing.sha256()
+        .hashString(CANONICAL_MAPPER.writeValueAsString(request), StandardCharsets.UTF_8)
+        .toString();
+  }
+}
@@ -1,6 +1,16 @@
 package org.davincischools.leo.server.utils;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
 import com.fasterxml.jackson.datatype.jdk8.WrappedIOException;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Bytes;
 import com.google.gson.Gson;
@@ -9,17 +19,26 @@ import com.google.protobuf.GeneratedMessageV3.Builder;
 import com.google.protobuf.Message;
 import com.google.protobuf.TextFormat;
 import com.google.protobuf.util.JsonFormat;
+import com.theokanning.openai.client.OpenAiApi;
 import com.theokanning.openai.completion.chat.ChatCompletionChoice;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest;
 import com.theokanning.openai.completion.chat.ChatCompletionResult;
+import com.theokanning.openai.completion.chat.ChatFunctionCall;
 import com.theokanning.openai.completion.chat.ChatMessage;
+import com.theokanning.openai.completion.chat.ChatMessageRole;
+import com.theokanning.openai.service.OpenAiService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Metrics;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
@@ -27,9 +46,21 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+import okhttp3.Response;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.davincischools.leo.database.utils.MetricUtils;
 import org.davincischools.leo.server.utils.http_executor.HttpExecutors;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
@@ -39,13 +70,16 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Component
 public class OpenAiUtils {
 
   private static final Logger logger = LogManager.getLogger();
   private static final Gson gson = new GsonBuilder().setLenient().setPrettyPrinting().create();
+  private static final ObjectMapper STREAM_MAPPER = new ObjectMapper();
 
   public static final String OPENAI_API_KEY_PROP_NAME = "openai.api.key";
   public static final String OPENAI_URL_PROP_NAME = "openai.url";
@@ -57,22 +91,285 @@ public class OpenAiUtils {
   public static final String GPT_4_32K_MODEL = "gpt-4-32k";
   public static final String CURRENT_GPT_MODEL = GPT_3_5_TURBO_16K_MODEL;
 
-  public static final int TIMEOUT_MIN = 15;
+  public static final String OPENAI_MAX_CONCURRENT_REQUESTS_PROP_NAME =
+      "openai.max_concurrent_requests";
+
+  public static final String OPENAI_HTTP_MAX_CONNECTIONS_PROP_NAME = "openai.http.max_connections";
+  public static final String OPENAI_HTTP_KEEP_ALIVE_MS_PROP_NAME = "openai.http.keep_alive_ms";
+  public static final String OPENAI_HTTP_CONNECT_TIMEOUT_MS_PROP_NAME =
+      "openai.http.connect_timeout_ms";
+  public static final String OPENAI_HTTP_READ_TIMEOUT_MS_PROP_NAME = "openai.http.read_timeout_ms";
 
   private final String openAiKey;
   private final String openAiUrl;
+  private final ConcurrencyLimiter requestLimiter;
+  private final OpenAiResponseCache responseCache;
+
+  // Shared by all requests, so that connections are pooled and kept alive between them.
+  private final Supplier<OpenAiApi> openAiApi;
+  private final Supplier<OpenAiService> openAiService;
+  private final ConnectionProvider connectionProvider;
+  private final HttpClient httpClient;
+  private final WebClient webClient;
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong newConnections = new AtomicLong();
 
-  private OpenAiUtils(
+  OpenAiUtils(
+      @Autowired OpenAiResponseCache responseCache,
       @Value("${" + OPENAI_API_KEY_PROP_NAME + ":}") String openAiKey,
-      @Value("${" + OPENAI_URL_PROP_NAME + ":}") String openAiUrl) {
+      @Value("${" + OPENAI_URL_PROP_NAME + ":}") String openAiUrl,
+      @Value("${" + OPENAI_MAX_CONCURRENT_REQUESTS_PROP_NAME + ":30}") int maxConcurrentRequests,
+      @Value("${" + OPENAI_HTTP_MAX_CONNECTIONS_PROP_NAME + ":30}") int maxConnections,
+      @Value("${" + OPENAI_HTTP_KEEP_ALIVE_MS_PROP_NAME + ":300000}") long keepAliveMs,
+      @Value("${" + OPENAI_HTTP_CONNECT_TIMEOUT_MS_PROP_NAME + ":60000}") long connectTimeoutMs,
+      @Value("${" + OPENAI_HTTP_READ_TIMEOUT_MS_PROP_NAME + ":1200000}") long readTimeoutMs) {
     this.openAiKey = openAiKey;
     this.openAiUrl = openAiUrl;
+    this.requestLimiter = new ConcurrencyLimiter("OpenAI", maxConcurrentRequests);
+    this.responseCache = responseCache;
+
+    Duration keepAlive = Duration.ofMillis(keepAliveMs);
+    Duration connectTimeout = Duration.ofMillis(connectTimeoutMs);
+    Duration readTimeout = Duration.ofMillis(readTimeoutMs);
+    this.openAiApi =
+        Suppliers.memoize(
+            () -> createOpenAiApi(maxConnections, keepAlive, connectTimeout, readTimeout));
+    this.openAiService = Suppliers.memoize(() -> new OpenAiService(openAiApi.get()));
+    this.connectionProvider =
+        ConnectionProvider.builder(getClass().getSimpleName())
+            .maxConnections(maxConnections)
+            .maxIdleTime(keepAlive)
+            .build();
+    this.httpClient = createHttpClient(connectionProvider, connectTimeout, readTimeout);
+    this.webClient = createWebClient(httpClient);
+
+    FunctionCounter.builder("leo.openai.requests", requests, AtomicLong::get)
+        .description("Requests sent to OpenAI.")
+        .register(Metrics.globalRegistry);
+    FunctionCounter.builder("leo.openai.new_connections", newConnections, AtomicLong::get)
+        .description("Connections opened to OpenAI. The rest of the requests reused one.")
+        .register(Metrics.globalRegistry);
   }
 
   public Optional<String> getOpenAiKey() {
     return openAiKey.isEmpty() ? Optional.empty() : Optional.of(openAiKey);
   }
 
+  /**
+   * Returns the OpenAI client shared by all callers. Don't shut down its executor. Throws if there
+   * is no OpenAI key.
+   */
+  public OpenAiService getOpenAiService() {
+    return openAiService.get();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    connectionProvider.dispose();
+  }
+
+  @VisibleForTesting
+  ConnectionProvider getConnectionProvider() {
+    return connectionProvider;
+  }
+
+  @VisibleForTesting
+  HttpClient getHttpClient() {
+    return httpClient;
+  }
+
+  @VisibleForTesting
+  WebClient getWebClient() {
+    return webClient;
+  }
+
+  /** All calls to OpenAI should go through this, so that they stay within the quota. */
+  public ConcurrencyLimiter getRequestLimiter() {
+    return requestLimiter;
+  }
+
+  /** Chat completions should be checked here first, and put here once they've been used. */
+  public OpenAiResponseCache getResponseCache() {
+    return responseCache;
+  }
+
+  /**
+   * Streams a chat completion. Each part of the function call's arguments is passed to the listener
+   * as it arrives. Returns the whole completion, as {@link OpenAiService#createChatCompletion}
+   * would. Like it, this should be called through the {@link #getRequestLimiter()}.
+   *
+   * <p>OpenAiService.streamChatCompletion() isn't used, since it parses each part of the arguments
+   * as JSON on its own, which drops the quotes around strings.
+   */
+  public ChatCompletionResult streamChatCompletion(
+      ChatCompletionRequest request, Consumer<String> functionArgumentsListener) {
+    checkNotNull(request);
+    checkNotNull(functionArgumentsListener);
+
+    var result = new ChatCompletionResult();
+    var content = new StringBuilder();
+    var functionName = new StringBuilder();
+    var functionArguments = new StringBuilder();
+    var finishReason = new AtomicReference<String>();
+
+    // The stream flag isn't part of the request, e.g., for hashing. So, it's only set for the call.
+    Boolean stream = request.getStream();
+    request.setStream(true);
+    try {
+      OpenAiService.stream(openAiApi.get().createChatCompletionStream(request))
+          .blockingForEach(
+              sse -> {
+                if (sse.isDone()) {
+                  return;
+                }
+                JsonNode chunk = STREAM_MAPPER.readTree(sse.getData());
+                result.setId(chunk.path("id").asText(null));
+                result.setObject("chat.completion");
+                result.setCreated(chunk.path("created").asLong());
+                result.setModel(chunk.path("model").asText(null));
+
+                JsonNode choice = chunk.path("choices").path(0);
+                if (choice.hasNonNull("finish_reason")) {
+                  finishReason.set(choice.get("finish_reason").asText());
+                }
+                JsonNode delta = choice.path("delta");
+                content.append(delta.path("content").asText(""));
+                functionName.append(delta.path("function_call").path("name").asText(""));
+                String arguments = delta.path("function_call").path("arguments").asText("");
+                if (!arguments.isEmpty()) {
+                  functionArguments.append(arguments);
+                  functionArgumentsListener.accept(arguments);
+                }
+              });
+    } finally {
+      request.setStream(stream);
+    }
+
+    var message = new ChatMessage(ChatMessageRole.ASSISTANT.value(), content.toString());
+    if (!functionName.isEmpty()) {
+      JsonNode arguments;
+      try {
+        arguments = STREAM_MAPPER.readTree(functionArguments.toString());
+      } catch (JsonProcessingException e) {
+        // The FunctionExecutor will report the error when it's parsed.
+        arguments = TextNode.valueOf(functionArguments.toString());
+      }
+      message.setFunctionCall(new ChatFunctionCall(functionName.toString(), arguments));
+    }
+    var choice = new ChatCompletionChoice();
+    choice.setIndex(0);
+    choice.setMessage(message);
+    choice.setFinishReason(finishReason.get());
+    result.setChoices(List.of(choice));
+    return result;
+  }
+
+  private OpenAiApi createOpenAiApi(
+      int maxConnections, Duration keepAlive, Duration connectTimeout, Duration readTimeout) {
+    // The default client only keeps connections alive for a second. So, replace its pool. HTTP/2
+    // is negotiated when available, which multiplexes requests over a single connection.
+    var okHttpClient =
+        OpenAiService.defaultClient(getOpenAiKey().orElseThrow(), readTimeout)
+            .newBuilder()
+            .connectionPool(
+                new ConnectionPool(maxConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS))
+            .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .connectTimeout(connectTimeout)
+            .addInterceptor(
+                chain -> {
+                  long startNanos = System.nanoTime();
+                  String status = "IO_ERROR";
+                  try {
+                    Response response = chain.proceed(chain.request());
+                    status = Integer.toString(response.code());
+                    return response;
+                  } finally {
+                    recordRequest(startNanos, status);
+                  }
+                })
+            .eventListener(
+                new EventListener() {
+                  @Override
+                  public void connectionAcquired(Call call, Connection connection) {
+                    requests.incrementAndGet();
+                  }
+
+                  @Override
+                  public void connectEnd(
+                      Call call,
+                      InetSocketAddress inetSocketAddress,
+                      Proxy proxy,
+                      @Nullable Protocol protocol) {
+                    newConnections.incrementAndGet();
+                  }
+                })
+            .build();
+    var retrofit =
+        OpenAiService.defaultRetrofit(
+            okHttpClient,
+            OpenAiService.defaultObjectMapper()
+                .setDefaultLeniency(true)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false));
+    return retrofit.create(OpenAiApi.class);
+  }
+
+  private HttpClient createHttpClient(
+      ConnectionProvider connectionProvider, Duration connectTimeout, Duration readTimeout) {
+    // As with the OkHttp client, HTTP/2 is negotiated when available.
+    return HttpClient.create(connectionProvider)
+        .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+        .responseTimeout(readTimeout)
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+        .option(ChannelOption.SO_KEEPALIVE, true)
+        // .option(ChannelOption.SO_TIMEOUT, 0)
+        // .option(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPIDLE), 3 * 60)
+        // .option(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPINTERVAL), 60)
+        // .option(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPCOUNT), 65535)
+        // .option(EpollChannelOption.TCP_KEEPIDLE, 3 * 60)
+        // .option(EpollChannelOption.TCP_KEEPINTVL, 60)
+        // .option(EpollChannelOption.TCP_KEEPCNT, 65535)
+        // .wiretap(true)
+        // .wiretap(
+        // "reactor.netty.http.client.HttpClient",
+        // LogLevel.DEBUG,
+        // AdvancedByteBufFormat.HEX_DUMP)
+        .doOnConnected(
+            conn -> {
+              newConnections.incrementAndGet();
+              conn.addHandlerFirst(
+                      new ReadTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                  .addHandlerFirst(
+                      new WriteTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS));
+            })
+        .doOnRequest((request, conn) -> requests.incrementAndGet());
+  }
+
+  private WebClient createWebClient(HttpClient client) {
+    return WebClient.builder()
+        .clientConnector(new ReactorClientHttpConnector(client))
+        .filter(
+            (request, next) -> {
+              long startNanos = System.nanoTime();
+              return next.exchange(request)
+                  .doOnSuccess(
+                      response ->
+                          recordRequest(
+                              startNanos, Integer.toString(response.statusCode().value())))
+                  .doOnError(t -> recordRequest(startNanos, "IO_ERROR"));
+            })
+        .build();
+  }
+
+  // Requests are timed until their response headers arrive, before any streamed body.
+  private static void recordRequest(long startNanos, String status) {
+    MetricUtils.recordSince(
+        startNanos,
+        "leo.openai.request",
+        "The duration of each request to OpenAI, by HTTP status.",
+        "status",
+        status);
+  }
+
   // Makes a call to OpenAI. If no key is available, returns an unmodified response.
   public <T extends Builder<?>> T sendOpenAiRequest(
       Message request, T responseBuilder, HttpExecutors httpExecutors) throws IOException {
@@ -102,80 +399,56 @@ public class OpenAiUtils {
         .andThen(
             (unused, log) -> {
               // Make the call to OpenAI.
-              HttpClient client =
-                  HttpClient.create()
-                      .responseTimeout(Duration.ofMinutes(TIMEOUT_MIN))
-                      .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, TIMEOUT_MIN * 60 * 1000)
-                      .option(ChannelOption.SO_KEEPALIVE, true)
-                      // .option(ChannelOption.SO_TIMEOUT, 0)
-                      // .option(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPIDLE), 3 * 60)
-                      // .option(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPINTERVAL), 60)
-                      // .option(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPCOUNT), 65535)
-                      // .option(EpollChannelOption.TCP_KEEPIDLE, 3 * 60)
-                      // .option(EpollChannelOption.TCP_KEEPINTVL, 60)
-                      // .option(EpollChannelOption.TCP_KEEPCNT, 65535)
-                      // .wiretap(true)
-                      // .wiretap(
-                      // "reactor.netty.http.client.HttpClient",
-                      // LogLevel.DEBUG,
-                      // AdvancedByteBufFormat.HEX_DUMP)
-                      .doOnConnected(
-                          conn ->
-                              conn.addHandlerFirst(
-                                      new ReadTimeoutHandler(TIMEOUT_MIN, TimeUnit.MINUTES))
-                                  .addHandlerFirst(
-                                      new WriteTimeoutHandler(TIMEOUT_MIN, TimeUnit.MINUTES)));
-
               // Stream the response body because the buffer is limited.
               ImmutableList<byte[]> streamedBytes =
-                  WebClient.builder()
-                      .clientConnector(new ReactorClientHttpConnector(client))
-                      .build()
-                      .post()
-                      .uri(URI.create(openAiUrl + "/v1/chat/completions"))
-                      .contentType(MediaType.APPLICATION_JSON)
-                      .header(HttpHeaders.AUTHORIZATION, "Bearer " + openAiKey)
-                      .header(HttpHeaders.CACHE_CONTROL, "no-cache,no-store,max-age=0")
-                      .header(HttpHeaders.PRAGMA, "No-Cache")
-                      .header(HttpHeaders.EXPIRES, "0") // I.e., now.
-                      .bodyValue(JsonFormat.printer().print(request))
-                      .retrieve()
-                      .onStatus(
-                          httpStatusCode -> true,
-                          response -> {
-                            StringWriter sw = new StringWriter();
-                            PrintWriter pw = new PrintWriter(sw);
-                            pw.println("OpenAI returned status: " + response.statusCode());
-                            response
-                                .headers()
-                                .asHttpHeaders()
-                                .forEach(
-                                    (key, values) -> {
-                                      pw.println(" - Header: " + key + ": " + values);
-                                    });
-                            pw.println("Done logging OpenAI status.");
-                            pw.flush();
-                            log.addNote(sw.toString());
-                            if (response.statusCode().isError()) {
-                              return Mono.error(
-                                  new HttpClientErrorException(
-                                      response.statusCode(),
-                                      "OpenAI returned status: " + response.statusCode()));
-                            } else {
-                              return Mono.empty();
-                            }
-                          })
-                      .bodyToFlux(DataBuffer.class)
-                      .map(
-                          buffer -> {
-                            try (InputStream in = buffer.asInputStream(true)) {
-                              return in.readAllBytes();
-                            } catch (IOException e) {
-                              throw new WrappedIOException(e);
-                            }
-                          })
-                      .collect(ImmutableList.toImmutableList())
-                      .block();
+                  requestLimiter.call(
+                      () ->
+                          webClient
+                              .post()
+                              .uri(URI.create(openAiUrl + "/v1/chat/completions"))
+                              .contentType(MediaType.APPLICATION_JSON)
+                              .header(HttpHeaders.AUTHORIZATION, "Bearer " + openAiKey)
+                              .header(HttpHeaders.CACHE_CONTROL, "no-cache,no-store,max-age=0")
+                              .header(HttpHeaders.PRAGMA, "No-Cache")
+                              .header(HttpHeaders.EXPIRES, "0") // I.e., now.
+                              .bodyValue(JsonFormat.printer().print(request))
+                              .retrieve()
+                              .onStatus(
+                                  httpStatusCode -> true,
+                                  response -> {
+                                    StringWriter sw = new StringWriter();
+                                    PrintWriter pw = new PrintWriter(sw);
+                                    pw.println("OpenAI returned status: " + response.statusCode());
+                                    response
+                                        .headers()
+                                        .asHttpHeaders()
+                                        .forEach(
+                                            (key, values) -> {
+                                              pw.println(" - Header: " + key + ": " + values);
+                                            });
+                                    pw.println("Done logging OpenAI status.");
+                                    pw.flush();
+                                    log.addNote(sw.toString());
+                                    if (response.statusCode().isError()) {
+                                      return Mono.error(
+                                          new HttpClientErrorException(
+                                              response.statusCode(),
+                                              "OpenAI returned status: " + response.statusCode()));
+                                    } else {
+                                      return Mono.empty();
+                                    }
+                                  })
+                              .bodyToFlux(DataBuffer.class)
+                              .map(
+                                  buffer -> {
+                                    try (InputStream in = buffer.asInputStream(true)) {
+                                      return in.readAllBytes();
+                                    } catch (IOException e) {
+                                      throw new WrappedIOException(e);
+                                    }
+                                  })
+                              .collect(ImmutableList.toImmutableList())
+                              .block());
 
               return Bytes.concat(Objects.requireNonNull(streamedBytes).toArray(byte[][]::new));
             })
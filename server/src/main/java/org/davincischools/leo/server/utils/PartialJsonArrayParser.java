@@ -0,0 +1,89 @@
+package org.davincischools.leo.server.utils;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Picks complete elements out of JSON that's still being received, e.g., from a streamed OpenAI
+ * function call. Only object and array elements of an array in a field of the top-level object are
+ * returned, e.g., each project in {"projects": [{...}, {...}]}, as soon as its closing brace
+ * arrives.
+ *
+ * <p>This doesn't validate the JSON. Each element should be parsed on its own.
+ */
+public final class PartialJsonArrayParser {
+
+  private final String fieldName;
+
+  private int depth = 0;
+  private boolean inString = false;
+  private boolean escaped = false;
+  private boolean inArray = false;
+  // The last string seen directly in the top-level object, i.e., a field name.
+  private final StringBuilder topLevelString = new StringBuilder();
+  private String lastFieldName = "";
+  @Nullable private StringBuilder element = null;
+
+  public PartialJsonArrayParser(String fieldName) {
+    this.fieldName = checkNotNull(fieldName);
+  }
+
+  /** Adds the next part of the JSON. Returns any array elements that it completed. */
+  public List<String> append(String json) {
+    checkNotNull(json);
+
+    List<String> elements = new ArrayList<>();
+    for (int i = 0; i < json.length(); i++) {
+      char c = json.charAt(i);
+      if (element != null) {
+        element.append(c);
+      }
+
+      if (inString) {
+        if (escaped) {
+          escaped = false;
+        } else if (c == '\\') {
+          escaped = true;
+        } else if (c == '"') {
+          inString = false;
+          if (depth == 1) {
+            lastFieldName = topLevelString.toString();
+          }
+        }
+        if (depth == 1 && inString) {
+          topLevelString.append(c);
+        }
+        continue;
+      }
+
+      switch (c) {
+        case '"' -> {
+          inString = true;
+          topLevelString.setLength(0);
+        }
+        case '{', '[' -> {
+          if (depth == 1 && c == '[' && lastFieldName.equals(fieldName)) {
+            inArray = true;
+          } else if (depth == 2 && inArray && element == null) {
+            element = new StringBuilder().append(c);
+          }
+          depth++;
+        }
+        case '}', ']' -> {
+          depth--;
+          if (depth == 2 && element != null) {
+            elements.add(element.toString());
+            element = null;
+          } else if (depth == 1) {
+            inArray = false;
+          }
+        }
+        default -> {}
+      }
+    }
+    return elements;
+  }
+}
@@ -8,10 +8,9 @@ import static org.davincischools.leo.database.utils.DaoUtils.getDaoClass;
 import static org.davincischools.leo.database.utils.DaoUtils.ifInitialized;
 import static org.davincischools.leo.database.utils.DaoUtils.isInitialized;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimaps;
 import com.google.common.collect.Streams;
 import com.google.protobuf.Descriptors.Descriptor;
 import com.google.protobuf.Descriptors.EnumValueDescriptor;
@@ -19,12 +18,9 @@ import com.google.protobuf.Descriptors.FieldDescriptor;
 import com.google.protobuf.Message;
 import com.google.protobuf.MessageOrBuilder;
 import java.io.IOException;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -33,6 +29,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -63,6 +60,10 @@ import org.davincischools.leo.database.daos.ProjectPostRating;
 import org.davincischools.leo.database.daos.School;
 import org.davincischools.leo.database.daos.Tag;
 import org.davincischools.leo.database.daos.UserX;
+import org.davincischools.leo.database.utils.DaoAccessors;
+import org.davincischools.leo.database.utils.DaoAccessors.DaoClassAccessors;
+import org.davincischools.leo.database.utils.DaoAccessors.Getter;
+import org.davincischools.leo.database.utils.DaoAccessors.Setter;
 import org.davincischools.leo.database.utils.Database;
 import org.davincischools.leo.database.utils.repos.AssignmentKnowledgeAndSkillRepository;
 import org.davincischools.leo.database.utils.repos.ClassXKnowledgeAndSkillRepository;
@@ -130,12 +131,12 @@ public class ProtoDaoUtils {
   private static final Map<
           ProtoDaoFields,
           Map<Integer, BiConsumer</* message= */ MessageOrBuilder, /* dao= */ Object>>>
-      protoToDaoSetters = Collections.synchronizedMap(new HashMap<>());
+      protoToDaoSetters = new ConcurrentHashMap<>();
 
   private static final Map<
           ProtoDaoFields,
           Map<Integer, BiConsumer</* dao= */ Object, /* message= */ Message.Builder>>>
-      daoToProtoSetters = Collections.synchronizedMap(new HashMap<>());
+      daoToProtoSetters = new ConcurrentHashMap<>();
 
   public static Optional<org.davincischools.leo.protos.pl_types.ProjectDefinition.Builder>
       toProjectDefinitionProto(
@@ -405,7 +406,7 @@ public class ProtoDaoUtils {
                 options.computeIfAbsent(
                     projectInputCategory.getValueType(),
                     valueType ->
-                        db.getMotivationRepository().findAll().stream()
+                        db.getReferenceDataCache().getMotivations().stream()
                             .filter(knowledgeAndSkill -> knowledgeAndSkill.getDeleted() == null)
                             .map(motivation -> toOptionProto(motivation, Option::newBuilder))
                             .filter(Optional::isPresent)
@@ -419,8 +420,8 @@ public class ProtoDaoUtils {
                     projectInputCategory.getValueType(),
                     valueType ->
                         db
-                            .getKnowledgeAndSkillRepository()
-                            .findAll(Type.valueOf(valueType.name()))
+                            .getReferenceDataCache()
+                            .getKnowledgeAndSkills(Type.valueOf(valueType.name()))
                             .stream()
                             .filter(knowledgeAndSkill -> knowledgeAndSkill.getDeleted() == null)
                             .map(
@@ -1150,20 +1151,9 @@ public class ProtoDaoUtils {
               Map<Integer, BiConsumer</* message= */ MessageOrBuilder, /* dao= */ Object>> setters =
                   new HashMap<>();
 
-              // Get the list of all uniquely named methods.
-              ImmutableMap<String, Method> setMethods =
-                  ImmutableMap.copyOf(
-                      Maps.filterValues(
-                          Maps.transformValues(
-                              Maps.filterValues(
-                                  Multimaps.index(
-                                          Arrays.asList(daoClass.getMethods()), Method::getName)
-                                      .asMap(),
-                                  methods -> methods.size() == 1),
-                              Iterables::getOnlyElement),
-                          method ->
-                              method.getName().startsWith("set")
-                                  && method.getParameterTypes().length == 1));
+              // Get the compiled setters of all uniquely named methods.
+              ImmutableMap<String, Setter> setMethods =
+                  DaoAccessors.forDaoClass(daoClass).setters();
 
               // Build the translators for each proto field.
               for (FieldDescriptor field : protoDescriptor.getFields()) {
@@ -1178,7 +1168,7 @@ public class ProtoDaoUtils {
                             + field.getFullName());
                   }
 
-                  Optional<Method> setMethod =
+                  Optional<Setter> setMethod =
                       Optional.ofNullable(setMethods.get(toDaoSetMethod(field)));
 
                   // Check for special mappings.
@@ -1188,25 +1178,23 @@ public class ProtoDaoUtils {
                         && field.getType() == FieldDescriptor.Type.INT32) {
 
                       // Make sure the dao has a setter for a foreign object.
-                      Optional<Method> setDaoMethod =
+                      Optional<Setter> setDaoMethod =
                           Optional.ofNullable(setMethods.get(toDaoSetDaoMethod(field)));
                       if (setDaoMethod.isEmpty()) {
                         throw new IOException("Unmapped id field: " + field.getFullName());
                       }
 
                       // Get supposed dao type.
-                      Class<?> innerDaoType = setDaoMethod.get().getParameterTypes()[0];
-                      Constructor<?> constructor = null;
-                      for (Constructor<?> candidate : innerDaoType.getConstructors()) {
-                        if (candidate.getParameterCount() == 0) {
-                          constructor = candidate;
-                          break;
-                        }
-                      }
-                      if (constructor == null) {
+                      DaoClassAccessors innerDaoAccessors =
+                          DaoAccessors.forDaoClass(setDaoMethod.get().type());
+                      if (innerDaoAccessors.constructor().isEmpty()) {
                         throw new IOException("Cannot create inner dao: " + field.getFullName());
                       }
-                      Constructor<?> finalConstructor = constructor;
+                      Supplier<Object> constructor = innerDaoAccessors.constructor().get();
+                      Setter setInnerDaoId = innerDaoAccessors.setters().get("setId");
+                      if (setInnerDaoId == null || setInnerDaoId.type() != Integer.class) {
+                        throw new IOException("Id field is not an integer: " + field.getFullName());
+                      }
 
                       // Add translator to set the inner dao object.
                       setters.put(
@@ -1214,11 +1202,9 @@ public class ProtoDaoUtils {
                           (message, dao) -> {
                             try {
                               if (message.hasField(field)) {
-                                Object innerDao = finalConstructor.newInstance();
-                                getDaoClass(innerDao)
-                                    .getMethod("setId", Integer.class)
-                                    .invoke(innerDao, message.getField(field));
-                                setDaoMethod.get().invoke(dao, innerDao);
+                                Object innerDao = constructor.get();
+                                setInnerDaoId.function().accept(innerDao, message.getField(field));
+                                setDaoMethod.get().function().accept(dao, innerDao);
                               }
                             } catch (Exception e) {
                               throw new RuntimeException(
@@ -1235,7 +1221,7 @@ public class ProtoDaoUtils {
                         && field.getType() == FieldDescriptor.Type.INT64) {
 
                       // Make sure the dao has a setter for time.
-                      Optional<Method> setTimeMethod =
+                      Optional<Setter> setTimeMethod =
                           Optional.ofNullable(setMethods.get(toDaoSetTimeMethod(field)));
                       if (setTimeMethod.isEmpty()) {
                         throw new IOException("Unmapped time field: " + field.getFullName());
@@ -1248,7 +1234,8 @@ public class ProtoDaoUtils {
                               if (message.hasField(field)) {
                                 setTimeMethod
                                     .get()
-                                    .invoke(
+                                    .function()
+                                    .accept(
                                         dao, Instant.ofEpochMilli((Long) message.getField(field)));
                               }
                             } catch (Exception e) {
@@ -1276,20 +1263,21 @@ public class ProtoDaoUtils {
                             if (message.hasField(field)) {
                               var protoEnumValue = ((EnumValueDescriptor) message.getField(field));
                               if (protoEnumValue.getNumber() != 0) {
-                                var parameterType = setMethod.get().getParameterTypes()[0];
+                                var parameterType = setMethod.get().type();
                                 if (Enum.class.isAssignableFrom(parameterType)) {
                                   setMethod
                                       .get()
-                                      .invoke(
+                                      .function()
+                                      .accept(
                                           dao,
                                           Enum.valueOf(
                                               (Class<Enum>) parameterType,
                                               protoEnumValue.getName()));
                                 } else {
-                                  setMethod.get().invoke(dao, protoEnumValue.getName());
+                                  setMethod.get().function().accept(dao, protoEnumValue.getName());
                                 }
                               } else {
-                                setMethod.get().invoke(dao, (Object[]) null);
+                                setMethod.get().function().accept(dao, null);
                               }
                             }
                           } catch (Exception e) {
@@ -1308,7 +1296,7 @@ public class ProtoDaoUtils {
                       (message, dao) -> {
                         try {
                           if (message.hasField(field)) {
-                            setMethod.get().invoke(dao, message.getField(field));
+                            setMethod.get().function().accept(dao, message.getField(field));
                           }
                         } catch (Exception e) {
                           throw new RuntimeException(
@@ -1323,7 +1311,7 @@ public class ProtoDaoUtils {
                 }
               }
 
-              return setters;
+              return ImmutableMap.copyOf(setters);
             });
 
     // Translate each proto field.
@@ -1359,18 +1347,17 @@ public class ProtoDaoUtils {
 
     if (!Hibernate.isInitialized(fromDao)) {
       // Still, the ID is there.
-      try {
-        Object id = daoClass.getMethod("getId").invoke(fromDao);
-        if (id instanceof Integer && (Integer) id > 0) {
-          M toMessage = toMessageSupplier.get();
-          Descriptor protoDescriptor = toMessage.getDescriptorForType();
-          toMessage.setField(protoDescriptor.findFieldByName("id"), id);
-          return Optional.of(toMessage);
-        }
-        return Optional.empty();
-      } catch (Exception e) {
-        throw new RuntimeException(e);
+      Getter getId =
+          checkNotNull(
+              DaoAccessors.forDaoClass(daoClass).getters().get("getId"), "No id: %s", daoClass);
+      Object id = getId.function().apply(fromDao);
+      if (id instanceof Integer && (Integer) id > 0) {
+        M toMessage = toMessageSupplier.get();
+        Descriptor protoDescriptor = toMessage.getDescriptorForType();
+        toMessage.setField(protoDescriptor.findFieldByName("id"), id);
+        return Optional.of(toMessage);
       }
+      return Optional.empty();
     }
 
     M toMessage = toMessageSupplier.get();
@@ -1386,20 +1373,9 @@ public class ProtoDaoUtils {
               Map<Integer, BiConsumer</* dao= */ Object, /* message= */ Message.Builder>> setters =
                   new HashMap<>();
 
-              // Get the list of all uniquely named methods.
-              ImmutableMap<String, Method> getMethods =
-                  ImmutableMap.copyOf(
-                      Maps.filterValues(
-                          Maps.transformValues(
-                              Maps.filterValues(
-                                  Multimaps.index(
-                                          Arrays.asList(daoClass.getMethods()), Method::getName)
-                                      .asMap(),
-                                  methods -> methods.size() == 1),
-                              Iterables::getOnlyElement),
-                          method ->
-                              method.getName().startsWith("get")
-                                  && method.getParameterTypes().length == 0));
+              // Get the compiled getters of all uniquely named methods.
+              ImmutableMap<String, Getter> getMethods =
+                  DaoAccessors.forDaoClass(daoClass).getters();
 
               // Build the translators for each proto field.
               for (FieldDescriptor field : protoDescriptor.getFields()) {
@@ -1414,7 +1390,7 @@ public class ProtoDaoUtils {
                             + field.getFullName());
                   }
 
-                  Optional<Method> getMethod =
+                  Optional<Getter> getMethod =
                       Optional.ofNullable(getMethods.get(toDaoGetMethod(field)));
 
                   // Check for special mappings.
@@ -1424,16 +1400,18 @@ public class ProtoDaoUtils {
                         && field.getType() == FieldDescriptor.Type.INT32) {
 
                       // Make sure the dao has a getter for a foreign object.
-                      Optional<Method> getDaoMethod =
+                      Optional<Getter> getDaoMethod =
                           Optional.ofNullable(getMethods.get(toDaoGetDaoMethod(field)));
                       if (getDaoMethod.isEmpty()) {
                         throw new IOException("Unmapped id field: " + field.getFullName());
                       }
 
                       // Get supposed dao type.
-                      Class<?> daoType = getDaoMethod.get().getReturnType();
-                      Method getDaoId = daoType.getMethod("getId");
-                      if (getDaoId.getReturnType() != Integer.class) {
+                      Getter getDaoId =
+                          DaoAccessors.forDaoClass(getDaoMethod.get().type())
+                              .getters()
+                              .get("getId");
+                      if (getDaoId == null || getDaoId.type() != Integer.class) {
                         throw new IOException("Id field is not an integer: " + field.getFullName());
                       }
 
@@ -1442,9 +1420,9 @@ public class ProtoDaoUtils {
                           field.getNumber(),
                           (dao, message) -> {
                             try {
-                              Object innerDao = getDaoMethod.get().invoke(dao);
+                              Object innerDao = getDaoMethod.get().function().apply(dao);
                               if (innerDao != null) {
-                                Integer innerDaoId = (Integer) getDaoId.invoke(innerDao);
+                                Integer innerDaoId = (Integer) getDaoId.function().apply(innerDao);
                                 if (innerDaoId != null) {
                                   message.setField(field, innerDaoId);
                                 }
@@ -1464,7 +1442,7 @@ public class ProtoDaoUtils {
                         && field.getType() == FieldDescriptor.Type.INT64) {
 
                       // Make sure the dao has a setter for time.
-                      Optional<Method> getTimeMethod =
+                      Optional<Getter> getTimeMethod =
                           Optional.ofNullable(getMethods.get(toDaoGetTimeMethod(field)));
                       if (getTimeMethod.isEmpty()) {
                         throw new IOException("Unmapped time field: " + field.getFullName());
@@ -1474,7 +1452,7 @@ public class ProtoDaoUtils {
                           field.getNumber(),
                           (dao, message) -> {
                             try {
-                              Object value = getTimeMethod.get().invoke(dao);
+                              Object value = getTimeMethod.get().function().apply(dao);
                               if (value != null) {
                                 message.setField(field, ((Instant) value).toEpochMilli());
                               }
@@ -1498,9 +1476,9 @@ public class ProtoDaoUtils {
                         field.getNumber(),
                         (dao, message) -> {
                           try {
-                            var returnType = getMethod.get().getReturnType();
+                            var returnType = getMethod.get().type();
                             if (Enum.class.isAssignableFrom(returnType)) {
-                              var daoValue = (Enum<?>) getMethod.get().invoke(dao);
+                              var daoValue = (Enum<?>) getMethod.get().function().apply(dao);
                               if (daoValue != null) {
                                 var enumValue =
                                     field.getEnumType().findValueByName(daoValue.name());
@@ -1513,7 +1491,7 @@ public class ProtoDaoUtils {
                                 message.clearField(field);
                               }
                             } else {
-                              String daoValue = (String) getMethod.get().invoke(dao);
+                              String daoValue = (String) getMethod.get().function().apply(dao);
                               if (daoValue != null) {
                                 var enumValue = field.getEnumType().findValueByName(daoValue);
                                 if (enumValue == null) {
@@ -1540,7 +1518,7 @@ public class ProtoDaoUtils {
                       field.getNumber(),
                       (dao, message) -> {
                         try {
-                          Object value = getMethod.get().invoke(dao);
+                          Object value = getMethod.get().function().apply(dao);
                           if (value != null) {
                             message.setField(field, value);
                           }
@@ -1557,7 +1535,7 @@ public class ProtoDaoUtils {
                 }
               }
 
-              return setters;
+              return ImmutableMap.copyOf(setters);
             });
 
     // Translate each proto field.
@@ -1570,9 +1548,9 @@ public class ProtoDaoUtils {
       }
       try {
         protoSetters.get(field.getNumber()).accept(fromDao, toMessage);
-      } catch (/* InvocationTargetException */ Exception e) {
-        if (e.getCause() != null
-            && e.getCause().getCause() instanceof LazyInitializationException) {
+      } catch (RuntimeException e) {
+        if (Throwables.getCausalChain(e).stream()
+            .anyMatch(t -> t instanceof LazyInitializationException)) {
           // Do nothing. Hibernate.isPropertyInitialized() will return false for the id field of
           // an unitialized proxy, even though we can still retrieve it. So, we catch the exception
           // for the other fields instead of doing a check ahead of time.
@@ -0,0 +1,272 @@
+package org.davincischools.leo.server.utils;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.common.net.HttpHeaders;
+import com.google.common.net.MediaType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.CacheControl;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.util.UriUtils;
+
+/**
+ * An immutable, in-memory index of the static web content on the classpath. It's built once, at
+ * startup. Compressible content is gzipped up front. Brotli and gzip files that the build places
+ * next to an asset (e.g., main.js.br, written by the web client's compress-build.js) are used
+ * as-is. So, serving an asset only has to pick a variant and copy its bytes.
+ */
+public final class StaticResourceIndex {
+
+  private static final Logger logger = LogManager.getLogger();
+
+  // Files with a content hash in their name, e.g., main.1a2b3c4d.js, never change.
+  private static final Pattern HASHED_FILENAME = Pattern.compile("\\.[0-9a-f]{8,}\\.");
+  private static final CacheControl HASHED_CACHE_CONTROL =
+      CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+  // Other files, e.g., index.html, can change with each release. So, they're revalidated.
+  private static final CacheControl UNHASHED_CACHE_CONTROL = CacheControl.noCache();
+
+  // Compressing small files doesn't save enough to be worth it.
+  private static final int MIN_COMPRESSED_SIZE = 1024;
+  // In addition to text/* types.
+  private static final ImmutableSet<MediaType> COMPRESSIBLE_MIME_TYPES =
+      ImmutableSet.of(
+          MediaType.ICO,
+          MediaType.JAVASCRIPT_UTF_8.withoutParameters(),
+          MediaType.JSON_UTF_8.withoutParameters(),
+          MediaType.SVG_UTF_8.withoutParameters());
+
+  public enum Encoding {
+    // In order of preference.
+    BROTLI("br", ".br"),
+    GZIP("gzip", ".gz"),
+    IDENTITY("identity", "");
+
+    private final String name;
+    private final String fileExtension;
+
+    Encoding(String name, String fileExtension) {
+      this.name = name;
+      this.fileExtension = fileExtension;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+
+  public record Variant(Encoding encoding, byte[] content, String eTag) {}
+
+  public record StaticResource(
+      String path,
+      Optional<MediaType> mediaType,
+      CacheControl cacheControl,
+      ImmutableMap<Encoding, Variant> variants) {
+
+    /** Returns the preferred variant allowed by an Accept-Encoding header. */
+    public Variant getVariant(@Nullable String acceptEncoding) {
+      Map<String, Double> qualities = parseAcceptEncoding(acceptEncoding);
+      double wildcard = qualities.getOrDefault("*", -1.0);
+      for (Encoding encoding : Encoding.values()) {
+        Variant variant = variants.get(encoding);
+        if (variant == null) {
+          continue;
+        }
+        double quality = qualities.getOrDefault(encoding.getName(), wildcard);
+        if (quality > 0 || (encoding == Encoding.IDENTITY && quality != 0)) {
+          return variant;
+        }
+      }
+      // Identity was explicitly refused. But, there's nothing else to send.
+      return checkNotNull(variants.get(Encoding.IDENTITY));
+    }
+  }
+
+  private final ImmutableMap<String, StaticResource> resources;
+  @Nullable private final StaticResource index;
+
+  private StaticResourceIndex(ImmutableMap<String, StaticResource> resources, String indexPath) {
+    this.resources = resources;
+    this.index = resources.get(indexPath);
+  }
+
+  /**
+   * Loads every file under the root package on the classpath. Paths are relative to the root,
+   * starting with "/".
+   */
+  public static StaticResourceIndex load(
+      ClassLoader classLoader,
+      String root,
+      String indexPath,
+      ImmutableMap<String, MediaType> extensionsToMimeTypes)
+      throws IOException {
+    checkNotNull(classLoader);
+    checkNotNull(root);
+    checkNotNull(indexPath);
+    checkNotNull(extensionsToMimeTypes);
+
+    Map<String, byte[]> files = new HashMap<>();
+    for (Resource resource :
+        new PathMatchingResourcePatternResolver(classLoader)
+            .getResources("classpath*:" + root + "/**")) {
+      if (!resource.isReadable()) {
+        continue;
+      }
+      String url = resource.getURL().toString();
+      int rootIndex = url.lastIndexOf(root + "/");
+      if (rootIndex < 0) {
+        continue;
+      }
+      try (InputStream in = resource.getInputStream()) {
+        files.putIfAbsent(
+            UriUtils.decode(url.substring(rootIndex + root.length()), StandardCharsets.UTF_8),
+            ByteStreams.toByteArray(in));
+      }
+    }
+
+    ImmutableMap.Builder<String, StaticResource> resources = ImmutableMap.builder();
+    long totalBytes = 0;
+    for (var file : files.entrySet()) {
+      String path = file.getKey();
+      if (path.endsWith(Encoding.BROTLI.fileExtension)
+          || path.endsWith(Encoding.GZIP.fileExtension)) {
+        continue;
+      }
+      Optional<MediaType> mediaType =
+          Optional.ofNullable(
+              extensionsToMimeTypes.get(Files.getFileExtension(path).toLowerCase()));
+
+      ImmutableMap.Builder<Encoding, Variant> variants = ImmutableMap.builder();
+      for (Encoding encoding : Encoding.values()) {
+        byte[] content = files.get(path + encoding.fileExtension);
+        if (content == null && encoding == Encoding.GZIP && isCompressible(mediaType)) {
+          content = gzip(files.get(path));
+        }
+        if (content != null
+            && (encoding == Encoding.IDENTITY || content.length < files.get(path).length)) {
+          String hash = Hashing.sha256().hashBytes(content).toString().substring(0, 32);
+          variants.put(encoding, new Variant(encoding, content, "\"" + hash + "\""));
+          totalBytes += content.length;
+        }
+      }
+
+      resources.put(
+          path,
+          new StaticResource(
+              path,
+              mediaType,
+              HASHED_FILENAME.matcher(Files.getNameWithoutExtension(path) + ".").find()
+                  ? HASHED_CACHE_CONTROL
+                  : UNHASHED_CACHE_CONTROL,
+              variants.buildOrThrow()));
+    }
+
+    var index = new StaticResourceIndex(resources.buildOrThrow(), indexPath);
+    logger.atInfo().log(
+        "Indexed {} static resources, {} bytes.", index.resources.size(), totalBytes);
+    return index;
+  }
+
+  /** Returns the resource at the path, or the index page, which handles all other paths. */
+  public Optional<StaticResource> getResourceOrIndex(String path) {
+    checkNotNull(path);
+
+    return Optional.ofNullable(resources.getOrDefault(path, index));
+  }
+
+  /** Writes the resource, or just a 304 if the client already has it. */
+  public static void writeResource(
+      StaticResource resource, HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    checkNotNull(resource);
+    checkNotNull(request);
+    checkNotNull(response);
+
+    Variant variant = resource.getVariant(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    if (resource.variants().size() > 1) {
+      response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    }
+    response.setHeader(HttpHeaders.CACHE_CONTROL, resource.cacheControl().getHeaderValue());
+    if (new ServletWebRequest(request, response).checkNotModified(variant.eTag())) {
+      return;
+    }
+
+    response.setStatus(HttpServletResponse.SC_OK);
+    resource.mediaType().map(Object::toString).ifPresent(response::setContentType);
+    if (variant.encoding() != Encoding.IDENTITY) {
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, variant.encoding().getName());
+    }
+    response.setContentLength(variant.content().length);
+    if (!request.getMethod().equals("HEAD")) {
+      response.getOutputStream().write(variant.content());
+    }
+  }
+
+  private static boolean isCompressible(Optional<MediaType> mediaType) {
+    return mediaType
+        .map(
+            type ->
+                type.type().equals("text")
+                    || COMPRESSIBLE_MIME_TYPES.contains(type.withoutParameters()))
+        .orElse(false);
+  }
+
+  @Nullable
+  private static byte[] gzip(byte[] content) throws IOException {
+    if (content.length < MIN_COMPRESSED_SIZE) {
+      return null;
+    }
+    var bytes = new ByteArrayOutputStream();
+    try (OutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(content);
+    }
+    return bytes.toByteArray();
+  }
+
+  // Maps each coding to its quality, e.g., "gzip;q=0.8, br" -> {gzip=0.8, br=1.0}.
+  private static Map<String, Double> parseAcceptEncoding(@Nullable String acceptEncoding) {
+    Map<String, Double> qualities = new HashMap<>();
+    if (acceptEncoding == null) {
+      return qualities;
+    }
+    for (String coding : Splitter.on(',').trimResults().omitEmptyStrings().split(acceptEncoding)) {
+      List<String> parts = Splitter.on(';').trimResults().splitToList(coding);
+      double quality = 1.0;
+      for (String parameter : parts.subList(1, parts.size())) {
+        if (parameter.startsWith("q=")) {
+          try {
+            quality = Double.parseDouble(parameter.substring(2));
+          } catch (NumberFormatException e) {
+            quality = 0;
+          }
+        }
+      }
+      qualities.put(parts.get(0).toLowerCase(), quality);
+    }
+    return qualities;
+  }
+}
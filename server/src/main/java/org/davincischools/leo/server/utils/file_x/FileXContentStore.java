@@ -0,0 +1,255 @@
+package org.davincischools.leo.server.utils.file_x;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.davincischools.leo.database.daos.FileX;
+import org.davincischools.leo.database.utils.Database;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the content of {@link FileX}s, either in the database or in a content-addressed store on
+ * local disk.
+ *
+ * <p>The SHA-256 hash of the content is recorded in either store, and serves as its ETag. On disk,
+ * content is kept under its hash. So, identical uploads are only stored once. Files are never
+ * removed from disk, since file_x rows are only ever marked deleted. Content is read from wherever
+ * a row says it is, regardless of the store type. So, rows in the database keep working after
+ * switching to the disk store, and rows on disk keep working after switching back.
+ */
+@Component
+public class FileXContentStore {
+
+  public static final String STORE_TYPE_PROP_NAME = "project_leo.files.store";
+  public static final String LOCAL_DISK_DIRECTORY_PROP_NAME =
+      "project_leo.files.local_disk.directory";
+  public static final String MIGRATE_TO_STORE_PROP_NAME = "project_leo.files.migrate_to_store";
+
+  // Tomcat sends a file straight from the OS if these are set by the servlet.
+  private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+  private static final int MIGRATION_BATCH_SIZE = 100;
+  private static final Logger logger = LogManager.getLogger();
+
+  public enum StoreType {
+    DATABASE,
+    LOCAL_DISK
+  }
+
+  private final Database db;
+  private final StoreType storeType;
+  @Nullable private final Path directory;
+  private final boolean migrateToStore;
+
+  public FileXContentStore(
+      @Autowired Database db,
+      @Value("${" + STORE_TYPE_PROP_NAME + ":DATABASE}") StoreType storeType,
+      @Value("${" + LOCAL_DISK_DIRECTORY_PROP_NAME + ":}") String directory,
+      @Value("${" + MIGRATE_TO_STORE_PROP_NAME + ":false}") boolean migrateToStore)
+      throws IOException {
+    checkArgument(
+        storeType != StoreType.LOCAL_DISK || !directory.isEmpty(),
+        "%s must be set for the %s store.",
+        LOCAL_DISK_DIRECTORY_PROP_NAME,
+        StoreType.LOCAL_DISK);
+
+    this.db = db;
+    this.storeType = storeType;
+    this.directory = directory.isEmpty() ? null : Path.of(directory).toAbsolutePath();
+    this.migrateToStore = migrateToStore;
+
+    if (storeType == StoreType.LOCAL_DISK) {
+      Files.createDirectories(getTempDirectory());
+    }
+  }
+
+  @PostConstruct
+  public void autoMigrate() {
+    if (!migrateToStore || storeType == StoreType.DATABASE) {
+      return;
+    }
+
+    new ThreadFactoryBuilder()
+        .setNameFormat(getClass().getSimpleName() + "MigrateThread-%d")
+        .setDaemon(true)
+        .build()
+        .newThread(
+            () -> {
+              try {
+                logger.atInfo().log("Moved {} files to the file store.", migrateToStore());
+              } catch (Throwable t) {
+                logger.atError().withThrowable(t).log("Moving files to the file store failed.");
+              }
+            })
+        .start();
+  }
+
+  /** Sets the content of the file, in the configured store. The file is not saved. */
+  public FileX setContent(FileX fileX, InputStream content) throws IOException {
+    checkNotNull(fileX);
+    checkNotNull(content);
+
+    if (storeType == StoreType.DATABASE) {
+      byte[] bytes = ByteStreams.toByteArray(content);
+      return fileX
+          .setFileContent(bytes)
+          .setContentHash(getContentHash(bytes))
+          .setContentLength(bytes.length);
+    }
+
+    // Write to a temporary file first, since the hash isn't known until all of it is read.
+    Path tempFile = Files.createTempFile(getTempDirectory(), "upload-", ".tmp");
+    try {
+      var hashingContent = new HashingInputStream(Hashing.sha256(), content);
+      long contentLength =
+          Files.copy(hashingContent, tempFile, StandardCopyOption.REPLACE_EXISTING);
+      String contentHash = hashingContent.hash().toString();
+
+      Path path = getPath(contentHash);
+      if (!Files.exists(path)) {
+        Files.createDirectories(path.getParent());
+        // If an identical file is moved in concurrently, either one is fine.
+        Files.move(tempFile, path, StandardCopyOption.ATOMIC_MOVE);
+      }
+
+      return fileX
+          .setFileContent(null)
+          .setContentHash(contentHash)
+          .setContentLength(Math.toIntExact(contentLength));
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  public static String getContentHash(byte[] content) {
+    return Hashing.sha256().hashBytes(content).toString();
+  }
+
+  public long getContentLength(FileX fileX) throws IOException {
+    checkNotNull(fileX);
+
+    if (fileX.getFileContent() != null) {
+      return fileX.getFileContent().length;
+    }
+    return Files.size(getPath(fileX.getContentHash()));
+  }
+
+  public InputStream openContent(FileX fileX) throws IOException {
+    checkNotNull(fileX);
+
+    if (fileX.getFileContent() != null) {
+      return new ByteArrayInputStream(fileX.getFileContent());
+    }
+    return Files.newInputStream(getPath(fileX.getContentHash()));
+  }
+
+  /** Writes all of the content to the response. */
+  public void writeContent(FileX fileX, HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    writeContent(fileX, 0, getContentLength(fileX), request, response);
+  }
+
+  /**
+   * Writes the content from start (inclusive) to end (exclusive) to the response. Content on disk
+   * is sent by Tomcat directly from the OS if it can. Otherwise, it's copied through a channel,
+   * without reading it all into memory.
+   */
+  public void writeContent(
+      FileX fileX, long start, long end, HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    checkNotNull(fileX);
+    checkArgument(0 <= start && start <= end);
+    checkNotNull(request);
+    checkNotNull(response);
+
+    response.setContentLengthLong(end - start);
+
+    if (fileX.getFileContent() != null) {
+      byte[] content = fileX.getFileContent();
+      checkArgument(end <= content.length);
+      response.getOutputStream().write(content, (int) start, (int) (end - start));
+      return;
+    }
+
+    Path path = getPath(fileX.getContentHash());
+    if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+      request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, path.toString());
+      request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+      request.setAttribute(SENDFILE_END_ATTRIBUTE, end);
+      return;
+    }
+
+    try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+      checkArgument(end <= in.size());
+      WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+      for (long position = start; position < end; ) {
+        position += in.transferTo(position, end - position, out);
+      }
+    }
+  }
+
+  /** Moves content that's in the database into the configured store. Returns the number moved. */
+  public int migrateToStore() throws IOException {
+    checkState(storeType != StoreType.DATABASE, "Content is already stored in the database.");
+
+    int migrated = 0;
+    List<Integer> fileXIds;
+    do {
+      fileXIds =
+          db.getFileXRepository()
+              .findIdsWithDatabaseContent(PageRequest.of(0, MIGRATION_BATCH_SIZE));
+      for (int fileXId : fileXIds) {
+        var fileX = db.getFileXRepository().findById(fileXId).orElseThrow();
+        setContent(fileX, new ByteArrayInputStream(fileX.getFileContent()));
+        db.getFileXRepository()
+            .moveContentToStore(fileXId, fileX.getContentHash(), fileX.getContentLength());
+        migrated++;
+      }
+    } while (!fileXIds.isEmpty());
+    return migrated;
+  }
+
+  private Path getPath(String contentHash) {
+    checkNotNull(contentHash);
+    checkState(
+        directory != null, "%s must be set to read stored files.", LOCAL_DISK_DIRECTORY_PROP_NAME);
+
+    // Spread files across directories so that none get too large.
+    return directory
+        .resolve(contentHash.substring(0, 2))
+        .resolve(contentHash.substring(2, 4))
+        .resolve(contentHash);
+  }
+
+  private Path getTempDirectory() {
+    return checkNotNull(directory).resolve("tmp");
+  }
+}
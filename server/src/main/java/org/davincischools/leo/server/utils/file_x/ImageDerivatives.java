@@ -0,0 +1,252 @@
+package org.davincischools.leo.server.utils.file_x;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.common.net.MediaType;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import org.davincischools.leo.database.daos.FileX.DerivativeSizeType;
+
+/**
+ * Creates smaller copies of uploaded images, for pages that don't need the full resolution.
+ *
+ * <p>Copies are JPEGs, or PNGs if the image is transparent. The JDK has no WebP or AVIF encoder.
+ */
+public final class ImageDerivatives {
+
+  // The longest side of each copy, in pixels. Largest first.
+  public static final ImmutableMap<DerivativeSizeType, Integer> MAX_DIMENSIONS =
+      ImmutableMap.of(
+          DerivativeSizeType.LARGE, 2048,
+          DerivativeSizeType.MEDIUM, 1024,
+          DerivativeSizeType.THUMBNAIL, 256);
+
+  // GIFs are left alone, since resizing them would drop their animation.
+  public static final ImmutableSet<MediaType> SOURCE_MIME_TYPES =
+      ImmutableSet.of(MediaType.JPEG, MediaType.PNG);
+
+  // Decoding needs about 4 bytes per pixel, however small the file is. So, larger images are
+  // skipped rather than risk running out of memory. This is still larger than most cameras.
+  static final long MAX_PIXELS = 64_000_000;
+
+  private static final float JPEG_QUALITY = 0.8f;
+  private static final int EXIF_ORIENTATION_TAG = 0x0112;
+
+  public record Derivative(DerivativeSizeType size, MediaType mediaType, byte[] content) {}
+
+  /**
+   * Returns the copies that are smaller than the original. Sizes at least as large as the original
+   * are skipped, since the original serves them as well. Returns none if the image can't be read or
+   * has more than {@link #MAX_PIXELS} pixels.
+   */
+  public static List<Derivative> createDerivatives(InputStream original) throws IOException {
+    checkNotNull(original);
+
+    byte[] originalBytes = ByteStreams.toByteArray(original);
+    BufferedImage image;
+    try {
+      image = read(originalBytes);
+    } catch (IIOException e) {
+      // E.g., a CMYK JPEG, which the JDK can't decode.
+      return List.of();
+    }
+    if (image == null) {
+      return List.of();
+    }
+    image = orient(image, getExifOrientation(originalBytes));
+    boolean hasAlpha = image.getColorModel().hasAlpha();
+
+    List<Derivative> derivatives = new ArrayList<>();
+    for (var maxDimension : MAX_DIMENSIONS.entrySet()) {
+      if (Math.max(image.getWidth(), image.getHeight()) <= maxDimension.getValue()) {
+        continue;
+      }
+      // Each copy is scaled from the one before it, which is at least twice as large.
+      image = scale(image, maxDimension.getValue(), hasAlpha);
+      byte[] content = hasAlpha ? encodePng(image) : encodeJpeg(image);
+      if (content.length < originalBytes.length) {
+        derivatives.add(
+            new Derivative(
+                maxDimension.getKey(), hasAlpha ? MediaType.PNG : MediaType.JPEG, content));
+      }
+    }
+    return derivatives;
+  }
+
+  // Checks the dimensions in the header before decoding the pixels. Returns null if the image isn't
+  // in a readable format or is too large.
+  @Nullable
+  private static BufferedImage read(byte[] bytes) throws IOException {
+    try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+      if (!readers.hasNext()) {
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(in, /* seekForwardOnly= */ true, /* ignoreMetadata= */ true);
+        if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+          return null;
+        }
+        return reader.read(0);
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  // Halving repeatedly, rather than scaling in one step, averages all of the source pixels.
+  private static BufferedImage scale(BufferedImage image, int maxDimension, boolean hasAlpha) {
+    double ratio = (double) maxDimension / Math.max(image.getWidth(), image.getHeight());
+    int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+    int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+    do {
+      int width = Math.max(targetWidth, image.getWidth() / 2);
+      int height = Math.max(targetHeight, image.getHeight() / 2);
+      var scaled =
+          new BufferedImage(
+              width, height, hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+      Graphics2D graphics = scaled.createGraphics();
+      try {
+        graphics.setRenderingHint(
+            RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.setRenderingHint(
+            RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.drawImage(image, 0, 0, width, height, null);
+      } finally {
+        graphics.dispose();
+      }
+      image = scaled;
+    } while (image.getWidth() != targetWidth || image.getHeight() != targetHeight);
+    return image;
+  }
+
+  private static byte[] encodeJpeg(BufferedImage image) throws IOException {
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    try {
+      ImageWriteParam param = writer.getDefaultWriteParam();
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(JPEG_QUALITY);
+
+      var bytes = new ByteArrayOutputStream();
+      try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+        writer.setOutput(out);
+        writer.write(null, new IIOImage(image, null, null), param);
+      }
+      return bytes.toByteArray();
+    } finally {
+      writer.dispose();
+    }
+  }
+
+  private static byte[] encodePng(BufferedImage image) throws IOException {
+    var bytes = new ByteArrayOutputStream();
+    checkArgument(ImageIO.write(image, "png", bytes));
+    return bytes.toByteArray();
+  }
+
+  // Cameras store photos as they were taken, along with an EXIF orientation that browsers apply.
+  // Copies don't keep the EXIF data. So, the orientation is applied to their pixels instead.
+  private static BufferedImage orient(BufferedImage image, int orientation) {
+    int w = image.getWidth();
+    int h = image.getHeight();
+    AffineTransform transform =
+        switch (orientation) {
+          case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);
+          case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);
+          case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);
+          case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+          case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);
+          case 7 -> new AffineTransform(0, -1, -1, 0, h, w);
+          case 8 -> new AffineTransform(0, -1, 1, 0, 0, w);
+          default -> null;
+        };
+    if (transform == null) {
+      return image;
+    }
+
+    boolean swap = orientation >= 5;
+    var oriented =
+        new BufferedImage(
+            swap ? h : w,
+            swap ? w : h,
+            image.getColorModel().hasAlpha()
+                ? BufferedImage.TYPE_INT_ARGB
+                : BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = oriented.createGraphics();
+    try {
+      graphics.drawImage(image, transform, null);
+    } finally {
+      graphics.dispose();
+    }
+    return oriented;
+  }
+
+  // Returns the orientation in a JPEG's EXIF data, or 1, which is upright, if there isn't one.
+  static int getExifOrientation(byte[] image) {
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(image);
+      if ((buffer.getShort(0) & 0xFFFF) != 0xFFD8) {
+        return 1;
+      }
+      for (int position = 2; position + 4 <= image.length; ) {
+        int marker = buffer.getShort(position) & 0xFFFF;
+        int length = buffer.getShort(position + 2) & 0xFFFF;
+        // Metadata segments all come before the start of the image data.
+        if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA) {
+          return 1;
+        }
+        // An APP1 segment that starts with "Exif\0\0".
+        if (marker == 0xFFE1 && buffer.getInt(position + 4) == 0x45786966) {
+          return getTiffOrientation(buffer, position + 10);
+        }
+        position += 2 + length;
+      }
+    } catch (IndexOutOfBoundsException e) {
+      // The data is malformed. So, leave it as it is.
+    }
+    return 1;
+  }
+
+  private static int getTiffOrientation(ByteBuffer buffer, int tiff) {
+    ByteBuffer ordered =
+        buffer
+            .duplicate()
+            .order(
+                buffer.getShort(tiff) == 0x4949 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+    int ifd = tiff + ordered.getInt(tiff + 4);
+    int entries = ordered.getShort(ifd) & 0xFFFF;
+    for (int i = 0; i < entries; i++) {
+      int entry = ifd + 2 + 12 * i;
+      if ((ordered.getShort(entry) & 0xFFFF) == EXIF_ORIENTATION_TAG) {
+        return ordered.getShort(entry + 8) & 0xFFFF;
+      }
+    }
+    return 1;
+  }
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.EntityManager;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.server.utils.http_user_x.AuthenticatedUserXCache;
 import org.davincischools.leo.server.utils.http_user_x.HttpUserXService;
 import org.springframework.core.MethodParameter;
 import org.springframework.web.bind.support.WebDataBinderFactory;
@@ -14,11 +15,22 @@ import org.springframework.web.method.support.ModelAndViewContainer;
 public class HttpExecutorArgumentResolver implements HandlerMethodArgumentResolver {
 
   private final Database db;
+  private final LogWriter logWriter;
+  private final LogFormatter logFormatter;
   private final EntityManager entityManager;
+  private final AuthenticatedUserXCache userXCache;
 
-  public HttpExecutorArgumentResolver(Database db, EntityManager entityManager) {
+  public HttpExecutorArgumentResolver(
+      Database db,
+      LogWriter logWriter,
+      LogFormatter logFormatter,
+      EntityManager entityManager,
+      AuthenticatedUserXCache userXCache) {
     this.db = db;
+    this.logWriter = logWriter;
+    this.logFormatter = logFormatter;
     this.entityManager = entityManager;
+    this.userXCache = userXCache;
   }
 
   @Override
@@ -36,11 +48,14 @@ public class HttpExecutorArgumentResolver implements HandlerMethodArgumentResolv
 
     return new HttpExecutors(
         db,
+        logWriter,
+        logFormatter,
         HttpUserXService.getAnonymousHttpUserX(
             db,
             webRequest.getNativeRequest(HttpServletRequest.class),
             webRequest.getNativeResponse(HttpServletResponse.class),
-            entityManager),
+            entityManager,
+            userXCache),
         webRequest.getNativeResponse(HttpServletResponse.class));
   }
 }
@@ -14,11 +14,20 @@ import org.springframework.stereotype.Service;
 public class HttpExecutors {
 
   Database db;
+  LogWriter logWriter;
+  LogFormatter logFormatter;
   HttpUserX userX;
   HttpServletResponse response;
 
-  public HttpExecutors(Database db, @Anonymous HttpUserX userX, HttpServletResponse response) {
+  public HttpExecutors(
+      Database db,
+      LogWriter logWriter,
+      LogFormatter logFormatter,
+      @Anonymous HttpUserX userX,
+      HttpServletResponse response) {
     this.db = db;
+    this.logWriter = logWriter;
+    this.logFormatter = logFormatter;
     this.userX = userX;
     this.response = response;
   }
@@ -30,6 +39,14 @@ public class HttpExecutors {
             .walk(fnStream -> fnStream.skip(1).findFirst().orElse(null));
 
     return new LoggingHttpExecutor<>(
-        db, userX, response, callerFrame.toStackTraceElement().toString(), input);
+        db,
+        logWriter,
+        logFormatter,
+        userX,
+        response,
+        callerFrame.toStackTraceElement().toString(),
+        // Without the line number, so that metrics have one series per method.
+        callerFrame.getDeclaringClass().getSimpleName() + "." + callerFrame.getMethodName(),
+        input);
   }
 }
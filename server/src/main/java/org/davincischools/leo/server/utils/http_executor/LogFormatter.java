@@ -0,0 +1,212 @@
+package org.davincischools.leo.server.utils.http_executor;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Streams;
+import com.google.protobuf.Message;
+import com.google.protobuf.MessageOrBuilder;
+import com.google.protobuf.TextFormat;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import javax.annotation.Nullable;
+import org.davincischools.leo.database.utils.repos.LogRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts request and response objects to strings for {@link
+ * org.davincischools.leo.database.daos.Log} fields.
+ *
+ * <p>Output is streamed into a buffer that stops once it reaches the configured size. So, a large
+ * response only costs as much as what is actually stored.
+ */
+@Component
+public class LogFormatter {
+
+  public static final String MAX_FIELD_BYTES_PROP_NAME = "project_leo.logs.max_field_bytes";
+  public static final String PROTO_FORMAT_PROP_NAME = "project_leo.logs.proto_format";
+
+  static final String TRUNCATED_MARKER = "\n... [truncated]";
+
+  /** How protobuf messages are written to the log. */
+  public enum ProtoFormat {
+    // Human-readable text format.
+    TEXT,
+    // Base64 encoded wire format. Decode it with the class in the matching *_type column.
+    BINARY,
+  }
+
+  private static final int MAX_HEADERS = 150;
+
+  private final int maxFieldBytes;
+  private final ProtoFormat protoFormat;
+
+  public LogFormatter(
+      @Value("${" + MAX_FIELD_BYTES_PROP_NAME + ":" + LogRepository.MAX_LOG_BYTES + "}")
+          int maxFieldBytes,
+      @Value("${" + PROTO_FORMAT_PROP_NAME + ":TEXT}") ProtoFormat protoFormat) {
+    checkArgument(
+        maxFieldBytes > TRUNCATED_MARKER.length(),
+        "%s must be greater than %s.",
+        MAX_FIELD_BYTES_PROP_NAME,
+        TRUNCATED_MARKER.length());
+    checkArgument(
+        maxFieldBytes <= LogRepository.MAX_LOG_BYTES,
+        "%s must be at most %s.",
+        MAX_FIELD_BYTES_PROP_NAME,
+        LogRepository.MAX_LOG_BYTES);
+
+    this.maxFieldBytes = maxFieldBytes;
+    this.protoFormat = checkNotNull(protoFormat);
+  }
+
+  /**
+   * Returns an immutable copy of the value if it can change before it's formatted. Otherwise, it
+   * returns the value itself.
+   */
+  @Nullable
+  static Object snapshot(@Nullable Object o) {
+    if (o instanceof Message.Builder builder) {
+      return builder.buildPartial();
+    } else if (o instanceof byte[] bytes) {
+      return bytes.clone();
+    }
+    return o;
+  }
+
+  public String format(@Nullable Object o) {
+    CappedAppendable out = new CappedAppendable(maxFieldBytes - TRUNCATED_MARKER.length());
+    try {
+      formatTo(o, out);
+    } catch (CappedAppendable.CapReachedException e) {
+      return out + TRUNCATED_MARKER;
+    } catch (Throwable t) {
+      return "Error converting to string: " + t.getMessage();
+    }
+    return out.toString();
+  }
+
+  private void formatTo(@Nullable Object o, CappedAppendable out) throws IOException {
+    // TODO: Make this Annotation based so that we can add more types.
+    if (o == null) {
+      out.append("null");
+    } else if (o instanceof MessageOrBuilder m) {
+      if (protoFormat == ProtoFormat.BINARY && o instanceof Message message) {
+        // A truncated binary message can't be decoded. So, only use it if it fits.
+        int encodedLength = (message.getSerializedSize() + 2) / 3 * 4;
+        if (encodedLength <= out.remainingBytes()) {
+          out.append(Base64.getEncoder().encodeToString(message.toByteArray()));
+          return;
+        }
+      }
+      TextFormat.printer().print(m, out);
+    } else if (o instanceof HttpServletRequest r) {
+      out.append("URI: ").append(r.getRequestURI());
+      for (String name :
+          Streams.stream(r.getHeaderNames().asIterator()).sorted().limit(MAX_HEADERS).toList()) {
+        out.append("\nHEADER: ")
+            .append(name)
+            .append(": ")
+            .append(Streams.stream(r.getHeaders(name).asIterator()).sorted().toList().toString());
+      }
+    } else if (o instanceof HttpServletResponse r) {
+      out.append("STATUS: ").append(String.valueOf(r.getStatus()));
+      out.append("\nCONTENT_TYPE: ").append(r.getContentType());
+      for (String name : r.getHeaderNames().stream().sorted().limit(MAX_HEADERS).toList()) {
+        out.append("\nHEADER: ")
+            .append(name)
+            .append(": ")
+            .append(r.getHeaders(name).stream().sorted().toList().toString());
+      }
+    } else if (o instanceof byte[] bytes) {
+      String converted = new String(bytes, StandardCharsets.UTF_8);
+      if (Arrays.compare(bytes, converted.getBytes(StandardCharsets.UTF_8)) == 0) {
+        out.append(converted);
+      } else {
+        out.append(new String(Base64.getMimeEncoder().encode(bytes), StandardCharsets.US_ASCII));
+      }
+    } else {
+      out.append(o.toString());
+    }
+  }
+
+  /**
+   * A StringBuilder that counts the UTF-8 encoded size of its contents and throws once a budget is
+   * exceeded. Throwing stops the caller from formatting the rest of a large object.
+   */
+  @VisibleForTesting
+  static class CappedAppendable implements Appendable {
+
+    // This is only thrown for control flow. So, a single instance without a stack trace is shared.
+    static class CapReachedException extends IOException {
+      private static final long serialVersionUID = 1L;
+
+      private static final CapReachedException INSTANCE = new CapReachedException();
+
+      private CapReachedException() {
+        super("Log field size cap reached.");
+      }
+
+      @Override
+      public synchronized Throwable fillInStackTrace() {
+        return this;
+      }
+    }
+
+    private final StringBuilder sb = new StringBuilder();
+    private final int maxBytes;
+    private int bytes = 0;
+
+    CappedAppendable(int maxBytes) {
+      this.maxBytes = maxBytes;
+    }
+
+    int remainingBytes() {
+      return maxBytes - bytes;
+    }
+
+    @Override
+    public CappedAppendable append(@Nullable CharSequence csq) throws CapReachedException {
+      CharSequence s = csq == null ? "null" : csq;
+      return append(s, 0, s.length());
+    }
+
+    @Override
+    public CappedAppendable append(@Nullable CharSequence csq, int start, int end)
+        throws CapReachedException {
+      CharSequence s = csq == null ? "null" : csq;
+      for (int i = start; i < end; ++i) {
+        append(s.charAt(i));
+      }
+      return this;
+    }
+
+    @Override
+    public CappedAppendable append(char c) throws CapReachedException {
+      // Each half of a surrogate pair counts as 2 of the 4 bytes of the pair.
+      int charBytes =
+          c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : /* Other BMP chars. */ 3;
+      if (bytes + charBytes > maxBytes) {
+        // Don't leave half of a surrogate pair at the end.
+        if (sb.length() > 0 && Character.isHighSurrogate(sb.charAt(sb.length() - 1))) {
+          sb.setLength(sb.length() - 1);
+        }
+        throw CapReachedException.INSTANCE;
+      }
+      sb.append(c);
+      bytes += charBytes;
+      return this;
+    }
+
+    @Override
+    public String toString() {
+      return sb.toString();
+    }
+  }
+}
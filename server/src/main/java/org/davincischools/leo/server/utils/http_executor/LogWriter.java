@@ -0,0 +1,420 @@
+package org.davincischools.leo.server.utils.http_executor;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.Nullable;
+import javax.sql.DataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.davincischools.leo.database.daos.Log;
+import org.davincischools.leo.database.daos.Log.StatusType;
+import org.davincischools.leo.database.daos.LogReference;
+import org.davincischools.leo.database.utils.DaoUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes {@link Log}s and their {@link LogReference}s to the database in the background.
+ *
+ * <p>Logs are placed in a bounded queue and a single flusher thread batch-inserts them with JDBC.
+ * This keeps the database round trip off of the request thread. Since the log id isn't known until
+ * the row is inserted, clients should correlate using {@link Log#getCorrelationId()}.
+ */
+@Component
+public class LogWriter {
+
+  public static final String QUEUE_CAPACITY_PROP_NAME = "project_leo.logs.queue_capacity";
+  public static final String BATCH_SIZE_PROP_NAME = "project_leo.logs.batch_size";
+  public static final String FLUSH_INTERVAL_MS_PROP_NAME = "project_leo.logs.flush_interval_ms";
+  public static final String BACKPRESSURE_PROP_NAME = "project_leo.logs.backpressure";
+  public static final String SAMPLE_RATE_PROP_NAME = "project_leo.logs.sample_rate";
+
+  private static final Logger logger = LogManager.getLogger();
+  private static final Joiner COMMA_JOINER = Joiner.on(", ");
+  private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+  // How long a blocked write waits for room in the queue before writing its log directly.
+  private static final Duration ENQUEUE_TIMEOUT = Duration.ofSeconds(10);
+
+  private static final ImmutableList<String> LOG_COLUMNS =
+      ImmutableList.of(
+          Log.COLUMN_CREATIONTIME_NAME,
+          "user_x_id",
+          Log.COLUMN_STATUS_NAME,
+          Log.COLUMN_NOTES_NAME,
+          Log.COLUMN_ISSUELINK_NAME,
+          Log.COLUMN_CORRELATIONID_NAME,
+          Log.COLUMN_CALLER_NAME,
+          Log.COLUMN_REQUEST_NAME,
+          Log.COLUMN_REQUESTTYPE_NAME,
+          Log.COLUMN_REQUESTTIME_NAME,
+          Log.COLUMN_INITIALRESPONSE_NAME,
+          Log.COLUMN_INITIALRESPONSETYPE_NAME,
+          Log.COLUMN_INITIALRESPONSETIME_NAME,
+          Log.COLUMN_FINALRESPONSE_NAME,
+          Log.COLUMN_FINALRESPONSETYPE_NAME,
+          Log.COLUMN_FINALRESPONSETIME_NAME,
+          Log.COLUMN_STACKTRACE_NAME,
+          Log.COLUMN_LASTINPUT_NAME,
+          Log.COLUMN_LASTINPUTTYPE_NAME,
+          Log.COLUMN_LASTINPUTTIME_NAME);
+
+  private static final ImmutableList<String> LOG_REFERENCE_COLUMNS =
+      ImmutableList.of(
+          LogReference.COLUMN_CREATIONTIME_NAME, "log_id", "project_input_id", "project_id");
+
+  /** What to do when logs are being created faster than they can be written. */
+  public enum Backpressure {
+    // Wait for room in the queue, or write the log directly. This slows down requests.
+    BLOCK,
+    // Drop new logs while the queue is full.
+    DROP,
+    // Once the queue is half full, keep only a sample of successful logs.
+    SAMPLE,
+  }
+
+  record PendingLog(Log log, ImmutableList<LogReference> logReferences) {}
+
+  private final DataSource dataSource;
+  private final BlockingQueue<PendingLog> queue;
+  private final int queueCapacity;
+  private final int batchSize;
+  private final long flushIntervalMs;
+  private final Backpressure backpressure;
+  private final double sampleRate;
+
+  private final AtomicLong writtenLogs = new AtomicLong();
+  private final AtomicLong droppedLogs = new AtomicLong();
+  private final AtomicLong failedLogs = new AtomicLong();
+
+  // Writes hold the read lock while they check for shutdown and enqueue. Shutdown holds the write
+  // lock to set the flag. So, once it's set, nothing more can be enqueued. Writes only wait for
+  // room in the queue for ENQUEUE_TIMEOUT. So, shutdown doesn't wait on them for long.
+  private final ReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+  private volatile boolean shutdown = false;
+  @Nullable private volatile Thread flushThread;
+
+  public LogWriter(
+      @Autowired DataSource dataSource,
+      @Value("${" + QUEUE_CAPACITY_PROP_NAME + ":10000}") int queueCapacity,
+      @Value("${" + BATCH_SIZE_PROP_NAME + ":100}") int batchSize,
+      @Value("${" + FLUSH_INTERVAL_MS_PROP_NAME + ":1000}") long flushIntervalMs,
+      @Value("${" + BACKPRESSURE_PROP_NAME + ":BLOCK}") Backpressure backpressure,
+      @Value("${" + SAMPLE_RATE_PROP_NAME + ":0.1}") double sampleRate) {
+    checkArgument(queueCapacity > 0, "%s must be positive.", QUEUE_CAPACITY_PROP_NAME);
+    checkArgument(batchSize > 0, "%s must be positive.", BATCH_SIZE_PROP_NAME);
+    checkArgument(flushIntervalMs > 0, "%s must be positive.", FLUSH_INTERVAL_MS_PROP_NAME);
+    checkArgument(
+        sampleRate >= 0 && sampleRate <= 1, "%s must be in [0, 1].", SAMPLE_RATE_PROP_NAME);
+
+    this.dataSource = checkNotNull(dataSource);
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.queueCapacity = queueCapacity;
+    this.batchSize = batchSize;
+    this.flushIntervalMs = flushIntervalMs;
+    this.backpressure = checkNotNull(backpressure);
+    this.sampleRate = sampleRate;
+  }
+
+  @PostConstruct
+  public void startFlushThread() {
+    flushThread =
+        new ThreadFactoryBuilder()
+            .setNameFormat(getClass().getSimpleName() + "FlushThread-%d")
+            .setDaemon(true)
+            .build()
+            .newThread(this::flushLogs);
+    flushThread.start();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    // Waits for writes that are enqueueing, including ones waiting for room in a full queue. The
+    // flush thread keeps draining the queue until the flag is set.
+    shutdownLock.writeLock().lock();
+    try {
+      shutdown = true;
+    } finally {
+      shutdownLock.writeLock().unlock();
+    }
+
+    Thread thread = flushThread;
+    if (thread != null) {
+      try {
+        thread.join(SHUTDOWN_TIMEOUT.toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    // Write whatever the flush thread didn't get to.
+    List<PendingLog> remaining = new ArrayList<>();
+    queue.drainTo(remaining);
+    for (int i = 0; i < remaining.size(); i += batchSize) {
+      writeLogs(remaining.subList(i, Math.min(remaining.size(), i + batchSize)));
+    }
+    logger.atInfo().log("Log writer shut down. Wrote {} remaining logs.", remaining.size());
+  }
+
+  public void write(Log log, List<LogReference> logReferences) {
+    checkNotNull(log);
+    checkNotNull(logReferences);
+
+    var pendingLog = new PendingLog(log, ImmutableList.copyOf(logReferences));
+
+    shutdownLock.readLock().lock();
+    try {
+      // If there's no flush thread to drain the queue, the log is written directly.
+      Thread thread = flushThread;
+      if (!shutdown && thread != null && thread.isAlive() && enqueue(pendingLog)) {
+        return;
+      }
+    } finally {
+      shutdownLock.readLock().unlock();
+    }
+
+    writeLogs(List.of(pendingLog));
+  }
+
+  // Returns false if the log should be written directly instead.
+  private boolean enqueue(PendingLog pendingLog) {
+    // Errors are always kept. They're the logs we look at.
+    switch (pendingLog.log().getStatus() == StatusType.ERROR ? Backpressure.BLOCK : backpressure) {
+      case BLOCK -> {
+        try {
+          return queue.offer(pendingLog, ENQUEUE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      }
+      case DROP -> {
+        if (!queue.offer(pendingLog)) {
+          droppedLogs.incrementAndGet();
+        }
+      }
+      case SAMPLE -> {
+        if (queue.size() >= queueCapacity / 2
+            && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+          droppedLogs.incrementAndGet();
+        } else if (!queue.offer(pendingLog)) {
+          droppedLogs.incrementAndGet();
+        }
+      }
+    }
+    return true;
+  }
+
+  @VisibleForTesting
+  Thread getFlushThread() {
+    return flushThread;
+  }
+
+  public int getPendingLogs() {
+    return queue.size();
+  }
+
+  public long getWrittenLogs() {
+    return writtenLogs.get();
+  }
+
+  public long getDroppedLogs() {
+    return droppedLogs.get();
+  }
+
+  public long getFailedLogs() {
+    return failedLogs.get();
+  }
+
+  private void flushLogs() {
+    List<PendingLog> batch = new ArrayList<>(batchSize);
+    while (!shutdown) {
+      try {
+        PendingLog first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        writeLogs(batch);
+      } catch (InterruptedException e) {
+        // Nothing else drains the queue. So, keep going until shutdown.
+        logger.atWarn().log("Log flush thread interrupted. Continuing.");
+      } catch (Throwable t) {
+        logger.atError().withThrowable(t).log("Flushing logs failed.");
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void writeLogs(List<PendingLog> pendingLogs) {
+    if (pendingLogs.isEmpty()) {
+      return;
+    }
+
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        insertLogs(connection, pendingLogs);
+        insertLogReferences(connection, pendingLogs);
+        connection.commit();
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      }
+      writtenLogs.addAndGet(pendingLogs.size());
+    } catch (Throwable t) {
+      failedLogs.addAndGet(pendingLogs.size());
+      logger
+          .atError()
+          .withThrowable(t)
+          .log(
+              "Failed to write {} logs: {}",
+              pendingLogs.size(),
+              pendingLogs.stream().map(p -> p.log().getCorrelationId()).toList());
+    }
+  }
+
+  private static void insertLogs(Connection connection, List<PendingLog> pendingLogs)
+      throws SQLException {
+    var utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    try (PreparedStatement statement =
+        connection.prepareStatement(
+            toInsertSql(Log.TABLE_NAME, LOG_COLUMNS), Statement.RETURN_GENERATED_KEYS)) {
+      for (var pendingLog : pendingLogs) {
+        Log log = pendingLog.log();
+        int i = 0;
+        setInstant(statement, ++i, log.getCreationTime(), utc);
+        setInteger(statement, ++i, (Integer) DaoUtils.getId(log.getUserX()).orElse(null));
+        statement.setString(++i, log.getStatus().name());
+        statement.setString(++i, log.getNotes());
+        statement.setString(++i, log.getIssueLink());
+        statement.setString(++i, log.getCorrelationId());
+        statement.setString(++i, log.getCaller());
+        statement.setString(++i, log.getRequest());
+        statement.setString(++i, log.getRequestType());
+        setInstant(statement, ++i, log.getRequestTime(), utc);
+        statement.setString(++i, log.getInitialResponse());
+        statement.setString(++i, log.getInitialResponseType());
+        setInstant(statement, ++i, log.getInitialResponseTime(), utc);
+        statement.setString(++i, log.getFinalResponse());
+        statement.setString(++i, log.getFinalResponseType());
+        setInstant(statement, ++i, log.getFinalResponseTime(), utc);
+        statement.setString(++i, log.getStackTrace());
+        statement.setString(++i, log.getLastInput());
+        statement.setString(++i, log.getLastInputType());
+        setInstant(statement, ++i, log.getLastInputTime(), utc);
+        statement.addBatch();
+      }
+      statement.executeBatch();
+
+      // Generated keys are returned in the order that rows were added.
+      try (ResultSet keys = statement.getGeneratedKeys()) {
+        for (var pendingLog : pendingLogs) {
+          if (!keys.next()) {
+            throw new SQLException("Missing generated key for log.");
+          }
+          pendingLog.log().setId(keys.getInt(1));
+        }
+      }
+    }
+  }
+
+  private static void insertLogReferences(Connection connection, List<PendingLog> pendingLogs)
+      throws SQLException {
+    if (pendingLogs.stream().allMatch(p -> p.logReferences().isEmpty())) {
+      return;
+    }
+
+    var utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    try (PreparedStatement statement =
+        connection.prepareStatement(
+            toInsertSql(LogReference.TABLE_NAME, LOG_REFERENCE_COLUMNS),
+            Statement.RETURN_GENERATED_KEYS)) {
+      List<LogReference> logReferences = new ArrayList<>();
+      for (var pendingLog : pendingLogs) {
+        for (var logReference : pendingLog.logReferences()) {
+          int i = 0;
+          setInstant(statement, ++i, logReference.getCreationTime(), utc);
+          statement.setInt(++i, pendingLog.log().getId());
+          setInteger(
+              statement,
+              ++i,
+              (Integer) DaoUtils.getId(logReference.getProjectInput()).orElse(null));
+          setInteger(
+              statement, ++i, (Integer) DaoUtils.getId(logReference.getProject()).orElse(null));
+          statement.addBatch();
+          logReferences.add(logReference);
+        }
+      }
+      statement.executeBatch();
+
+      try (ResultSet keys = statement.getGeneratedKeys()) {
+        for (var logReference : logReferences) {
+          if (!keys.next()) {
+            throw new SQLException("Missing generated key for log reference.");
+          }
+          logReference.setId(keys.getInt(1));
+        }
+      }
+    }
+  }
+
+  private static String toInsertSql(String tableName, List<String> columns) {
+    return "INSERT INTO "
+        + tableName
+        + " ("
+        + COMMA_JOINER.join(columns)
+        + ") VALUES ("
+        + COMMA_JOINER.join(Collections.nCopies(columns.size(), "?"))
+        + ")";
+  }
+
+  private static void setInstant(
+      PreparedStatement statement, int index, @Nullable Instant instant, Calendar utc)
+      throws SQLException {
+    if (instant == null) {
+      statement.setNull(index, Types.TIMESTAMP);
+    } else {
+      statement.setTimestamp(index, Timestamp.from(instant), utc);
+    }
+  }
+
+  private static void setInteger(PreparedStatement statement, int index, @Nullable Integer value)
+      throws SQLException {
+    if (value == null) {
+      statement.setNull(index, Types.INTEGER);
+    } else {
+      statement.setInt(index, value);
+    }
+  }
+}
@@ -7,23 +7,17 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Streams;
-import com.google.protobuf.Message;
-import com.google.protobuf.TextFormat;
-import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.transaction.Transactional;
 import jakarta.transaction.Transactional.TxType;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Base64;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import javax.annotation.CheckReturnValue;
-import javax.annotation.Nullable;
 import org.apache.logging.log4j.LogManager;
 import org.davincischools.leo.database.daos.Log;
 import org.davincischools.leo.database.daos.Log.StatusType;
@@ -31,6 +25,7 @@ import org.davincischools.leo.database.daos.LogReference;
 import org.davincischools.leo.database.daos.Project;
 import org.davincischools.leo.database.daos.ProjectInput;
 import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.database.utils.MetricUtils;
 import org.davincischools.leo.server.utils.http_user_x.HttpUserX;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -42,14 +37,18 @@ public class LoggingHttpExecutor<R, I> implements HttpExecutor<R, I>, HttpExecut
       "While processing that error an additional error occurred:\n";
   private static final Joiner ADDITIONAL_ERROR_JOINER =
       Joiner.on("\n\n" + ADDITIONAL_ERROR_MESSAGE);
-  private static final Joiner EOL_JOINER = Joiner.on("\n");
   private static final String LOG_ID_HEADER_NAME = "x-pl-log-id";
 
   final Database db;
+  final LogWriter logWriter;
+  final LogFormatter logFormatter;
   final HttpServletResponse response;
   final Log log;
   final List<LogReference> logReferences = new ArrayList<>();
   final R originalRequest;
+  final String callerName;
+  final long startNanos = System.nanoTime();
+  int step = 0;
 
   boolean onlyLogOnFailure = false;
 
@@ -59,6 +58,11 @@ public class LoggingHttpExecutor<R, I> implements HttpExecutor<R, I>, HttpExecut
   Object lastSuccessfulInput;
   Instant lastSuccessfulInputTime;
 
+  // These are only formatted in finish(), and only if the log is going to be written.
+  Object requestToLog;
+  Object initialResponseToLog;
+  boolean logInitialResponse = false;
+
   /**
    * True if we've handled the error with an onError(). It causes any future functionality to be
    * skipped until the final writes the log entry before it returns from finish().
@@ -69,16 +73,23 @@ public class LoggingHttpExecutor<R, I> implements HttpExecutor<R, I>, HttpExecut
 
   LoggingHttpExecutor(
       @Autowired Database db,
+      @Autowired LogWriter logWriter,
+      @Autowired LogFormatter logFormatter,
       @Autowired HttpUserX user,
       @Autowired HttpServletResponse response,
       String caller,
+      String callerName,
       R input) {
     this.db = checkNotNull(db);
-    this.log = new Log().setCreationTime(Instant.now());
+    this.logWriter = checkNotNull(logWriter);
+    this.logFormatter = checkNotNull(logFormatter);
+    this.log = new Log().setCreationTime(Instant.now()).setCorrelationId(createCorrelationId());
     this.response = response;
 
     user.get().ifPresent(log::setUserX);
 
+    this.callerName = checkNotNull(callerName);
+
     originalRequest = input;
     lastSuccessfulInput = input;
     lastSuccessfulInputTime = Instant.now();
@@ -86,7 +97,7 @@ public class LoggingHttpExecutor<R, I> implements HttpExecutor<R, I>, HttpExecut
     log.setCaller(caller);
     log.setRequestTime(Instant.now());
     log.setRequestType(input.getClass().getName());
-    log.setRequest(trimToLogLength(ioToString(input)));
+    requestToLog = LogFormatter.snapshot(input);
   }
 
   @Override
@@ -145,12 +156,12 @@ public class LoggingHttpExecutor<R, I> implements HttpExecutor<R, I>, HttpExecut
   public HttpExecutor<R, I> logInitialResponse() {
     if (lastSuccessfulInput != null) {
       log.setInitialResponseType(lastSuccessfulInput.getClass().getName());
-      log.setInitialResponse(trimToLogLength(ioToString(lastSuccessfulInput)));
     } else {
       log.setInitialResponseType("null");
-      log.setInitialResponse(null);
     }
     log.setInitialResponseTime(lastSuccessfulInputTime);
+    initialResponseToLog = LogFormatter.snapshot(lastSuccessfulInput);
+    logInitialResponse = true;
 
     return this;
   }
@@ -161,6 +172,7 @@ public class LoggingHttpExecutor<R, I> implements HttpExecutor<R, I>, HttpExecut
   public <O> HttpExecutor<R, O> andThen(InputConsumer<I, O> inputConsumer) {
     if (!skipToFinish && throwables.isEmpty()) {
       Instant startTime = Instant.now();
+      long stepStartNanos = System.nanoTime();
       for (int retry = 0; retry <= retries; ++retry) {
         try {
           lastSuccessfulInput = inputConsumer.accept((I) lastSuccessfulInput, this);
@@ -180,7 +192,18 @@ public class LoggingHttpExecutor<R, I> implements HttpExecutor<R, I>, HttpExecut
           }
         }
       }
+      MetricUtils.recordSince(
+          stepStartNanos,
+          "leo.http_executor.step",
+          "The duration of each andThen() step, including its retries.",
+          "caller",
+          callerName,
+          "step",
+          Integer.toString(step),
+          "outcome",
+          throwables.isEmpty() ? "success" : "error");
     }
+    ++step;
 
     retries = 0;
     retriesWithinMilliseconds = 0;
@@ -226,7 +249,7 @@ public class LoggingHttpExecutor<R, I> implements HttpExecutor<R, I>, HttpExecut
           } else {
             log.setLastInputType("null");
           }
-          log.setLastInput(trimToLogLength(ioToString(lastSuccessfulInput)));
+          log.setLastInput(logFormatter.format(lastSuccessfulInput));
           log.setLastInputTime(lastSuccessfulInputTime);
 
           log.setStackTrace(
@@ -266,7 +289,7 @@ public class LoggingHttpExecutor<R, I> implements HttpExecutor<R, I>, HttpExecut
         } else {
           log.setFinalResponseType("null");
         }
-        log.setFinalResponse(trimToLogLength(ioToString(lastSuccessfulInput)));
+        log.setFinalResponse(logFormatter.format(lastSuccessfulInput));
 
         return (I) lastSuccessfulInput;
       } catch (Throwable t) {
@@ -276,7 +299,9 @@ public class LoggingHttpExecutor<R, I> implements HttpExecutor<R, I>, HttpExecut
       logger
           .atError()
           .withThrowable(throwables.get(0))
-          .log("An error occurred while finishing the executor: {}", ioToString(originalRequest));
+          .log(
+              "An error occurred while finishing the executor: {}",
+              logFormatter.format(originalRequest));
       throw new HttpExecutorException(
           new Error<>(originalRequest, lastSuccessfulInput, ImmutableList.copyOf(throwables)));
     } finally {
@@ -284,9 +309,23 @@ public class LoggingHttpExecutor<R, I> implements HttpExecutor<R, I>, HttpExecut
         log.setStatus(StatusType.SUCCESS);
       }
 
-      db.getLogRepository().save(log);
-      db.getLogReferenceRepository().saveAll(logReferences);
-      response.addHeader(LOG_ID_HEADER_NAME, log.getId().toString());
+      // Skip formatting and writing entirely if nobody will look at it.
+      if (!onlyLogOnFailure || !throwables.isEmpty() || log.getStatus() != StatusType.SUCCESS) {
+        log.setRequest(logFormatter.format(requestToLog));
+        if (logInitialResponse) {
+          log.setInitialResponse(logFormatter.format(initialResponseToLog));
+        }
+        logWriter.write(log, logReferences);
+        response.addHeader(LOG_ID_HEADER_NAME, log.getCorrelationId());
+      }
+      MetricUtils.recordSince(
+          startNanos,
+          "leo.http_executor.request",
+          "The duration of each HttpExecutors.start() chain, through finish().",
+          "caller",
+          callerName,
+          "status",
+          log.getStatus().name());
     }
   }
 
@@ -294,62 +333,15 @@ public class LoggingHttpExecutor<R, I> implements HttpExecutor<R, I>, HttpExecut
     return finish((error, log) -> Optional.empty());
   }
 
-  @Nullable
-  private static String ioToString(@Nullable Object o) {
-    // TODO: Make this Annotation based so that we can add more types.
-    if (o == null) {
-      return "null";
-    } else if (o instanceof Message) {
-      return TextFormat.printer().printToString((Message) o);
-    } else if (o instanceof HttpServletRequest r) {
-      Iterator<String> e1 = r.getHeaderNames().asIterator();
-      return EOL_JOINER.join(
-          ImmutableList.builder()
-              .add("URI: " + r.getRequestURI())
-              .addAll(
-                  Streams.stream(e1)
-                      .sorted()
-                      .limit(150)
-                      .map(
-                          name ->
-                              "HEADER: "
-                                  + name
-                                  + ": "
-                                  + Streams.stream(r.getHeaders(name).asIterator())
-                                      .sorted()
-                                      .toList())
-                      .toList())
-              .build());
-    } else if (o instanceof HttpServletResponse r) {
-      return EOL_JOINER.join(
-          ImmutableList.builder()
-              .add("STATUS: " + r.getStatus())
-              .add("CONTENT_TYPE: " + r.getContentType())
-              .addAll(
-                  r.getHeaderNames().stream()
-                      .sorted()
-                      .limit(150)
-                      .map(
-                          name ->
-                              "HEADER: "
-                                  + name
-                                  + ": "
-                                  + r.getHeaders(name).stream().sorted().toList())
-                      .toList())
-              .build());
-    } else if (o instanceof byte[]) {
-      String converted = new String((byte[]) o, StandardCharsets.UTF_8);
-      if (Arrays.compare((byte[]) o, converted.getBytes(StandardCharsets.UTF_8)) == 0) {
-        return converted;
-      } else {
-        return new String(Base64.getMimeEncoder().encode((byte[]) o), StandardCharsets.US_ASCII);
-      }
-    } else {
-      try {
-        return o.toString();
-      } catch (Throwable t) {
-        return "Error converting to string: " + t.getMessage();
-      }
-    }
+  // 16 random bytes, which encode to 22 base64 characters without padding.
+  private static String createCorrelationId() {
+    UUID uuid = UUID.randomUUID();
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(
+            ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array());
   }
 }
@@ -0,0 +1,125 @@
+package org.davincischools.leo.server.utils.http_user_x;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.davincischools.leo.database.daos.UserX;
+import org.davincischools.leo.database.utils.DaoUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Caches the authenticated {@link UserX}, which is otherwise loaded for every {@link HttpUserX}.
+ *
+ * <p>Within a request, the user is only loaded once, no matter how many {@link HttpUserX}s are
+ * created. Across requests, it is kept per session for a short time. Call {@link #invalidate} after
+ * changing a user so that its sessions see the change.
+ *
+ * <p>Each request gets its own copy of a cached user. So, a request that changes its user doesn't
+ * change the users of other requests.
+ */
+@Component
+public class AuthenticatedUserXCache {
+
+  public static final String SESSION_TTL_MS_PROP_NAME = "project_leo.user_x.session_cache_ttl_ms";
+
+  private static final String REQUEST_ATTRIBUTE_NAME = AuthenticatedUserXCache.class.getName();
+  private static final int MAX_SESSIONS = 10000;
+
+  private record SessionKey(String sessionId, String name) {}
+
+  // The user of a request, for the authentication it was loaded for.
+  private record RequestUserX(Authentication auth, Optional<UserX> userX) {}
+
+  private final Cache<SessionKey, UserX> sessionUserXs;
+
+  public AuthenticatedUserXCache(
+      @Value("${" + SESSION_TTL_MS_PROP_NAME + ":30000}") long sessionTtlMs) {
+    checkArgument(sessionTtlMs >= 0, "%s must not be negative.", SESSION_TTL_MS_PROP_NAME);
+
+    this.sessionUserXs =
+        CacheBuilder.newBuilder()
+            .maximumSize(sessionTtlMs > 0 ? MAX_SESSIONS : 0)
+            .expireAfterWrite(Duration.ofMillis(sessionTtlMs))
+            .build();
+  }
+
+  /** Returns the user for the authentication, only calling the loader if it isn't cached. */
+  Optional<UserX> get(
+      HttpServletRequest request, Authentication auth, Supplier<Optional<UserX>> loader) {
+    checkNotNull(request);
+    checkNotNull(auth);
+    checkNotNull(loader);
+
+    if (request.getAttribute(REQUEST_ATTRIBUTE_NAME) instanceof RequestUserX requestUserX
+        && requestUserX.auth() == auth) {
+      return requestUserX.userX();
+    }
+
+    var session = request.getSession(false);
+    var sessionKey = session != null ? new SessionKey(session.getId(), auth.getName()) : null;
+    Optional<UserX> userX =
+        Optional.ofNullable(sessionKey != null ? sessionUserXs.getIfPresent(sessionKey) : null)
+            .map(AuthenticatedUserXCache::copyOf);
+    if (userX.isEmpty()) {
+      userX = loader.get();
+      // A missing user isn't cached, since it can be registered at any time.
+      if (sessionKey != null && userX.isPresent()) {
+        sessionUserXs.put(sessionKey, copyOf(userX.get()));
+      }
+    }
+
+    request.setAttribute(REQUEST_ATTRIBUTE_NAME, new RequestUserX(auth, userX));
+    return userX;
+  }
+
+  /**
+   * Removes the user from the session cache. If there is a transaction, the user is removed again
+   * after it commits, so that the old user isn't cached again in the meantime.
+   */
+  public void invalidate(int userXId) {
+    remove(userXId);
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              remove(userXId);
+            }
+          });
+    }
+  }
+
+  // Copies the user's columns and its loaded district and roles. Other associations only keep ids.
+  @VisibleForTesting
+  static UserX copyOf(UserX userX) {
+    return DaoUtils.removeTransientValues(userX)
+        .setDistrict(copyIfInitialized(userX.getDistrict()))
+        .setAdminX(copyIfInitialized(userX.getAdminX()))
+        .setTeacher(copyIfInitialized(userX.getTeacher()))
+        .setStudent(copyIfInitialized(userX.getStudent()));
+  }
+
+  // An uninitialized proxy can't be read or changed once detached. So, it's kept as is.
+  @Nullable
+  private static <T> T copyIfInitialized(@Nullable T dao) {
+    return DaoUtils.isInitialized(dao) ? DaoUtils.removeTransientValues(dao) : dao;
+  }
+
+  private void remove(int userXId) {
+    sessionUserXs.asMap().values().removeIf(userX -> Objects.equals(userX.getId(), userXId));
+  }
+}
@@ -20,7 +20,8 @@ public class HttpUserXArgumentResolver implements HandlerMethodArgumentResolver
         Database db,
         HttpServletRequest request,
         HttpServletResponse response,
-        EntityManager entityManager);
+        EntityManager entityManager,
+        AuthenticatedUserXCache userXCache);
   }
 
   private static final ImmutableMap<Class<? extends Annotation>, HttpUserXCreator>
@@ -35,10 +36,13 @@ public class HttpUserXArgumentResolver implements HandlerMethodArgumentResolver
 
   private final Database db;
   private final EntityManager entityManager;
+  private final AuthenticatedUserXCache userXCache;
 
-  public HttpUserXArgumentResolver(Database db, EntityManager entityManager) {
+  public HttpUserXArgumentResolver(
+      Database db, EntityManager entityManager, AuthenticatedUserXCache userXCache) {
     this.db = db;
     this.entityManager = entityManager;
+    this.userXCache = userXCache;
   }
 
   @Override
@@ -76,7 +80,8 @@ public class HttpUserXArgumentResolver implements HandlerMethodArgumentResolver
             db,
             webRequest.getNativeRequest(HttpServletRequest.class),
             webRequest.getNativeResponse(HttpServletResponse.class),
-            entityManager);
+            entityManager,
+            userXCache);
       }
     }
     throw new UnsupportedOperationException("Could not find HttpUserX for " + parameter);
@@ -24,21 +24,31 @@ public class HttpUserXService {
 
   private static final Logger logger = LogManager.getLogger();
 
-  private static Optional<UserX> getAuthenticatedUserX(Database db, EntityManager entityManager) {
-    Optional<UserX> optionalUserX = Optional.empty();
+  private static Optional<UserX> getAuthenticatedUserX(
+      Database db,
+      HttpServletRequest request,
+      EntityManager entityManager,
+      AuthenticatedUserXCache userXCache) {
     Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-    if (auth != null) {
-      if (auth.getPrincipal() instanceof UserXDetails details) {
-        optionalUserX = db.getUserXRepository().findById(details.getUserX().getId());
-      } else if (auth.getPrincipal() instanceof OAuth2AuthenticatedPrincipal oauth2
-          && !Strings.isNullOrEmpty(oauth2.getAttribute("email"))) {
-        optionalUserX =
-            db
-                .getUserXRepository()
-                .getUserXs(new GetUserXsParams().setHasEmailAddress(oauth2.getAttribute("email")))
-                .stream()
-                .findFirst();
-      }
+    if (auth == null) {
+      return Optional.empty();
+    }
+    return userXCache.get(request, auth, () -> loadAuthenticatedUserX(db, entityManager, auth));
+  }
+
+  private static Optional<UserX> loadAuthenticatedUserX(
+      Database db, EntityManager entityManager, Authentication auth) {
+    Optional<UserX> optionalUserX = Optional.empty();
+    if (auth.getPrincipal() instanceof UserXDetails details) {
+      optionalUserX = db.getUserXRepository().findById(details.getUserX().getId());
+    } else if (auth.getPrincipal() instanceof OAuth2AuthenticatedPrincipal oauth2
+        && !Strings.isNullOrEmpty(oauth2.getAttribute("email"))) {
+      optionalUserX =
+          db
+              .getUserXRepository()
+              .getUserXs(new GetUserXsParams().setHasEmailAddress(oauth2.getAttribute("email")))
+              .stream()
+              .findFirst();
     }
     optionalUserX.ifPresent(
         userX -> {
@@ -54,8 +64,10 @@ public class HttpUserXService {
       Database db,
       HttpServletRequest request,
       HttpServletResponse response,
-      EntityManager entityManager) {
-    return new HttpUserX(getAuthenticatedUserX(db, entityManager), request, response, false);
+      EntityManager entityManager,
+      AuthenticatedUserXCache userXCache) {
+    return new HttpUserX(
+        getAuthenticatedUserX(db, request, entityManager, userXCache), request, response, false);
   }
 
   @Bean
@@ -64,8 +76,10 @@ public class HttpUserXService {
       Database db,
       HttpServletRequest request,
       HttpServletResponse response,
-      EntityManager entityManager) {
-    return new HttpUserX(getAuthenticatedUserX(db, entityManager), request, response, true);
+      EntityManager entityManager,
+      AuthenticatedUserXCache userXCache) {
+    return new HttpUserX(
+        getAuthenticatedUserX(db, request, entityManager, userXCache), request, response, true);
   }
 
   @Bean
@@ -74,8 +88,9 @@ public class HttpUserXService {
       Database db,
       HttpServletRequest request,
       HttpServletResponse response,
-      EntityManager entityManager) {
-    Optional<UserX> userX = getAuthenticatedUserX(db, entityManager);
+      EntityManager entityManager,
+      AuthenticatedUserXCache userXCache) {
+    Optional<UserX> userX = getAuthenticatedUserX(db, request, entityManager, userXCache);
     if (userX.isPresent() && UserXRepository.isAdminX(userX.get())) {
       return new HttpUserX(userX, request, response, true);
     }
@@ -88,8 +103,9 @@ public class HttpUserXService {
       Database db,
       HttpServletRequest request,
       HttpServletResponse response,
-      EntityManager entityManager) {
-    Optional<UserX> userX = getAuthenticatedUserX(db, entityManager);
+      EntityManager entityManager,
+      AuthenticatedUserXCache userXCache) {
+    Optional<UserX> userX = getAuthenticatedUserX(db, request, entityManager, userXCache);
     if (userX.isPresent() && UserXRepository.isTeacher(userX.get())) {
       return new HttpUserX(userX, request, response, true);
     }
@@ -102,8 +118,9 @@ public class HttpUserXService {
       Database db,
       HttpServletRequest request,
       HttpServletResponse response,
-      EntityManager entityManager) {
-    Optional<UserX> userX = getAuthenticatedUserX(db, entityManager);
+      EntityManager entityManager,
+      AuthenticatedUserXCache userXCache) {
+    Optional<UserX> userX = getAuthenticatedUserX(db, request, entityManager, userXCache);
     if (userX.isPresent() && UserXRepository.isStudent(userX.get())) {
       return new HttpUserX(userX, request, response, true);
     }
@@ -0,0 +1,46 @@
+package org.davincischools.leo.server.utils.http_user_x;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.davincischools.leo.database.utils.ReplicaRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Sets the {@link ReplicaRoutingDataSource} session of a request to its user, or to its session if
+ * it isn't logged in. So, a user's reads go to the primary for a while after they change something.
+ *
+ * <p>The session is cleared when the request completes, or when its thread is released for
+ * asynchronous processing, e.g., of an {@code SseEmitter}. It's also cleared before each request in
+ * case a thread was left with the session of an earlier one.
+ */
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+  @Override
+  public boolean preHandle(
+      HttpServletRequest request, HttpServletResponse response, Object handler) {
+    ReplicaRoutingDataSource.setSessionKey(null);
+
+    var auth = SecurityContextHolder.getContext().getAuthentication();
+    if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+      ReplicaRoutingDataSource.setSessionKey("user:" + auth.getName());
+    } else if (request.getSession(false) != null) {
+      ReplicaRoutingDataSource.setSessionKey("session:" + request.getSession(false).getId());
+    }
+    return true;
+  }
+
+  @Override
+  public void afterConcurrentHandlingStarted(
+      HttpServletRequest request, HttpServletResponse response, Object handler) {
+    // afterCompletion() isn't called on this thread when the request continues asynchronously.
+    ReplicaRoutingDataSource.setSessionKey(null);
+  }
+
+  @Override
+  public void afterCompletion(
+      HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+    ReplicaRoutingDataSource.setSessionKey(null);
+  }
+}
@@ -1,8 +1,16 @@
 package org.davincischools.leo.server.utils.task_queue;
 
+import javax.annotation.Nullable;
+
 public class TaskMetadata<M extends TaskMetadata<M>> {
   int retries;
 
+  // The id of the persistent task, if the task was claimed from the database.
+  @Nullable Integer taskId;
+
+  // When the task was first added to the pending tasks, for its wait time.
+  long pendingSinceNanos;
+
   @SuppressWarnings("unchecked")
   public M setRetries(int retries) {
     this.retries = retries;
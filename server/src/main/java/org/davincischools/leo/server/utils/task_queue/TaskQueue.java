@@ -1,29 +1,48 @@
 package org.davincischools.leo.server.utils.task_queue;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 import static org.davincischools.leo.server.utils.TextUtils.numberLines;
 import static org.davincischools.leo.server.utils.TextUtils.quoteAndEscape;
 
 import com.fasterxml.jackson.core.JsonParseException;
+import com.google.common.collect.ObjectArrays;
+import com.google.common.reflect.TypeToken;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.Internal;
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
 import jakarta.annotation.PostConstruct;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.time.Duration;
-import java.util.ArrayList;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.davincischools.leo.database.daos.Task;
+import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.database.utils.MetricUtils;
+import org.davincischools.leo.database.utils.ReplicaRoutingDataSource;
+import org.davincischools.leo.database.utils.repos.TaskRepository;
+import org.davincischools.leo.server.utils.ConcurrencyLimiter;
 import org.junit.internal.Throwables;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
@@ -32,43 +51,91 @@ public abstract class TaskQueue<T extends Message, M extends TaskMetadata<M>> {
 
   public static final String AUTO_SCAN_FOR_TASKS_PROP_NAME =
       "project_leo.tasks.auto_scan_for_tasks";
+  public static final String PERSISTENT_PROP_NAME = "project_leo.tasks.persistent";
+  public static final String LEASE_DURATION_MS_PROP_NAME = "project_leo.tasks.lease_duration_ms";
+  public static final String POLL_INTERVAL_MS_PROP_NAME = "project_leo.tasks.poll_interval_ms";
+
+  private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
 
   private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+", Pattern.DOTALL);
-  private static final Object LOCK = new Object();
   private static final Logger logger = LogManager.getLogger();
 
-  @GuardedBy("LOCK")
-  private static final List<TaskQueue<?, ?>> taskQueues = new ArrayList<>();
+  // Identifies this server as the owner of the persistent tasks it has claimed.
+  private static final String LEASE_OWNER = getHostName() + ":" + UUID.randomUUID();
+
+  private static final List<TaskQueue<?, ?>> taskQueues = new CopyOnWriteArrayList<>();
+
+  // Moves delayed tasks into their queues, for all queues.
+  private static final ScheduledExecutorService delayedSubmitter =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder()
+              .setNameFormat(TaskQueue.class.getSimpleName() + "DelayThread-%d")
+              .setDaemon(true)
+              .build());
 
-  @GuardedBy("LOCK")
+  private final Object lock = new Object();
+
+  @GuardedBy("lock")
   private QueueMetadata<T, M> queueMetadata;
 
-  @GuardedBy("LOCK")
-  private final LinkedHashMap<T, M> pendingTasks = new LinkedHashMap<>();
+  // Pending tasks, with the metadata they'll be processed with.
+  @GuardedBy("lock")
+  private final Map<T, M> pendingTasks = new HashMap<>();
+
+  // Pending tasks that are not already being processed, in the order they can be processed.
+  @GuardedBy("lock")
+  private final ArrayDeque<T> runnableTasks = new ArrayDeque<>();
 
-  @GuardedBy("LOCK")
+  @GuardedBy("lock")
   private final Set<T> processingTasks = new HashSet<>();
 
+  // Persistent tasks claimed by this server, whose leases need to be kept alive.
+  @GuardedBy("lock")
+  private final Set<Integer> leasedTaskIds = new HashSet<>();
+
+  // Set if tasks are kept in the database rather than only in memory.
+  @Nullable private TaskRepository taskRepository;
+  private Parser<T> taskParser;
+  private Duration leaseDuration;
+  private Duration pollInterval;
+
   private final int numThreads;
   private final Semaphore semaphore;
-  private boolean autoScanForTasks = false;
   private final ExecutorService executorService;
+  private boolean autoScanForTasks = false;
 
   protected TaskQueue(int numThreads) {
+    this(numThreads, /* executorService= */ null);
+  }
+
+  /**
+   * Runs tasks on the limiter's executor, rather than on a fixed pool of this queue's own. Use it
+   * for tasks that mostly wait on the limited service. Then, as many tasks can be in flight as the
+   * limit allows, shared with the other queues that use it.
+   */
+  protected TaskQueue(ConcurrencyLimiter limiter) {
+    this(
+        limiter.getMaxConcurrentCalls() > 0 ? limiter.getMaxConcurrentCalls() : Integer.MAX_VALUE,
+        limiter.getExecutor());
+  }
+
+  private TaskQueue(int numThreads, @Nullable ExecutorService executorService) {
+    checkArgument(numThreads > 0, "There must be at least one thread.");
+
     this.numThreads = numThreads;
     semaphore = new Semaphore(numThreads);
-    executorService =
-        Executors.newFixedThreadPool(
-            numThreads,
-            new ThreadFactoryBuilder()
-                .setNameFormat(getClass().getSimpleName() + "Thread-%d")
-                .setDaemon(true)
-                .build());
-
-    synchronized (LOCK) {
-      resetTaskQueues();
-      taskQueues.add(this);
-    }
+    this.executorService =
+        executorService != null
+            ? executorService
+            : Executors.newFixedThreadPool(
+                numThreads,
+                new ThreadFactoryBuilder()
+                    .setNameFormat(getClass().getSimpleName() + "Thread-%d")
+                    .setDaemon(true)
+                    .build());
+
+    resetTaskQueues();
+    taskQueues.add(this);
 
     new ThreadFactoryBuilder()
         .setNameFormat(getClass().getSimpleName() + "ProcessThread-%d")
@@ -79,17 +146,42 @@ public abstract class TaskQueue<T extends Message, M extends TaskMetadata<M>> {
   }
 
   @Autowired
-  public final void initializeAutowiredProperties(Environment environment) {
+  public final void initializeAutowiredProperties(Environment environment, Database db) {
     autoScanForTasks = environment.getProperty(AUTO_SCAN_FOR_TASKS_PROP_NAME, Boolean.class, false);
+
+    if (environment.getProperty(PERSISTENT_PROP_NAME, Boolean.class, false)) {
+      // Only the retries of the metadata are persisted. Other fields would be lost.
+      checkState(
+          createDefaultMetadata().getClass() == DefaultTaskMetadata.class,
+          "%s has custom metadata, which can't be persisted.",
+          getClass().getSimpleName());
+      taskRepository = db.getTaskRepository();
+      taskParser = getTaskParser();
+      leaseDuration =
+          Duration.ofMillis(
+              environment.getProperty(LEASE_DURATION_MS_PROP_NAME, Long.class, 600_000L));
+      pollInterval =
+          Duration.ofMillis(environment.getProperty(POLL_INTERVAL_MS_PROP_NAME, Long.class, 1000L));
+    }
   }
 
   @PostConstruct
   public void autoRescan() {
+    if (taskRepository != null) {
+      new ThreadFactoryBuilder()
+          .setNameFormat(getClass().getSimpleName() + "PollThread-%d")
+          .setDaemon(true)
+          .build()
+          .newThread(this::pollForTasks)
+          .start();
+    }
+
     rescanForTasks(true);
   }
 
   public void rescanForTasks(boolean isAutoRescan) {
-    if (isAutoRescan && !autoScanForTasks) {
+    if (isAutoRescan && (!autoScanForTasks || taskRepository != null)) {
+      // Persistent tasks survive a restart. So, there's nothing to rediscover.
       logger.atInfo().log("Skipping rescan for tasks: {}", getClass().getSimpleName());
       return;
     }
@@ -103,8 +195,11 @@ public abstract class TaskQueue<T extends Message, M extends TaskMetadata<M>> {
   }
 
   public void resetTaskQueues() {
-    synchronized (LOCK) {
+    synchronized (lock) {
+      // Leases on dropped persistent tasks expire. Then, the tasks are claimed again.
+      pendingTasks.values().forEach(m -> leasedTaskIds.remove(m.taskId));
       pendingTasks.clear();
+      runnableTasks.clear();
       queueMetadata =
           QueueMetadata.<T, M>builder()
               .setName(this.getClass().getSimpleName())
@@ -125,22 +220,47 @@ public abstract class TaskQueue<T extends Message, M extends TaskMetadata<M>> {
     checkNotNull(task);
     checkNotNull(metadata);
 
-    new Timer()
-        .schedule(
-            new TimerTask() {
-              @Override
-              public void run() {
-                synchronized (LOCK) {
-                  queueMetadata.submittedTasks++;
-                  M oldMetadata = pendingTasks.put(task, metadata);
-                  if (oldMetadata != null) {
-                    queueMetadata.skippedTasks++;
-                  }
-                  LOCK.notifyAll();
-                }
-              }
-            },
-            afterDuration.toMillis());
+    if (taskRepository != null) {
+      boolean added =
+          taskRepository.submitTask(
+              getClass().getSimpleName(), task.toByteArray(), metadata.retries, afterDuration);
+      synchronized (lock) {
+        queueMetadata.submittedTasks++;
+        if (!added) {
+          queueMetadata.skippedTasks++;
+        }
+      }
+    } else if (afterDuration.isZero() || afterDuration.isNegative()) {
+      submitPendingTask(task, metadata);
+    } else {
+      delayedSubmitter.schedule(
+          () -> submitPendingTask(task, metadata), afterDuration.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void submitPendingTask(T task, M metadata) {
+    synchronized (lock) {
+      queueMetadata.submittedTasks++;
+      if (addPendingTask(task, metadata) != null) {
+        // It's already pending. It will be processed with the new metadata.
+        queueMetadata.skippedTasks++;
+      }
+    }
+  }
+
+  // Returns the metadata of the identical task that was already pending, if any.
+  @Nullable
+  private M addPendingTask(T task, M metadata) {
+    synchronized (lock) {
+      M oldMetadata = pendingTasks.put(task, metadata);
+      metadata.pendingSinceNanos =
+          oldMetadata != null ? oldMetadata.pendingSinceNanos : System.nanoTime();
+      if (oldMetadata == null && !processingTasks.contains(task)) {
+        runnableTasks.add(task);
+        lock.notifyAll();
+      }
+      return oldMetadata;
+    }
   }
 
   public void submitTask(T task, Duration afterDuration) {
@@ -160,32 +280,22 @@ public abstract class TaskQueue<T extends Message, M extends TaskMetadata<M>> {
 
   @SuppressWarnings("InfiniteLoopStatement")
   private void processTasks() {
-    NEXT_TASK:
     while (true) {
       try {
-        // Get next task.
+        // Get next task that is not being processed already.
         T task;
         M taskMetadata;
-        synchronized (LOCK) {
-          // Pull out a task that is not being processed already.
-          Map.Entry<T, M> entry;
-          var i = pendingTasks.entrySet().iterator();
-          do {
-            if (!i.hasNext()) {
-              try {
-                LOCK.wait();
-              } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-              }
-              continue NEXT_TASK;
+        synchronized (lock) {
+          while (runnableTasks.isEmpty()) {
+            try {
+              lock.wait();
+            } catch (InterruptedException e) {
+              throw new RuntimeException(e);
             }
-            entry = i.next();
-          } while (processingTasks.contains(entry.getKey()));
-
-          task = entry.getKey();
-          taskMetadata = entry.getValue();
+          }
 
-          i.remove();
+          task = runnableTasks.remove();
+          taskMetadata = pendingTasks.remove(task);
           processingTasks.add(task);
         }
 
@@ -202,36 +312,64 @@ public abstract class TaskQueue<T extends Message, M extends TaskMetadata<M>> {
         executorService.submit(
             () -> {
               long startTimeMs = System.currentTimeMillis();
+              long startNanos = System.nanoTime();
+              recordTaskTime(
+                  "leo.task_queue.wait",
+                  "The time from when a task is pending, or claimed if persistent, until it"
+                      + " starts.",
+                  taskMetadata.pendingSinceNanos,
+                  startNanos,
+                  "persistent",
+                  Boolean.toString(taskMetadata.taskId != null));
+              String outcome = "skipped";
+              boolean retry = false;
+              String lastFailure = null;
+              // Tasks are often submitted right after their rows are written. So, a replica may
+              // not have them yet.
+              ReplicaRoutingDataSource.setReadFromPrimary(true);
               try {
                 if (processTask(task, taskMetadata)) {
-                  synchronized (LOCK) {
+                  outcome = "success";
+                  synchronized (lock) {
                     queueMetadata.totalProcessingTimeMs += System.currentTimeMillis() - startTimeMs;
                     queueMetadata.totalProcessingTimeCount++;
                   }
                 }
               } catch (Throwable t) {
-                synchronized (LOCK) {
+                outcome = "failure";
+                lastFailure =
+                    Throwables.getStacktrace(t)
+                        + System.lineSeparator()
+                        + System.lineSeparator()
+                        + TaskQueue.toCompressedString(task);
+                synchronized (lock) {
                   queueMetadata.totalFailedProcessingTimeMs +=
                       System.currentTimeMillis() - startTimeMs;
                   queueMetadata.totalFailedProcessingTimeCount++;
                   queueMetadata.failures++;
-                  queueMetadata.lastFailure =
-                      Throwables.getStacktrace(t)
-                          + System.lineSeparator()
-                          + System.lineSeparator()
-                          + TaskQueue.toCompressedString(task);
+                  queueMetadata.lastFailure = lastFailure;
                   if (taskMetadata.retries-- > 0) {
                     queueMetadata.retries++;
-                    submitTask(task, taskMetadata, Duration.ofSeconds(5));
-                    return;
+                    retry = true;
+                    outcome = "retry";
+                  }
+                }
+                if (retry) {
+                  // Persistent tasks are retried when they are finished below.
+                  if (taskMetadata.taskId == null) {
+                    delayedSubmitter.schedule(
+                        () -> submitPendingTask(task, taskMetadata),
+                        RETRY_DELAY.toMillis(),
+                        TimeUnit.MILLISECONDS);
                   }
+                  return;
                 }
                 try {
                   taskFailed(task, taskMetadata, t);
                   // Export more information about the exception to the logs.
                   logExceptionInfo(task, t);
                 } catch (Throwable t2) {
-                  synchronized (LOCK) {
+                  synchronized (lock) {
                     queueMetadata.errors++;
                     queueMetadata.lastFailure =
                         Throwables.getStacktrace(t).trim()
@@ -244,22 +382,160 @@ public abstract class TaskQueue<T extends Message, M extends TaskMetadata<M>> {
                   }
                 }
               } finally {
+                ReplicaRoutingDataSource.setReadFromPrimary(false);
+                recordTaskTime(
+                    "leo.task_queue.run",
+                    "The time to process a task. Retried attempts have the retry outcome.",
+                    startNanos,
+                    System.nanoTime(),
+                    "outcome",
+                    outcome);
                 semaphore.release();
-                synchronized (LOCK) {
+                if (taskMetadata.taskId != null) {
+                  finishPersistentTask(taskMetadata.taskId, retry, lastFailure);
+                }
+                synchronized (lock) {
                   queueMetadata.processedTasks++;
                   processingTasks.remove(task);
-                  LOCK.notifyAll();
+                  // It was submitted again while it was being processed.
+                  if (pendingTasks.containsKey(task)) {
+                    runnableTasks.add(task);
+                    lock.notifyAll();
+                  }
                 }
               }
             });
       } catch (Throwable t) {
         logger.atError().withThrowable(t).log("Processing tasks failed.");
-        synchronized (LOCK) {
+        synchronized (lock) {
+          queueMetadata.errors++;
+          queueMetadata.lastFailure = Throwables.getStacktrace(t).trim();
+        }
+      }
+    }
+  }
+
+  private void recordTaskTime(
+      String name, String description, long startNanos, long endNanos, String... tags) {
+    MetricUtils.timer(
+            name,
+            description,
+            ObjectArrays.concat(
+                new String[] {"queue", getClass().getSimpleName()}, tags, String.class))
+        .record(Duration.ofNanos(endNanos - startNanos));
+  }
+
+  @SuppressWarnings("InfiniteLoopStatement")
+  private void pollForTasks() {
+    checkNotNull(taskRepository);
+
+    Instant nextLeaseRenewal = Instant.now();
+    while (true) {
+      try {
+        // Only claim what can be processed soon, so that other servers can take the rest.
+        int capacity;
+        synchronized (lock) {
+          capacity = numThreads - processingTasks.size() - runnableTasks.size();
+        }
+        if (capacity > 0) {
+          for (Task claimed :
+              taskRepository.claimTasks(
+                  getClass().getSimpleName(), LEASE_OWNER, leaseDuration, capacity)) {
+            addClaimedTask(claimed);
+          }
+        }
+
+        if (!Instant.now().isBefore(nextLeaseRenewal)) {
+          List<Integer> taskIds;
+          synchronized (lock) {
+            taskIds = List.copyOf(leasedTaskIds);
+          }
+          if (!taskIds.isEmpty()) {
+            taskRepository.renewLeases(taskIds, LEASE_OWNER, leaseDuration.toMillis());
+          }
+          nextLeaseRenewal = Instant.now().plus(leaseDuration.dividedBy(3));
+        }
+      } catch (Throwable t) {
+        logger.atError().withThrowable(t).log("Polling for tasks failed.");
+        synchronized (lock) {
           queueMetadata.errors++;
           queueMetadata.lastFailure = Throwables.getStacktrace(t).trim();
-          LOCK.notifyAll();
         }
       }
+
+      try {
+        Thread.sleep(pollInterval.toMillis());
+      } catch (InterruptedException ignored) {
+      }
+    }
+  }
+
+  private void addClaimedTask(Task claimed) {
+    checkNotNull(taskRepository);
+
+    T task;
+    try {
+      task = taskParser.parseFrom(claimed.getPayload());
+    } catch (InvalidProtocolBufferException e) {
+      taskRepository.failTask(claimed.getId(), LEASE_OWNER, Throwables.getStacktrace(e));
+      return;
+    }
+
+    // Earlier attempts, possibly on other servers, count against the retries.
+    M metadata = createDefaultMetadata();
+    metadata.retries = Math.max(0, claimed.getRetries() - (claimed.getAttempts() - 1));
+    metadata.taskId = claimed.getId();
+
+    M oldMetadata;
+    synchronized (lock) {
+      leasedTaskIds.add(claimed.getId());
+      oldMetadata = addPendingTask(task, metadata);
+      if (oldMetadata != null) {
+        leasedTaskIds.remove(oldMetadata.taskId);
+      }
+    }
+    // The identical task that was already pending is replaced by this one.
+    if (oldMetadata != null && oldMetadata.taskId != null) {
+      taskRepository.completeTask(oldMetadata.taskId, LEASE_OWNER);
+    }
+  }
+
+  private void finishPersistentTask(int taskId, boolean retry, @Nullable String lastFailure) {
+    checkNotNull(taskRepository);
+
+    try {
+      if (retry) {
+        taskRepository.retryTask(taskId, LEASE_OWNER, RETRY_DELAY.toMillis(), lastFailure);
+      } else if (lastFailure != null) {
+        taskRepository.failTask(taskId, LEASE_OWNER, lastFailure);
+      } else {
+        taskRepository.completeTask(taskId, LEASE_OWNER);
+      }
+    } catch (Throwable t) {
+      // The lease will expire and the task will be run again.
+      logger.atError().withThrowable(t).log("Finishing task {} failed.", taskId);
+      synchronized (lock) {
+        queueMetadata.errors++;
+        queueMetadata.lastFailure = Throwables.getStacktrace(t).trim();
+      }
+    } finally {
+      synchronized (lock) {
+        leasedTaskIds.remove(taskId);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Parser<T> getTaskParser() {
+    Class<T> taskClass = (Class<T>) new TypeToken<T>(getClass()) {}.getRawType();
+    return (Parser<T>) Internal.getDefaultInstance(taskClass).getParserForType();
+  }
+
+  private static String getHostName() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      return "unknown";
     }
   }
 
@@ -286,18 +562,17 @@ public abstract class TaskQueue<T extends Message, M extends TaskMetadata<M>> {
   }
 
   public static List<? extends QueueMetadata<?, ?>> getTaskQueueMetadata() {
-    synchronized (LOCK) {
-      return taskQueues.stream()
-          .map(
-              t -> {
-                // Account for tasks that are waiting for a thread.
-                int waiting = Math.max(0, t.processingTasks.size() - t.numThreads);
-                return t.queueMetadata.toBuilder()
-                    .setProcessingTasks(t.processingTasks.size() - waiting)
-                    .setPendingTasks(t.pendingTasks.size() + waiting)
-                    .build();
-              })
-          .toList();
+    return taskQueues.stream().map(TaskQueue::getQueueMetadata).toList();
+  }
+
+  private QueueMetadata<T, M> getQueueMetadata() {
+    synchronized (lock) {
+      // Account for tasks that are waiting for a thread.
+      int waiting = Math.max(0, processingTasks.size() - numThreads);
+      return queueMetadata.toBuilder()
+          .setProcessingTasks(processingTasks.size() - waiting)
+          .setPendingTasks(pendingTasks.size() + waiting)
+          .build();
     }
   }
 
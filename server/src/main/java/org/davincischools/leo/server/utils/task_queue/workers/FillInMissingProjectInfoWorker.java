@@ -28,7 +28,7 @@ public final class FillInMissingProjectInfoWorker
 
   public FillInMissingProjectInfoWorker(
       @Autowired Database db, @Autowired OpenAiUtils openAiUtils) {
-    super(15);
+    super(openAiUtils.getRequestLimiter());
     this.db = db;
     this.openAiUtils = openAiUtils;
   }
@@ -53,7 +53,7 @@ public final class FillInMissingProjectInfoWorker
 
   @Override
   protected boolean processTask(FillInMissingProjectInfoTask task, DefaultTaskMetadata metadata)
-      throws IOException {
+      throws IOException, InterruptedException {
 
     // Get the existing project.
     var existingProject =
@@ -28,7 +28,7 @@ public class GenerateDerivedProjectsWorker
   private final OpenAiUtils openAiUtils;
 
   public GenerateDerivedProjectsWorker(@Autowired Database db, @Autowired OpenAiUtils openAiUtils) {
-    super(15);
+    super(openAiUtils.getRequestLimiter());
     this.db = db;
     this.openAiUtils = openAiUtils;
   }
@@ -57,7 +57,7 @@ public class GenerateDerivedProjectsWorker
 
   @Override
   protected boolean processTask(GenerateDerivedProjectsTask task, DefaultTaskMetadata metadata)
-      throws IOException {
+      throws IOException, InterruptedException {
     var generatorIo = ProjectGeneratorIo.getProjectGeneratorIo(db, task.getProjectInputId());
     if (generatorIo == null) {
       throw new IllegalArgumentException("Unable to create derived projects.");
@@ -91,7 +91,9 @@ public class GenerateDerivedProjectsWorker
     generatorIo
         .setExistingProject(existingProject)
         .setExistingProjectUseType(generatorIo.getProjectInput().getExistingProjectUseType())
-        .setNumberOfProjects(5);
+        .setNumberOfProjects(5)
+        // Users ask for derived projects to see new ones. So, don't repeat earlier results.
+        .setBypassCache(true);
 
     try {
       new OpenAi3V3ProjectGenerator(openAiUtils).generateProjects(generatorIo);
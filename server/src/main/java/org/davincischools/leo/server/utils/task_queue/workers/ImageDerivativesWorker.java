@@ -0,0 +1,132 @@
+package org.davincischools.leo.server.utils.task_queue.workers;
+
+import com.google.common.io.Files;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.davincischools.leo.database.daos.FileX;
+import org.davincischools.leo.database.daos.FileX.DerivativeSizeType;
+import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.protos.task_service.CreateImageDerivativesTask;
+import org.davincischools.leo.server.utils.file_x.FileXContentStore;
+import org.davincischools.leo.server.utils.file_x.ImageDerivatives;
+import org.davincischools.leo.server.utils.file_x.ImageDerivatives.Derivative;
+import org.davincischools.leo.server.utils.task_queue.DefaultTaskMetadata;
+import org.davincischools.leo.server.utils.task_queue.TaskQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+/** Saves resized copies of uploaded images, which GetFile serves when a size is requested. */
+@Component
+public final class ImageDerivativesWorker
+    extends TaskQueue<CreateImageDerivativesTask, DefaultTaskMetadata> {
+
+  private static final Logger logger = LogManager.getLogger();
+
+  // Images are scanned for in batches, so that their ids aren't all loaded at once.
+  private static final int SCAN_BATCH_SIZE = 1000;
+
+  private final Database db;
+  private final FileXContentStore fileXContentStore;
+
+  public ImageDerivativesWorker(
+      @Autowired Database db, @Autowired FileXContentStore fileXContentStore) {
+    // Resizing is CPU bound, unlike the other workers, which wait on OpenAI.
+    super(2);
+    this.db = db;
+    this.fileXContentStore = fileXContentStore;
+  }
+
+  @Override
+  protected DefaultTaskMetadata createDefaultMetadata() {
+    return new DefaultTaskMetadata().setRetries(2);
+  }
+
+  @Override
+  protected void scanForTasks() {
+    List<String> mimeTypes =
+        ImageDerivatives.SOURCE_MIME_TYPES.stream().map(Object::toString).toList();
+    List<Integer> fileXIds;
+    int afterId = 0;
+    do {
+      fileXIds =
+          db.getFileXRepository()
+              .findIdsWithoutDerivatives(mimeTypes, afterId, PageRequest.of(0, SCAN_BATCH_SIZE));
+      for (int fileXId : fileXIds) {
+        submitTask(CreateImageDerivativesTask.newBuilder().setFileXId(fileXId).build());
+        afterId = fileXId;
+      }
+    } while (fileXIds.size() == SCAN_BATCH_SIZE);
+  }
+
+  @Override
+  protected boolean processTask(CreateImageDerivativesTask task, DefaultTaskMetadata metadata)
+      throws IOException {
+    FileX original = db.getFileXRepository().findById(task.getFileXId()).orElse(null);
+    if (original == null || original.getDeleted() != null) {
+      return false;
+    }
+
+    Set<DerivativeSizeType> existingSizes = EnumSet.noneOf(DerivativeSizeType.class);
+    existingSizes.addAll(db.getFileXRepository().findDerivativeSizes(original.getId()));
+    if (existingSizes.containsAll(ImageDerivatives.MAX_DIMENSIONS.keySet())) {
+      db.getFileXRepository().setDerivativesCreated(original.getId(), Instant.now());
+      return false;
+    }
+
+    byte[] originalBytes;
+    try (InputStream content = fileXContentStore.openContent(original)) {
+      originalBytes = content.readAllBytes();
+    }
+
+    // A failure to read the content is retried. But, an image that fails to decode would fail
+    // again. So, it's marked below like other images without copies.
+    List<Derivative> derivatives;
+    try {
+      derivatives = ImageDerivatives.createDerivatives(new ByteArrayInputStream(originalBytes));
+    } catch (IOException | RuntimeException e) {
+      logger
+          .atWarn()
+          .withThrowable(e)
+          .log("Failed to create copies of image {}.", original.getId());
+      derivatives = List.of();
+    }
+
+    boolean created = false;
+    for (Derivative derivative : derivatives) {
+      if (existingSizes.contains(derivative.size())) {
+        continue;
+      }
+
+      // Copies are only reachable through the original's id and key. So, they share its key.
+      FileX fileX =
+          new FileX()
+              .setCreationTime(Instant.now())
+              .setUserX(original.getUserX())
+              .setFileName(
+                  Files.getNameWithoutExtension(original.getFileName())
+                      + "-"
+                      + derivative.size().name().toLowerCase()
+                      + "."
+                      + derivative.mediaType().subtype())
+              .setMimeType(derivative.mediaType().toString())
+              .setFileKey(original.getFileKey())
+              .setOriginalFileX(original)
+              .setDerivativeSize(derivative.size());
+      fileXContentStore.setContent(fileX, new ByteArrayInputStream(derivative.content()));
+      db.getFileXRepository().save(fileX);
+      created = true;
+    }
+    // Small, large and undecodable images don't get copies. They're marked too, so that they aren't
+    // scanned again.
+    db.getFileXRepository().setDerivativesCreated(original.getId(), Instant.now());
+    return created;
+  }
+}
@@ -4,6 +4,11 @@ import static org.davincischools.leo.database.utils.DaoUtils.getId;
 import static org.davincischools.leo.database.utils.DaoUtils.removeTransientValues;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.davincischools.leo.database.daos.Project;
 import org.davincischools.leo.database.daos.ProjectInput.StateType;
 import org.davincischools.leo.database.utils.Database;
 import org.davincischools.leo.database.utils.repos.GetProjectInputsParams;
@@ -12,6 +17,7 @@ import org.davincischools.leo.server.utils.OpenAiUtils;
 import org.davincischools.leo.server.utils.task_queue.DefaultTaskMetadata;
 import org.davincischools.leo.server.utils.task_queue.TaskQueue;
 import org.davincischools.leo.server.utils.task_queue.workers.project_generators.AiProject;
+import org.davincischools.leo.server.utils.task_queue.workers.project_generators.ProjectGenerationProgress;
 import org.davincischools.leo.server.utils.task_queue.workers.project_generators.ProjectGeneratorIo;
 import org.davincischools.leo.server.utils.task_queue.workers.project_generators.open_ai.OpenAi3V3ProjectGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,13 +26,20 @@ import org.springframework.stereotype.Component;
 @Component
 public class ProjectGeneratorWorker extends TaskQueue<GenerateProjectsTask, DefaultTaskMetadata> {
 
+  private static final Logger logger = LogManager.getLogger();
+
   private final Database db;
   private final OpenAiUtils openAiUtils;
+  private final ProjectGenerationProgress projectGenerationProgress;
 
-  protected ProjectGeneratorWorker(@Autowired Database db, @Autowired OpenAiUtils openAiUtils) {
-    super(20);
+  protected ProjectGeneratorWorker(
+      @Autowired Database db,
+      @Autowired OpenAiUtils openAiUtils,
+      @Autowired ProjectGenerationProgress projectGenerationProgress) {
+    super(openAiUtils.getRequestLimiter());
     this.db = db;
     this.openAiUtils = openAiUtils;
+    this.projectGenerationProgress = projectGenerationProgress;
   }
 
   @Override
@@ -52,7 +65,7 @@ public class ProjectGeneratorWorker extends TaskQueue<GenerateProjectsTask, Defa
 
   @Override
   protected boolean processTask(GenerateProjectsTask task, DefaultTaskMetadata metadata)
-      throws JsonProcessingException {
+      throws JsonProcessingException, InterruptedException {
     var generatorIo = ProjectGeneratorIo.getProjectGeneratorIo(db, task.getProjectInputId());
     if (generatorIo == null) {
       throw new IllegalArgumentException("Unable to create projects.");
@@ -64,17 +77,38 @@ public class ProjectGeneratorWorker extends TaskQueue<GenerateProjectsTask, Defa
       return false;
     }
 
-    generatorIo.setExistingProject(null).setFillInProject(null).setNumberOfProjects(5);
+    // Projects are saved as they're generated, so that the first ones are seen sooner.
+    var savedProjects = new ArrayList<Project>();
+    generatorIo
+        .setExistingProject(null)
+        .setFillInProject(null)
+        .setNumberOfProjects(5)
+        .setAiProjectListener(aiProject -> saveProject(generatorIo, aiProject, savedProjects));
 
     try {
-      new OpenAi3V3ProjectGenerator(openAiUtils).generateProjects(generatorIo);
-
-      db.getProjectRepository()
-          .deeplySaveProjects(
-              db,
-              generatorIo.getAiProjects().projects.stream()
-                  .map(p -> AiProject.aiProjectToProject(generatorIo, p))
-                  .toList());
+      try {
+        new OpenAi3V3ProjectGenerator(openAiUtils).generateProjects(generatorIo);
+      } catch (RuntimeException | JsonProcessingException e) {
+        if (savedProjects.isEmpty()) {
+          throw e;
+        }
+        // The user may already be looking at the saved projects. So, keep them rather than
+        // retrying and generating a different set.
+        logger
+            .atWarn()
+            .withThrowable(e)
+            .log(
+                "Project generation failed after {} projects for project input {}.",
+                savedProjects.size(),
+                task.getProjectInputId());
+      }
+
+      // Save any projects that weren't streamed, e.g., cached ones.
+      if (generatorIo.getAiProjects() != null) {
+        generatorIo.getAiProjects().projects.stream()
+            .skip(savedProjects.size())
+            .forEach(aiProject -> saveProject(generatorIo, aiProject, savedProjects));
+      }
 
       generatorIo.getProjectInput().setState(StateType.COMPLETED);
     } finally {
@@ -85,12 +119,22 @@ public class ProjectGeneratorWorker extends TaskQueue<GenerateProjectsTask, Defa
 
       removeTransientValues(generatorIo.getProjectInput(), db.getProjectInputRepository()::save);
     }
+    projectGenerationProgress.generationFinished(task.getProjectInputId(), StateType.COMPLETED);
 
     return true;
   }
 
+  private void saveProject(
+      ProjectGeneratorIo generatorIo, AiProject aiProject, List<Project> savedProjects) {
+    Project project = AiProject.aiProjectToProject(generatorIo, aiProject);
+    db.getProjectRepository().deeplySaveProjects(db, List.of(project));
+    savedProjects.add(project);
+    projectGenerationProgress.projectGenerated(generatorIo.getProjectInput().getId(), project);
+  }
+
   @Override
   protected void taskFailed(GenerateProjectsTask task, DefaultTaskMetadata metadata, Throwable t) {
     db.getProjectInputRepository().updateState(task.getProjectInputId(), StateType.FAILED);
+    projectGenerationProgress.generationFinished(task.getProjectInputId(), StateType.FAILED);
   }
 }
@@ -1,19 +1,19 @@
 package org.davincischools.leo.server.utils.task_queue.workers;
 
-import static java.util.Comparator.comparing;
 import static org.davincischools.leo.database.utils.DaoUtils.listIfInitialized;
-import static org.davincischools.leo.database.utils.DaoUtils.streamIfInitialized;
 import static org.davincischools.leo.server.utils.HtmlUtils.stripOutHtml;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
 import com.google.common.collect.Iterables;
 import java.io.IOException;
 import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.Map;
+import javax.annotation.Nullable;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.davincischools.leo.database.daos.Project;
@@ -22,11 +22,14 @@ import org.davincischools.leo.database.daos.ProjectPost;
 import org.davincischools.leo.database.daos.ProjectPostComment;
 import org.davincischools.leo.database.daos.ProjectPostRating;
 import org.davincischools.leo.database.daos.ProjectPostRating.RatingType;
+import org.davincischools.leo.database.daos.ProjectPostSummary;
+import org.davincischools.leo.database.daos.UserX;
 import org.davincischools.leo.database.utils.Database;
 import org.davincischools.leo.database.utils.repos.GetProjectInputsParams;
-import org.davincischools.leo.database.utils.repos.GetProjectPostsParams;
 import org.davincischools.leo.database.utils.repos.GetProjectsParams;
 import org.davincischools.leo.protos.task_service.ReplyToPostTask;
+import org.davincischools.leo.server.utils.ConcurrencyLimiter;
+import org.davincischools.leo.server.utils.OpenAiUtils;
 import org.davincischools.leo.server.utils.task_queue.DefaultTaskMetadata;
 import org.davincischools.leo.server.utils.task_queue.TaskQueue;
 import org.davincischools.leo.server.utils.task_queue.workers.reply_to_post_generators.AiComment;
@@ -46,9 +49,16 @@ public final class ReplyToPostsWorker extends TaskQueue<ReplyToPostTask, Default
   private final Database db;
   private final AiCommentGenerator aiCommentGenerator;
 
+  @Autowired
   public ReplyToPostsWorker(
-      @Autowired Database db, @Autowired AiCommentGenerator aiCommentGenerator) {
-    super(10);
+      Database db, AiCommentGenerator aiCommentGenerator, OpenAiUtils openAiUtils) {
+    this(db, aiCommentGenerator, openAiUtils.getRequestLimiter());
+  }
+
+  @VisibleForTesting
+  ReplyToPostsWorker(
+      Database db, AiCommentGenerator aiCommentGenerator, ConcurrencyLimiter requestLimiter) {
+    super(requestLimiter);
     this.db = db;
     this.aiCommentGenerator = aiCommentGenerator;
   }
@@ -69,29 +79,90 @@ public final class ReplyToPostsWorker extends TaskQueue<ReplyToPostTask, Default
 
   @Override
   protected boolean processTask(ReplyToPostTask task, DefaultTaskMetadata metadata)
-      throws IOException {
+      throws IOException, InterruptedException {
+    UserX coach = db.getUserXRepository().getProjectLeoCoach();
+
+    // Coach Leo's comments on earlier posts are kept in a running summary, so that only new posts
+    // need to be loaded.
+    ProjectPostSummary summary =
+        db.getProjectPostSummaryRepository()
+            .findByProjectId(task.getProjectId())
+            .orElseGet(
+                () ->
+                    new ProjectPostSummary()
+                        .setCreationTime(Instant.now())
+                        .setProject(new Project().setId(task.getProjectId()))
+                        .setThroughProjectPostId(0));
+    List<ProjectPost> projectPosts =
+        db.getProjectPostRepository()
+            .findPostsAfterOrWithoutComment(
+                task.getProjectId(), summary.getThroughProjectPostId(), coach.getId());
+    if (projectPosts.isEmpty()) {
+      return false;
+    }
+
+    // Get the most recent Coach Leo comment for each post, if it exists.
+    Map<Integer, ProjectPostComment> coachComments = new HashMap<>();
+    db.getProjectPostCommentRepository()
+        .findByProjectPostIdsAndUserXId(
+            projectPosts.stream().map(ProjectPost::getId).toList(), coach.getId())
+        .forEach(comment -> coachComments.put(comment.getProjectPost().getId(), comment));
+
+    CommentGeneratorIo generatorIo = null;
+    for (var projectPost : projectPosts) {
+      ProjectPostComment coachComment = coachComments.get(projectPost.getId());
+
+      // If the Coach Leo comment doesn't exist yet, create one.
+      if (coachComment == null) {
+        if (generatorIo == null) {
+          generatorIo = createCommentGeneratorIo(task.getProjectId());
+          if (generatorIo == null) {
+            return false;
+          }
+        }
+        coachComment = replyToPost(generatorIo, coach, projectPost, summary);
+      }
+
+      // Update the summaries for use with the next post. A post that was commented on out of
+      // order, e.g., because it was being edited, is already covered by a later checkpoint.
+      if (projectPost.getId() > summary.getThroughProjectPostId()) {
+        summary
+            .setThroughProjectPostId(projectPost.getId())
+            .setPostsSummary(
+                appendSummary(summary.getPostsSummary(), coachComment.getIncrementalPostSummary()))
+            .setPositiveFeedback(
+                appendSummary(summary.getPositiveFeedback(), coachComment.getPositiveFeedback()))
+            .setToImproveFeedback(
+                appendSummary(summary.getToImproveFeedback(), coachComment.getToImproveFeedback()))
+            .setHowImprovedFeedback(
+                appendSummary(
+                    summary.getHowImprovedFeedback(), coachComment.getHowImprovedFeedback()))
+            .setFeedbackResponses(
+                appendSummary(
+                    summary.getFeedbackResponses(), coachComment.getFeedbackResponseHtml()));
+        summary = db.getProjectPostSummaryRepository().save(summary);
+      }
+    }
+
+    return true;
+  }
 
+  @Nullable
+  private CommentGeneratorIo createCommentGeneratorIo(int projectId) {
     Project project =
         Iterables.getOnlyElement(
             db.getProjectRepository()
                 .getProjects(
                     new GetProjectsParams()
-                        .setProjectIds(List.of(task.getProjectId()))
+                        .setProjectIds(List.of(projectId))
                         .setIncludeInactive(true)
-                        .setIncludeFulfillments(true)
-                        .setIncludeProjectPosts(
-                            new GetProjectPostsParams()
-                                .setBeingEdited(false)
-                                .setIncludeComments(true))),
+                        .setIncludeFulfillments(true)),
             null);
-    if (project == null || listIfInitialized(project.getProjectPosts()).isEmpty()) {
-      return false;
+    if (project == null) {
+      return null;
     }
 
     CommentGeneratorIo generatorIo = new CommentGeneratorIo();
-
-    // Add project information.
-
     generatorIo.setProjectSummary(
         Strings.nullToEmpty(project.getName())
             + ": "
@@ -107,100 +178,74 @@ public final class ReplyToPostsWorker extends TaskQueue<ReplyToPostTask, Default
               goal.setWhatToLookForToShowCompletionOfThisGoal(fulfillment.getVisibleIndicator());
               generatorIo.getGoals().add(goal);
             });
+    return generatorIo;
+  }
 
-    // Step through posts.
-
-    // These will accumulate information that will be used to generate each post's comment.
-    StringBuilder previousPostsSummary = new StringBuilder();
-    StringBuilder previousPositiveFeedback = new StringBuilder();
-    StringBuilder previousThingsToImproveFeedback = new StringBuilder();
-    StringBuilder previousHowImprovedFeedback = new StringBuilder();
-    StringBuilder previousFeedbackResponses = new StringBuilder();
-
-    // Step through posts and build up a query for each post.
-    for (var projectPost :
-        streamIfInitialized(project.getProjectPosts())
-            .sorted(comparing(ProjectPost::getId))
-            .toList()) {
-
-      // Get the most recent Coach Leo comment for that post, if it exists.
-      Optional<ProjectPostComment> coachComment =
-          streamIfInitialized(projectPost.getProjectPostComments())
-              .filter(
-                  c ->
-                      Objects.equals(
-                          c.getUserX().getId(),
-                          db.getUserXRepository().getProjectLeoCoach().getId()))
-              .max(comparing(ProjectPostComment::getId));
-
-      // If the Coach Leo comment doesn't exist yet, create one.
-      if (coachComment.isEmpty()) {
-        generatorIo.setNewPostContent(
-            stripOutHtml(Strings.nullToEmpty(projectPost.getLongDescrHtml()).trim()));
-        generatorIo.setNewPostFeedbackRequest(
-            stripOutHtml(Strings.nullToEmpty(projectPost.getDesiredFeedback()).trim()));
-
-        generatorIo.setPreviousPostsSummary(
-            Strings.nullToEmpty(previousPostsSummary.toString().trim()));
-        generatorIo.setPreviousPositiveFeedback(
-            Strings.nullToEmpty(previousPositiveFeedback.toString().trim()));
-        generatorIo.setPreviousThingsToImproveFeedback(
-            Strings.nullToEmpty(previousThingsToImproveFeedback.toString().trim()));
-        generatorIo.setPreviousHowImprovedFeedback(
-            Strings.nullToEmpty(previousHowImprovedFeedback.toString().trim()));
-        generatorIo.setPreviousFeedbackResponses(
-            Strings.nullToEmpty(previousFeedbackResponses.toString().trim()));
-
-        aiCommentGenerator.generateComment(generatorIo);
-
-        // Convert the AI comment into a Dao comment.
-        AiComment aiComment = generatorIo.getAiComment();
-        ProjectPostComment newComment =
-            new ProjectPostComment()
-                .setCreationTime(Instant.now())
-                .setUserX(db.getUserXRepository().getProjectLeoCoach())
-                .setPostTime(Instant.now())
-                .setLongDescrHtml(aiComment.getFeedbackSummary())
-                .setIncrementalPostSummary(aiComment.getNewContentSummary())
-                .setPositiveFeedback(aiComment.getPositiveFeedback())
-                .setToImproveFeedback(aiComment.getWhatToImproveFeedback())
-                .setHowImprovedFeedback(aiComment.getHowTheyImprovedFeedback())
-                .setFeedbackResponseHtml(aiComment.getFeedbackRequestResponse())
-                .setHasEnoughContentPercent(aiComment.getHasEnoughContent())
-                .setProjectPost(projectPost)
-                .setAiPrompt(generatorIo.getAiPrompt())
-                .setAiResponse(generatorIo.getAiResponse());
-        db.getProjectPostCommentRepository().save(newComment);
-
-        // Save the goal ratings.
-        db.getProjectPostRatingRepository()
-            .saveAll(
-                aiComment.getGoalRatings().stream()
-                    .map(
-                        g ->
-                            new ProjectPostRating()
-                                .setCreationTime(Instant.now())
-                                .setUserX(db.getUserXRepository().getProjectLeoCoach())
-                                .setProjectPost(projectPost)
-                                .setProjectInputFulfillment(
-                                    new ProjectInputFulfillment().setId(g.goalIdNumber))
-                                .setRating(g.goalProgressScore)
-                                .setRatingType(RatingType.GOAL_COMPLETE_PCT)
-                                .setGoalProgress(g.goalProgressSummary)
-                                .setGoalRemaining(g.goalRemainingSummary))
-                    .toList());
-
-        coachComment = Optional.of(newComment);
-      }
-
-      // Update the previous post summaries for use with the next post.
-      previousPostsSummary.append(" ").append(coachComment.get().getIncrementalPostSummary());
-      previousPositiveFeedback.append(" ").append(coachComment.get().getPositiveFeedback());
-      previousThingsToImproveFeedback.append(" ").append(coachComment.get().getToImproveFeedback());
-      previousHowImprovedFeedback.append(" ").append(coachComment.get().getHowImprovedFeedback());
-      previousFeedbackResponses.append(" ").append(coachComment.get().getFeedbackResponseHtml());
-    }
+  private ProjectPostComment replyToPost(
+      CommentGeneratorIo generatorIo,
+      UserX coach,
+      ProjectPost projectPost,
+      ProjectPostSummary summary)
+      throws IOException, InterruptedException {
+    generatorIo.setNewPostContent(
+        stripOutHtml(Strings.nullToEmpty(projectPost.getLongDescrHtml()).trim()));
+    generatorIo.setNewPostFeedbackRequest(
+        stripOutHtml(Strings.nullToEmpty(projectPost.getDesiredFeedback()).trim()));
+
+    generatorIo.setPreviousPostsSummary(Strings.nullToEmpty(summary.getPostsSummary()).trim());
+    generatorIo.setPreviousPositiveFeedback(
+        Strings.nullToEmpty(summary.getPositiveFeedback()).trim());
+    generatorIo.setPreviousThingsToImproveFeedback(
+        Strings.nullToEmpty(summary.getToImproveFeedback()).trim());
+    generatorIo.setPreviousHowImprovedFeedback(
+        Strings.nullToEmpty(summary.getHowImprovedFeedback()).trim());
+    generatorIo.setPreviousFeedbackResponses(
+        Strings.nullToEmpty(summary.getFeedbackResponses()).trim());
+
+    aiCommentGenerator.generateComment(generatorIo);
+
+    // Convert the AI comment into a Dao comment.
+    AiComment aiComment = generatorIo.getAiComment();
+    ProjectPostComment newComment =
+        new ProjectPostComment()
+            .setCreationTime(Instant.now())
+            .setUserX(coach)
+            .setPostTime(Instant.now())
+            .setLongDescrHtml(aiComment.getFeedbackSummary())
+            .setIncrementalPostSummary(aiComment.getNewContentSummary())
+            .setPositiveFeedback(aiComment.getPositiveFeedback())
+            .setToImproveFeedback(aiComment.getWhatToImproveFeedback())
+            .setHowImprovedFeedback(aiComment.getHowTheyImprovedFeedback())
+            .setFeedbackResponseHtml(aiComment.getFeedbackRequestResponse())
+            .setHasEnoughContentPercent(aiComment.getHasEnoughContent())
+            .setProjectPost(projectPost)
+            .setAiPrompt(generatorIo.getAiPrompt())
+            .setAiResponse(generatorIo.getAiResponse());
+    db.getProjectPostCommentRepository().save(newComment);
+
+    // Save the goal ratings.
+    db.getBulkInserter()
+        .saveAll(
+            db.getProjectPostRatingRepository(),
+            aiComment.getGoalRatings().stream()
+                .map(
+                    g ->
+                        new ProjectPostRating()
+                            .setCreationTime(Instant.now())
+                            .setUserX(coach)
+                            .setProjectPost(projectPost)
+                            .setProjectInputFulfillment(
+                                new ProjectInputFulfillment().setId(g.goalIdNumber))
+                            .setRating(g.goalProgressScore)
+                            .setRatingType(RatingType.GOAL_COMPLETE_PCT)
+                            .setGoalProgress(g.goalProgressSummary)
+                            .setGoalRemaining(g.goalRemainingSummary))
+                .toList());
+
+    return newComment;
+  }
 
-    return true;
+  private static String appendSummary(@Nullable String summary, @Nullable String addition) {
+    return Strings.nullToEmpty(summary) + " " + addition;
   }
 }
@@ -0,0 +1,116 @@
+package org.davincischools.leo.server.utils.task_queue.workers.project_generators;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.util.JsonFormat;
+import java.io.IOException;
+import java.time.Duration;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.davincischools.leo.database.daos.Project;
+import org.davincischools.leo.database.daos.ProjectInput.StateType;
+import org.davincischools.leo.server.utils.ProtoDaoUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Sends projects to browsers as they're generated, as Server-Sent Events. Each saved project is
+ * sent as a "project" event, containing the pl_types.Project as JSON. A final "state" event
+ * contains the project input's new state, e.g., COMPLETED, after which the stream ends.
+ *
+ * <p>Only browsers connected to the server running the generation receive events. Others see the
+ * projects the next time that they load them.
+ */
+@Component
+public class ProjectGenerationProgress {
+
+  private static final Logger logger = LogManager.getLogger();
+
+  // Generation takes minutes. So, this leaves plenty of room.
+  public static final Duration TIMEOUT = Duration.ofMinutes(30);
+
+  public static final String PROJECT_EVENT_NAME = "project";
+  public static final String STATE_EVENT_NAME = "state";
+
+  private final SetMultimap<Integer, SseEmitter> emitters =
+      Multimaps.synchronizedSetMultimap(HashMultimap.create());
+
+  /** Returns a stream of events for the project input. */
+  public SseEmitter subscribe(int projectInputId) {
+    var emitter = new SseEmitter(TIMEOUT.toMillis());
+    Runnable unsubscribe = () -> emitters.remove(projectInputId, emitter);
+    emitter.onCompletion(unsubscribe);
+    emitter.onTimeout(unsubscribe);
+    emitter.onError(t -> unsubscribe.run());
+    emitters.put(projectInputId, emitter);
+    return emitter;
+  }
+
+  public void projectGenerated(int projectInputId, Project project) {
+    checkNotNull(project);
+
+    if (!emitters.containsKey(projectInputId)) {
+      return;
+    }
+    try {
+      send(
+          projectInputId,
+          PROJECT_EVENT_NAME,
+          // Each event's data is a single line.
+          JsonFormat.printer()
+              .omittingInsignificantWhitespace()
+              .print(
+                  ProtoDaoUtils.toProjectProto(
+                          project,
+                          false,
+                          org.davincischools.leo.protos.pl_types.Project::newBuilder)
+                      .orElseThrow()));
+    } catch (InvalidProtocolBufferException e) {
+      logger.atWarn().withThrowable(e).log("Unable to send project {}.", project.getId());
+    }
+  }
+
+  /** Sends the final state and ends the streams for the project input. */
+  public void generationFinished(int projectInputId, StateType state) {
+    checkNotNull(state);
+
+    send(projectInputId, STATE_EVENT_NAME, state.name());
+    getEmitters(projectInputId).forEach(SseEmitter::complete);
+  }
+
+  /** Sends the state and ends the stream, e.g., if generation finished before it connected. */
+  public static void sendState(SseEmitter emitter, StateType state) {
+    checkNotNull(emitter);
+    checkNotNull(state);
+
+    try {
+      emitter.send(SseEmitter.event().name(STATE_EVENT_NAME).data(state.name()));
+      emitter.complete();
+    } catch (IOException e) {
+      emitter.completeWithError(e);
+    }
+  }
+
+  private void send(int projectInputId, String name, String data) {
+    for (SseEmitter emitter : getEmitters(projectInputId)) {
+      try {
+        // Event builders can't be reused.
+        emitter.send(SseEmitter.event().name(name).data(data));
+      } catch (IOException e) {
+        // The browser disconnected.
+        emitter.completeWithError(e);
+      }
+    }
+  }
+
+  private ImmutableList<SseEmitter> getEmitters(int projectInputId) {
+    synchronized (emitters) {
+      return ImmutableList.copyOf(emitters.get(projectInputId));
+    }
+  }
+}
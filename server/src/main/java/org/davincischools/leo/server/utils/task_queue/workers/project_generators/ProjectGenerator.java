@@ -4,5 +4,6 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 public interface ProjectGenerator {
 
-  void generateProjects(ProjectGeneratorIo generatorIo) throws JsonProcessingException;
+  void generateProjects(ProjectGeneratorIo generatorIo)
+      throws JsonProcessingException, InterruptedException;
 }
@@ -9,6 +9,7 @@ import com.google.common.collect.Maps;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -42,6 +43,13 @@ public class ProjectGeneratorIo {
   private Project existingProject;
   private ExistingProjectUseType existingProjectUseType;
 
+  // Skips cached results, e.g., when the user asks for different projects than before.
+  private boolean bypassCache;
+
+  // If set, projects are streamed and passed here, in order, as soon as each is generated.
+  // aiProjects still contains all of them afterwards.
+  private Consumer<AiProject> aiProjectListener;
+
   // Project generation results.
   private AiProjects aiProjects;
   private String aiPrompt;
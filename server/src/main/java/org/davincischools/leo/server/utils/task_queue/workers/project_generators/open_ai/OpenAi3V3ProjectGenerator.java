@@ -8,10 +8,11 @@ import static org.davincischools.leo.server.utils.TextUtils.quoteAndEscape;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Iterables;
-import com.theokanning.openai.client.OpenAiApi;
 import com.theokanning.openai.completion.chat.ChatCompletionChoice;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest.ChatCompletionRequestFunctionCall;
@@ -20,8 +21,7 @@ import com.theokanning.openai.completion.chat.ChatFunction;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import com.theokanning.openai.completion.chat.ChatMessageRole;
 import com.theokanning.openai.service.FunctionExecutor;
-import com.theokanning.openai.service.OpenAiService;
-import java.time.Duration;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
@@ -31,6 +31,7 @@ import org.davincischools.leo.database.daos.Project;
 import org.davincischools.leo.database.daos.ProjectInput.ExistingProjectUseType;
 import org.davincischools.leo.database.utils.DaoUtils;
 import org.davincischools.leo.server.utils.OpenAiUtils;
+import org.davincischools.leo.server.utils.PartialJsonArrayParser;
 import org.davincischools.leo.server.utils.task_queue.workers.project_generators.AiProject;
 import org.davincischools.leo.server.utils.task_queue.workers.project_generators.AiProject.AiProjects;
 import org.davincischools.leo.server.utils.task_queue.workers.project_generators.ProjectGenerator;
@@ -47,10 +48,22 @@ public class OpenAi3V3ProjectGenerator implements ProjectGenerator {
   private static final ObjectWriter OBJECT_WRITER =
       new ObjectMapper().writer().withDefaultPrettyPrinter();
 
+  // Parses the function call's arguments. Its property names match the function's schema, which
+  // is generated with a default ObjectMapper. Like the OpenAiService's mapper, it ignores any extra
+  // fields that the model adds.
+  private static final ObjectMapper AI_PROJECTS_MAPPER =
+      new ObjectMapper()
+          .setDefaultLeniency(true)
+          .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  @VisibleForTesting
+  static final ObjectReader AI_PROJECT_READER = AI_PROJECTS_MAPPER.readerFor(AiProject.class);
+
   private final OpenAiUtils openAiUtils;
 
   @Override
-  public void generateProjects(ProjectGeneratorIo generatorIo) throws JsonProcessingException {
+  public void generateProjects(ProjectGeneratorIo generatorIo)
+      throws JsonProcessingException, InterruptedException {
     checkNotNull(generatorIo);
 
     List<ChatMessage> messages = new ArrayList<>();
@@ -65,7 +78,8 @@ public class OpenAi3V3ProjectGenerator implements ProjectGenerator {
             .description("Describe the projects that result from the query.")
             .executor(AiProjects.class, a -> a)
             .build();
-    FunctionExecutor functionExecutor = new FunctionExecutor(List.of(describeProjectFn));
+    FunctionExecutor functionExecutor =
+        new FunctionExecutor(List.of(describeProjectFn), AI_PROJECTS_MAPPER);
 
     if (generatorIo.getFillInProject() != null) {
       messages.add(createFulfillmentQueryMessage(generatorIo));
@@ -93,24 +107,42 @@ public class OpenAi3V3ProjectGenerator implements ProjectGenerator {
             .functionCall(new ChatCompletionRequestFunctionCall(describeProjectFn.getName()))
             .build();
 
-    var timeout = Duration.ofMinutes(20);
-    var okHttpClient =
-        OpenAiService.defaultClient(openAiUtils.getOpenAiKey().orElseThrow(), timeout)
-            .newBuilder()
-            .connectTimeout(timeout)
-            .build();
-    var retrofit =
-        OpenAiService.defaultRetrofit(
-            okHttpClient,
-            OpenAiService.defaultObjectMapper()
-                .setDefaultLeniency(true)
-                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false));
-    OpenAiService openAiService = new OpenAiService(retrofit.create(OpenAiApi.class));
+    var openAiService = openAiUtils.getOpenAiService();
     ChatCompletionResult chatCompletionResponse = null;
     AiProjects aiProjects = null;
     try {
       logger.atDebug().log("Chat completion request: {}", chatCompletionRequest);
-      chatCompletionResponse = openAiService.createChatCompletion(chatCompletionRequest);
+      var responseCache = openAiUtils.getResponseCache();
+      chatCompletionResponse =
+          responseCache.get(chatCompletionRequest, generatorIo.isBypassCache()).orElse(null);
+      boolean cached = chatCompletionResponse != null;
+      if (!cached && generatorIo.getAiProjectListener() != null) {
+        // Pass along each project as soon as it's complete, rather than waiting for all of them.
+        var parser = new PartialJsonArrayParser("projects");
+        chatCompletionResponse =
+            openAiUtils
+                .getRequestLimiter()
+                .call(
+                    () ->
+                        openAiUtils.streamChatCompletion(
+                            chatCompletionRequest,
+                            arguments -> {
+                              for (String projectJson : parser.append(arguments)) {
+                                try {
+                                  generatorIo
+                                      .getAiProjectListener()
+                                      .accept(AI_PROJECT_READER.readValue(projectJson));
+                                } catch (JsonProcessingException e) {
+                                  throw new UncheckedIOException(e);
+                                }
+                              }
+                            }));
+      } else if (!cached) {
+        chatCompletionResponse =
+            openAiUtils
+                .getRequestLimiter()
+                .call(() -> openAiService.createChatCompletion(chatCompletionRequest));
+      }
       logger.atDebug().log("Chat completion response: {}", chatCompletionResponse);
       aiProjects =
           Iterables.getOnlyElement(
@@ -120,6 +152,9 @@ public class OpenAi3V3ProjectGenerator implements ProjectGenerator {
                   .map(functionExecutor::execute)
                   .map(AiProjects.class::cast)
                   .toList());
+      if (!cached) {
+        responseCache.put(chatCompletionRequest, chatCompletionResponse);
+      }
     } finally {
       generatorIo.setAiPrompt(chatCompletionRequest.toString()).setAiProjects(aiProjects);
       if (chatCompletionResponse != null) {
@@ -130,11 +165,6 @@ public class OpenAi3V3ProjectGenerator implements ProjectGenerator {
                     aiProjects != null ? OBJECT_WRITER.writeValueAsString(aiProjects) : "")
                 .trim());
       }
-      try {
-        openAiService.shutdownExecutor();
-      } catch (NullPointerException e) {
-        // An otherwise successful transaction throws an NPE for some reason.
-      }
     }
   }
 
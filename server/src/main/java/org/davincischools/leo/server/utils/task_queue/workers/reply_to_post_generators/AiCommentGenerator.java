@@ -3,5 +3,5 @@ package org.davincischools.leo.server.utils.task_queue.workers.reply_to_post_gen
 import java.io.IOException;
 
 public interface AiCommentGenerator {
-  void generateComment(CommentGeneratorIo generatorIo) throws IOException;
+  void generateComment(CommentGeneratorIo generatorIo) throws IOException, InterruptedException;
 }
@@ -1,13 +1,11 @@
 package org.davincischools.leo.server.utils.task_queue.workers.reply_to_post_generators.open_ai;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
-import com.theokanning.openai.client.OpenAiApi;
 import com.theokanning.openai.completion.chat.ChatCompletionChoice;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest.ChatCompletionRequestFunctionCall;
@@ -16,9 +14,7 @@ import com.theokanning.openai.completion.chat.ChatFunction;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import com.theokanning.openai.completion.chat.ChatMessageRole;
 import com.theokanning.openai.service.FunctionExecutor;
-import com.theokanning.openai.service.OpenAiService;
 import java.io.IOException;
-import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import lombok.RequiredArgsConstructor;
@@ -49,7 +45,8 @@ public class OpenAiCommentGenerator implements AiCommentGenerator {
   }
 
   @Override
-  public void generateComment(CommentGeneratorIo generatorIo) throws IOException {
+  public void generateComment(CommentGeneratorIo generatorIo)
+      throws IOException, InterruptedException {
 
     // Build system message.
 
@@ -119,20 +116,8 @@ public class OpenAiCommentGenerator implements AiCommentGenerator {
 
     // Prepare OpenAI client.
 
-    // Create the client.
-    var timeout = Duration.ofMinutes(20);
-    var okHttpClient =
-        OpenAiService.defaultClient(openAiUtils.getOpenAiKey().orElseThrow(), timeout)
-            .newBuilder()
-            .connectTimeout(timeout)
-            .build();
-    var retrofit =
-        OpenAiService.defaultRetrofit(
-            okHttpClient,
-            OpenAiService.defaultObjectMapper()
-                .setDefaultLeniency(true)
-                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false));
-    var openAiService = new OpenAiService(retrofit.create(OpenAiApi.class));
+    // Use the shared client.
+    var openAiService = openAiUtils.getOpenAiService();
 
     // Initialize the function and request.
     var createCommentFn =
@@ -169,7 +154,16 @@ public class OpenAiCommentGenerator implements AiCommentGenerator {
     AiComment aiComment = null;
     try {
       logger.atDebug().log("Chat completion request [[{}]]: {}", count, chatCompletionRequest);
-      chatCompletionResponse = openAiService.createChatCompletion(chatCompletionRequest);
+      var responseCache = openAiUtils.getResponseCache();
+      chatCompletionResponse =
+          responseCache.get(chatCompletionRequest, /* bypassCache= */ false).orElse(null);
+      boolean cached = chatCompletionResponse != null;
+      if (!cached) {
+        chatCompletionResponse =
+            openAiUtils
+                .getRequestLimiter()
+                .call(() -> openAiService.createChatCompletion(chatCompletionRequest));
+      }
       logger.atDebug().log("Chat completion response: [[{}]] {}", count, chatCompletionResponse);
       aiComment =
           Iterables.getOnlyElement(
@@ -183,6 +177,9 @@ public class OpenAiCommentGenerator implements AiCommentGenerator {
       if (!HtmlUtils.stripOutHtml(Strings.nullToEmpty(aiComment.getFeedbackSummary()))
           .trim()
           .isEmpty()) {
+        if (!cached) {
+          responseCache.put(chatCompletionRequest, chatCompletionResponse);
+        }
         return;
       }
       throw new IOException("AI comment was empty [[" + count + "]]");
@@ -196,11 +193,6 @@ public class OpenAiCommentGenerator implements AiCommentGenerator {
                     aiComment != null ? OBJECT_WRITER.writeValueAsString(aiComment) : "")
                 .trim());
       }
-      try {
-        openAiService.shutdownExecutor();
-      } catch (NullPointerException e) {
-        // An otherwise successful transaction throws an NPE for some reason.
-      }
     }
   }
 }
@@ -0,0 +1,251 @@
+package org.davincischools.leo.server.controllers;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Optional;
+import org.davincischools.leo.database.daos.FileX;
+import org.davincischools.leo.database.daos.UserX;
+import org.davincischools.leo.database.utils.repos.FileXRepository;
+import org.davincischools.leo.database.utils.repos.FileXRepository.FileXMetadata;
+import org.davincischools.leo.server.utils.file_x.FileXContentStore;
+import org.davincischools.leo.server.utils.file_x.FileXContentStore.StoreType;
+import org.davincischools.leo.server.utils.http_user_x.HttpUserX;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class FileServiceTest {
+
+  private static final byte[] CONTENT = "content".getBytes(StandardCharsets.UTF_8);
+  private static final String FILE_KEY = "key";
+  private static final Instant CREATION_TIME = Instant.parse("2024-01-01T00:00:00Z");
+
+  private FileService fileService;
+  private FileX fileX;
+  private FileXMetadata metadata;
+
+  @Before
+  public void setUp() throws IOException {
+    fileService = new FileService();
+    fileService.fileXContentStore =
+        new FileXContentStore(
+            /* db= */ null, StoreType.DATABASE, /* directory= */ "", /* migrateToStore= */ false);
+    fileService.fileXRepository =
+        (FileXRepository)
+            Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] {FileXRepository.class},
+                (proxy, method, args) ->
+                    switch (method.getName()) {
+                      case "findMetadataById" -> Optional.of(metadata);
+                      case "findById" -> Optional.of(fileX);
+                      default -> throw new UnsupportedOperationException(method.getName());
+                    });
+    setContent(CONTENT, "video/mp4");
+  }
+
+  private void setContent(byte[] content, String mimeType) throws IOException {
+    fileX =
+        fileService
+            .fileXContentStore
+            .setContent(new FileX(), new ByteArrayInputStream(content))
+            .setId(1)
+            .setFileKey(FILE_KEY)
+            .setMimeType(mimeType);
+    metadata =
+        new FileXMetadata(
+            1, FILE_KEY, mimeType, fileX.getContentHash(), content.length, CREATION_TIME);
+  }
+
+  private String eTag() {
+    return "\"" + metadata.contentHash() + "\"";
+  }
+
+  private static MockHttpServletRequest newRequest() {
+    var request = new MockHttpServletRequest("GET", "/api/FileService/GetFile");
+    request.setParameter("id", "1");
+    request.setParameter("key", FILE_KEY);
+    return request;
+  }
+
+  private MockHttpServletResponse getFile(MockHttpServletRequest request) throws IOException {
+    var response = new MockHttpServletResponse();
+    fileService.getFile(
+        request,
+        response,
+        new HttpUserX(
+            Optional.of(new UserX().setId(1)),
+            request,
+            response,
+            /* requireAuthenticated= */ true));
+    return response;
+  }
+
+  @Test
+  public void returnsWholeFile() throws IOException {
+    var response = getFile(newRequest());
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(eTag());
+    assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+    assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+    assertThat(response.getContentAsByteArray()).isEqualTo(CONTENT);
+  }
+
+  @Test
+  public void returnsNotModifiedForMatchingETag() throws IOException {
+    var request = newRequest();
+    request.addHeader(HttpHeaders.IF_NONE_MATCH, eTag());
+
+    var response = getFile(request);
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(eTag());
+    assertThat(response.getContentAsByteArray()).isEmpty();
+  }
+
+  @Test
+  public void returnsNotModifiedSinceCreation() throws IOException {
+    var request = newRequest();
+    request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, CREATION_TIME.toEpochMilli());
+
+    var response = getFile(request);
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+    assertThat(response.getContentAsByteArray()).isEmpty();
+  }
+
+  @Test
+  public void returnsFileForOtherETag() throws IOException {
+    var request = newRequest();
+    request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\"");
+
+    var response = getFile(request);
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(response.getContentAsByteArray()).isEqualTo(CONTENT);
+  }
+
+  @Test
+  public void returnsSingleRange() throws IOException {
+    var request = newRequest();
+    request.addHeader(HttpHeaders.RANGE, "bytes=2-4");
+
+    var response = getFile(request);
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_PARTIAL_CONTENT);
+    assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-4/7");
+    assertThat(response.getContentAsString()).isEqualTo("nte");
+  }
+
+  @Test
+  public void returnsSuffixRange() throws IOException {
+    var request = newRequest();
+    request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+
+    var response = getFile(request);
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_PARTIAL_CONTENT);
+    assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 4-6/7");
+    assertThat(response.getContentAsString()).isEqualTo("ent");
+  }
+
+  @Test
+  public void rejectsUnsatisfiableRange() throws IOException {
+    var request = newRequest();
+    request.addHeader(HttpHeaders.RANGE, "bytes=10-20");
+
+    var response = getFile(request);
+
+    assertThat(response.getStatus())
+        .isEqualTo(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+    assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */7");
+    assertThat(response.getContentAsByteArray()).isEmpty();
+  }
+
+  @Test
+  public void rejectsMalformedRange() throws IOException {
+    var request = newRequest();
+    request.addHeader(HttpHeaders.RANGE, "bytes=x-y");
+
+    var response = getFile(request);
+
+    assertThat(response.getStatus())
+        .isEqualTo(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+    assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */7");
+    assertThat(response.getContentAsByteArray()).isEmpty();
+  }
+
+  @Test
+  public void rejectsSuffixRangeOfEmptyFile() throws IOException {
+    setContent(new byte[0], "video/mp4");
+    var request = newRequest();
+    request.addHeader(HttpHeaders.RANGE, "bytes=-5");
+
+    var response = getFile(request);
+
+    assertThat(response.getStatus())
+        .isEqualTo(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+    assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */0");
+    assertThat(response.getContentAsByteArray()).isEmpty();
+  }
+
+  @Test
+  public void returnsWholeFileForStaleIfRange() throws IOException {
+    var request = newRequest();
+    request.addHeader(HttpHeaders.RANGE, "bytes=2-4");
+    request.addHeader(HttpHeaders.IF_RANGE, "\"other\"");
+
+    var response = getFile(request);
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+    assertThat(response.getContentAsByteArray()).isEqualTo(CONTENT);
+  }
+
+  @Test
+  public void returnsRangeForMatchingIfRange() throws IOException {
+    var request = newRequest();
+    request.addHeader(HttpHeaders.RANGE, "bytes=2-4");
+    request.addHeader(HttpHeaders.IF_RANGE, eTag());
+
+    var response = getFile(request);
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_PARTIAL_CONTENT);
+    assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-4/7");
+    assertThat(response.getContentAsString()).isEqualTo("nte");
+  }
+
+  @Test
+  public void returnsWholeFileForMultipleRanges() throws IOException {
+    var request = newRequest();
+    request.addHeader(HttpHeaders.RANGE, "bytes=0-1,4-5");
+
+    var response = getFile(request);
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+    assertThat(response.getContentAsByteArray()).isEqualTo(CONTENT);
+  }
+
+  @Test
+  public void ignoresRangesForOtherTypes() throws IOException {
+    setContent(CONTENT, "image/png");
+    var request = newRequest();
+    request.addHeader(HttpHeaders.RANGE, "bytes=2-4");
+
+    var response = getFile(request);
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isNull();
+    assertThat(response.getContentAsByteArray()).isEqualTo(CONTENT);
+  }
+}
@@ -0,0 +1,90 @@
+package org.davincischools.leo.server.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+
+  @Test
+  public void limitsConcurrentCalls() throws InterruptedException {
+    var limiter = new ConcurrencyLimiter("test", 2);
+    var release = new CountDownLatch(1);
+    var maxActive = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(5);
+
+    for (int i = 0; i < 5; i++) {
+      executor.submit(
+          () ->
+              limiter.call(
+                  () -> {
+                    maxActive.accumulateAndGet(limiter.getActiveCalls(), Math::max);
+                    release.await();
+                    return null;
+                  }));
+    }
+
+    while (limiter.getWaitingCalls() < 3) {
+      Thread.sleep(10);
+    }
+    assertThat(limiter.getActiveCalls()).isEqualTo(2);
+
+    release.countDown();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(maxActive.get()).isEqualTo(2);
+    assertThat(limiter.getActiveCalls()).isEqualTo(0);
+  }
+
+  @Test
+  public void zeroIsUnlimited() throws Exception {
+    var limiter = new ConcurrencyLimiter("test", 0);
+
+    assertThat(limiter.call(() -> limiter.call(() -> "nested"))).isEqualTo("nested");
+    assertThat(limiter.getActiveCalls()).isEqualTo(0);
+  }
+
+  @Test
+  public void waitingCallsCanBeInterrupted() throws Exception {
+    var limiter = new ConcurrencyLimiter("test", 1);
+    var release = new CountDownLatch(1);
+    var interrupted = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    executor.submit(
+        () ->
+            limiter.call(
+                () -> {
+                  release.await();
+                  return null;
+                }));
+    var waiting =
+        executor.submit(
+            () -> {
+              try {
+                return limiter.call(() -> "called");
+              } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+              }
+            });
+    while (limiter.getWaitingCalls() < 1) {
+      Thread.sleep(10);
+    }
+
+    waiting.cancel(/* mayInterruptIfRunning= */ true);
+
+    assertThat(interrupted.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(limiter.getWaitingCalls()).isEqualTo(0);
+    release.countDown();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(limiter.call(() -> "called")).isEqualTo("called");
+    assertThat(limiter.getActiveCalls()).isEqualTo(0);
+  }
+}
@@ -0,0 +1,144 @@
+package org.davincischools.leo.server.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.theokanning.openai.completion.chat.ChatCompletionChoice;
+import com.theokanning.openai.completion.chat.ChatCompletionRequest;
+import com.theokanning.openai.completion.chat.ChatCompletionRequest.ChatCompletionRequestFunctionCall;
+import com.theokanning.openai.completion.chat.ChatCompletionResult;
+import com.theokanning.openai.completion.chat.ChatMessage;
+import com.theokanning.openai.completion.chat.ChatMessageRole;
+import com.theokanning.openai.service.OpenAiService;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.davincischools.leo.database.daos.OpenAiCache;
+import org.davincischools.leo.database.utils.repos.OpenAiCacheRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OpenAiResponseCacheTest {
+
+  private final Map<String, OpenAiCache> rows = new HashMap<>();
+  private int finds;
+  private OpenAiCacheRepository repository;
+
+  @Before
+  public void setUp() {
+    repository =
+        (OpenAiCacheRepository)
+            Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] {OpenAiCacheRepository.class},
+                (proxy, method, args) ->
+                    switch (method.getName()) {
+                      case "findUnexpired" -> {
+                        finds++;
+                        yield Optional.ofNullable(rows.get((String) args[0]))
+                            .filter(row -> row.getExpiresAt().isAfter(Instant.now()));
+                      }
+                      case "putResponse" -> {
+                        rows.put(
+                            (String) args[0],
+                            new OpenAiCache()
+                                .setRequestHash((String) args[0])
+                                .setResponse((String) args[1])
+                                .setExpiresAt(Instant.now().plusSeconds((Long) args[2])));
+                        yield null;
+                      }
+                      case "deleteExpired" -> 0;
+                      default -> throw new UnsupportedOperationException(method.getName());
+                    });
+  }
+
+  private static ChatCompletionRequest request(String content) {
+    return ChatCompletionRequest.builder()
+        .model(OpenAiUtils.CURRENT_GPT_MODEL)
+        .messages(List.of(new ChatMessage(ChatMessageRole.USER.value(), content)))
+        .build();
+  }
+
+  private static ChatCompletionResult result(String content) {
+    var choice = new ChatCompletionChoice();
+    choice.setMessage(new ChatMessage(ChatMessageRole.ASSISTANT.value(), content));
+    var result = new ChatCompletionResult();
+    result.setChoices(List.of(choice));
+    return result;
+  }
+
+  @Test
+  public void hashesEqualRequestsEqually() throws JsonProcessingException {
+    assertThat(OpenAiResponseCache.getRequestHash(request("a")))
+        .isEqualTo(OpenAiResponseCache.getRequestHash(request("a")));
+    assertThat(OpenAiResponseCache.getRequestHash(request("a")))
+        .isNotEqualTo(OpenAiResponseCache.getRequestHash(request("b")));
+  }
+
+  @Test
+  public void serializesLikeTheOpenAiClient() throws JsonProcessingException {
+    var request =
+        ChatCompletionRequest.builder()
+            .model(OpenAiUtils.CURRENT_GPT_MODEL)
+            .messages(List.of(new ChatMessage(ChatMessageRole.USER.value(), "a")))
+            .maxTokens(100)
+            .functionCall(ChatCompletionRequestFunctionCall.of("auto"))
+            .logitBias(Map.of("2", 1, "1", 1))
+            .build();
+    var clientMapper = OpenAiService.defaultObjectMapper();
+
+    // Only the order of the properties differs.
+    assertThat(
+            clientMapper.readTree(OpenAiResponseCache.CANONICAL_MAPPER.writeValueAsString(request)))
+        .isEqualTo(clientMapper.readTree(clientMapper.writeValueAsString(request)));
+  }
+
+  @Test
+  public void returnsPutResponses() throws JsonProcessingException {
+    var cache = new OpenAiResponseCache(repository, true, 60_000, 10);
+    assertThat(cache.get(request("a"), false)).isEmpty();
+
+    cache.put(request("a"), result("response"));
+
+    assertThat(cache.get(request("a"), false).orElseThrow().getChoices().get(0).getMessage())
+        .isEqualTo(new ChatMessage(ChatMessageRole.ASSISTANT.value(), "response"));
+    assertThat(cache.get(request("a"), true)).isEmpty();
+    assertThat(cache.get(request("b"), false)).isEmpty();
+  }
+
+  @Test
+  public void readsThroughToTheDatabase() throws JsonProcessingException {
+    new OpenAiResponseCache(repository, true, 60_000, 10).put(request("a"), result("response"));
+    var cache = new OpenAiResponseCache(repository, true, 60_000, 10);
+    finds = 0;
+
+    assertThat(cache.get(request("a"), false)).isPresent();
+    assertThat(cache.get(request("a"), false)).isPresent();
+    assertThat(finds).isEqualTo(1);
+  }
+
+  @Test
+  public void keepsResponsesInMemoryOnlyUntilTheirRowExpires() throws JsonProcessingException {
+    new OpenAiResponseCache(repository, true, 60_000, 10).put(request("a"), result("response"));
+    var cache = new OpenAiResponseCache(repository, true, 60_000, 10);
+    assertThat(cache.get(request("a"), false)).isPresent();
+
+    // The row expires long before the memory cache's own TTL.
+    rows.values().forEach(row -> row.setExpiresAt(Instant.now().minusSeconds(1)));
+
+    assertThat(cache.get(request("a"), false)).isEmpty();
+  }
+
+  @Test
+  public void doesNothingWhenDisabled() throws JsonProcessingException {
+    var cache = new OpenAiResponseCache(repository, false, 60_000, 10);
+
+    cache.put(request("a"), result("response"));
+
+    assertThat(rows).isEmpty();
+    assertThat(cache.get(request("a"), false)).isEmpty();
+  }
+}
@@ -0,0 +1,93 @@
+package org.davincischools.leo.server.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.netty.http.HttpProtocol;
+
+public class OpenAiUtilsTest {
+
+  private HttpServer server;
+  // The client address of each request. Requests on the same connection share one.
+  private final Set<InetSocketAddress> clientAddresses = new HashSet<>();
+  private OpenAiUtils openAiUtils;
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          synchronized (clientAddresses) {
+            clientAddresses.add(exchange.getRemoteAddress());
+          }
+          byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+          exchange.sendResponseHeaders(200, body.length);
+          exchange.getResponseBody().write(body);
+          exchange.close();
+        });
+    server.start();
+
+    openAiUtils =
+        new OpenAiUtils(
+            /* responseCache= */ null,
+            /* openAiKey= */ "",
+            "http://127.0.0.1:" + server.getAddress().getPort(),
+            /* maxConcurrentRequests= */ 1,
+            /* maxConnections= */ 2,
+            /* keepAliveMs= */ 60_000,
+            /* connectTimeoutMs= */ 5_000,
+            /* readTimeoutMs= */ 10_000);
+  }
+
+  @After
+  public void tearDown() {
+    openAiUtils.shutdown();
+    server.stop(0);
+  }
+
+  @Test
+  public void sharedClientIsConfigured() {
+    var configuration = openAiUtils.getHttpClient().configuration();
+
+    assertThat(configuration.protocols())
+        .asList()
+        .containsExactly(HttpProtocol.H2, HttpProtocol.HTTP11);
+    assertThat(configuration.responseTimeout().toMillis()).isEqualTo(10_000);
+    assertThat(openAiUtils.getConnectionProvider().maxConnections()).isEqualTo(2);
+  }
+
+  @Test
+  public void sharedClientReusesConnections() {
+    for (int i = 0; i < 5; ++i) {
+      assertThat(
+              openAiUtils
+                  .getWebClient()
+                  .get()
+                  .uri("http://127.0.0.1:" + server.getAddress().getPort() + "/")
+                  .retrieve()
+                  .bodyToMono(String.class)
+                  .block())
+          .isEqualTo("ok");
+    }
+
+    // A connection is released to the pool after its response completes, which may be after the
+    // next request acquires one. So, requests share the pool's connections, but not always one.
+    assertThat(clientAddresses.size()).isAtMost(2);
+  }
+
+  @Test
+  public void shutdownDisposesConnections() {
+    openAiUtils.shutdown();
+
+    assertThat(openAiUtils.getConnectionProvider().isDisposed()).isTrue();
+  }
+}
@@ -0,0 +1,43 @@
+package org.davincischools.leo.server.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class PartialJsonArrayParserTest {
+
+  private static final String JSON =
+      """
+      {"other": [{"name": "skipped"}], "projects": [
+        {"name": "A \\"quoted\\" [name]", "milestones": [{"steps": ["}"]}]},
+        {"name": "B", "projects": [{"name": "nested"}]}
+      ]}""";
+
+  @Test
+  public void returnsElementsOnceComplete() {
+    var parser = new PartialJsonArrayParser("projects");
+    List<String> elements = new ArrayList<>();
+
+    // Feed the JSON a few characters at a time, as it would be streamed.
+    for (int i = 0; i < JSON.length(); i += 3) {
+      elements.addAll(parser.append(JSON.substring(i, Math.min(JSON.length(), i + 3))));
+    }
+
+    assertThat(elements)
+        .containsExactly(
+            "{\"name\": \"A \\\"quoted\\\" [name]\", \"milestones\": [{\"steps\": [\"}\"]}]}",
+            "{\"name\": \"B\", \"projects\": [{\"name\": \"nested\"}]}")
+        .inOrder();
+  }
+
+  @Test
+  public void returnsNothingForIncompleteElements() {
+    var parser = new PartialJsonArrayParser("projects");
+
+    assertThat(parser.append("{\"projects\": [{\"name\": \"A\"}, {\"name\": \"B")).hasSize(1);
+    assertThat(parser.append("\"")).isEmpty();
+    assertThat(parser.append("}")).hasSize(1);
+  }
+}
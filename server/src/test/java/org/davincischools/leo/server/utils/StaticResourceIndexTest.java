@@ -0,0 +1,117 @@
+package org.davincischools.leo.server.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Strings;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import org.davincischools.leo.server.controllers.ReactResourceController;
+import org.davincischools.leo.server.utils.StaticResourceIndex.Encoding;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class StaticResourceIndexTest {
+
+  private static final String SCRIPT = Strings.repeat("console.log('script');\n", 100);
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private StaticResourceIndex index;
+
+  @Before
+  public void setUp() throws IOException {
+    Path www = folder.getRoot().toPath().resolve("www");
+    write(www.resolve("index.html"), "<html></html>".getBytes(StandardCharsets.UTF_8));
+    write(www.resolve("static/js/main.1a2b3c4d.js"), SCRIPT.getBytes(StandardCharsets.UTF_8));
+    write(www.resolve("static/js/main.1a2b3c4d.js.br"), new byte[] {1, 2, 3});
+    write(www.resolve("images/logo.png"), Strings.repeat("x", 2000).getBytes());
+
+    try (var classLoader = new URLClassLoader(new URL[] {folder.getRoot().toURI().toURL()}, null)) {
+      index =
+          StaticResourceIndex.load(
+              classLoader, "www", "/index.html", ReactResourceController.EXTENSIONS_TO_MIME_TYPES);
+    }
+  }
+
+  private static void write(Path path, byte[] content) throws IOException {
+    Files.createDirectories(path.getParent());
+    Files.write(path, content);
+  }
+
+  @Test
+  public void precompressesText() throws IOException {
+    var resource = index.getResourceOrIndex("/static/js/main.1a2b3c4d.js").orElseThrow();
+
+    assertThat(resource.variants().keySet())
+        .containsExactly(Encoding.BROTLI, Encoding.GZIP, Encoding.IDENTITY);
+    assertThat(resource.getVariant("gzip, deflate").encoding()).isEqualTo(Encoding.GZIP);
+    assertThat(resource.getVariant("gzip, br").encoding()).isEqualTo(Encoding.BROTLI);
+    assertThat(resource.getVariant("br;q=0, gzip;q=0").encoding()).isEqualTo(Encoding.IDENTITY);
+    assertThat(resource.getVariant(null).encoding()).isEqualTo(Encoding.IDENTITY);
+    assertThat(
+            new GZIPInputStream(
+                    new ByteArrayInputStream(resource.variants().get(Encoding.GZIP).content()))
+                .readAllBytes())
+        .isEqualTo(SCRIPT.getBytes(StandardCharsets.UTF_8));
+
+    // Images are already compressed.
+    assertThat(index.getResourceOrIndex("/images/logo.png").orElseThrow().variants().keySet())
+        .containsExactly(Encoding.IDENTITY);
+  }
+
+  @Test
+  public void fallsBackToIndex() {
+    assertThat(index.getResourceOrIndex("/projects/1").orElseThrow().path())
+        .isEqualTo("/index.html");
+  }
+
+  @Test
+  public void writesWithCachingHeaders() throws IOException {
+    var resource = index.getResourceOrIndex("/static/js/main.1a2b3c4d.js").orElseThrow();
+    var request = new MockHttpServletRequest("GET", "/static/js/main.1a2b3c4d.js");
+    request.addHeader("Accept-Encoding", "gzip");
+    var response = new MockHttpServletResponse();
+
+    StaticResourceIndex.writeResource(resource, request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+    assertThat(response.getHeader("Vary")).isEqualTo("Accept-Encoding");
+    assertThat(response.getHeader("Cache-Control")).contains("immutable");
+    assertThat(response.getContentAsByteArray())
+        .isEqualTo(resource.variants().get(Encoding.GZIP).content());
+
+    var revalidation = new MockHttpServletRequest("GET", "/static/js/main.1a2b3c4d.js");
+    revalidation.addHeader("Accept-Encoding", "gzip");
+    revalidation.addHeader("If-None-Match", response.getHeader("ETag"));
+    var notModified = new MockHttpServletResponse();
+
+    StaticResourceIndex.writeResource(resource, revalidation, notModified);
+
+    assertThat(notModified.getStatus()).isEqualTo(304);
+    assertThat(notModified.getContentAsByteArray()).isEmpty();
+  }
+
+  @Test
+  public void revalidatesUnhashedFiles() throws IOException {
+    var response = new MockHttpServletResponse();
+
+    StaticResourceIndex.writeResource(
+        index.getResourceOrIndex("/index.html").orElseThrow(),
+        new MockHttpServletRequest("GET", "/index.html"),
+        response);
+
+    assertThat(response.getHeader("Cache-Control")).isEqualTo("no-cache");
+    assertThat(response.getContentAsString()).isEqualTo("<html></html>");
+  }
+}
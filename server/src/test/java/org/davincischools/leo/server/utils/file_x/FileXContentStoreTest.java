@@ -0,0 +1,110 @@
+package org.davincischools.leo.server.utils.file_x;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.davincischools.leo.database.daos.FileX;
+import org.davincischools.leo.server.utils.file_x.FileXContentStore.StoreType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class FileXContentStoreTest {
+
+  private static final byte[] CONTENT = "content".getBytes(StandardCharsets.UTF_8);
+  private static final String CONTENT_HASH =
+      "ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private FileXContentStore newStore(StoreType storeType) throws IOException {
+    return new FileXContentStore(
+        /* db= */ null, storeType, folder.getRoot().toString(), /* migrateToStore= */ false);
+  }
+
+  @Test
+  public void storesContentInDatabase() throws IOException {
+    var store = newStore(StoreType.DATABASE);
+
+    var fileX = store.setContent(new FileX(), new ByteArrayInputStream(CONTENT));
+
+    assertThat(fileX.getFileContent()).isEqualTo(CONTENT);
+    assertThat(fileX.getContentHash()).isEqualTo(CONTENT_HASH);
+    assertThat(fileX.getContentLength()).isEqualTo(CONTENT.length);
+  }
+
+  @Test
+  public void storesContentOnDiskByHash() throws IOException {
+    var store = newStore(StoreType.LOCAL_DISK);
+
+    var fileX = store.setContent(new FileX(), new ByteArrayInputStream(CONTENT));
+    var duplicate = store.setContent(new FileX(), new ByteArrayInputStream(CONTENT));
+
+    assertThat(fileX.getFileContent()).isNull();
+    assertThat(fileX.getContentHash()).isEqualTo(CONTENT_HASH);
+    assertThat(fileX.getContentLength()).isEqualTo(CONTENT.length);
+    assertThat(duplicate.getContentHash()).isEqualTo(CONTENT_HASH);
+
+    Path path = folder.getRoot().toPath().resolve("ed").resolve("70").resolve(CONTENT_HASH);
+    assertThat(Files.readAllBytes(path)).isEqualTo(CONTENT);
+    try (var tempFiles = Files.list(folder.getRoot().toPath().resolve("tmp"))) {
+      assertThat(tempFiles.toList()).isEmpty();
+    }
+  }
+
+  @Test
+  public void writesContentFromEitherStore() throws IOException {
+    var diskFileX =
+        newStore(StoreType.LOCAL_DISK).setContent(new FileX(), new ByteArrayInputStream(CONTENT));
+    var store = newStore(StoreType.DATABASE);
+    var databaseFileX = store.setContent(new FileX(), new ByteArrayInputStream(CONTENT));
+
+    for (var fileX : new FileX[] {diskFileX, databaseFileX}) {
+      var response = new MockHttpServletResponse();
+      store.writeContent(fileX, new MockHttpServletRequest(), response);
+
+      assertThat(response.getContentAsByteArray()).isEqualTo(CONTENT);
+      assertThat(response.getContentLength()).isEqualTo(CONTENT.length);
+    }
+  }
+
+  @Test
+  public void writesRangeFromEitherStore() throws IOException {
+    var diskFileX =
+        newStore(StoreType.LOCAL_DISK).setContent(new FileX(), new ByteArrayInputStream(CONTENT));
+    var store = newStore(StoreType.DATABASE);
+    var databaseFileX = store.setContent(new FileX(), new ByteArrayInputStream(CONTENT));
+
+    for (var fileX : new FileX[] {diskFileX, databaseFileX}) {
+      var response = new MockHttpServletResponse();
+      store.writeContent(fileX, 2, 5, new MockHttpServletRequest(), response);
+
+      assertThat(response.getContentAsString()).isEqualTo("nte");
+      assertThat(response.getContentLength()).isEqualTo(3);
+    }
+  }
+
+  @Test
+  public void sendsFileFromDiskWhenSupported() throws IOException {
+    var store = newStore(StoreType.LOCAL_DISK);
+    var fileX = store.setContent(new FileX(), new ByteArrayInputStream(CONTENT));
+    var request = new MockHttpServletRequest();
+    request.setAttribute("org.apache.tomcat.sendfile.support", true);
+    var response = new MockHttpServletResponse();
+
+    store.writeContent(fileX, request, response);
+
+    assertThat(response.getContentAsByteArray()).isEmpty();
+    assertThat((String) request.getAttribute("org.apache.tomcat.sendfile.filename"))
+        .endsWith(CONTENT_HASH);
+    assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(0L);
+    assertThat(request.getAttribute("org.apache.tomcat.sendfile.end"))
+        .isEqualTo((long) CONTENT.length);
+  }
+}
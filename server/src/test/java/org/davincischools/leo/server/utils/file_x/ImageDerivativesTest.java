@@ -0,0 +1,145 @@
+package org.davincischools.leo.server.utils.file_x;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.net.MediaType;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.CRC32;
+import javax.imageio.ImageIO;
+import org.davincischools.leo.database.daos.FileX.DerivativeSizeType;
+import org.davincischools.leo.server.utils.file_x.ImageDerivatives.Derivative;
+import org.junit.Test;
+
+public class ImageDerivativesTest {
+
+  // A photo-like image, which doesn't compress well.
+  private static BufferedImage newImage(int width, int height, int type) {
+    var image = new BufferedImage(width, height, type);
+    var random = new Random(0);
+    for (int x = 0; x < width; x++) {
+      for (int y = 0; y < height; y++) {
+        image.setRGB(x, y, random.nextInt());
+      }
+    }
+    return image;
+  }
+
+  private static byte[] encode(BufferedImage image, String format) throws IOException {
+    var bytes = new ByteArrayOutputStream();
+    ImageIO.write(image, format, bytes);
+    return bytes.toByteArray();
+  }
+
+  // Inserts an EXIF segment with an orientation after the JPEG start of image marker.
+  private static byte[] withExifOrientation(byte[] jpeg, int orientation) {
+    byte[] exif = {
+      (byte) 0xFF,
+      (byte) 0xE1,
+      0,
+      34,
+      'E',
+      'x',
+      'i',
+      'f',
+      0,
+      0,
+      'M',
+      'M',
+      0,
+      42,
+      0,
+      0,
+      0,
+      8,
+      0,
+      1,
+      0x01,
+      0x12,
+      0,
+      3,
+      0,
+      0,
+      0,
+      1,
+      0,
+      (byte) orientation,
+      0,
+      0,
+      0,
+      0,
+      0,
+      0
+    };
+    byte[] result = new byte[jpeg.length + exif.length];
+    System.arraycopy(jpeg, 0, result, 0, 2);
+    System.arraycopy(exif, 0, result, 2, exif.length);
+    System.arraycopy(jpeg, 2, result, 2 + exif.length, jpeg.length - 2);
+    return result;
+  }
+
+  private static BufferedImage decode(Derivative derivative) throws IOException {
+    return ImageIO.read(new ByteArrayInputStream(derivative.content()));
+  }
+
+  @Test
+  public void createsSmallerSizes() throws IOException {
+    byte[] original = encode(newImage(1500, 750, BufferedImage.TYPE_INT_RGB), "jpeg");
+
+    var derivatives = ImageDerivatives.createDerivatives(new ByteArrayInputStream(original));
+
+    assertThat(derivatives.stream().map(Derivative::size))
+        .containsExactly(DerivativeSizeType.MEDIUM, DerivativeSizeType.THUMBNAIL)
+        .inOrder();
+    assertThat(derivatives.get(0).mediaType()).isEqualTo(MediaType.JPEG);
+    assertThat(decode(derivatives.get(0)).getWidth()).isEqualTo(1024);
+    assertThat(decode(derivatives.get(0)).getHeight()).isEqualTo(512);
+    assertThat(decode(derivatives.get(1)).getWidth()).isEqualTo(256);
+    assertThat(decode(derivatives.get(1)).getHeight()).isEqualTo(128);
+  }
+
+  @Test
+  public void keepsTransparency() throws IOException {
+    byte[] original = encode(newImage(600, 300, BufferedImage.TYPE_INT_ARGB), "png");
+
+    var derivative = ImageDerivatives.createDerivatives(new ByteArrayInputStream(original)).get(0);
+
+    assertThat(derivative.mediaType()).isEqualTo(MediaType.PNG);
+    assertThat(decode(derivative).getColorModel().hasAlpha()).isTrue();
+  }
+
+  @Test
+  public void appliesExifOrientation() throws IOException {
+    byte[] original =
+        withExifOrientation(encode(newImage(600, 300, BufferedImage.TYPE_INT_RGB), "jpeg"), 6);
+    assertThat(ImageDerivatives.getExifOrientation(original)).isEqualTo(6);
+
+    var derivative = ImageDerivatives.createDerivatives(new ByteArrayInputStream(original)).get(0);
+
+    assertThat(decode(derivative).getWidth()).isEqualTo(128);
+    assertThat(decode(derivative).getHeight()).isEqualTo(256);
+  }
+
+  @Test
+  public void skipsUnreadableImages() throws IOException {
+    assertThat(ImageDerivatives.createDerivatives(new ByteArrayInputStream(new byte[] {1, 2, 3})))
+        .isEmpty();
+  }
+
+  @Test
+  public void skipsImagesWithTooManyPixels() throws IOException {
+    // A tiny PNG whose header claims it's 100,000 pixels square.
+    byte[] png = encode(newImage(1, 1, BufferedImage.TYPE_INT_RGB), "png");
+    ByteBuffer header = ByteBuffer.wrap(png);
+    header.putInt(16, 100_000).putInt(20, 100_000);
+    var crc = new CRC32();
+    crc.update(png, 12, 17);
+    header.putInt(29, (int) crc.getValue());
+
+    assertThat(ImageDerivatives.createDerivatives(new ByteArrayInputStream(png))).isEmpty();
+  }
+}
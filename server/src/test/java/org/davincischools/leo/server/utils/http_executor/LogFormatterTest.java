@@ -0,0 +1,69 @@
+package org.davincischools.leo.server.utils.http_executor;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Strings;
+import java.util.Base64;
+import org.davincischools.leo.protos.mailjet.MailjetSendRequestFrom;
+import org.davincischools.leo.server.utils.http_executor.LogFormatter.ProtoFormat;
+import org.junit.Test;
+
+public class LogFormatterTest {
+
+  @Test
+  public void formatSmallValue() {
+    LogFormatter formatter = new LogFormatter(100, ProtoFormat.TEXT);
+
+    assertThat(formatter.format("abc")).isEqualTo("abc");
+    assertThat(formatter.format(null)).isEqualTo("null");
+  }
+
+  @Test
+  public void formatTruncatesToByteBudget() {
+    LogFormatter formatter = new LogFormatter(100, ProtoFormat.TEXT);
+
+    String formatted = formatter.format(Strings.repeat("é", 100));
+
+    assertThat(formatted).endsWith(LogFormatter.TRUNCATED_MARKER);
+    assertThat(formatted.getBytes(java.nio.charset.StandardCharsets.UTF_8).length).isAtMost(100);
+  }
+
+  @Test
+  public void formatDoesNotSplitSurrogatePairs() {
+    LogFormatter formatter =
+        new LogFormatter(LogFormatter.TRUNCATED_MARKER.length() + 6, ProtoFormat.TEXT);
+
+    String formatted = formatter.format("😀😀");
+
+    assertThat(formatted).isEqualTo("😀" + LogFormatter.TRUNCATED_MARKER);
+  }
+
+  @Test
+  public void formatBinaryProto() throws Exception {
+    LogFormatter formatter = new LogFormatter(1000, ProtoFormat.BINARY);
+    var message = MailjetSendRequestFrom.newBuilder().setEmail("a@b.c").setName("name").build();
+
+    String formatted = formatter.format(message);
+
+    assertThat(MailjetSendRequestFrom.parseFrom(Base64.getDecoder().decode(formatted)))
+        .isEqualTo(message);
+  }
+
+  @Test
+  public void formatBinaryProtoFallsBackToText() {
+    LogFormatter formatter = new LogFormatter(30, ProtoFormat.BINARY);
+    var message = MailjetSendRequestFrom.newBuilder().setEmail(Strings.repeat("a", 100)).build();
+
+    assertThat(formatter.format(message)).startsWith("Email: \"aaa");
+  }
+
+  @Test
+  public void snapshotBuilder() {
+    var builder = MailjetSendRequestFrom.newBuilder().setEmail("a@b.c");
+
+    Object snapshot = LogFormatter.snapshot(builder);
+    builder.setEmail("changed");
+
+    assertThat(snapshot).isEqualTo(MailjetSendRequestFrom.newBuilder().setEmail("a@b.c").build());
+  }
+}
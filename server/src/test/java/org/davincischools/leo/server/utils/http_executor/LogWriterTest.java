@@ -0,0 +1,60 @@
+package org.davincischools.leo.server.utils.http_executor;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.davincischools.leo.database.daos.Log;
+import org.davincischools.leo.database.daos.Log.StatusType;
+import org.davincischools.leo.server.utils.http_executor.LogWriter.Backpressure;
+import org.junit.Test;
+
+public class LogWriterTest {
+
+  // Every write fails. The logs are counted as failed rather than lost.
+  private static final DataSource FAILING_DATA_SOURCE =
+      (DataSource)
+          Proxy.newProxyInstance(
+              LogWriterTest.class.getClassLoader(),
+              new Class<?>[] {DataSource.class},
+              (proxy, method, args) -> {
+                throw new SQLException("Unavailable.");
+              });
+
+  @Test
+  public void keepsWritingAfterFlushThreadIsInterrupted() throws Exception {
+    var logWriter =
+        new LogWriter(
+            FAILING_DATA_SOURCE,
+            /* queueCapacity= */ 1,
+            /* batchSize= */ 1,
+            /* flushIntervalMs= */ 10,
+            Backpressure.BLOCK,
+            /* sampleRate= */ 0.1);
+    logWriter.startFlushThread();
+    logWriter.getFlushThread().interrupt();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // More logs than fit in the queue.
+    var writes =
+        executor.submit(
+            () -> {
+              for (int i = 0; i < 100; i++) {
+                logWriter.write(new Log().setStatus(StatusType.ERROR), List.of());
+              }
+            });
+    writes.get(10, TimeUnit.SECONDS);
+
+    executor.submit(logWriter::shutdown).get(10, TimeUnit.SECONDS);
+    executor.shutdown();
+
+    assertThat(logWriter.getFailedLogs()).isEqualTo(100);
+    assertThat(logWriter.getDroppedLogs()).isEqualTo(0);
+    assertThat(logWriter.getPendingLogs()).isEqualTo(0);
+  }
+}
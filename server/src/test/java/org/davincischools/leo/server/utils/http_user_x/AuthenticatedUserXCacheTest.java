@@ -0,0 +1,119 @@
+package org.davincischools.leo.server.utils.http_user_x;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.davincischools.leo.database.daos.District;
+import org.davincischools.leo.database.daos.UserX;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+
+public class AuthenticatedUserXCacheTest {
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private Optional<UserX> load() {
+    loads.incrementAndGet();
+    return Optional.of(new UserX().setId(1));
+  }
+
+  private static MockHttpServletRequest newRequest(MockHttpSession session) {
+    var request = new MockHttpServletRequest();
+    request.setSession(session);
+    return request;
+  }
+
+  @Test
+  public void loadsOncePerRequest() {
+    var cache = new AuthenticatedUserXCache(/* sessionTtlMs= */ 0);
+    var request = new MockHttpServletRequest();
+    var auth = new TestingAuthenticationToken("user", null);
+
+    var first = cache.get(request, auth, this::load);
+    var second = cache.get(request, auth, this::load);
+
+    assertThat(second).isSameInstanceAs(first);
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void reloadsWhenAuthenticationChanges() {
+    var cache = new AuthenticatedUserXCache(/* sessionTtlMs= */ 0);
+    var request = new MockHttpServletRequest();
+
+    cache.get(request, new TestingAuthenticationToken("user", null), this::load);
+    cache.get(request, new TestingAuthenticationToken("other", null), this::load);
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void loadsOncePerSession() {
+    var cache = new AuthenticatedUserXCache(/* sessionTtlMs= */ 60000);
+    var session = new MockHttpSession();
+    var auth = new TestingAuthenticationToken("user", null);
+
+    cache.get(newRequest(session), auth, this::load);
+    cache.get(newRequest(session), auth, this::load);
+    cache.get(newRequest(new MockHttpSession()), auth, this::load);
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void invalidateReloadsUserX() {
+    var cache = new AuthenticatedUserXCache(/* sessionTtlMs= */ 60000);
+    var session = new MockHttpSession();
+    var auth = new TestingAuthenticationToken("user", null);
+
+    cache.get(newRequest(session), auth, this::load);
+    cache.invalidate(/* userXId= */ 2);
+    cache.get(newRequest(session), auth, this::load);
+    assertThat(loads.get()).isEqualTo(1);
+
+    cache.invalidate(/* userXId= */ 1);
+    cache.get(newRequest(session), auth, this::load);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void doesNotCacheMissingUserXInSession() {
+    var cache = new AuthenticatedUserXCache(/* sessionTtlMs= */ 60000);
+    var session = new MockHttpSession();
+    var auth = new TestingAuthenticationToken("user", null);
+
+    cache.get(newRequest(session), auth, () -> Optional.empty());
+    var userX = cache.get(newRequest(session), auth, this::load);
+
+    assertThat(userX).isPresent();
+  }
+
+  @Test
+  public void requestsGetTheirOwnCopy() {
+    var cache = new AuthenticatedUserXCache(/* sessionTtlMs= */ 60000);
+    var session = new MockHttpSession();
+    var auth = new TestingAuthenticationToken("user", null);
+
+    cache.get(
+        newRequest(session),
+        auth,
+        () ->
+            Optional.of(
+                new UserX()
+                    .setId(1)
+                    .setFirstName("First")
+                    .setDistrict(new District().setId(2).setIsDemo(false))));
+    var first = cache.get(newRequest(session), auth, this::load).orElseThrow();
+    first.setFirstName("Changed");
+    first.getDistrict().setIsDemo(true);
+    var second = cache.get(newRequest(session), auth, this::load).orElseThrow();
+
+    assertThat(second).isNotSameInstanceAs(first);
+    assertThat(second.getFirstName()).isEqualTo("First");
+    assertThat(second.getDistrict().getIsDemo()).isFalse();
+    assertThat(loads.get()).isEqualTo(0);
+  }
+}
@@ -0,0 +1,82 @@
+package org.davincischools.leo.server.utils.http_user_x;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.davincischools.leo.database.utils.ReplicaRoutingDataSource;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+public class ReadYourWritesInterceptorTest {
+
+  private final ReadYourWritesInterceptor interceptor = new ReadYourWritesInterceptor();
+  private final MockHttpServletRequest request = new MockHttpServletRequest();
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  @After
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+    ReplicaRoutingDataSource.setSessionKey(null);
+  }
+
+  @Test
+  public void authenticatedUserIsTheSession() {
+    SecurityContextHolder.getContext()
+        .setAuthentication(new TestingAuthenticationToken("user", null, "ROLE_USER"));
+    request.setSession(new MockHttpSession(null, "id"));
+
+    interceptor.preHandle(request, response, new Object());
+
+    assertThat(ReplicaRoutingDataSource.getSessionKey()).isEqualTo("user:user");
+  }
+
+  @Test
+  public void anonymousUserUsesTheHttpSession() {
+    SecurityContextHolder.getContext()
+        .setAuthentication(
+            new AnonymousAuthenticationToken(
+                "key", "anonymous", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+    request.setSession(new MockHttpSession(null, "id"));
+
+    interceptor.preHandle(request, response, new Object());
+
+    assertThat(ReplicaRoutingDataSource.getSessionKey()).isEqualTo("session:id");
+  }
+
+  @Test
+  public void earlierSessionIsClearedBeforeRequest() {
+    ReplicaRoutingDataSource.setSessionKey("user:earlier");
+
+    interceptor.preHandle(request, response, new Object());
+
+    assertThat(ReplicaRoutingDataSource.getSessionKey()).isNull();
+  }
+
+  @Test
+  public void sessionIsClearedWhenAsyncProcessingStarts() {
+    request.setSession(new MockHttpSession(null, "id"));
+    interceptor.preHandle(request, response, new Object());
+    assertThat(ReplicaRoutingDataSource.getSessionKey()).isNotNull();
+
+    interceptor.afterConcurrentHandlingStarted(request, response, new Object());
+
+    assertThat(ReplicaRoutingDataSource.getSessionKey()).isNull();
+  }
+
+  @Test
+  public void sessionIsClearedWhenRequestCompletes() {
+    request.setSession(new MockHttpSession(null, "id"));
+    interceptor.preHandle(request, response, new Object());
+    assertThat(ReplicaRoutingDataSource.getSessionKey()).isNotNull();
+
+    interceptor.afterCompletion(request, response, new Object(), null);
+
+    assertThat(ReplicaRoutingDataSource.getSessionKey()).isNull();
+  }
+}
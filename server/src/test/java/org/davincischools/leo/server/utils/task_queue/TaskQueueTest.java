@@ -0,0 +1,226 @@
+package org.davincischools.leo.server.utils.task_queue;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.base.Stopwatch;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.davincischools.leo.protos.task_service.ReplyToPostTask;
+import org.davincischools.leo.server.utils.ConcurrencyLimiter;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+public class TaskQueueTest {
+
+  private static class TestTaskQueue extends TaskQueue<ReplyToPostTask, DefaultTaskMetadata> {
+
+    final List<Integer> processed = new CopyOnWriteArrayList<>();
+    final CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(0);
+    CountDownLatch done;
+
+    TestTaskQueue(int numThreads, int expectedTasks) {
+      super(numThreads);
+      done = new CountDownLatch(expectedTasks);
+    }
+
+    @Override
+    protected DefaultTaskMetadata createDefaultMetadata() {
+      return new DefaultTaskMetadata();
+    }
+
+    @Override
+    protected boolean processTask(ReplyToPostTask task, DefaultTaskMetadata metadata)
+        throws InterruptedException {
+      started.countDown();
+      release.await();
+      processed.add(task.getProjectId());
+      done.countDown();
+      return true;
+    }
+  }
+
+  private static ReplyToPostTask task(int projectId) {
+    return ReplyToPostTask.newBuilder().setProjectId(projectId).build();
+  }
+
+  @Test
+  public void processesTasksInOrder() throws InterruptedException {
+    var queue = new TestTaskQueue(/* numThreads= */ 1, /* expectedTasks= */ 3);
+
+    queue.submitTask(task(1), Duration.ZERO);
+    queue.submitTask(task(2), Duration.ZERO);
+    queue.submitTask(task(3), Duration.ZERO);
+
+    assertThat(queue.done.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(queue.processed).containsExactly(1, 2, 3).inOrder();
+  }
+
+  @Test
+  public void processesDelayedTasks() throws InterruptedException {
+    var queue = new TestTaskQueue(/* numThreads= */ 2, /* expectedTasks= */ 2);
+
+    queue.submitTask(task(1), Duration.ofMillis(200));
+    queue.submitTask(task(2), Duration.ZERO);
+
+    assertThat(queue.done.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(queue.processed).containsExactly(2, 1).inOrder();
+  }
+
+  @Test
+  public void deduplicatesPendingTasks() throws InterruptedException {
+    var queue = new TestTaskQueue(/* numThreads= */ 2, /* expectedTasks= */ 3);
+    queue.release = new CountDownLatch(1);
+
+    queue.submitTask(task(1), Duration.ZERO);
+    assertThat(queue.started.await(10, TimeUnit.SECONDS)).isTrue();
+
+    // Task 1 is being processed. So, its resubmissions wait, as a single task, until it's done.
+    queue.submitTask(task(1), Duration.ZERO);
+    queue.submitTask(task(1), Duration.ZERO);
+    queue.submitTask(task(2), Duration.ZERO);
+    queue.release.countDown();
+
+    assertThat(queue.done.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(queue.processed).containsExactly(1, 1, 2);
+
+    var metadata =
+        TaskQueue.getTaskQueueMetadata().stream()
+            .filter(m -> m.getTaskQueue() == queue)
+            .findFirst()
+            .orElseThrow();
+    assertThat(metadata.getSubmittedTasks()).isEqualTo(4);
+    assertThat(metadata.getSkippedTasks()).isEqualTo(1);
+  }
+
+  @Test
+  public void recordsWaitAndRunTimes() throws InterruptedException {
+    var registry = new SimpleMeterRegistry();
+    Metrics.globalRegistry.add(registry);
+    try {
+      var queue = new TestTaskQueue(/* numThreads= */ 1, /* expectedTasks= */ 2);
+
+      queue.submitTask(task(1), Duration.ZERO);
+      queue.submitTask(task(2), Duration.ZERO);
+      assertThat(queue.done.await(10, TimeUnit.SECONDS)).isTrue();
+
+      // The run time is recorded after the task returns.
+      Timer run = registry.get("leo.task_queue.run").tag("outcome", "success").timer();
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      while (run.count() < 2 && stopwatch.elapsed(TimeUnit.SECONDS) < 10) {
+        Thread.sleep(10);
+      }
+      assertThat(run.count()).isEqualTo(2);
+      assertThat(registry.get("leo.task_queue.wait").timer().count()).isEqualTo(2);
+    } finally {
+      Metrics.globalRegistry.remove(registry);
+    }
+  }
+
+  private static class LimitedTaskQueue extends TaskQueue<ReplyToPostTask, DefaultTaskMetadata> {
+
+    final ConcurrencyLimiter limiter;
+    final CountDownLatch release;
+    final CountDownLatch done;
+    final AtomicInteger maxActive;
+
+    LimitedTaskQueue(
+        ConcurrencyLimiter limiter,
+        CountDownLatch release,
+        CountDownLatch done,
+        AtomicInteger maxActive) {
+      super(limiter);
+      this.limiter = limiter;
+      this.release = release;
+      this.done = done;
+      this.maxActive = maxActive;
+    }
+
+    @Override
+    protected DefaultTaskMetadata createDefaultMetadata() {
+      return new DefaultTaskMetadata();
+    }
+
+    @Override
+    protected boolean processTask(ReplyToPostTask task, DefaultTaskMetadata metadata)
+        throws InterruptedException {
+      limiter.call(
+          () -> {
+            maxActive.accumulateAndGet(limiter.getActiveCalls(), Math::max);
+            release.await();
+            return null;
+          });
+      done.countDown();
+      return true;
+    }
+  }
+
+  @Test
+  public void limiterQueuesShareTheLimitRatherThanFixedPools() throws InterruptedException {
+    var limiter = new ConcurrencyLimiter("test", 4);
+    var release = new CountDownLatch(1);
+    var done = new CountDownLatch(12);
+    var maxActive = new AtomicInteger();
+    var first = new LimitedTaskQueue(limiter, release, done, maxActive);
+    var second = new LimitedTaskQueue(limiter, release, done, maxActive);
+
+    for (int i = 0; i < 6; i++) {
+      first.submitTask(task(i), Duration.ZERO);
+      second.submitTask(task(i), Duration.ZERO);
+    }
+
+    // As many tasks are in flight as the limit allows, across both queues.
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    while (limiter.getActiveCalls() < 4 && stopwatch.elapsed(TimeUnit.SECONDS) < 10) {
+      Thread.sleep(10);
+    }
+    Thread.sleep(100);
+    assertThat(limiter.getActiveCalls()).isEqualTo(4);
+    // The rest are queued for a thread, rather than holding one while waiting for the limiter.
+    assertThat(limiter.getWaitingCalls()).isEqualTo(0);
+
+    release.countDown();
+    assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(maxActive.get()).isEqualTo(4);
+  }
+
+  private static class CustomTaskMetadata extends TaskMetadata<CustomTaskMetadata> {
+    int pageToken;
+  }
+
+  private static class CustomTaskQueue extends TaskQueue<ReplyToPostTask, CustomTaskMetadata> {
+
+    CustomTaskQueue() {
+      super(/* numThreads= */ 1);
+    }
+
+    @Override
+    protected CustomTaskMetadata createDefaultMetadata() {
+      return new CustomTaskMetadata();
+    }
+
+    @Override
+    protected boolean processTask(ReplyToPostTask task, CustomTaskMetadata metadata) {
+      return true;
+    }
+  }
+
+  @Test
+  public void rejectsCustomMetadataWhenPersistent() {
+    var queue = new CustomTaskQueue();
+    var environment = new MockEnvironment().withProperty(TaskQueue.PERSISTENT_PROP_NAME, "true");
+
+    // Only retries are persisted. So, the custom fields would be lost.
+    assertThrows(
+        IllegalStateException.class,
+        () -> queue.initializeAutowiredProperties(environment, /* db= */ null));
+  }
+}
@@ -0,0 +1,207 @@
+package org.davincischools.leo.server.utils.task_queue.workers;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.davincischools.leo.database.daos.Project;
+import org.davincischools.leo.database.daos.ProjectPost;
+import org.davincischools.leo.database.daos.ProjectPostSummary;
+import org.davincischools.leo.database.daos.UserX;
+import org.davincischools.leo.database.test.TestData;
+import org.davincischools.leo.database.test.TestDatabase;
+import org.davincischools.leo.database.utils.Database;
+import org.davincischools.leo.protos.task_service.ReplyToPostTask;
+import org.davincischools.leo.server.utils.ConcurrencyLimiter;
+import org.davincischools.leo.server.utils.task_queue.DefaultTaskMetadata;
+import org.davincischools.leo.server.utils.task_queue.workers.reply_to_post_generators.AiComment;
+import org.davincischools.leo.server.utils.task_queue.workers.reply_to_post_generators.CommentGeneratorIo;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ReplyToPostsWorkerTest.TestApplicationConfiguration.class)
+public class ReplyToPostsWorkerTest {
+
+  @Configuration
+  @ComponentScan(basePackageClasses = {TestDatabase.class, Database.class})
+  @EnableAutoConfiguration
+  public static class TestApplicationConfiguration {}
+
+  // What the generator was asked to comment on, and what it knew about earlier posts.
+  private record Request(String newPostContent, String previousPostsSummary) {}
+
+  @Autowired private Database db;
+  @Autowired private TestData testData;
+
+  private final List<Request> requests = new ArrayList<>();
+  @Nullable private String failOnPostContent;
+  private UserX coach;
+  private Project project;
+
+  @Before
+  public void setup() {
+    testData.addTestData();
+    coach = db.getUserXRepository().getProjectLeoCoach();
+    project =
+        db.getProjectRepository()
+            .save(new Project().setCreationTime(Instant.now()).setName("Project"));
+  }
+
+  @Test
+  public void checkpointAdvancesWithEachPostTest() throws Exception {
+    ProjectPost first = addPost("first");
+    ProjectPost second = addPost("second");
+
+    assertThat(processTask()).isTrue();
+
+    assertThat(requests)
+        .containsExactly(new Request("first", ""), new Request("second", "summary of first"))
+        .inOrder();
+    ProjectPostSummary summary = getSummary();
+    assertThat(summary.getThroughProjectPostId()).isEqualTo(second.getId());
+    assertThat(summary.getPostsSummary().trim()).isEqualTo("summary of first summary of second");
+    assertThat(getCoachCommentPostIds()).containsExactly(first.getId(), second.getId());
+  }
+
+  @Test
+  public void nothingToDoAfterCheckpointTest() throws Exception {
+    addPost("first");
+    assertThat(processTask()).isTrue();
+    requests.clear();
+
+    assertThat(processTask()).isFalse();
+
+    assertThat(requests).isEmpty();
+  }
+
+  @Test
+  public void restartsFromCheckpointTest() throws Exception {
+    ProjectPost first = addPost("first");
+    processTask();
+    ProjectPost second = addPost("second");
+    requests.clear();
+
+    // A new worker, e.g., after the server restarts, only loads the summary and the new post.
+    assertThat(processTask()).isTrue();
+
+    assertThat(requests).containsExactly(new Request("second", "summary of first"));
+    assertThat(getSummary().getThroughProjectPostId()).isEqualTo(second.getId());
+    assertThat(getCoachCommentPostIds()).containsExactly(first.getId(), second.getId());
+  }
+
+  @Test
+  public void failureKeepsEarlierProgressTest() throws Exception {
+    ProjectPost first = addPost("first");
+    ProjectPost second = addPost("second");
+    failOnPostContent = "second";
+
+    assertThrows(IOException.class, this::processTask);
+
+    assertThat(getSummary().getThroughProjectPostId()).isEqualTo(first.getId());
+    assertThat(getCoachCommentPostIds()).containsExactly(first.getId());
+
+    // The retry continues from the checkpoint.
+    failOnPostContent = null;
+    requests.clear();
+    assertThat(processTask()).isTrue();
+
+    assertThat(requests).containsExactly(new Request("second", "summary of first"));
+    assertThat(getSummary().getThroughProjectPostId()).isEqualTo(second.getId());
+  }
+
+  @Test
+  public void outOfOrderPostDoesNotMoveCheckpointTest() throws Exception {
+    ProjectPost first = addPost("first");
+    ProjectPost second = addPost("second").setBeingEdited(true);
+    db.getProjectPostRepository().save(second);
+    ProjectPost third = addPost("third");
+
+    // The second post is skipped while it's being edited.
+    assertThat(processTask()).isTrue();
+    assertThat(getSummary().getThroughProjectPostId()).isEqualTo(third.getId());
+    String postsSummary = getSummary().getPostsSummary();
+    assertThat(postsSummary.trim()).isEqualTo("summary of first summary of third");
+
+    // It's commented on once it's done. But, it's already covered by the later checkpoint.
+    db.getProjectPostRepository().save(second.setBeingEdited(false));
+    requests.clear();
+    assertThat(processTask()).isTrue();
+
+    assertThat(requests)
+        .containsExactly(new Request("second", "summary of first summary of third"));
+    ProjectPostSummary summary = getSummary();
+    assertThat(summary.getThroughProjectPostId()).isEqualTo(third.getId());
+    assertThat(summary.getPostsSummary()).isEqualTo(postsSummary);
+    assertThat(getCoachCommentPostIds())
+        .containsExactly(first.getId(), second.getId(), third.getId());
+  }
+
+  private boolean processTask() throws IOException, InterruptedException {
+    return new ReplyToPostsWorker(db, this::generateComment, new ConcurrencyLimiter("test", 1))
+        .processTask(
+            ReplyToPostTask.newBuilder().setProjectId(project.getId()).build(),
+            new DefaultTaskMetadata());
+  }
+
+  private void generateComment(CommentGeneratorIo generatorIo) throws IOException {
+    String content = generatorIo.getNewPostContent();
+    if (content.equals(failOnPostContent)) {
+      throw new IOException("Unable to generate a comment.");
+    }
+    requests.add(new Request(content, generatorIo.getPreviousPostsSummary()));
+    generatorIo.setAiComment(
+        new AiComment()
+            .setFeedbackSummary("comment on " + content)
+            .setNewContentSummary("summary of " + content)
+            .setPositiveFeedback("positive feedback on " + content)
+            .setWhatToImproveFeedback("to improve in " + content)
+            .setHowTheyImprovedFeedback("improved in " + content)
+            .setFeedbackRequestResponse("response to " + content)
+            .setGoalRatings(List.of()));
+  }
+
+  private ProjectPost addPost(String content) {
+    return db.getProjectPostRepository()
+        .save(
+            new ProjectPost()
+                .setCreationTime(Instant.now())
+                .setPostTime(Instant.now())
+                .setName(content)
+                .setLongDescrHtml(content)
+                .setBeingEdited(false)
+                .setUserX(testData.getStudent())
+                .setProject(project));
+  }
+
+  private ProjectPostSummary getSummary() {
+    return db.getProjectPostSummaryRepository().findByProjectId(project.getId()).orElseThrow();
+  }
+
+  private List<Integer> getCoachCommentPostIds() {
+    return db
+        .getProjectPostCommentRepository()
+        .findByProjectPostIdsAndUserXId(
+            db
+                .getProjectPostRepository()
+                .findPostsAfterOrWithoutComment(project.getId(), 0, coach.getId())
+                .stream()
+                .map(ProjectPost::getId)
+                .toList(),
+            coach.getId())
+        .stream()
+        .map(comment -> comment.getProjectPost().getId())
+        .toList();
+  }
+}
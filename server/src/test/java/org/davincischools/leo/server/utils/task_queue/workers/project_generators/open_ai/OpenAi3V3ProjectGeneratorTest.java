@@ -0,0 +1,20 @@
+package org.davincischools.leo.server.utils.task_queue.workers.project_generators.open_ai;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.davincischools.leo.server.utils.task_queue.workers.project_generators.AiProject;
+import org.junit.Test;
+
+public class OpenAi3V3ProjectGeneratorTest {
+
+  @Test
+  public void projectsIgnoreUnknownFields() throws Exception {
+    AiProject project =
+        OpenAi3V3ProjectGenerator.AI_PROJECT_READER.readValue(
+            "{\"name\": \"Solar Oven\", \"shortDescr\": \"Cook with the sun.\","
+                + " \"difficulty\": \"easy\"}");
+
+    assertThat(project.name).isEqualTo("Solar Oven");
+    assertThat(project.shortDescr).isEqualTo("Cook with the sun.");
+  }
+}